@@ -0,0 +1,62 @@
+package no.ntnu.benchmarks;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import no.ntnu.commands.Data;
+import no.ntnu.tools.BinaryCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of the binary protocol for one message type at a time, once the sensors of the
+ * message have been described on the connection, as on a connection that has been up for a
+ * while.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BinaryCodecBenchmark {
+  @Param({Messages.READING, Messages.READING_BATCH, Messages.ACTUATOR_COMMAND,
+          Messages.NODE_IDENTIFIER, Messages.SENSOR_IDENTIFIER, Messages.ACTUATOR_IDENTIFIER,
+          Messages.SNAPSHOT})
+  public String type;
+
+  private Data message;
+  private BinaryCodec encoder;
+  private BinaryCodec decoder;
+  private ByteBuffer frame;
+
+  /**
+   * Encode the message once, so the encoder has described its sensors, and pass the frames to
+   * the decoder, keeping the last frame, which holds the message itself.
+   */
+  @Setup
+  public void setUp() {
+    this.message = Messages.create(this.type, 7);
+    this.encoder = new BinaryCodec();
+    this.decoder = new BinaryCodec();
+    this.frame = FrameSplitter.decodeAll(this.decoder, this.encoder.encode(this.message));
+  }
+
+  @Benchmark
+  public int encode() {
+    return this.encoder.encode(this.message).remaining();
+  }
+
+  @Benchmark
+  public Data decode() {
+    return this.decoder.decode(this.frame.rewind());
+  }
+}
@@ -0,0 +1,50 @@
+package no.ntnu.benchmarks;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import no.ntnu.tools.BinaryCodec;
+
+/**
+ * Splits the output of {@link BinaryCodec#encode} into frames, the way a reader of the
+ * connection does.
+ */
+final class FrameSplitter {
+  /**
+   * Constructing the class is not allowed.
+   */
+  private FrameSplitter() {
+  }
+
+  /**
+   * Copy the bodies of the frames in a buffer, without their length prefixes.
+   *
+   * @param encoded The encoded frames. Its position is moved past them.
+   * @return the frame bodies, each in a buffer of its own.
+   */
+  static List<ByteBuffer> split(ByteBuffer encoded) {
+    List<ByteBuffer> frames = new ArrayList<>();
+    while (encoded.hasRemaining()) {
+      int length = BinaryCodec.readFrameLength(encoded);
+      byte[] body = new byte[length];
+      encoded.get(body);
+      frames.add(ByteBuffer.wrap(body));
+    }
+    return frames;
+  }
+
+  /**
+   * Decode every frame in a buffer, so the decoder learns the sensor schemas they describe.
+   *
+   * @param decoder The decoder.
+   * @param encoded The encoded frames.
+   * @return the body of the last frame, positioned at its start.
+   */
+  static ByteBuffer decodeAll(BinaryCodec decoder, ByteBuffer encoded) {
+    List<ByteBuffer> frames = split(encoded);
+    for (ByteBuffer frame : frames) {
+      decoder.decode(frame);
+    }
+    return frames.get(frames.size() - 1).rewind();
+  }
+}
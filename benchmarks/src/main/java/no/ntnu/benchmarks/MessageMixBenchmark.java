@@ -0,0 +1,88 @@
+package no.ntnu.benchmarks;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import no.ntnu.commands.Data;
+import no.ntnu.tools.BinaryCodec;
+import no.ntnu.tools.MessageHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of encoding and decoding the mix of messages of a running greenhouse, see
+ * {@link Messages#createMix}, in either format. Every operation handles the next message of
+ * the mix, so the numbers are messages per second.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageMixBenchmark {
+  private static final int MIX_SIZE = 1000;
+
+  @Param({"text", "binary"})
+  public String codec;
+
+  private Data[] messages;
+  private String[] lines;
+  private ByteBuffer[] frames;
+  private BinaryCodec encoder;
+  private BinaryCodec decoder;
+  private int next;
+
+  /**
+   * Create the mix, and its lines or frames.
+   */
+  @Setup
+  public void setUp() {
+    this.messages = Messages.createMix(MIX_SIZE).toArray(new Data[0]);
+    this.lines = new String[MIX_SIZE];
+    this.frames = new ByteBuffer[MIX_SIZE];
+    this.encoder = new BinaryCodec();
+    this.decoder = new BinaryCodec();
+    for (int i = 0; i < MIX_SIZE; i++) {
+      this.lines[i] = MessageHandler.serialize(this.messages[i]);
+      List<ByteBuffer> encoded = FrameSplitter.split(this.encoder.encode(this.messages[i]));
+      for (ByteBuffer frame : encoded) {
+        this.decoder.decode(frame);
+      }
+      this.frames[i] = encoded.get(encoded.size() - 1);
+    }
+  }
+
+  @Benchmark
+  public Object encode() {
+    Data message = this.messages[nextIndex()];
+    if (this.codec.equals("text")) {
+      return MessageHandler.serialize(message);
+    }
+    return this.encoder.encode(message);
+  }
+
+  @Benchmark
+  public Data decode() {
+    int index = nextIndex();
+    if (this.codec.equals("text")) {
+      return MessageHandler.getData(this.lines[index]);
+    }
+    return this.decoder.decode(this.frames[index].rewind());
+  }
+
+  private int nextIndex() {
+    int index = this.next;
+    this.next = index + 1 == MIX_SIZE ? 0 : index + 1;
+    return index;
+  }
+}
@@ -0,0 +1,110 @@
+package no.ntnu.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import no.ntnu.commands.ActuatorCommand;
+import no.ntnu.commands.ActuatorIdentifier;
+import no.ntnu.commands.Data;
+import no.ntnu.commands.NodeIdentifier;
+import no.ntnu.commands.SensorIdentifier;
+import no.ntnu.commands.SensorReadingBatch;
+import no.ntnu.commands.SensorReadingMessage;
+import no.ntnu.commands.Snapshot;
+
+/**
+ * The messages the benchmarks encode and decode, as a running greenhouse sends them.
+ */
+final class Messages {
+  /**
+   * The message types that can be benchmarked one at a time.
+   */
+  static final String READING = "Reading";
+  static final String READING_BATCH = "ReadingBatch";
+  static final String ACTUATOR_COMMAND = "ActuatorCommand";
+  static final String NODE_IDENTIFIER = "NodeIdentifier";
+  static final String SENSOR_IDENTIFIER = "SensorIdentifier";
+  static final String ACTUATOR_IDENTIFIER = "ActuatorIdentifier";
+  static final String SNAPSHOT = "Snapshot";
+
+  private static final long TIME = 1_792_336_113_175L;
+  private static final long MONOTONIC_TIME = 4_467_648_863_027L;
+
+  /**
+   * Constructing the class is not allowed.
+   */
+  private Messages() {
+  }
+
+  /**
+   * Create a typical message of a type.
+   *
+   * @param type    One of the type names of this class.
+   * @param variant Varies the IDs and values, so a mix does not repeat one message.
+   * @return the message.
+   */
+  static Data create(String type, int variant) {
+    int nodeId = 1 + variant % 40;
+    int sensorId = 100 + variant % 400;
+    return switch (type) {
+      case READING -> new SensorReadingMessage("Reading", nodeId, sensorId, "temperature",
+              21.5 + variant % 100 / 10.0, "°C", 1000 + variant, TIME + variant,
+              MONOTONIC_TIME + variant * 1_000_000L);
+      case READING_BATCH -> new SensorReadingBatch("ReadingBatch", nodeId,
+              TIME * 1000 + variant, TIME + variant, MONOTONIC_TIME + variant * 1_000_000L,
+              new int[] {sensorId, sensorId + 1, sensorId + 2},
+              new long[] {1000 + variant, 1000 + variant, 1000 + variant},
+              new String[] {"temperature", "humidity", "temperature"},
+              new double[] {21.5 + variant % 100 / 10.0, 64.25, 19.75},
+              new String[] {"°C", "%", "°C"});
+      case ACTUATOR_COMMAND -> new ActuatorCommand("ActuatorCommand", nodeId,
+              200 + variant % 100, variant % 2 == 0 ? "On" : "Off");
+      case NODE_IDENTIFIER -> new NodeIdentifier("Identifier", nodeId);
+      case SENSOR_IDENTIFIER -> new SensorIdentifier("Identifier", nodeId,
+              variant % 2 == 0 ? "temperature" : "humidity", sensorId,
+              variant % 2 == 0 ? "°C" : "%");
+      case ACTUATOR_IDENTIFIER -> new ActuatorIdentifier("Identifier", nodeId,
+              variant % 2 == 0 ? "fan" : "heater", 200 + variant % 100, variant % 3 == 0);
+      case SNAPSHOT -> new Snapshot("Snapshot", nodeId,
+              new int[] {sensorId, sensorId + 1, sensorId + 2},
+              new String[] {"temperature", "humidity", "temperature"},
+              new String[] {"°C", "%", "°C"},
+              new double[] {21.5, 64.25, Double.NaN},
+              new int[] {200, 201},
+              new String[] {"fan", "heater"},
+              new boolean[] {true, false});
+      default -> throw new IllegalArgumentException("Unknown message type: " + type);
+    };
+  }
+
+  /**
+   * Create a mix of messages in the proportions of a running greenhouse: mostly reading
+   * batches and readings, some actuator commands and identifiers, and a few snapshots.
+   *
+   * @param size The number of messages.
+   * @return the messages, in a fixed, interleaved order.
+   */
+  static List<Data> createMix(int size) {
+    List<Data> mix = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      int slot = i % 100;
+      String type;
+      if (slot < 70) {
+        type = READING_BATCH;
+      } else if (slot < 85) {
+        type = READING;
+      } else if (slot < 91) {
+        type = ACTUATOR_COMMAND;
+      } else if (slot < 94) {
+        type = SENSOR_IDENTIFIER;
+      } else if (slot < 97) {
+        type = ACTUATOR_IDENTIFIER;
+      } else if (slot < 99) {
+        type = NODE_IDENTIFIER;
+      } else {
+        type = SNAPSHOT;
+      }
+      mix.add(create(type, i));
+    }
+    return mix;
+  }
+}
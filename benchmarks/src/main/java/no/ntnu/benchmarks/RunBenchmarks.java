@@ -0,0 +1,53 @@
+package no.ntnu.benchmarks;
+
+import java.io.File;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the usual JMH command-line options, and always measures the
+ * allocation per operation and writes the results as JSON. Unless {@code -rff} says otherwise,
+ * the results go to {@code jmh-results/<date>-<time>.json}, so the files of earlier runs are
+ * kept and can be compared.
+ */
+public class RunBenchmarks {
+  private static final DateTimeFormatter FILE_TIME =
+          DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+  /**
+   * Constructing the class is not allowed.
+   */
+  private RunBenchmarks() {
+  }
+
+  /**
+   * Run the benchmarks.
+   *
+   * @param args JMH command-line options, for example a regular expression of the benchmarks.
+   * @throws RunnerException            If a benchmark failed.
+   * @throws CommandLineOptionException If the options are not valid.
+   */
+  public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+    CommandLineOptions commandLine = new CommandLineOptions(args);
+    ChainedOptionsBuilder options = new OptionsBuilder()
+            .parent(commandLine)
+            .addProfiler(GCProfiler.class)
+            .resultFormat(ResultFormatType.JSON);
+    if (!commandLine.getResult().hasValue()) {
+      File results = new File("jmh-results", LocalDateTime.now().format(FILE_TIME) + ".json");
+      if (!results.getParentFile().mkdirs() && !results.getParentFile().isDirectory()) {
+        throw new RunnerException("Could not create " + results.getParentFile());
+      }
+      options.result(results.getPath());
+    }
+    new Runner(options.build()).run();
+  }
+}
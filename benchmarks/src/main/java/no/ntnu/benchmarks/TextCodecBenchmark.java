@@ -0,0 +1,64 @@
+package no.ntnu.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import no.ntnu.commands.Data;
+import no.ntnu.tools.MessageFields;
+import no.ntnu.tools.MessageHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of the text protocol for one message type at a time: scanning the fields of a
+ * line, decoding a line into a message, and encoding a message into a line.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TextCodecBenchmark {
+  @Param({Messages.READING, Messages.READING_BATCH, Messages.ACTUATOR_COMMAND,
+          Messages.NODE_IDENTIFIER, Messages.SENSOR_IDENTIFIER, Messages.ACTUATOR_IDENTIFIER,
+          Messages.SNAPSHOT})
+  public String type;
+
+  private Data message;
+  private String line;
+  private MessageFields fields;
+
+  /**
+   * Create the message and its line.
+   */
+  @Setup
+  public void setUp() {
+    this.message = Messages.create(this.type, 7);
+    this.line = MessageHandler.serialize(this.message);
+    this.fields = new MessageFields();
+  }
+
+  @Benchmark
+  public MessageFields parseFields() {
+    this.fields.parse(this.line);
+    return this.fields;
+  }
+
+  @Benchmark
+  public Data decode() {
+    return MessageHandler.getData(this.line);
+  }
+
+  @Benchmark
+  public String encode() {
+    return MessageHandler.serialize(this.message);
+  }
+}
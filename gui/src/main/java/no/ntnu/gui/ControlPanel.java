@@ -0,0 +1,474 @@
+package no.ntnu.gui;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+import no.ntnu.commands.*;
+import no.ntnu.gui.greenhouse.GreenhouseApplication;
+import no.ntnu.gui.greenhouse.NodeTab;
+import no.ntnu.listeners.NodeTabObserver;
+import no.ntnu.listeners.node.ActuatorListener;
+import no.ntnu.node.Node;
+import no.ntnu.tools.LatencyHistogram;
+import no.ntnu.tools.MessageChannel;
+import no.ntnu.tools.Threads;
+
+/**
+ * The control panel of the application.
+ *
+ * <p>Messages are not handed to the JavaFX application thread one by one. The reader thread
+ * keeps only the latest reading of every sensor, and queues the other messages, and once per
+ * frame an {@link AnimationTimer} shows the latest readings in the labels already shown and
+ * handles up to {@link #MAX_MESSAGES_PER_FRAME} of the queued messages. So the work of a frame
+ * depends on the number of sensors, not on how fast readings arrive.
+ *
+ * <p>The time from taking each reading shown on its node to showing it is recorded in a
+ * sensor-to-screen latency histogram, which is printed every minute.
+ *
+ * <p>Actuator commands carry a request ID and are sent without waiting for the commands before
+ * them. The reader thread matches each acknowledgement to its command and records the round
+ * trip in a command latency histogram, also printed every minute. When a command to one
+ * actuator is negatively acknowledged, the actuator is shown in its previous state again.
+ */
+public class ControlPanel implements ActuatorListener, NodeTabObserver {
+  private static final long HISTORY_RANGE = 3_600_000L;
+  private static final int HISTORY_POINTS = 60;
+  private static final long LATENCY_REPORT_INTERVAL = 60_000L;
+  private static final int MAX_MESSAGES_PER_FRAME = 256;
+
+  private GreenhouseApplication application;
+
+  private Socket socket;
+
+  private MessageChannel channel;
+
+  private boolean running;
+
+  private final AtomicInteger nextRequestId = new AtomicInteger();
+
+  private final LatencyHistogram screenLatency = new LatencyHistogram();
+
+  private final LatencyHistogram commandLatency = new LatencyHistogram();
+
+  private final Map<Integer, SentCommand> sentCommands = new ConcurrentHashMap<>();
+
+  private final Map<Long, LatestReading> latestReadings = new ConcurrentHashMap<>();
+
+  private final Queue<Data> pendingMessages = new ConcurrentLinkedQueue<>();
+
+  public ControlPanel(GreenhouseApplication application) {
+    this.application = application;
+    this.running = true;
+  }
+
+  /**
+   * Return the histogram of the times from taking readings on the nodes to showing them.
+   *
+   * @return the sensor-to-screen latency histogram.
+   */
+  public LatencyHistogram getScreenLatency() {
+    return this.screenLatency;
+  }
+
+  /**
+   * Return the histogram of the round trips of actuator commands, from sending a command until
+   * its acknowledgement arrives.
+   *
+   * @return the command latency histogram.
+   */
+  public LatencyHistogram getCommandLatency() {
+    return this.commandLatency;
+  }
+
+  /**
+   * Starts the control panel. Must be called on the JavaFX application thread.
+   */
+  public void start() {
+    try {
+      establishConnection();
+    } catch (IllegalArgumentException e) {
+      System.out.println("Could not establish connection to node.");
+      System.out.println(e.getMessage());
+    }
+    this.screenLatency.reportEvery("Sensor-to-screen", LATENCY_REPORT_INTERVAL);
+    this.commandLatency.reportEvery("Command round trip", LATENCY_REPORT_INTERVAL);
+    new AnimationTimer() {
+      @Override
+      public void handle(long now) {
+        showPendingUpdates();
+      }
+    }.start();
+    Threads.start("control-panel", () -> {
+      System.out.println("Starting to read messages.");
+      while (this.running) {
+        Data data = readMessage();
+        if (data == null) {
+          this.running = false;
+        } else {
+          receive(data);
+        }
+      }
+    });
+  }
+
+  /**
+   * Keep a received message until the next frame. Of the readings, only the latest of each
+   * sensor is kept. Acknowledgements of commands are matched to their commands at once, so
+   * the round trip does not include the wait for the next frame.
+   *
+   * @param data The received message.
+   */
+  private void receive(Data data) {
+    if (data instanceof SensorReadingMessage reading) {
+      keepLatest(new LatestReading(reading.getNodeId(), reading.getSensorId(),
+              reading.getType(), reading.getValue(), reading.getTime()));
+    } else if (data instanceof SensorReadingBatch batch) {
+      for (int i = 0; i < batch.size(); i++) {
+        keepLatest(new LatestReading(batch.getNodeId(), batch.getSensorId(i), batch.getType(i),
+                batch.getValue(i), batch.getTime()));
+      }
+    } else if (data instanceof CommandAck ack) {
+      completeCommand(ack);
+    } else {
+      this.pendingMessages.add(data);
+    }
+  }
+
+  private void completeCommand(CommandAck ack) {
+    SentCommand command = this.sentCommands.remove(ack.getRequestId());
+    if (command == null) {
+      return;
+    }
+    this.commandLatency.record((System.nanoTime() - command.sentAt()) / 1_000_000);
+    if (!ack.isAck()) {
+      System.out.println("Command " + ack.getRequestId() + " to node " + command.nodeId()
+              + " failed: " + ack.getReason());
+      if (command.actuatorId() != 0) {
+        Platform.runLater(() -> {
+          if (this.application.hasNodeTab(command.nodeId())) {
+            this.application.getNodeTab(command.nodeId())
+                    .setActuatorState(command.actuatorId(), !command.on());
+          }
+        });
+      }
+    }
+  }
+
+  private void keepLatest(LatestReading reading) {
+    this.latestReadings.put(((long) reading.nodeId() << 32) | (reading.sensorId() & 0xffffffffL),
+            reading);
+  }
+
+  /**
+   * Handle the messages queued since the last frame, up to {@link #MAX_MESSAGES_PER_FRAME},
+   * and then show the latest reading of every sensor with a new one. Called by the animation
+   * timer once per frame.
+   */
+  private void showPendingUpdates() {
+    for (int i = 0; i < MAX_MESSAGES_PER_FRAME; i++) {
+      Data data = this.pendingMessages.poll();
+      if (data == null) {
+        break;
+      }
+      executeCommand(data);
+    }
+    if (this.latestReadings.isEmpty()) {
+      return;
+    }
+    long now = System.currentTimeMillis();
+    for (Long key : this.latestReadings.keySet()) {
+      LatestReading reading = this.latestReadings.remove(key);
+      if (reading != null) {
+        showSensorReading(reading.nodeId(), reading.sensorId(), reading.type(),
+                reading.value(), reading.time() > 0 ? reading.time() : now);
+        if (reading.time() > 0) {
+          this.screenLatency.record(now - reading.time());
+        }
+      }
+    }
+  }
+
+  private void executeCommand(Data data) {
+    if (data instanceof NodeIdentifier nodeIdentifier) {
+      if (!this.application.hasNodeTab(nodeIdentifier.getNodeId())) {
+        this.application.addNodeTab(nodeIdentifier.getNodeId());
+        System.out.println("Node added in GUI: " + nodeIdentifier.getNodeId());
+      }
+    } else if (data instanceof SensorIdentifier sensorIdentifier) {
+      if (!this.application.hasNodeTab(sensorIdentifier.getNodeId())) {
+        this.application.addNodeTab(sensorIdentifier.getNodeId());
+      }
+      if (!this.application
+              .getNodeTab(sensorIdentifier.getNodeId())
+              .hasSensor(sensorIdentifier.getSensorId())) {
+        this.application
+                .getNodeTab(sensorIdentifier.getNodeId())
+                .addSensor(
+                        sensorIdentifier.getSensorId(),
+                        sensorIdentifier.getType());
+      }
+    } else if (data instanceof ActuatorIdentifier actuatorIdentifier) {
+      if (!this.application.hasNodeTab(actuatorIdentifier.getNodeId())) {
+        this.application.addNodeTab(actuatorIdentifier.getNodeId());
+      }
+      if (!this.application
+              .getNodeTab(actuatorIdentifier.getNodeId())
+              .hasActuator(actuatorIdentifier.getActuatorId())) {
+        this.application
+            .getNodeTab(actuatorIdentifier.getNodeId())
+            .addActuator(
+                actuatorIdentifier.getNodeId(),
+                actuatorIdentifier.getActuatorId(),
+                actuatorIdentifier.getType(),
+                actuatorIdentifier.getState()
+            );
+      } else {
+        this.application
+            .getNodeTab(actuatorIdentifier.getNodeId())
+            .setActuatorState(actuatorIdentifier.getActuatorId(), actuatorIdentifier.getState());
+      }
+    } else if (data instanceof Snapshot snapshot) {
+      showSnapshot(snapshot);
+    } else if (data instanceof HistoryChunk chunk) {
+      if (this.application.hasNodeTab(chunk.getNodeId())) {
+        this.application.getNodeTab(chunk.getNodeId()).showSensorHistory(chunk);
+      }
+    } else {
+      System.out.println("Unknown message type received: " + data.getData());
+    }
+  }
+
+  private void showSensorReading(int nodeId, int sensorId, String type, double value,
+                                 long time) {
+    if (!this.application.hasNodeTab(nodeId)) {
+      this.application.addNodeTab(nodeId);
+    }
+    if (!this.application.getNodeTab(nodeId).hasSensor(sensorId)) {
+      this.application.getNodeTab(nodeId).addSensor(sensorId, type);
+    }
+    this.application.getNodeTab(nodeId).updateSensorReading(sensorId, value, time);
+  }
+
+  private void showSnapshot(Snapshot snapshot) {
+    int nodeId = snapshot.getNodeId();
+    if (!this.application.hasNodeTab(nodeId)) {
+      this.application.addNodeTab(nodeId);
+    }
+    NodeTab nodeTab = this.application.getNodeTab(nodeId);
+    long now = System.currentTimeMillis();
+    for (int i = 0; i < snapshot.getSensorCount(); i++) {
+      if (!nodeTab.hasSensor(snapshot.getSensorId(i))) {
+        nodeTab.addSensor(snapshot.getSensorId(i), snapshot.getSensorType(i));
+        requestHistory(nodeId, snapshot.getSensorId(i), now - HISTORY_RANGE, now,
+                HistoryQuery.AUTO, HISTORY_POINTS);
+      }
+      if (!Double.isNaN(snapshot.getValue(i))) {
+        nodeTab.updateSensorReading(snapshot.getSensorId(i), snapshot.getValue(i), now);
+      }
+    }
+    for (int i = 0; i < snapshot.getActuatorCount(); i++) {
+      if (!nodeTab.hasActuator(snapshot.getActuatorId(i))) {
+        nodeTab.addActuator(nodeId, snapshot.getActuatorId(i),
+                snapshot.getActuatorType(i), snapshot.getState(i));
+      } else {
+        nodeTab.setActuatorState(snapshot.getActuatorId(i), snapshot.getState(i));
+      }
+    }
+  }
+
+  /**
+   * Establishes a connection to the server.
+   */
+  public void establishConnection() {
+    try {
+      System.out.println("Attempting to establish connection to the server.");
+      this.socket = new Socket("localhost", 1238);
+      System.out.println("Connection established.");
+    } catch (IOException e) {
+      System.out.println("Could not connect to the server.");
+      System.out.println(e.getMessage());
+      throw new IllegalArgumentException("Could not connect to the server");
+    }
+    try {
+      this.channel = new MessageChannel(this.socket);
+      this.channel.identify(-1);
+      subscribe(Subscription.ANY_NODE, Subscription.ANY_TYPE);
+    } catch (IOException e) {
+      System.out.println("Could not create the reader/writer.");
+      System.out.println(e.getMessage());
+      throw new IllegalArgumentException("Could not create the reader/writer");
+    }
+  }
+
+  /**
+   * Reads a message from the server.
+   *
+   * @return The message read from the server, or null if the connection was closed.
+   */
+  public Data readMessage() {
+    try {
+      return this.channel.read();
+    } catch (IOException | IllegalArgumentException e) {
+      System.out.println("Could not read the message.");
+      System.out.println(e.getMessage());
+    }
+    return null;
+  }
+
+  @Override
+  public void onActuatorStateChanged(int nodeId, int actuatorId, boolean newState) {
+    System.out.println("Actuator " + actuatorId
+            + " NodeId " + nodeId
+            + " state changed to "
+            + (newState ? "On" : "Off"));
+    writeMessage(new ActuatorCommand("ActuatorCommand",
+            trackCommand(nodeId, actuatorId, newState), nodeId, actuatorId,
+            newState ? "On" : "Off"));
+  }
+
+  /**
+   * Turns a group of actuators on or off with one command. The server sends it once to every
+   * node concerned, the nodes answer with the new state of each actuator, and the command is
+   * acknowledged once all of them have answered.
+   *
+   * @param nodeId       The ID of the node, or {@link ActuatorCommand#ANY_NODE} for all nodes.
+   * @param actuatorType The actuator type, or {@link ActuatorCommand#ANY_TYPE} for all types.
+   * @param on           True to turn the actuators on, false to turn them off.
+   */
+  public void sendGroupCommand(int nodeId, String actuatorType, boolean on) {
+    writeMessage(new ActuatorCommand("ActuatorCommand", trackCommand(nodeId, 0, on), nodeId,
+            actuatorType, on ? "On" : "Off"));
+  }
+
+  /**
+   * Remember a command about to be sent, until its acknowledgement arrives.
+   *
+   * @return the request ID of the command.
+   */
+  private int trackCommand(int nodeId, int actuatorId, boolean on) {
+    int requestId = this.nextRequestId.incrementAndGet();
+    this.sentCommands.put(requestId, new SentCommand(nodeId, actuatorId, on, System.nanoTime()));
+    return requestId;
+  }
+
+  /**
+   * Subscribes to the sensor readings of a node and sensor type.
+   *
+   * @param nodeId     The ID of the node, or {@link Subscription#ANY_NODE} for all nodes.
+   * @param sensorType The sensor type, or {@link Subscription#ANY_TYPE} for all types.
+   */
+  public void subscribe(int nodeId, String sensorType) {
+    writeMessage(new Subscription("Subscribe", nodeId, sensorType));
+  }
+
+  /**
+   * Asks the server for the stored readings of a sensor in a time range. The answer arrives
+   * as history chunks, which are shown in the pane of the sensor.
+   *
+   * @param nodeId     The ID of the node of the sensor.
+   * @param sensorId   The ID of the sensor.
+   * @param from       The start of the range, in milliseconds since the epoch.
+   * @param to         The end of the range, in milliseconds since the epoch.
+   * @param resolution The resolution, such as {@link HistoryQuery#AUTO}.
+   * @param points     The number of points wanted.
+   * @return The ID of the request, which the chunks of the answer carry.
+   */
+  public int requestHistory(int nodeId, int sensorId, long from, long to,
+                            String resolution, int points) {
+    int requestId = this.nextRequestId.incrementAndGet();
+    writeMessage(new HistoryQuery("HistoryQuery", requestId, nodeId, sensorId, from, to,
+            resolution, points));
+    return requestId;
+  }
+
+  /**
+   * Unsubscribes from the sensor readings of a node and sensor type.
+   *
+   * @param nodeId     The ID of the node, or {@link Subscription#ANY_NODE} for all nodes.
+   * @param sensorType The sensor type, or {@link Subscription#ANY_TYPE} for all types.
+   */
+  public void unsubscribe(int nodeId, String sensorType) {
+    writeMessage(new Subscription("Unsubscribe", nodeId, sensorType));
+  }
+
+  /**
+   * Sends a message in the text format to the server.
+   *
+   * @param message The message to send.
+   */
+  public void writeMessage(String message) {
+    try {
+      this.channel.write(message);
+    } catch (IOException | IllegalArgumentException e) {
+      System.out.println("Could not send the message: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Sends a message to the server.
+   *
+   * @param message The message to send.
+   */
+  public void writeMessage(Data message) {
+    try {
+      this.channel.write(message);
+    } catch (IOException | IllegalArgumentException e) {
+      System.out.println("Could not send the message: " + e.getMessage());
+    }
+  }
+
+  public void closeApplication() {
+    this.writeMessage("Data=Stop;Node=0");
+  }
+
+  @Override
+  public void onActuatorAddedInGui(int nodeId, String actuatorType) {
+    System.out.println("Controlpanel notified actuatorpane is added in GUI: " + actuatorType);
+    writeMessage("Data=ActuatorAddedInGui;Node=" + nodeId + ";ActuatorType=" + actuatorType);
+  }
+
+  /**
+   * Stops the control panel.
+   */
+  @Override
+  public void onSensorAddedInGui(int nodeId, String sensorType) {
+    System.out.println("Controlpanel notified sensorpane is added in GUI: " + sensorType);
+    writeMessage("Data=SensorAddedInGui;Node=" + nodeId + ";SensorType=" + sensorType);
+  }
+
+  @Override
+  public void onNodeAddedInGui(int nodeId) {
+    System.out.println("Controlpanel notified node is added in GUI: " + nodeId);
+    writeMessage("Data=NodeAddedInGui;Node=" + nodeId);
+  }
+
+  /**
+   * Adds a node tab to the application.
+   *
+   * @param nodeId The ID of the node to add.
+   */
+  public void addNodeTab(int nodeId) {
+    Platform.runLater(() -> {
+      this.application.addNodeTab(nodeId);
+    });
+  }
+
+  /**
+   * The latest reading of a sensor, waiting to be shown.
+   */
+  private record LatestReading(int nodeId, int sensorId, String type, double value, long time) {
+  }
+
+  /**
+   * An actuator command waiting for its acknowledgement. The actuator ID is 0 for a group
+   * command.
+   */
+  private record SentCommand(int nodeId, int actuatorId, boolean on, long sentAt) {
+  }
+}
@@ -0,0 +1,85 @@
+package no.ntnu.gui.common;
+
+import javafx.scene.control.Alert;
+import javafx.scene.control.Button;
+import javafx.scene.control.ButtonType;
+import javafx.scene.control.CheckBox;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
+import javafx.scene.layout.HBox;
+import no.ntnu.listeners.node.ActuatorListener;
+
+/**
+ * A row of a list of actuators, with a button removing the actuator from the list, its label
+ * and a check box turning it on and off. The list reuses its cells while scrolling, so a cell
+ * shows whichever {@link ActuatorItem} is given to it, bound to the state of the item.
+ */
+public final class ActuatorCell extends ListCell<ActuatorItem> {
+  private final ActuatorListener listener;
+
+  private final Label actuatorLabel = new Label();
+  private final CheckBox actuatorCheckbox = new CheckBox();
+  private final HBox contentBox;
+
+  /**
+   * Create an actuator cell.
+   *
+   * @param listener The listener told when the check box turns an actuator on or off.
+   */
+  public ActuatorCell(ActuatorListener listener) {
+    this.listener = listener;
+    this.contentBox = new HBox(generateRemoveButton(), this.actuatorLabel,
+            this.actuatorCheckbox);
+    this.actuatorCheckbox.setOnAction(event -> notifyListener());
+    this.actuatorLabel.getStyleClass().add("actuator-label");
+    this.contentBox.getStyleClass().add("actuator-pane");
+  }
+
+  private Button generateRemoveButton() {
+    Button removeButton = new Button("X");
+    removeButton.getStyleClass().add("remove-button");
+    removeButton.setOnAction(e -> {
+      ActuatorItem item = getItem();
+      Alert confirmationAlert = new Alert(Alert.AlertType.CONFIRMATION,
+              "Are you sure you want to remove this actuator?", ButtonType.YES, ButtonType.NO);
+      confirmationAlert.showAndWait().ifPresent(response -> {
+        if (response == ButtonType.YES) {
+          getListView().getItems().remove(item);
+        }
+      });
+    });
+    return removeButton;
+  }
+
+  private void notifyListener() {
+    ActuatorItem item = getItem();
+    if (item == null) {
+      return;
+    }
+    if (this.listener != null) {
+      this.listener.onActuatorStateChanged(item.getNodeId(), item.getActuatorId(),
+              item.getActuatorState());
+    } else {
+      System.out.println("No listener set for actuator state changes.");
+    }
+  }
+
+  @Override
+  protected void updateItem(ActuatorItem item, boolean empty) {
+    ActuatorItem previous = getItem();
+    if (previous != null) {
+      this.actuatorCheckbox.selectedProperty()
+              .unbindBidirectional(previous.actuatorStateProperty());
+    }
+    this.actuatorLabel.textProperty().unbind();
+    super.updateItem(item, empty);
+    if (empty || item == null) {
+      setGraphic(null);
+    } else {
+      this.actuatorLabel.textProperty().bind(item.textProperty());
+      this.actuatorCheckbox.selectedProperty()
+              .bindBidirectional(item.actuatorStateProperty());
+      setGraphic(this.contentBox);
+    }
+  }
+}
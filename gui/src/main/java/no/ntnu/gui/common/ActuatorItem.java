@@ -0,0 +1,91 @@
+package no.ntnu.gui.common;
+
+import javafx.beans.property.BooleanProperty;
+import javafx.beans.property.ReadOnlyStringProperty;
+import javafx.beans.property.ReadOnlyStringWrapper;
+import javafx.beans.property.SimpleBooleanProperty;
+
+/**
+ * An actuator shown in a list of actuators: its state, and the text showing it. Only the
+ * visible rows of the list have an {@link ActuatorCell}, which shows the item it currently
+ * displays.
+ */
+public class ActuatorItem {
+  private final int nodeId;
+  private final int actuatorId;
+  private final String actuatorType;
+
+  private final BooleanProperty actuatorState = new SimpleBooleanProperty();
+  private final ReadOnlyStringWrapper text = new ReadOnlyStringWrapper();
+
+  /**
+   * Create an actuator item.
+   *
+   * @param nodeId       The ID of the node of the actuator
+   * @param actuatorId   The ID of the actuator
+   * @param actuatorType The type of the actuator
+   * @param state        The state of the actuator
+   */
+  public ActuatorItem(int nodeId, int actuatorId, String actuatorType, boolean state) {
+    this.nodeId = nodeId;
+    this.actuatorId = actuatorId;
+    this.actuatorType = actuatorType;
+    this.actuatorState.set(state);
+    this.text.set(generateActuatorLabel());
+    this.actuatorState.addListener((observable, wasOn, isOn) ->
+            this.text.set(generateActuatorLabel()));
+  }
+
+  private String generateActuatorLabel() {
+    String label = this.actuatorType + ": ";
+    label = label + switch (this.actuatorType) {
+      case "window" -> (this.actuatorState.get() ? "Open" : "Closed");
+      case "fan", "heater" -> (this.actuatorState.get() ? "On" : "Off");
+      default -> (this.actuatorState.get() ? "On" : "Off");
+    };
+    return label;
+  }
+
+  /**
+   * Return the state of the actuator, which the check box of its cell is bound to.
+   *
+   * @return the state property, true when the actuator is on.
+   */
+  public BooleanProperty actuatorStateProperty() {
+    return this.actuatorState;
+  }
+
+  /**
+   * Return the text showing the actuator, which changes with its state.
+   *
+   * @return the text property.
+   */
+  public ReadOnlyStringProperty textProperty() {
+    return this.text.getReadOnlyProperty();
+  }
+
+  /**
+   * Set the state of the actuator. Must be called on the JavaFX application thread.
+   *
+   * @param state The state of the actuator.
+   */
+  public void setActuatorState(boolean state) {
+    this.actuatorState.set(state);
+  }
+
+  public int getNodeId() {
+    return nodeId;
+  }
+
+  public int getActuatorId() {
+    return actuatorId;
+  }
+
+  public String getActuatorType() {
+    return actuatorType;
+  }
+
+  public boolean getActuatorState() {
+    return actuatorState.get();
+  }
+}
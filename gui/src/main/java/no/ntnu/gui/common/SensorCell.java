@@ -0,0 +1,99 @@
+package no.ntnu.gui.common;
+
+import javafx.beans.InvalidationListener;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
+import javafx.scene.layout.HBox;
+import javafx.scene.paint.Color;
+
+/**
+ * A row of a list of sensors. The list reuses its cells while scrolling, so a cell shows
+ * whichever {@link SensorItem} is given to it, with its label bound to the text of the item.
+ *
+ * <p>Next to the label the cell draws the trend of the sensor over the trend window. The
+ * values are first reduced to a minimum and maximum per pixel column, so drawing costs the
+ * width of the chart whatever the number of values, and the chart is only drawn again when
+ * the sensor has new values.
+ */
+public class SensorCell extends ListCell<SensorItem> {
+  private static final int TREND_WIDTH = 160;
+  private static final int TREND_HEIGHT = 22;
+  private static final Color TREND_COLOR = Color.LIGHTGREEN;
+
+  private final Label sensorLabel = new Label();
+  private final Canvas trendCanvas = new Canvas(TREND_WIDTH, TREND_HEIGHT);
+  private final HBox contentBox = new HBox(this.trendCanvas, this.sensorLabel);
+  private final double[] columnMinimums = new double[TREND_WIDTH];
+  private final double[] columnMaximums = new double[TREND_WIDTH];
+  private final InvalidationListener trendListener = observable -> drawTrend();
+
+  /**
+   * Create a sensor cell.
+   */
+  public SensorCell() {
+    this.sensorLabel.getStyleClass().add("sensor-label");
+    this.contentBox.getStyleClass().add("sensor-pane");
+    this.contentBox.setSpacing(5);
+  }
+
+  @Override
+  protected void updateItem(SensorItem item, boolean empty) {
+    SensorItem previous = getItem();
+    if (previous != null) {
+      previous.trendRevisionProperty().removeListener(this.trendListener);
+    }
+    super.updateItem(item, empty);
+    this.sensorLabel.textProperty().unbind();
+    if (empty || item == null) {
+      setGraphic(null);
+    } else {
+      this.sensorLabel.textProperty().bind(item.textProperty());
+      item.trendRevisionProperty().addListener(this.trendListener);
+      drawTrend();
+      setGraphic(this.contentBox);
+    }
+  }
+
+  private void drawTrend() {
+    GraphicsContext graphics = this.trendCanvas.getGraphicsContext2D();
+    graphics.clearRect(0, 0, TREND_WIDTH, TREND_HEIGHT);
+    SensorItem item = getItem();
+    if (item == null || item.decimateTrend(System.currentTimeMillis(),
+            this.columnMinimums, this.columnMaximums) == 0) {
+      return;
+    }
+    double low = Double.POSITIVE_INFINITY;
+    double high = Double.NEGATIVE_INFINITY;
+    for (int x = 0; x < TREND_WIDTH; x++) {
+      if (!Double.isNaN(this.columnMinimums[x])) {
+        low = Math.min(low, this.columnMinimums[x]);
+        high = Math.max(high, this.columnMaximums[x]);
+      }
+    }
+    double scale = high > low ? (TREND_HEIGHT - 2) / (high - low) : 0;
+    graphics.setStroke(TREND_COLOR);
+    graphics.setLineWidth(1);
+    double previousX = Double.NaN;
+    double previousY = Double.NaN;
+    for (int x = 0; x < TREND_WIDTH; x++) {
+      if (Double.isNaN(this.columnMinimums[x])) {
+        continue;
+      }
+      double top = toY(this.columnMaximums[x], low, scale);
+      double bottom = toY(this.columnMinimums[x], low, scale);
+      double pixel = x + 0.5;
+      if (!Double.isNaN(previousX)) {
+        graphics.strokeLine(previousX, previousY, pixel, (top + bottom) / 2);
+      }
+      graphics.strokeLine(pixel, top, pixel, bottom);
+      previousX = pixel;
+      previousY = (top + bottom) / 2;
+    }
+  }
+
+  private static double toY(double value, double low, double scale) {
+    return scale > 0 ? TREND_HEIGHT - 1 - (value - low) * scale : TREND_HEIGHT / 2.0;
+  }
+}
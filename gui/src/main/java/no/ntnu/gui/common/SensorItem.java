@@ -0,0 +1,151 @@
+package no.ntnu.gui.common;
+
+import javafx.beans.property.ReadOnlyIntegerProperty;
+import javafx.beans.property.ReadOnlyIntegerWrapper;
+import javafx.beans.property.ReadOnlyStringProperty;
+import javafx.beans.property.ReadOnlyStringWrapper;
+import no.ntnu.commands.HistoryChunk;
+
+/**
+ * A sensor shown in a list of sensors: its latest value and the range of its stored history,
+ * and the text showing them. Only the visible rows of the list have a {@link SensorCell}, which
+ * shows the text of the item it currently displays.
+ *
+ * <p>The recent values, live and from the stored history, are kept in a {@link TrendBuffer} of
+ * up to {@link #TREND_CAPACITY} points, from which the cell draws the trend over the trend
+ * window.
+ */
+public class SensorItem {
+  private static final int TREND_CAPACITY = 1024;
+  private static volatile long trendWindow = 600_000L;
+
+  private final int sensorId;
+  private final String sensorType;
+  private double sensorValue;
+  private double historyMinimum = Double.NaN;
+  private double historyMaximum = Double.NaN;
+  private String historyReason;
+
+  private final ReadOnlyStringWrapper text = new ReadOnlyStringWrapper();
+  private final TrendBuffer trend = new TrendBuffer(TREND_CAPACITY);
+  private final ReadOnlyIntegerWrapper trendRevision = new ReadOnlyIntegerWrapper();
+
+  /**
+   * Create a sensor item.
+   *
+   * @param sensorId the id of the sensor.
+   * @param sensorType the type of the sensor.
+   */
+  public SensorItem(int sensorId, String sensorType) {
+    this.sensorType = sensorType;
+    this.sensorId = sensorId;
+    this.text.set(generateSensorText());
+  }
+
+  private String generateSensorText() {
+    String text = this.sensorType + ": " + this.sensorValue;
+    if (!Double.isNaN(this.historyMinimum)) {
+      text += String.format(" (last hour: %.1f - %.1f)", this.historyMinimum,
+              this.historyMaximum);
+    }
+    if (this.historyReason != null) {
+      text += " (history " + this.historyReason + ")";
+    }
+    return text;
+  }
+
+  /**
+   * Set how far back the trends of the sensors go.
+   *
+   * @param window The trend window, in milliseconds.
+   */
+  public static void setTrendWindow(long window) {
+    if (window <= 0) {
+      throw new IllegalArgumentException("The trend window must be positive");
+    }
+    trendWindow = window;
+  }
+
+  public static long getTrendWindow() {
+    return trendWindow;
+  }
+
+  /**
+   * Show a new value of the sensor, and add it to its trend. Must be called on the JavaFX
+   * application thread.
+   *
+   * @param sensorReading The new value.
+   * @param time          The time the value was taken, in milliseconds since the epoch.
+   */
+  public void updateSensorReading(double sensorReading, long time) {
+    this.sensorValue = sensorReading;
+    this.trend.add(time, sensorReading, sensorReading);
+    this.trendRevision.set(this.trendRevision.get() + 1);
+    if (!Double.isNaN(this.historyMinimum)) {
+      this.historyMinimum = Math.min(this.historyMinimum, sensorReading);
+      this.historyMaximum = Math.max(this.historyMaximum, sensorReading);
+    }
+    this.text.set(generateSensorText());
+  }
+
+  /**
+   * Add a chunk of the stored history of the sensor, widening the range of values shown.
+   * Must be called on the JavaFX application thread.
+   *
+   * @param chunk The chunk of history.
+   */
+  public void addHistory(HistoryChunk chunk) {
+    for (int i = 0; i < chunk.size(); i++) {
+      this.historyMinimum = Double.isNaN(this.historyMinimum)
+              ? chunk.getMinimum(i) : Math.min(this.historyMinimum, chunk.getMinimum(i));
+      this.historyMaximum = Double.isNaN(this.historyMaximum)
+              ? chunk.getMaximum(i) : Math.max(this.historyMaximum, chunk.getMaximum(i));
+      this.trend.add(chunk.getTime(i), chunk.getMinimum(i), chunk.getMaximum(i));
+    }
+    this.trendRevision.set(this.trendRevision.get() + 1);
+    if (chunk.isLast()) {
+      this.historyReason = chunk.getReason();
+      this.text.set(generateSensorText());
+    }
+  }
+
+  /**
+   * Return the text showing the sensor, which changes with its value.
+   *
+   * @return the text property.
+   */
+  public ReadOnlyStringProperty textProperty() {
+    return this.text.getReadOnlyProperty();
+  }
+
+  /**
+   * Return a counter that changes whenever points are added to the trend, so the trend can
+   * be drawn again.
+   *
+   * @return the trend revision property.
+   */
+  public ReadOnlyIntegerProperty trendRevisionProperty() {
+    return this.trendRevision.getReadOnlyProperty();
+  }
+
+  /**
+   * Reduce the trend window ending at a time to one minimum and maximum per column, such as
+   * per pixel of a chart. Columns without values are set to NaN.
+   *
+   * @param to             The end of the window, in milliseconds since the epoch.
+   * @param columnMinimums Filled with the minimum of every column.
+   * @param columnMaximums Filled with the maximum of every column, the same length.
+   * @return the number of values in the window.
+   */
+  public int decimateTrend(long to, double[] columnMinimums, double[] columnMaximums) {
+    return this.trend.decimate(to - trendWindow, to, columnMinimums, columnMaximums);
+  }
+
+  public int getSensorId() {
+    return this.sensorId;
+  }
+
+  public String getSensorType() {
+    return this.sensorType;
+  }
+}
@@ -0,0 +1,139 @@
+package no.ntnu.gui.common;
+
+import java.util.Arrays;
+
+/**
+ * The recent values of one sensor, for drawing its trend: a ring of points in time order, in
+ * primitive arrays. Each point has a time and a minimum and maximum, which are the same for a
+ * single reading and span a bucket for a point of stored history. The arrays start small and
+ * grow up to the capacity, and when the ring is full the oldest point is dropped.
+ *
+ * <p>Points normally arrive in time order and are appended. History fetched after the first
+ * live readings is older, and is inserted in its place.
+ */
+final class TrendBuffer {
+  private static final int INITIAL_CAPACITY = 16;
+
+  private final int capacity;
+  private long[] times = new long[INITIAL_CAPACITY];
+  private float[] minimums = new float[INITIAL_CAPACITY];
+  private float[] maximums = new float[INITIAL_CAPACITY];
+  private int first;
+  private int size;
+
+  /**
+   * Create an empty buffer.
+   *
+   * @param capacity The maximum number of points kept.
+   */
+  TrendBuffer(int capacity) {
+    this.capacity = capacity;
+  }
+
+  /**
+   * Add a point, in time order.
+   *
+   * @param time    The time of the point, in milliseconds since the epoch.
+   * @param minimum The minimum value of the point.
+   * @param maximum The maximum value of the point.
+   */
+  void add(long time, double minimum, double maximum) {
+    if (this.size == this.capacity) {
+      if (time < timeAt(0)) {
+        return;
+      }
+      this.first = (this.first + 1) % this.times.length;
+      this.size--;
+    } else if (this.size == this.times.length) {
+      grow();
+    }
+    int position = this.size;
+    while (position > 0 && timeAt(position - 1) > time) {
+      int from = index(position - 1);
+      int to = index(position);
+      this.times[to] = this.times[from];
+      this.minimums[to] = this.minimums[from];
+      this.maximums[to] = this.maximums[from];
+      position--;
+    }
+    int index = index(position);
+    this.times[index] = time;
+    this.minimums[index] = (float) minimum;
+    this.maximums[index] = (float) maximum;
+    this.size++;
+  }
+
+  private void grow() {
+    int length = Math.min(this.times.length * 2, this.capacity);
+    long[] grownTimes = new long[length];
+    float[] grownMinimums = new float[length];
+    float[] grownMaximums = new float[length];
+    for (int i = 0; i < this.size; i++) {
+      grownTimes[i] = timeAt(i);
+      grownMinimums[i] = this.minimums[index(i)];
+      grownMaximums[i] = this.maximums[index(i)];
+    }
+    this.times = grownTimes;
+    this.minimums = grownMinimums;
+    this.maximums = grownMaximums;
+    this.first = 0;
+  }
+
+  /**
+   * Reduce the points in a time range to one minimum and maximum per column, such as per pixel
+   * of a chart. Columns without points are set to NaN.
+   *
+   * @param from             The start of the range, in milliseconds since the epoch.
+   * @param to               The end of the range, in milliseconds since the epoch.
+   * @param columnMinimums   Filled with the minimum of every column.
+   * @param columnMaximums   Filled with the maximum of every column, the same length.
+   * @return the number of points in the range.
+   */
+  int decimate(long from, long to, double[] columnMinimums, double[] columnMaximums) {
+    int columns = columnMinimums.length;
+    Arrays.fill(columnMinimums, Double.NaN);
+    Arrays.fill(columnMaximums, Double.NaN);
+    long span = Math.max(to - from, 1);
+    int count = 0;
+    for (int i = firstAtOrAfter(from); i < this.size && timeAt(i) <= to; i++) {
+      int column = (int) Math.min((timeAt(i) - from) * columns / span, columns - 1);
+      double minimum = this.minimums[index(i)];
+      double maximum = this.maximums[index(i)];
+      if (Double.isNaN(columnMinimums[column])) {
+        columnMinimums[column] = minimum;
+        columnMaximums[column] = maximum;
+      } else {
+        columnMinimums[column] = Math.min(columnMinimums[column], minimum);
+        columnMaximums[column] = Math.max(columnMaximums[column], maximum);
+      }
+      count++;
+    }
+    return count;
+  }
+
+  private int firstAtOrAfter(long time) {
+    int low = 0;
+    int high = this.size;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (timeAt(middle) < time) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  int size() {
+    return this.size;
+  }
+
+  private long timeAt(int position) {
+    return this.times[index(position)];
+  }
+
+  private int index(int position) {
+    return (this.first + position) % this.times.length;
+  }
+}
@@ -1,7 +1,7 @@
 package no.ntnu.gui.greenhouse;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Objects;
 import javafx.application.Application;
 import javafx.application.Platform;
@@ -13,6 +13,8 @@ import no.ntnu.gui.ControlPanel;
 
 /**
  * Run a greenhouse simulation with a graphical user interface (GUI), with JavaFX.
+ * The node tabs are found by node ID, and only the selected tab has its content in the scene,
+ * so the other tabs cost no layout or styling.
  */
 public class GreenhouseApplication extends Application {
   private Stage stage;
@@ -20,13 +22,13 @@ public class GreenhouseApplication extends Application {
   private TabPane tabPane;
 
   private ControlPanel controlPanel;
-  private List<NodeTab> nodeTabs;
+  private Map<Integer, NodeTab> nodeTabs;
 
   /**
    * Constructor for the GreenhouseApplication.
    */
   public GreenhouseApplication() {
-    this.nodeTabs = new ArrayList<>();
+    this.nodeTabs = new HashMap<>();
   }
 
   /**
@@ -61,8 +63,10 @@ public class GreenhouseApplication extends Application {
   public void addNodeTab(int nodeId) {
     NodeTab nodeTab = new NodeTab(nodeId);
     nodeTab.setObserver(this.controlPanel);
-    this.nodeTabs.add(nodeTab);
-    Tab tab = new Tab("Node " + nodeTab.getNodeId(), nodeTab);
+    this.nodeTabs.put(nodeId, nodeTab);
+    Tab tab = new Tab("Node " + nodeTab.getNodeId());
+    tab.selectedProperty().addListener((observable, wasSelected, isSelected) ->
+            tab.setContent(isSelected ? nodeTab : null));
     Platform.runLater(() -> {
       this.tabPane.getTabs().add(tab);
       System.out.println("Added NodeTab for node " + nodeId);
@@ -76,15 +80,7 @@ public class GreenhouseApplication extends Application {
    */
 
   public boolean hasNodeTab(int nodeId) {
-    if (this.nodeTabs == null) {
-      return false;
-    }
-    for (NodeTab tab : this.nodeTabs) {
-      if (tab.getNodeId() == (nodeId)) {
-        return true;
-      }
-    }
-    return false;
+    return this.nodeTabs.containsKey(nodeId);
   }
 
   /**
@@ -94,11 +90,10 @@ public class GreenhouseApplication extends Application {
    * @return The NodeTab for the node
    */
   public NodeTab getNodeTab(int nodeId) {
-    for (NodeTab tab : this.nodeTabs) {
-      if (tab.getNodeId() == (nodeId)) {
-        return tab;
-      }
+    NodeTab tab = this.nodeTabs.get(nodeId);
+    if (tab == null) {
+      throw new IllegalArgumentException("No tab found for node " + nodeId);
     }
-    throw new IllegalArgumentException("No tab found for node " + nodeId);
+    return tab;
   }
 }
\ No newline at end of file
@@ -0,0 +1,318 @@
+package no.ntnu.gui.greenhouse;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import javafx.scene.control.Button;
+import javafx.scene.control.CheckBox;
+import javafx.scene.control.ComboBox;
+import javafx.scene.control.Dialog;
+import javafx.scene.control.ListView;
+import javafx.scene.control.TitledPane;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Pane;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.VBox;
+import no.ntnu.commands.ActuatorCommand;
+import no.ntnu.commands.HistoryChunk;
+import no.ntnu.gui.ControlPanel;
+import no.ntnu.gui.common.ActuatorCell;
+import no.ntnu.gui.common.ActuatorItem;
+import no.ntnu.gui.common.SensorCell;
+import no.ntnu.gui.common.SensorItem;
+
+
+/**
+ * Window with GUI for overview and control of one specific sensor/actuator node.
+ * The sensors and actuators are shown in list views, which only create rows for the visible
+ * devices and reuse them while scrolling, so a node with thousands of devices costs no more
+ * scene graph than a node with a screenful of them.
+ */
+public final class NodeTab extends VBox {
+  private static final double SENSOR_ROW_HEIGHT = 30;
+  private static final double ACTUATOR_ROW_HEIGHT = 44;
+
+  private Pane contentBox;
+
+  private HBox nodeButtons;
+  private ListView<ActuatorItem> actuatorsList;
+  private ListView<SensorItem> sensorsList;
+
+  private TitledPane actuatorsTitledPane;
+  private TitledPane sensorsTitledPane;
+
+  private Map<Integer, ActuatorItem> actuatorItems;
+  private Map<Integer, SensorItem> sensorItems;
+
+  private int nodeId;
+
+  private ControlPanel observer;
+
+
+  /**
+   * Create a GUI window for a specific node.
+   */
+  public NodeTab(int nodeId) {
+    this.nodeId = nodeId;
+    this.contentBox = new VBox();
+
+    this.nodeButtons = createNodeButtons();
+    this.actuatorsTitledPane = new TitledPane();
+    this.sensorsTitledPane = new TitledPane();
+    this.actuatorItems = new HashMap<>();
+    this.sensorItems = new HashMap<>();
+    this.contentBox.getChildren().add(nodeButtons);
+    this.contentBox.getChildren().add(this.sensorsTitledPane);
+    this.contentBox.getChildren().add(this.actuatorsTitledPane);
+    this.actuatorsTitledPane.setText("Actuators");
+    this.sensorsTitledPane.setText("Sensors");
+    this.sensorsList = new ListView<>();
+    this.sensorsList.setCellFactory(list -> new SensorCell());
+    this.sensorsList.setFixedCellSize(SENSOR_ROW_HEIGHT);
+    this.actuatorsList = new ListView<>();
+    this.actuatorsList.setCellFactory(list -> new ActuatorCell(this.observer));
+    this.actuatorsList.setFixedCellSize(ACTUATOR_ROW_HEIGHT);
+    this.sensorsTitledPane.setContent(this.sensorsList);
+    this.actuatorsTitledPane.setContent(this.actuatorsList);
+
+    this.sensorsList.getStyleClass().add("sensors-list");
+    this.actuatorsList.getStyleClass().add("actuators-list");
+    getStylesheets().add(
+            Objects.requireNonNull(getClass().getResource("/styles.css")).toExternalForm());
+    getStyleClass().add("node-tab");
+    actuatorsTitledPane.setMaxHeight(10000000);
+    sensorsTitledPane.setMaxHeight(10000000);
+    VBox.setVgrow(this.actuatorsTitledPane, Priority.ALWAYS);
+    VBox.setVgrow(this.sensorsTitledPane, Priority.ALWAYS);
+    VBox.setVgrow(this.contentBox, Priority.ALWAYS);
+    actuatorsTitledPane.collapsibleProperty().set(false);
+    sensorsTitledPane.collapsibleProperty().set(false);
+    getChildren().add(this.contentBox);
+  }
+
+  /**
+   * Add an actuator to the node tab.
+   *
+   * @param nodeId    The ID of the node
+   * @param actuatorId The ID of the actuator
+   * @param type      The type of the actuator
+   * @param state     The state of the actuator
+   */
+  public void addActuator(int nodeId, int actuatorId, String type, boolean state) {
+    ActuatorItem actuatorItem = new ActuatorItem(nodeId, actuatorId, type, state);
+    this.actuatorItems.put(actuatorId, actuatorItem);
+    this.actuatorsList.getItems().add(actuatorItem);
+  }
+
+  /**
+   * Show the new state of an actuator in the GUI, such as after a command.
+   *
+   * @param actuatorId The ID of the actuator
+   * @param state      The state of the actuator
+   */
+  public void setActuatorState(int actuatorId, boolean state) {
+    ActuatorItem actuatorItem = this.actuatorItems.get(actuatorId);
+    if (actuatorItem != null) {
+      actuatorItem.setActuatorState(state);
+    }
+  }
+
+  /**
+   * Add a sensor to the node tab.
+   *
+   * @param sensorId The ID of the sensor
+   * @param type     The type of the sensor
+   */
+  public void addSensor(int sensorId, String type) {
+    SensorItem sensorItem = new SensorItem(sensorId, type);
+    this.sensorItems.put(sensorId, sensorItem);
+    this.sensorsList.getItems().add(sensorItem);
+  }
+
+  /**
+   * Update the value of a sensor in the GUI.
+   *
+   * @param sensorId The ID of the sensor
+   * @param value    The new value of the sensor
+   * @param time     The time the value was taken, in milliseconds since the epoch
+   */
+  public void updateSensorReading(int sensorId, double value, long time) {
+    this.sensorItems.get(sensorId).updateSensorReading(value, time);
+  }
+
+  /**
+   * Show a chunk of the stored history of a sensor in its pane.
+   *
+   * @param chunk The chunk of history.
+   */
+  public void showSensorHistory(HistoryChunk chunk) {
+    SensorItem sensorItem = this.sensorItems.get(chunk.getSensorId());
+    if (sensorItem != null) {
+      sensorItem.addHistory(chunk);
+    }
+  }
+
+  /**
+   * Create buttons for adding actuators and sensors.
+   *
+   */
+  public HBox createNodeButtons() {
+    Button addActuatorButton = new Button("Add Actuator");
+    Button addSensorButton = new Button("Add Sensor");
+    Button addNodeButton = new Button("Add Node");
+    Button removeNodeButton = new Button("Remove Node");
+    Button groupCommandButton = new Button("Group Command");
+    // Open dialog to add an actuator
+    addActuatorButton.setOnAction(e -> showActuatorDialog());
+
+    // Additional buttons can be set up here
+    addSensorButton.setOnAction(e -> showSensorDialog());
+
+    groupCommandButton.setOnAction(e -> showGroupCommandDialog());
+
+    addNodeButton.setOnAction(e -> {
+      this.observer.onNodeAddedInGui(0);
+    });
+
+    HBox container = new HBox();
+    container.getChildren().addAll(addActuatorButton, addSensorButton, addNodeButton, removeNodeButton,
+            groupCommandButton);
+    return container;
+  }
+
+  /**
+   * Show a dialog for adding an actuator.
+   */
+  private void showActuatorDialog() {
+    Dialog<String> dialog = new Dialog<>();
+    dialog.setTitle("Add Actuator");
+    ComboBox<String> comboBox = new ComboBox<>();
+    comboBox.getItems().addAll("Window", "Fan", "Heater");
+    comboBox.setValue("Window");
+    Button saveButton = new Button("Add");
+    Button close = new Button("Exit");
+    saveButton.setOnAction(e -> {
+      notifyObserverActuatorAdded(this.nodeId, comboBox.getValue().toLowerCase());
+      dialog.setResult("");
+    });
+    close.setOnAction(e -> {
+      dialog.setResult("");
+      dialog.close();
+    });
+
+    HBox dialogLayout = new HBox(10);
+    dialogLayout.getChildren().addAll(comboBox, saveButton, close);
+    dialog.getDialogPane().setContent(dialogLayout);
+    dialog.showAndWait();
+  }
+
+  /**
+   * Show a dialog for turning all actuators of a type on or off, on this node or on all nodes.
+   */
+  private void showGroupCommandDialog() {
+    Dialog<String> dialog = new Dialog<>();
+    dialog.setTitle("Group Command");
+    ComboBox<String> comboBox = new ComboBox<>();
+    comboBox.getItems().addAll("Window", "Fan", "Heater", "All");
+    comboBox.setValue("Window");
+    CheckBox allNodes = new CheckBox("All nodes");
+    Button onButton = new Button("On");
+    Button offButton = new Button("Off");
+    Button close = new Button("Exit");
+    onButton.setOnAction(e -> {
+      notifyObserverGroupCommand(allNodes.isSelected(), comboBox.getValue(), true);
+      dialog.setResult("");
+    });
+    offButton.setOnAction(e -> {
+      notifyObserverGroupCommand(allNodes.isSelected(), comboBox.getValue(), false);
+      dialog.setResult("");
+    });
+    close.setOnAction(e -> {
+      dialog.setResult("");
+      dialog.close();
+    });
+    HBox dialogLayout = new HBox(10);
+    dialogLayout.getChildren().addAll(comboBox, allNodes, onButton, offButton, close);
+    dialog.getDialogPane().setContent(dialogLayout);
+    dialog.showAndWait();
+  }
+
+  /**
+   * Show a dialog for adding sensor.
+   *
+   */
+  private void showSensorDialog() {
+    Dialog<String> dialog = new Dialog<>();
+    dialog.setTitle("Add Sensor");
+    ComboBox<String> comboBox = new ComboBox<>();
+    comboBox.getItems().addAll("Temperature", "Humidity");
+    comboBox.setValue("Temperature");
+    Button saveButton = new Button("Add");
+    Button close = new Button("Exit");
+    saveButton.setOnAction(e -> {
+      notifyObserverSensorAdded(this.nodeId, comboBox.getValue().toLowerCase());
+      dialog.setResult("");
+    });
+    close.setOnAction(e -> {
+      dialog.setResult("");
+      dialog.close();
+    });
+    HBox dialogLayout = new HBox(10);
+    dialogLayout.getChildren().addAll(comboBox, saveButton, close);
+    dialog.getDialogPane().setContent(dialogLayout);
+    dialog.showAndWait();
+  }
+
+  /**
+   * Sets observer.
+   *
+   * @param observer The observer to set
+   *
+   */
+  public void setObserver(ControlPanel observer) {
+    this.observer = observer;
+  }
+
+  private void notifyObserverActuatorAdded(int nodeId, String actuatorType) {
+    if (observer != null) {
+      observer.onActuatorAddedInGui(nodeId, actuatorType);
+    } else {
+      System.out.println("Observer is null");
+    }
+  }
+
+  private void notifyObserverGroupCommand(boolean allNodes, String actuatorType, boolean on) {
+    if (observer != null) {
+      observer.sendGroupCommand(allNodes ? ActuatorCommand.ANY_NODE : this.nodeId,
+              actuatorType.equals("All") ? ActuatorCommand.ANY_TYPE : actuatorType.toLowerCase(),
+              on);
+    } else {
+      System.out.println("Observer is null");
+    }
+  }
+
+  private void notifyObserverSensorAdded(int nodeId, String sensorType) {
+    if (observer != null) {
+      observer.onSensorAddedInGui(nodeId, sensorType);
+    } else {
+      System.out.println("Observer is null");
+    }
+  }
+
+  public boolean hasActuator(int actuatorId) {
+    return this.actuatorItems.containsKey(actuatorId);
+  }
+
+  public boolean hasSensor(int sensorId) {
+    return this.sensorItems.containsKey(sensorId);
+  }
+
+  /**
+   * Return the nodeId.
+   *
+   * @return The nodeId.
+   */
+  public int getNodeId() {
+    return this.nodeId;
+  }
+}
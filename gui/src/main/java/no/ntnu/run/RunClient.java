@@ -0,0 +1,34 @@
+package no.ntnu.run;
+
+import no.ntnu.gui.common.SensorItem;
+import no.ntnu.gui.greenhouse.GreenhouseApplication;
+import no.ntnu.tools.MessageChannel;
+import no.ntnu.tools.WireFormat;
+
+/**
+ * Main class for starting the greenhouse client.
+ */
+public class RunClient {
+  /**
+   * Main method for starting the greenhouse client.
+   *
+   * @param args Command line arguments. {@code codec=text|binary} selects the wire format
+   *             asked for when connecting to the server, and {@code trend=<minutes>} how far
+   *             back the trend of every sensor goes.
+   */
+  public static void main(String[] args) {
+    for (String arg : args) {
+      if (arg.startsWith("codec=")) {
+        MessageChannel.setPreferredFormat(
+                WireFormat.valueOf(arg.substring("codec=".length()).toUpperCase()));
+      } else if (arg.startsWith("trend=")) {
+        SensorItem.setTrendWindow(
+                Long.parseLong(arg.substring("trend=".length())) * 60_000L);
+      } else {
+        throw new IllegalArgumentException("Unknown argument: " + arg);
+      }
+    }
+    GreenhouseApplication greenhouseApplication = new GreenhouseApplication();
+    greenhouseApplication.startApp();
+  }
+}
\ No newline at end of file
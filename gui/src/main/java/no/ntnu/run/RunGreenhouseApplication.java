@@ -0,0 +1,36 @@
+package no.ntnu.run;
+
+import no.ntnu.gui.greenhouse.GreenhouseApplication;
+import no.ntnu.node.SamplingScheduler;
+import no.ntnu.server.Server;
+import no.ntnu.server.ServerConfig;
+import no.ntnu.tools.MessageChannel;
+import no.ntnu.tools.Threads;
+
+/**
+ * Main class for starting the greenhouse application.
+ */
+public class RunGreenhouseApplication {
+
+  /**
+   * Main method for starting the greenhouse application.
+   *
+   * @param args Command line arguments for the server, see
+   *             {@link ServerConfig#fromArgs(String[])}.
+   */
+  public static void main(String[] args) {
+    ServerConfig config = ServerConfig.fromArgs(args);
+    if (config.isVirtualThreads()) {
+      Threads.useVirtualThreads(config.getCarrierThreadCount());
+    }
+    MessageChannel.setPreferredFormat(config.getClientFormat());
+    SamplingScheduler.setThreadCount(config.getSamplingThreadCount());
+    //Server runs on a separate thread.
+    Server server = new Server(config);
+    server.closeOnExit();
+    new Thread(server::run).start();
+    System.out.println("Starting the greenhouse application...");
+    GreenhouseApplication greenhouseApplication = new GreenhouseApplication();
+    greenhouseApplication.startApp();
+  }
+}
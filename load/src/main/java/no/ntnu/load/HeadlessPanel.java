@@ -0,0 +1,206 @@
+package no.ntnu.load;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import no.ntnu.commands.ActuatorCommand;
+import no.ntnu.commands.ActuatorIdentifier;
+import no.ntnu.commands.CommandAck;
+import no.ntnu.commands.Data;
+import no.ntnu.commands.SensorReadingBatch;
+import no.ntnu.commands.SensorReadingMessage;
+import no.ntnu.commands.Snapshot;
+import no.ntnu.commands.Subscription;
+import no.ntnu.server.Server;
+import no.ntnu.tools.LatencyHistogram;
+import no.ntnu.tools.MessageChannel;
+import no.ntnu.tools.Threads;
+
+/**
+ * A control panel without a GUI, for putting load on the server. It subscribes to every
+ * reading, counts what it receives, and records how long the readings took from their sensors.
+ * It learns the actuators of the greenhouse from the snapshots and identifiers it receives,
+ * and can send commands to them. Every command carries a request ID and is sent without
+ * waiting for the commands before it; when its acknowledgement arrives, the time since the
+ * command is recorded as its round trip.
+ */
+public class HeadlessPanel {
+  private final LatencyHistogram readingLatency;
+  private final LatencyHistogram commandLatency;
+  private final LongAdder messageCount = new LongAdder();
+  private final LongAdder readingCount = new LongAdder();
+  private final Set<Long> actuatorKeys = ConcurrentHashMap.newKeySet();
+  private final List<Long> actuators = Collections.synchronizedList(new ArrayList<>());
+  private final Map<Integer, Long> pendingCommands = new ConcurrentHashMap<>();
+  private final AtomicInteger nextRequestId = new AtomicInteger();
+  private final LongAdder failedCommandCount = new LongAdder();
+
+  private Socket socket;
+  private MessageChannel channel;
+  private volatile boolean connected;
+
+  /**
+   * Create a panel recording into shared histograms.
+   *
+   * @param readingLatency The histogram of the times from taking readings to receiving them.
+   * @param commandLatency The histogram of the round trips of actuator commands.
+   */
+  public HeadlessPanel(LatencyHistogram readingLatency, LatencyHistogram commandLatency) {
+    this.readingLatency = readingLatency;
+    this.commandLatency = commandLatency;
+  }
+
+  /**
+   * Connect to the server, subscribe to every reading and start reading messages.
+   *
+   * @throws IOException If the panel could not connect.
+   */
+  public void start() throws IOException {
+    this.socket = new Socket("localhost", Server.TCP_PORT);
+    this.channel = new MessageChannel(this.socket);
+    this.channel.identify(-1);
+    this.channel.write(new Subscription("Subscribe", Subscription.ANY_NODE,
+            Subscription.ANY_TYPE));
+    this.connected = true;
+    Threads.start("load-panel", this::run);
+  }
+
+  private void run() {
+    while (this.connected) {
+      Data data;
+      try {
+        data = this.channel.read();
+      } catch (IOException | IllegalArgumentException e) {
+        data = null;
+      }
+      if (data == null) {
+        this.connected = false;
+      } else {
+        handle(data);
+      }
+    }
+  }
+
+  private void handle(Data data) {
+    this.messageCount.increment();
+    long now = System.currentTimeMillis();
+    if (data instanceof SensorReadingBatch batch) {
+      this.readingCount.add(batch.size());
+      if (batch.getTime() > 0) {
+        this.readingLatency.record(now - batch.getTime(), batch.size());
+      }
+    } else if (data instanceof SensorReadingMessage reading) {
+      this.readingCount.increment();
+      if (reading.getTime() > 0) {
+        this.readingLatency.record(now - reading.getTime());
+      }
+    } else if (data instanceof Snapshot snapshot) {
+      for (int i = 0; i < snapshot.getActuatorCount(); i++) {
+        addActuator(snapshot.getNodeId(), snapshot.getActuatorId(i));
+      }
+    } else if (data instanceof ActuatorIdentifier identifier) {
+      addActuator(identifier.getNodeId(), identifier.getActuatorId());
+    } else if (data instanceof CommandAck ack) {
+      Long sentAt = this.pendingCommands.remove(ack.getRequestId());
+      if (sentAt != null) {
+        this.commandLatency.record((System.nanoTime() - sentAt) / 1_000_000);
+      }
+      if (!ack.isAck()) {
+        this.failedCommandCount.increment();
+      }
+    }
+  }
+
+  private void addActuator(int nodeId, int actuatorId) {
+    long key = actuatorKey(nodeId, actuatorId);
+    if (this.actuatorKeys.add(key)) {
+      this.actuators.add(key);
+    }
+  }
+
+  private static long actuatorKey(int nodeId, int actuatorId) {
+    return ((long) nodeId << 32) | (actuatorId & 0xffffffffL);
+  }
+
+  /**
+   * Send a command turning a random known actuator on or off.
+   *
+   * @param random The source of the actuator and the action.
+   * @return true if a command was sent, false if no actuator is known or the panel is not
+   *         connected.
+   */
+  public boolean sendRandomCommand(Random random) {
+    long key;
+    synchronized (this.actuators) {
+      if (!this.connected || this.actuators.isEmpty()) {
+        return false;
+      }
+      key = this.actuators.get(random.nextInt(this.actuators.size()));
+    }
+    int nodeId = (int) (key >> 32);
+    int actuatorId = (int) key;
+    int requestId = this.nextRequestId.incrementAndGet();
+    this.pendingCommands.put(requestId, System.nanoTime());
+    try {
+      this.channel.write(new ActuatorCommand("ActuatorCommand", requestId, nodeId, actuatorId,
+              random.nextBoolean() ? "On" : "Off"));
+      return true;
+    } catch (IOException e) {
+      this.pendingCommands.remove(requestId);
+      return false;
+    }
+  }
+
+  /**
+   * Disconnect from the server.
+   */
+  public void close() {
+    this.connected = false;
+    try {
+      if (this.socket != null) {
+        this.socket.close();
+      }
+    } catch (IOException e) {
+      System.out.println("Could not close a load panel: " + e.getMessage());
+    }
+  }
+
+  public boolean isConnected() {
+    return this.connected;
+  }
+
+  /**
+   * Return the number of messages received.
+   *
+   * @return the number of messages.
+   */
+  public long getMessageCount() {
+    return this.messageCount.sum();
+  }
+
+  /**
+   * Return the number of commands that were negatively acknowledged.
+   *
+   * @return the number of failed commands.
+   */
+  public long getFailedCommandCount() {
+    return this.failedCommandCount.sum();
+  }
+
+  /**
+   * Return the number of readings received, counting every reading of a batch.
+   *
+   * @return the number of readings.
+   */
+  public long getReadingCount() {
+    return this.readingCount.sum();
+  }
+}
@@ -0,0 +1,185 @@
+package no.ntnu.load;
+
+import no.ntnu.tools.WireFormat;
+
+/**
+ * Configuration of the load generator, usually given as {@code key=value} command line
+ * arguments.
+ */
+public class LoadConfig {
+  private int nodeCount;
+  private int sensorsPerNode;
+  private int actuatorsPerNode;
+  private int panelCount;
+  private long samplingInterval;
+  private double commandRate;
+  private long duration;
+  private long reportInterval;
+  private int firstNodeId;
+  private WireFormat format;
+  private boolean virtualThreads;
+  private int carrierThreadCount;
+  private int samplingThreadCount;
+  private boolean verbose;
+
+  /**
+   * Create a configuration with the default values: 100 nodes with 2 sensors and 1 actuator
+   * each, sampled every second, 2 control panels sending 10 actuator commands per second in
+   * all, for 60 seconds with a report every 5 seconds. The nodes get IDs from 1000, so they do
+   * not take the IDs of the nodes of the server. Clients use the text format and platform
+   * threads, and the output of the nodes and panels is hidden.
+   */
+  public LoadConfig() {
+    this.nodeCount = 100;
+    this.sensorsPerNode = 2;
+    this.actuatorsPerNode = 1;
+    this.panelCount = 2;
+    this.samplingInterval = 1000;
+    this.commandRate = 10;
+    this.duration = 60_000;
+    this.reportInterval = 5_000;
+    this.firstNodeId = 1000;
+    this.format = WireFormat.TEXT;
+    this.virtualThreads = false;
+    this.carrierThreadCount = Runtime.getRuntime().availableProcessors();
+    this.samplingThreadCount = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    this.verbose = false;
+  }
+
+  /**
+   * Create a configuration from command line arguments.
+   * Supported arguments are {@code nodes=<count>}, {@code sensors=<count per node>},
+   * {@code actuators=<count per node>}, {@code panels=<count>},
+   * {@code interval=<sampling interval in ms>}, {@code commands=<commands per second>},
+   * {@code duration=<seconds>}, {@code report=<seconds>}, {@code firstNodeId=<id>},
+   * {@code codec=text|binary}, {@code threads=platform|virtual},
+   * {@code carrierThreads=<count>}, {@code samplingThreads=<count>} and
+   * {@code verbose=true|false}.
+   *
+   * @param args The command line arguments.
+   * @return The configuration.
+   * @throws IllegalArgumentException If an argument is not recognized or not valid.
+   */
+  public static LoadConfig fromArgs(String[] args) {
+    LoadConfig config = new LoadConfig();
+    for (String arg : args) {
+      String[] keyValue = arg.split("=");
+      if (keyValue.length != 2) {
+        throw new IllegalArgumentException("Invalid argument: " + arg);
+      }
+      String value = keyValue[1];
+      switch (keyValue[0]) {
+        case "nodes" -> config.nodeCount = atLeast(arg, Integer.parseInt(value), 0);
+        case "sensors" -> config.sensorsPerNode = atLeast(arg, Integer.parseInt(value), 0);
+        case "actuators" -> config.actuatorsPerNode = atLeast(arg, Integer.parseInt(value), 0);
+        case "panels" -> config.panelCount = atLeast(arg, Integer.parseInt(value), 0);
+        case "interval" -> config.samplingInterval = atLeast(arg, Long.parseLong(value), 1);
+        case "commands" -> config.commandRate = atLeast(arg, Double.parseDouble(value), 0);
+        case "duration" -> config.duration = atLeast(arg, Long.parseLong(value), 1) * 1000;
+        case "report" -> config.reportInterval = atLeast(arg, Long.parseLong(value), 1) * 1000;
+        case "firstNodeId" -> config.firstNodeId = atLeast(arg, Integer.parseInt(value), 1);
+        case "codec" -> config.format = WireFormat.valueOf(value.toUpperCase());
+        case "threads" -> config.virtualThreads = switch (value) {
+          case "virtual" -> true;
+          case "platform" -> false;
+          default -> throw new IllegalArgumentException("Unknown thread kind: " + value);
+        };
+        case "carrierThreads" ->
+                config.carrierThreadCount = atLeast(arg, Integer.parseInt(value), 1);
+        case "samplingThreads" ->
+                config.samplingThreadCount = atLeast(arg, Integer.parseInt(value), 1);
+        case "verbose" -> config.verbose = Boolean.parseBoolean(value);
+        default -> throw new IllegalArgumentException("Unknown argument: " + arg);
+      }
+    }
+    return config;
+  }
+
+  private static <T extends Number> T atLeast(String arg, T value, int minimum) {
+    if (value.doubleValue() < minimum) {
+      throw new IllegalArgumentException("Must be at least " + minimum + ": " + arg);
+    }
+    return value;
+  }
+
+  public int getNodeCount() {
+    return this.nodeCount;
+  }
+
+  public int getSensorsPerNode() {
+    return this.sensorsPerNode;
+  }
+
+  public int getActuatorsPerNode() {
+    return this.actuatorsPerNode;
+  }
+
+  public int getPanelCount() {
+    return this.panelCount;
+  }
+
+  /**
+   * Return how often the sensors of every node are sampled.
+   *
+   * @return the sampling interval, in milliseconds.
+   */
+  public long getSamplingInterval() {
+    return this.samplingInterval;
+  }
+
+  /**
+   * Return how many actuator commands the control panels send per second, in all.
+   *
+   * @return the command rate, or 0 for no commands.
+   */
+  public double getCommandRate() {
+    return this.commandRate;
+  }
+
+  /**
+   * Return how long the load is run.
+   *
+   * @return the duration, in milliseconds.
+   */
+  public long getDuration() {
+    return this.duration;
+  }
+
+  /**
+   * Return how often a report line is printed.
+   *
+   * @return the report interval, in milliseconds.
+   */
+  public long getReportInterval() {
+    return this.reportInterval;
+  }
+
+  public int getFirstNodeId() {
+    return this.firstNodeId;
+  }
+
+  public WireFormat getFormat() {
+    return this.format;
+  }
+
+  public boolean isVirtualThreads() {
+    return this.virtualThreads;
+  }
+
+  public int getCarrierThreadCount() {
+    return this.carrierThreadCount;
+  }
+
+  public int getSamplingThreadCount() {
+    return this.samplingThreadCount;
+  }
+
+  /**
+   * Check whether the output of the nodes and control panels is shown.
+   *
+   * @return true if it is shown, false if only the reports are printed.
+   */
+  public boolean isVerbose() {
+    return this.verbose;
+  }
+}
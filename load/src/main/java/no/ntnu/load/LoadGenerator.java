@@ -0,0 +1,177 @@
+package no.ntnu.load;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import no.ntnu.node.DeviceFactory;
+import no.ntnu.node.Node;
+import no.ntnu.tools.LatencyHistogram;
+
+/**
+ * Puts load on a running server: starts a number of simulated nodes and headless control
+ * panels, lets the panels send actuator commands at a fixed rate, and reports the throughput,
+ * the number of connected clients and the latencies at regular intervals.
+ */
+public class LoadGenerator {
+  private final LoadConfig config;
+  private final PrintStream out;
+  private final List<Node> nodes = new ArrayList<>();
+  private final List<HeadlessPanel> panels = new ArrayList<>();
+  private final LatencyHistogram readingLatency = new LatencyHistogram();
+  private final LatencyHistogram commandLatency = new LatencyHistogram();
+  private final LatencyHistogram totalReadingLatency = new LatencyHistogram();
+  private final LatencyHistogram totalCommandLatency = new LatencyHistogram();
+  private final LongAdder sampledCount = new LongAdder();
+  private final LongAdder commandCount = new LongAdder();
+  private final Random random = new Random();
+  private final ScheduledExecutorService commandScheduler =
+          Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "load-commands");
+            thread.setDaemon(true);
+            return thread;
+          });
+  private int nextPanel;
+
+  /**
+   * Create a load generator.
+   *
+   * @param config The numbers of clients, the rates and the duration.
+   * @param out    The stream the reports are printed to.
+   */
+  public LoadGenerator(LoadConfig config, PrintStream out) {
+    this.config = config;
+    this.out = out;
+  }
+
+  /**
+   * Start the clients, report while the load runs, and stop them again.
+   *
+   * @throws InterruptedException If the thread was interrupted while waiting.
+   */
+  public void run() throws InterruptedException {
+    start();
+    long startTime = System.currentTimeMillis();
+    long endTime = startTime + this.config.getDuration();
+    Counts previous = new Counts(0, 0, 0, 0, 0);
+    long previousTime = startTime;
+    while (System.currentTimeMillis() < endTime) {
+      Thread.sleep(Math.min(this.config.getReportInterval(),
+              endTime - System.currentTimeMillis()));
+      long now = System.currentTimeMillis();
+      Counts counts = takeCounts();
+      report(now - startTime, counts.minus(previous), now - previousTime);
+      previous = counts;
+      previousTime = now;
+    }
+    stop();
+    reportTotal(previous, System.currentTimeMillis() - startTime);
+  }
+
+  private void start() {
+    DeviceFactory.reserveNodeIdsBelow(this.config.getFirstNodeId());
+    int sensors = this.config.getSensorsPerNode();
+    int actuators = this.config.getActuatorsPerNode();
+    for (int i = 0; i < this.config.getNodeCount(); i++) {
+      Node node = DeviceFactory.createNode((sensors + 1) / 2, sensors / 2, 0,
+              (actuators + 1) / 2, actuators / 2);
+      node.setSamplingInterval(this.config.getSamplingInterval());
+      node.addSensorListener(updated -> this.sampledCount.add(updated.size()));
+      this.nodes.add(node);
+    }
+    for (int i = 0; i < this.config.getPanelCount(); i++) {
+      HeadlessPanel panel = new HeadlessPanel(this.readingLatency, this.commandLatency);
+      try {
+        panel.start();
+        this.panels.add(panel);
+      } catch (IOException e) {
+        this.out.println("Could not start a control panel: " + e.getMessage());
+      }
+    }
+    this.nodes.forEach(Node::start);
+    this.out.println("Started " + this.nodes.size() + " nodes and " + this.panels.size()
+            + " control panels");
+    if (this.config.getCommandRate() > 0 && !this.panels.isEmpty()) {
+      long period = Math.max(1, Math.round(1_000_000 / this.config.getCommandRate()));
+      this.commandScheduler.scheduleAtFixedRate(this::sendCommand, period, period,
+              TimeUnit.MICROSECONDS);
+    }
+  }
+
+  private void sendCommand() {
+    HeadlessPanel panel = this.panels.get(this.nextPanel);
+    this.nextPanel = (this.nextPanel + 1) % this.panels.size();
+    if (panel.sendRandomCommand(this.random)) {
+      this.commandCount.increment();
+    }
+  }
+
+  private void stop() {
+    this.commandScheduler.shutdownNow();
+    this.nodes.forEach(Node::stop);
+    this.panels.forEach(HeadlessPanel::close);
+  }
+
+  private Counts takeCounts() {
+    long messages = 0;
+    long readings = 0;
+    long failedCommands = 0;
+    for (HeadlessPanel panel : this.panels) {
+      messages += panel.getMessageCount();
+      readings += panel.getReadingCount();
+      failedCommands += panel.getFailedCommandCount();
+    }
+    return new Counts(this.sampledCount.sum(), readings, messages, this.commandCount.sum(),
+            failedCommands);
+  }
+
+  private void report(long elapsed, Counts counts, long interval) {
+    long connectedNodes = this.nodes.stream().filter(Node::isConnected).count();
+    long connectedPanels = this.panels.stream().filter(HeadlessPanel::isConnected).count();
+    LatencyHistogram readings = this.readingLatency.takeSnapshot();
+    LatencyHistogram commands = this.commandLatency.takeSnapshot();
+    this.totalReadingLatency.add(readings);
+    this.totalCommandLatency.add(commands);
+    this.out.printf("%6.1f s  nodes %d/%d  panels %d/%d  sampled %.0f/s  received %.0f/s"
+                    + "  messages %.0f/s  commands %.1f/s%n",
+            elapsed / 1000.0, connectedNodes, this.nodes.size(), connectedPanels,
+            this.config.getPanelCount(), perSecond(counts.sampled, interval),
+            perSecond(counts.readings, interval), perSecond(counts.messages, interval),
+            perSecond(counts.commands, interval));
+    this.out.println("         reading latency: " + readings.getSummary());
+    if (commands.getCount() > 0) {
+      this.out.println("         command latency: " + commands.getSummary());
+    }
+  }
+
+  private void reportTotal(Counts counts, long elapsed) {
+    this.out.printf("Total after %.1f s: sampled %d (%.0f/s), received %d (%.0f/s),"
+                    + " messages %d, commands %d (%d failed)%n",
+            elapsed / 1000.0, counts.sampled, perSecond(counts.sampled, elapsed),
+            counts.readings, perSecond(counts.readings, elapsed), counts.messages,
+            counts.commands, counts.failedCommands);
+    this.out.println("Reading latency: " + this.totalReadingLatency.getSummary());
+    this.out.println("Command latency: " + this.totalCommandLatency.getSummary());
+  }
+
+  private static double perSecond(long count, long interval) {
+    return interval > 0 ? count * 1000.0 / interval : 0;
+  }
+
+  /**
+   * The counters of the load, at one point in time.
+   */
+  private record Counts(long sampled, long readings, long messages, long commands,
+                        long failedCommands) {
+    Counts minus(Counts other) {
+      return new Counts(this.sampled - other.sampled, this.readings - other.readings,
+              this.messages - other.messages, this.commands - other.commands,
+              this.failedCommands - other.failedCommands);
+    }
+  }
+}
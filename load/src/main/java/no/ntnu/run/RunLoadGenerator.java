@@ -0,0 +1,35 @@
+package no.ntnu.run;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import no.ntnu.load.LoadConfig;
+import no.ntnu.load.LoadGenerator;
+import no.ntnu.node.SamplingScheduler;
+import no.ntnu.tools.MessageChannel;
+import no.ntnu.tools.Threads;
+
+/**
+ * Main class for putting load on a running greenhouse server.
+ */
+public class RunLoadGenerator {
+
+  /**
+   * Main method for starting the load generator.
+   *
+   * @param args Command line arguments, see {@link LoadConfig#fromArgs(String[])}.
+   * @throws InterruptedException If the load generator was interrupted.
+   */
+  public static void main(String[] args) throws InterruptedException {
+    LoadConfig config = LoadConfig.fromArgs(args);
+    if (config.isVirtualThreads()) {
+      Threads.useVirtualThreads(config.getCarrierThreadCount());
+    }
+    MessageChannel.setPreferredFormat(config.getFormat());
+    SamplingScheduler.setThreadCount(config.getSamplingThreadCount());
+    PrintStream out = System.out;
+    if (!config.isVerbose()) {
+      System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+    new LoadGenerator(config, out).run();
+  }
+}
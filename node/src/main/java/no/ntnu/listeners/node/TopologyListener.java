@@ -0,0 +1,27 @@
+package no.ntnu.listeners.node;
+
+import no.ntnu.node.Actuator;
+import no.ntnu.node.Sensor;
+
+/**
+ * Listener for changes to the devices of a node, such as sensors and actuators added from a
+ * control panel. This should be used on the sensor/actuator node part, where the real sensor
+ * and actuator objects are available.
+ */
+public interface TopologyListener {
+  /**
+   * This event is fired when a sensor has been added to a node.
+   *
+   * @param nodeId The ID of the node
+   * @param sensor The added sensor
+   */
+  void onSensorAdded(int nodeId, Sensor sensor);
+
+  /**
+   * This event is fired when an actuator has been added to a node.
+   *
+   * @param nodeId   The ID of the node
+   * @param actuator The added actuator
+   */
+  void onActuatorAdded(int nodeId, Actuator actuator);
+}
@@ -1,5 +1,6 @@
 package no.ntnu.node;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import no.ntnu.listeners.node.ActuatorListener;
@@ -48,6 +49,25 @@ public class Actuator {
     return nextId++;
   }
 
+  /**
+   * Return the ID the next actuator created without a given ID will get.
+   *
+   * @return the next actuator ID.
+   */
+  public static int getNextId() {
+    return nextId;
+  }
+
+  /**
+   * Make sure actuators created from now on get IDs from a given ID and up, for example so they
+   * do not reuse the IDs of actuators restored after a restart. The next ID is never lowered.
+   *
+   * @param id The lowest ID to give to new actuators.
+   */
+  public static void reserveIdsBelow(int id) {
+    nextId = Math.max(nextId, id);
+  }
+
   /**
    * Register the impact of this actuator when active.
    *
@@ -66,6 +86,15 @@ public class Actuator {
     return type;
   }
 
+  /**
+   * Return the impacts of this actuator when active, by sensor type.
+   *
+   * @return the impacts, which can not be modified.
+   */
+  public Map<String, Double> getImpacts() {
+    return Collections.unmodifiableMap(impacts);
+  }
+
   /**
    * Create a clone of this actuator.
    *
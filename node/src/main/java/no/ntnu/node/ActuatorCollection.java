@@ -1,14 +1,16 @@
 package no.ntnu.node;
 
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * A collection of actuators of different types.
+ * Actuators are added by the thread of their node, while the collection may be iterated by
+ * others, for example when the topology of the greenhouse is saved.
  */
 public class ActuatorCollection implements Iterable<Actuator> {
-  private final Map<Integer, Actuator> actuators = new HashMap<>();
+  private final Map<Integer, Actuator> actuators = new ConcurrentHashMap<>();
 
 
   /**
@@ -1,8 +1,4 @@
-package no.ntnu.tools;
-
-import no.ntnu.node.Actuator;
-import no.ntnu.node.Node;
-import no.ntnu.node.Sensor;
+package no.ntnu.node;
 
 /**
  * A factory for producing sensors and actuators of specific types.
@@ -149,4 +145,23 @@ public class DeviceFactory {
   private static int generateUniqueNodeId() {
     return nextNodeId++;
   }
+
+  /**
+   * Return the ID the next node created will get.
+   *
+   * @return the next node ID.
+   */
+  public static int getNextNodeId() {
+    return nextNodeId;
+  }
+
+  /**
+   * Make sure nodes created from now on get IDs from a given ID and up, for example so they do
+   * not reuse the IDs of nodes restored after a restart. The next ID is never lowered.
+   *
+   * @param id The lowest ID to give to new nodes.
+   */
+  public static void reserveNodeIdsBelow(int id) {
+    nextNodeId = Math.max(nextNodeId, id);
+  }
 }
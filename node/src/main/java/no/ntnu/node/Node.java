@@ -0,0 +1,955 @@
+package no.ntnu.node;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+import no.ntnu.commands.*;
+import no.ntnu.listeners.node.ActuatorListener;
+import no.ntnu.listeners.node.NodeStateListener;
+import no.ntnu.listeners.node.SensorListener;
+import no.ntnu.listeners.node.TopologyListener;
+import no.ntnu.tools.MessageChannel;
+import no.ntnu.tools.MessageHandler;
+import no.ntnu.tools.Threads;
+
+/**
+ * Represents one node with sensors and actuators.
+ *
+ * <p>If the connection to the server is lost, or cannot be made, the node keeps sampling and
+ * keeps the readings it could not send in a bounded {@link ReadingBuffer}. Meanwhile it tries
+ * to connect again, waiting twice as long after every failed attempt, and once connected it
+ * sends the kept readings, oldest first, before any new ones. Every batch of readings has a
+ * sequence number, so the server can drop a batch it received just before the connection was
+ * lost.
+ *
+ * <p>The sensors are sampled on the shared {@link SamplingScheduler}, whose few threads must
+ * never wait for a socket. The readings of each sample are handed to a queue instead, and a task
+ * on the shared writer pool of the scheduler drains it, sending everything queued with one
+ * flush. At most one such task per node is scheduled at a time, so the batches of a node are
+ * sent in order.
+ */
+public class Node {
+  // How often to generate new sensor values, in milliseconds, unless set for the node or sensor.
+  private static final long SENSING_DELAY = 5000;
+  // The first and the longest wait before connecting again, in milliseconds.
+  private static final long MIN_RECONNECT_DELAY = 250;
+  private static final long MAX_RECONNECT_DELAY = 30000;
+  // How many readings are kept while the node cannot send them.
+  private static final int BUFFER_CAPACITY = 8192;
+  // How many kept batches are sent together, with one flush, after connecting again.
+  private static final int REPLAY_BATCHES = 64;
+  // How many samples wait to be sent before new ones are dropped.
+  private static final int QUEUE_CAPACITY = 1024;
+  private final int id;
+  private long samplingInterval = SENSING_DELAY;
+
+  private final List<Sensor> sensors = new CopyOnWriteArrayList<>();
+  private final ActuatorCollection actuators = new ActuatorCollection();
+
+  private final List<SensorListener> sensorListeners = new LinkedList<>();
+  private final List<ActuatorListener> actuatorListeners = new LinkedList<>();
+  private final List<NodeStateListener> stateListeners = new LinkedList<>();
+  private final List<TopologyListener> topologyListeners = new CopyOnWriteArrayList<>();
+
+  private final List<ScheduledFuture<?>> samplingTasks = new ArrayList<>();
+
+  private volatile boolean running;
+  private final Random random = new Random();
+
+  private volatile Socket socket;
+
+  private volatile MessageChannel channel;
+
+  // Guards the readings not sent yet, the sequence numbers and the connected flag, so kept
+  // readings are always sent before new ones. A lock rather than a monitor, so a virtual thread
+  // blocked in a write while holding it does not pin its carrier thread.
+  private final ReentrantLock sendLock = new ReentrantLock();
+  private ReadingBuffer unsent;
+  // Starting at the time the node started, in microseconds, keeps the sequence numbers
+  // increasing when the node is restarted.
+  private long nextSequence = System.currentTimeMillis() * 1000;
+  private volatile boolean connected;
+
+  private final BlockingQueue<Sample> samples = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+  private final AtomicBoolean drainScheduled = new AtomicBoolean();
+
+  /**
+   * The readings of up to {@link SensorReadingBatch#MAX_SIZE} sensors taken together, waiting
+   * to be sent as a batch.
+   */
+  private record Sample(long time, long monotonicTime, int[] sensorIds, long[] sensorSequences,
+                        String[] types, double[] values, String[] units) {
+  }
+
+  /**
+   * Create a sensor/actuator node. Note: the node itself does not check whether the ID is unique.
+   * This is done at the greenhouse-level.
+   *
+   * @param id A unique ID of the node
+   */
+  public Node(int id) {
+    this.running = false;
+    this.id = id;
+  }
+
+  /**
+   * Start simulating the sensor node's operation.
+   */
+  public void start() {
+    if (!running) {
+      running = true;
+      if (!connect()) {
+        System.out.println("Node " + id + " could not connect, and will keep trying.");
+      }
+      Threads.start("node-" + id, () -> {
+        System.out.println("-- Starting simulation of node " + id);
+        run();
+      });
+      startPeriodicSensorReading();
+    }
+  }
+
+  /**
+   * Run the node.
+   */
+  public void run() {
+    while (running) {
+      Data dataType = readMessage();
+      if (dataType == null) {
+        if (!reconnect()) {
+          break;
+        }
+        continue;
+      }
+      if (dataType instanceof NodeCommand) {
+        executeCommand(dataType);
+      } else if (dataType instanceof ActuatorAddedInGui) {
+        executeCommand(dataType);
+      } else if (dataType instanceof SensorAddedInGui) {
+        executeCommand(dataType);
+      }
+    }
+  }
+
+  /**
+   * Establishes a connection to the server.
+   */
+  public void establishConnection() {
+    try {
+      this.socket = new Socket("localhost", 1238);
+    } catch (IOException e) {
+      System.out.println("Could not connect to the server.");
+      System.out.println(e.getMessage());
+      throw new IllegalArgumentException("Could not connect to the server");
+    } try {
+      this.channel = new MessageChannel(this.socket);
+      this.channel.identify(this.id);
+    } catch (IOException e) {
+      System.out.println("Could not create the reader/writer.");
+      System.out.println(e.getMessage());
+      throw new IllegalArgumentException("Could not create the reader/writer");
+    }
+  }
+
+  /**
+   * Connect to the server, describe the devices of the node, and send the readings kept while
+   * the node was disconnected.
+   *
+   * @return True if the node is connected and has sent all kept readings.
+   */
+  private boolean connect() {
+    try {
+      establishConnection();
+    } catch (IllegalArgumentException e) {
+      return false;
+    }
+    if (!running) {
+      disconnectFromServer();
+      return false;
+    }
+    sendLock.lock();
+    try {
+      this.actuators.forEach(actuator ->
+              sendMessage(MessageHandler.serializeActuatorInformation(new ActuatorIdentifier(
+                      "Identifier", actuator.getNodeId(), actuator.getType(), actuator.getId(),
+                      actuator.isOn())))
+      );
+      this.sensors.forEach(sensor ->
+              sendMessage(MessageHandler.serializeSensorInformation(new SensorIdentifier(
+                      "Identifier", sensor.getNodeId(), sensor.getType(), sensor.getSensorId(),
+                      sensor.getReading().getUnit())))
+      );
+      connected = sendUnsentReadings();
+      return connected;
+    } finally {
+      sendLock.unlock();
+    }
+  }
+
+  /**
+   * Connect to the server again after the connection was lost. The wait before each attempt
+   * doubles, up to {@link #MAX_RECONNECT_DELAY}, and half of it is random so nodes that lost
+   * the connection together do not all come back at the same moment.
+   *
+   * @return True once connected, or false if the node was stopped first.
+   */
+  private boolean reconnect() {
+    connected = false;
+    disconnectFromServer();
+    long delay = MIN_RECONNECT_DELAY;
+    while (running) {
+      try {
+        Thread.sleep(delay / 2 + random.nextLong(delay / 2 + 1));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return false;
+      }
+      if (running && connect()) {
+        System.out.println("Node " + id + " connected to the server again");
+        return true;
+      }
+      delay = Math.min(delay * 2, MAX_RECONNECT_DELAY);
+    }
+    return false;
+  }
+
+  private void disconnectFromServer() {
+    Socket current = socket;
+    socket = null;
+    channel = null;
+    try {
+      if (current != null) {
+        current.close();
+      }
+    } catch (IOException e) {
+      System.err.println("Node " + id + ": Error disconnecting from server: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Returns the message from the server.
+   *
+   * @return The message from the server, or null if the connection was closed.
+   */
+  public Data readMessage() {
+    MessageChannel current = this.channel;
+    if (current == null) {
+      return null;
+    }
+    try {
+      return current.read();
+    } catch (IOException | IllegalArgumentException e) {
+      System.out.println("Could not read the message.");
+      System.out.println(e.getMessage());
+    }
+    return null;
+  }
+
+  /**
+   * Sends a message to the server.
+   *
+   * @param message The message to send.
+   */
+  public void sendMessage(String message) {
+    MessageChannel current = this.channel;
+    if (current == null) {
+      System.out.println("Could not send the message: node " + id + " is not connected");
+      return;
+    }
+    try {
+      current.write(message);
+    } catch (IOException e) {
+      System.out.println("Could not send the message: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Sends a message to the server.
+   *
+   * @param message The message to send.
+   */
+  public void sendMessage(Data message) {
+    MessageChannel current = this.channel;
+    if (current == null) {
+      System.out.println("Could not send the message: node " + id + " is not connected");
+      return;
+    }
+    try {
+      current.write(message);
+    } catch (IOException e) {
+      System.out.println("Could not send the message: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Sends several messages to the server, flushing only once after the last.
+   *
+   * @param messages The messages to send, in order.
+   */
+  public void sendMessages(List<? extends Data> messages) {
+    MessageChannel current = this.channel;
+    if (current == null) {
+      System.out.println("Could not send the messages: node " + id + " is not connected");
+      return;
+    }
+    try {
+      current.write(messages);
+    } catch (IOException e) {
+      System.out.println("Could not send the messages: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Executes a command based on the message given.
+   *
+   * @param rawMessage The message given.
+   */
+  public void executeCommand(String rawMessage) {
+    executeCommand(MessageHandler.getData(rawMessage));
+  }
+
+  /**
+   * Executes a command that has already been deserialized.
+   *
+   * @param data The command to execute.
+   */
+  public void executeCommand(Data data) {
+    System.out.println("Executing command: " + data.getData());
+    if (data.getData().equals("NodeCommand")) {
+      NodeCommand nodeCommand = (NodeCommand) data;
+      if (nodeCommand.getAction().equals("Off")) {
+        acknowledge(nodeCommand, CommandAck.ack(nodeCommand.getRequestId(), id, 0));
+        stop();
+      } else {
+        acknowledge(nodeCommand, CommandAck.nack(nodeCommand.getRequestId(), id, 0,
+                CommandAck.UNKNOWN_ACTION));
+      }
+    } else if (data.getData().equals("ActuatorCommand")) {
+      executeActuatorCommand((ActuatorCommand) data);
+    } else if (data.getData().equals("ActuatorAddedInGui")) {
+      ActuatorAddedInGui actuatorAddedInGui = (ActuatorAddedInGui) data;
+
+      Actuator addedActuator =
+              new Actuator(actuatorAddedInGui.getActuatorType(), actuatorAddedInGui.getNodeId());
+      addActuator(addedActuator);
+      // send identifier back to the server and gui so that the gui can update the
+      // actuator with correct actuatorId
+      sendMessage("Data=Identifier"
+              + ";Node=" + actuatorAddedInGui.getNodeId()
+              + ";Actuator=" + addedActuator.getId()
+              + ";Type=" + addedActuator.getType()
+              + ";State=" + addedActuator.isOn());
+    } else if (data.getData().equals("SensorAddedInGui")) {
+      SensorAddedInGui sensorAddedInGui = (SensorAddedInGui) data;
+      if (sensorAddedInGui.getSensorType().equals("temperature")) {
+        Sensor sensor = DeviceFactory.createTemperatureSensor(sensorAddedInGui.getNodeId());
+        addSensors(sensor, 1);
+        sendMessage("Data=Identifier"
+                + ";Node=" + sensorAddedInGui.getNodeId()
+                + ";Type=" + sensorAddedInGui.getSensorType()
+                + ";Sensor=" + sensor.getSensorId()
+                + ";Value=" + sensor.getReading().getValue());
+      } else if (sensorAddedInGui.getSensorType().equals("humidity")) {
+        Sensor sensor = DeviceFactory.createHumiditySensor(sensorAddedInGui.getNodeId());
+        addSensors(sensor, 1);
+        sendMessage("Data=Identifier"
+                + ";Node=" + sensorAddedInGui.getNodeId()
+                + ";Type=" + sensorAddedInGui.getSensorType()
+                + ";Sensor=" + sensor.getSensorId()
+                + ";Value=" + sensor.getReading().getValue());
+      } else {
+        System.out.println("Unknown sensor type: " + sensorAddedInGui.getSensorType());
+      }
+    } else if (data.getData().equals("NodeAddedInGui")) {
+      NodeAddedInGui nodeAddedInGui = (NodeAddedInGui) data;
+      System.out.println("Node " + nodeAddedInGui.getNodeId() + " added in GUI");
+      sendMessage("Data=Identifier;Node=" + nodeAddedInGui.getNodeId());
+    } else {
+      System.out.println("Unknown message type received: " + data.getData());
+    }
+  }
+
+
+  /**
+   * Turns actuators on or off and answers with their new states, all in one write. A command
+   * with an actuator type applies to every actuator of the type, or to all actuators for
+   * {@link ActuatorCommand#ANY_TYPE}, so a group of actuators costs one message each way.
+   * A command with a request ID is also acknowledged in the same write, or negatively
+   * acknowledged if its actuator or action is unknown.
+   *
+   * @param command The actuator command.
+   */
+  private void executeActuatorCommand(ActuatorCommand command) {
+    boolean on;
+    if ("On".equals(command.getAction())) {
+      on = true;
+    } else if ("Off".equals(command.getAction())) {
+      on = false;
+    } else {
+      System.out.println("Unknown actuator action: " + command.getAction());
+      acknowledge(command, CommandAck.nack(command.getRequestId(), id, 0,
+              CommandAck.UNKNOWN_ACTION));
+      return;
+    }
+    List<Data> replies = new ArrayList<>();
+    if (command.isGroupCommand()) {
+      for (Actuator actuator : actuators) {
+        if (command.matchesType(actuator.getType())) {
+          replies.add(setActuatorState(actuator, on));
+        }
+      }
+    } else {
+      Actuator actuator = getActuator(command.getActuatorId());
+      if (actuator == null) {
+        System.out.println("Actuator " + command.getActuatorId() + " not found on node " + id);
+        acknowledge(command, CommandAck.nack(command.getRequestId(), id, 0,
+                CommandAck.UNKNOWN_ACTUATOR));
+        return;
+      }
+      replies.add(setActuatorState(actuator, on));
+    }
+    System.out.println(replies.size() + " actuators turned " + command.getAction());
+    if (command.getRequestId() != 0) {
+      replies.add(CommandAck.ack(command.getRequestId(), id, replies.size()));
+    }
+    if (!replies.isEmpty()) {
+      sendMessages(replies);
+    }
+  }
+
+  /**
+   * Answer a command, unless it has no request ID.
+   */
+  private void acknowledge(NodeCommand command, CommandAck ack) {
+    if (command.getRequestId() != 0) {
+      sendMessage(ack);
+    }
+  }
+
+  private ActuatorIdentifier setActuatorState(Actuator actuator, boolean on) {
+    actuator.setState(on);
+    notifyActuatorChange(actuator);
+    return new ActuatorIdentifier("Identifier", actuator.getNodeId(), actuator.getType(),
+            actuator.getId(), on);
+  }
+  /**
+   * Add sensors to the node.
+   *
+   * @param template The template to use for the sensors. The template will be cloned.
+   *                 This template defines the type of sensors, the value range, value
+   *                 generation algorithms, etc.
+   * @param n        The number of sensors to add to the node.
+   */
+  public void addSensors(Sensor template, int n) {
+    if (template == null) {
+      throw new IllegalArgumentException("Sensor template is missing");
+    }
+    String type = template.getType();
+    if (type == null || type.isEmpty()) {
+      throw new IllegalArgumentException("Sensor type missing");
+    }
+    if (n <= 0) {
+      throw new IllegalArgumentException("Can't add a negative number of sensors");
+    }
+    for (int i = 0; i < n; ++i) {
+      Sensor sensor = template.createClone();
+      sensors.add(sensor);
+      notifySensorAdded(sensor);
+    }
+    restartPeriodicSensorReading();
+  }
+
+  /**
+   * Add a sensor to the node, as it is, for example a sensor restored after a restart.
+   *
+   * @param sensor The sensor to add
+   */
+  public void addSensor(Sensor sensor) {
+    sensors.add(sensor);
+    notifySensorAdded(sensor);
+    restartPeriodicSensorReading();
+  }
+
+  /**
+   * Add an actuator to the node.
+   *
+   * @param actuator The actuator to add
+   */
+  public void addActuator(Actuator actuator) {
+    actuators.add(actuator);
+    for (TopologyListener listener : topologyListeners) {
+      listener.onActuatorAdded(id, actuator);
+    }
+    System.out.println("Created " + actuator.getType()
+            + "[" + actuator.getId() + "] on node " + id);
+  }
+
+  /**
+   * Register a new listener for sensor updates.
+   *
+   * @param listener The listener which will get notified every time sensor values change.
+   */
+  public void addSensorListener(SensorListener listener) {
+    if (!sensorListeners.contains(listener)) {
+      sensorListeners.add(listener);
+    }
+  }
+
+  /**
+   * Register a new listener for actuator updates.
+   *
+   * @param listener The listener which will get notified every time actuator state changes.
+   */
+  public void addActuatorListener(ActuatorListener listener) {
+    if (!actuatorListeners.contains(listener)) {
+      actuatorListeners.add(listener);
+    }
+  }
+
+  /**
+   * Register a new listener for node state updates.
+   *
+   * @param listener The listener which will get notified when the state of this node changes.
+   */
+  public void addStateListener(NodeStateListener listener) {
+    if (!stateListeners.contains(listener)) {
+      stateListeners.add(listener);
+    }
+  }
+
+  /**
+   * Register a new listener for sensors and actuators added to the node.
+   *
+   * @param listener The listener which will get notified when a device is added.
+   */
+  public void addTopologyListener(TopologyListener listener) {
+    if (!topologyListeners.contains(listener)) {
+      topologyListeners.add(listener);
+    }
+  }
+
+  /**
+   * Stop simulating the sensor node's operation.
+   */
+  public void stop() {
+    if (running) {
+      System.out.println("-- Stopping simulation of node " + id);
+      stopPeriodicSensorReading();
+      running = false;
+      connected = false;
+      disconnectFromServer();
+    }
+  }
+
+  /**
+   * Check whether the node is currently running.
+   *
+   * @return True if it is in a running-state, false otherwise
+   */
+  public boolean isRunning() {
+    return running;
+  }
+
+  /**
+   * Check whether the node is connected to the server and has sent every reading it kept
+   * while it was not.
+   *
+   * @return True if it is connected, false otherwise
+   */
+  public boolean isConnected() {
+    return connected;
+  }
+
+  /**
+   * Schedule the sampling of the sensors on the shared {@link SamplingScheduler}.
+   * Sensors with the same sampling interval are sampled together, by one task, and each task
+   * starts after a random delay so the nodes do not all send their readings at the same time.
+   */
+  private synchronized void startPeriodicSensorReading() {
+    Map<Long, List<Sensor>> sensorsByInterval = new HashMap<>();
+    for (Sensor sensor : sensors) {
+      long interval = sensor.getSamplingInterval() > 0
+              ? sensor.getSamplingInterval() : samplingInterval;
+      sensorsByInterval.computeIfAbsent(interval, i -> new ArrayList<>()).add(sensor);
+    }
+    sensorsByInterval.forEach((interval, group) -> {
+      long randomStartDelay = random.nextLong(interval);
+      samplingTasks.add(SamplingScheduler.scheduleAtFixedRate(
+              () -> generateNewSensorValues(group), randomStartDelay, interval));
+    });
+  }
+
+  private synchronized void stopPeriodicSensorReading() {
+    samplingTasks.forEach(task -> task.cancel(false));
+    samplingTasks.clear();
+  }
+
+  /**
+   * Schedule the sampling again, after the sensors or their sampling intervals have changed.
+   */
+  private synchronized void restartPeriodicSensorReading() {
+    if (running) {
+      stopPeriodicSensorReading();
+      startPeriodicSensorReading();
+    }
+  }
+
+  /**
+   * Set how often the sensors of the node are sampled, for the sensors without a sampling
+   * interval of their own.
+   *
+   * @param samplingInterval The sampling interval, in milliseconds.
+   */
+  public void setSamplingInterval(long samplingInterval) {
+    if (samplingInterval <= 0) {
+      throw new IllegalArgumentException("Sampling interval must be positive");
+    }
+    this.samplingInterval = samplingInterval;
+    restartPeriodicSensorReading();
+  }
+
+  public long getSamplingInterval() {
+    return samplingInterval;
+  }
+
+  /**
+   * Generate new sensor values and send a notification to all listeners.
+   */
+  public void generateNewSensorValues() {
+    generateNewSensorValues(sensors);
+  }
+
+  private void generateNewSensorValues(List<Sensor> sampledSensors) {
+    long time = System.currentTimeMillis();
+    long monotonicTime = System.nanoTime();
+    addRandomNoiseToSensors(sampledSensors, time, monotonicTime);
+    notifySensorChanges(sampledSensors);
+    queueSensorReadings(sampledSensors, time, monotonicTime);
+  }
+
+  /**
+   * Queue the current values of sensors to be sent, as one sample per
+   * {@link SensorReadingBatch#MAX_SIZE} sensors, and schedule the queue to be drained unless it
+   * already is. If sending has fallen too far behind, the sample is dropped.
+   */
+  private void queueSensorReadings(List<Sensor> sampledSensors, long time,
+                                   long monotonicTime) {
+    Sensor[] current = sampledSensors.toArray(new Sensor[0]);
+    for (int from = 0; from < current.length; from += SensorReadingBatch.MAX_SIZE) {
+      int size = Math.min(SensorReadingBatch.MAX_SIZE, current.length - from);
+      int[] sensorIds = new int[size];
+      String[] types = new String[size];
+      double[] values = new double[size];
+      String[] units = new String[size];
+      long[] sensorSequences = new long[size];
+      for (int i = 0; i < size; i++) {
+        SensorReading reading = current[from + i].getReading();
+        sensorIds[i] = current[from + i].getSensorId();
+        sensorSequences[i] = reading.getSequence();
+        types[i] = reading.getType();
+        values[i] = reading.getValue();
+        units[i] = reading.getUnit();
+      }
+      if (!samples.offer(new Sample(time, monotonicTime, sensorIds, sensorSequences, types,
+              values, units))) {
+        System.out.println("Node " + id + " dropped readings, sending is behind");
+      }
+    }
+    if (drainScheduled.compareAndSet(false, true)) {
+      SamplingScheduler.execute(this::drainSamples);
+    }
+  }
+
+  /**
+   * Send the queued samples to the server, until the queue is empty. Samples queued while the
+   * node is stopped are dropped. Runs on the shared writer pool.
+   */
+  private void drainSamples() {
+    List<Sample> taken = new ArrayList<>();
+    try {
+      do {
+        samples.drainTo(taken);
+        if (running && !taken.isEmpty()) {
+          sendSamples(taken);
+        }
+        taken.clear();
+        drainScheduled.set(false);
+        // A sample queued after the last drain, but before the flag was cleared, did not
+        // schedule a task of its own.
+      } while (!samples.isEmpty() && drainScheduled.compareAndSet(false, true));
+    } catch (RuntimeException e) {
+      drainScheduled.set(false);
+      throw e;
+    }
+  }
+
+  /**
+   * Send samples to the server as batches of readings, with one flush. Batches that cannot be
+   * sent are kept, to be sent when the node is connected again.
+   */
+  private void sendSamples(List<Sample> taken) {
+    sendLock.lock();
+    try {
+      List<SensorReadingBatch> batches = new ArrayList<>(taken.size());
+      for (Sample sample : taken) {
+        batches.add(new SensorReadingBatch("ReadingBatch", id, nextSequence++, sample.time(),
+                sample.monotonicTime(), sample.sensorIds(), sample.sensorSequences(),
+                sample.types(), sample.values(), sample.units()));
+      }
+      if (!connected || !sendReadings(batches)) {
+        batches.forEach(this::keepUnsent);
+      }
+    } finally {
+      sendLock.unlock();
+    }
+  }
+
+  /**
+   * Send batches of readings. If they cannot be sent, the connection is closed, so the
+   * reader thread connects again. Must be called while holding the send lock.
+   *
+   * @return True if the batches were sent.
+   */
+  private boolean sendReadings(List<SensorReadingBatch> batches) {
+    MessageChannel current = this.channel;
+    if (current == null) {
+      return false;
+    }
+    try {
+      current.write(batches);
+      return true;
+    } catch (IOException e) {
+      System.out.println("Node " + id + " lost the connection to the server: " + e.getMessage());
+      connected = false;
+      disconnectFromServer();
+      return false;
+    }
+  }
+
+  /**
+   * Keep a batch of readings that could not be sent. Must be called while holding the send lock.
+   */
+  void keepUnsent(SensorReadingBatch batch) {
+    if (unsent == null) {
+      unsent = new ReadingBuffer(BUFFER_CAPACITY);
+    }
+    long dropped = unsent.getDroppedCount();
+    for (int i = 0; i < batch.size(); i++) {
+      unsent.add(batch.getSequence(), batch.getTime(), batch.getMonotonicTime(),
+              batch.getSensorId(i), batch.getSensorSequence(i), batch.getValue(i));
+    }
+    if (dropped == 0 && unsent.getDroppedCount() > 0) {
+      System.out.println("Node " + id + " is dropping its oldest unsent readings");
+    }
+  }
+
+  /**
+   * Send the kept readings, oldest first, in the batches they were taken in. Readings of
+   * sensors the node no longer has are dropped. Must be called while holding the send lock.
+   *
+   * @return True if every kept reading was sent.
+   */
+  private boolean sendUnsentReadings() {
+    if (unsent == null) {
+      return true;
+    }
+    long sentCount = 0;
+    while (!unsent.isEmpty()) {
+      List<SensorReadingBatch> batches = new ArrayList<>();
+      int readingCount = rebuildUnsentBatches(batches);
+      if (!batches.isEmpty() && !sendReadings(batches)) {
+        return false;
+      }
+      unsent.removeFirst(readingCount);
+      sentCount += readingCount;
+    }
+    System.out.println("Node " + id + " sent " + sentCount + " readings kept while disconnected"
+            + (unsent.getDroppedCount() > 0
+            ? ", " + unsent.getDroppedCount() + " older readings were dropped" : ""));
+    unsent = null;
+    return true;
+  }
+
+  /**
+   * Rebuild the oldest kept readings into at most {@link #REPLAY_BATCHES} batches. Each batch
+   * has the sequence number and times of the batch its readings were taken in, so the server
+   * can still tell a batch it already has from a new one. Readings of sensors the node no
+   * longer has are left out. The readings are not removed from the buffer. Must be called
+   * while holding the send lock.
+   *
+   * @param batches The list to add the batches to.
+   * @return The number of kept readings the batches were rebuilt from.
+   */
+  int rebuildUnsentBatches(List<SensorReadingBatch> batches) {
+    if (unsent == null) {
+      return 0;
+    }
+    Map<Integer, Sensor> sensorsById = new HashMap<>();
+    for (Sensor sensor : sensors) {
+      sensorsById.put(sensor.getSensorId(), sensor);
+    }
+    int readingCount = 0;
+    while (batches.size() < REPLAY_BATCHES && readingCount < unsent.size()) {
+      int size = unsent.batchSize(readingCount, SensorReadingBatch.MAX_SIZE);
+      SensorReadingBatch batch = rebuildBatch(readingCount, size, sensorsById);
+      if (batch.size() > 0) {
+        batches.add(batch);
+      }
+      readingCount += size;
+    }
+    return readingCount;
+  }
+
+  private SensorReadingBatch rebuildBatch(int from, int size, Map<Integer, Sensor> sensorsById) {
+    int[] sensorIds = new int[size];
+    String[] types = new String[size];
+    double[] values = new double[size];
+    String[] units = new String[size];
+    long[] sensorSequences = new long[size];
+    int count = 0;
+    for (int i = from; i < from + size; i++) {
+      Sensor sensor = sensorsById.get(unsent.getSensorId(i));
+      if (sensor != null) {
+        sensorIds[count] = sensor.getSensorId();
+        sensorSequences[count] = unsent.getSensorSequence(i);
+        types[count] = sensor.getType();
+        values[count] = unsent.getValue(i);
+        units[count] = sensor.getReading().getUnit();
+        count++;
+      }
+    }
+    return new SensorReadingBatch("ReadingBatch", id, unsent.getSequence(from),
+            unsent.getTime(from), unsent.getMonotonicTime(from), Arrays.copyOf(sensorIds, count),
+            Arrays.copyOf(sensorSequences, count), Arrays.copyOf(types, count),
+            Arrays.copyOf(values, count), Arrays.copyOf(units, count));
+  }
+
+  private void addRandomNoiseToSensors(List<Sensor> sampledSensors, long time,
+                                       long monotonicTime) {
+    for (Sensor sensor : sampledSensors) {
+      sensor.addRandomNoise();
+      sensor.getReading().stamp(time, monotonicTime);
+    }
+  }
+
+  /**
+   * Toggle an actuator attached to this device.
+   *
+   * @param actuatorId The ID of the actuator to toggle
+   * @throws IllegalArgumentException If no actuator with given configuration is found on this node
+   */
+  public void toggleActuator(int actuatorId) {
+    Actuator actuator = getActuator(actuatorId);
+    if (actuator == null) {
+      throw new IllegalArgumentException("actuator[" + actuatorId + "] not found on node " + id);
+    }
+    actuator.toggle();
+    notifyActuatorChange(actuator);
+  }
+
+  private void notifySensorChanges(List<Sensor> sampledSensors) {
+    for (SensorListener listener : sensorListeners) {
+      listener.sensorsUpdated(sampledSensors);
+    }
+  }
+
+  private void notifySensorAdded(Sensor sensor) {
+    for (TopologyListener listener : topologyListeners) {
+      listener.onSensorAdded(id, sensor);
+    }
+  }
+
+  private void notifyActuatorChange(Actuator actuator) {
+    for (ActuatorListener listener : actuatorListeners) {
+      listener.onActuatorStateChanged(id, actuator.getId(), actuator.isOn());
+    }
+  }
+
+
+
+  /**
+   * An actuator has been turned on or off. Apply an impact from it to all sensors of given type.
+   *
+   * @param sensorType The type of sensors affected
+   * @param impact     The impact to apply
+   */
+  public void applyActuatorImpact(String sensorType, double impact) {
+    for (Sensor sensor : sensors) {
+      if (sensor.getType().equals(sensorType)) {
+        sensor.applyImpact(impact);
+      }
+    }
+  }
+
+  /**
+   * Returns all the actuators available on the node.
+   *
+   * @return collection of the actuators
+   */
+  public ActuatorCollection getActuators() {
+    return this.actuators;
+  }
+
+  /**
+   * Set an actuator to a desired state.
+   *
+   * @param actuatorId ID of the actuator to set.
+   * @param on         Whether it should be on (true) or off (false)
+   */
+  public void setActuator(int actuatorId, boolean on) {
+    Actuator actuator = getActuator(actuatorId);
+    if (actuator != null) {
+      actuator.setState(on);
+      notifyActuatorChange(actuator);
+    }
+  }
+
+  /**
+   * Set all actuators to desired state.
+   *
+   * @param on Whether the actuators should be on (true) or off (false)
+   */
+  public void setAllActuators(boolean on) {
+    for (Actuator actuator : actuators) {
+      actuator.setState(on);
+      notifyActuatorChange(actuator);
+    }
+  }
+
+  public Actuator getActuator(int actuatorId) {
+    return actuators.get(actuatorId);
+  }
+
+  /**
+   * Get all the sensors available on the device.
+   *
+   * @return List of all the sensors
+   */
+  public List<Sensor> getSensors() {
+    return sensors;
+  }
+
+  /**
+   * Get the unique ID of the node.
+   *
+   * @return the ID
+   */
+  public int getId() {
+    return id;
+  }
+
+
+}
\ No newline at end of file
@@ -0,0 +1,147 @@
+package no.ntnu.node;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A bounded ring of the sensor readings a node could not send yet, kept off the heap in a
+ * direct buffer. Every reading is a fixed-size record of the sequence number and times of its
+ * batch, the sensor ID, the number of the reading on its sensor and the value, so the readings
+ * of one batch are consecutive records with the same batch sequence number. When the ring is
+ * full, the oldest reading is dropped to make room for the new one.
+ *
+ * <p>The buffer is not thread-safe; the node only uses it while holding its send lock.
+ */
+class ReadingBuffer {
+  private static final int TIME = Long.BYTES;
+  private static final int MONOTONIC_TIME = 2 * Long.BYTES;
+  private static final int SENSOR_ID = 3 * Long.BYTES;
+  private static final int SENSOR_SEQUENCE = SENSOR_ID + Integer.BYTES;
+  private static final int VALUE = SENSOR_SEQUENCE + Long.BYTES;
+  private static final int RECORD_SIZE = VALUE + Double.BYTES;
+
+  private final ByteBuffer records;
+  private final int capacity;
+  private int head;
+  private int size;
+  private long droppedCount;
+
+  /**
+   * Create an empty buffer.
+   *
+   * @param capacity The maximum number of readings in the buffer.
+   */
+  ReadingBuffer(int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Capacity must be positive");
+    }
+    this.capacity = capacity;
+    this.records = ByteBuffer.allocateDirect(capacity * RECORD_SIZE);
+  }
+
+  /**
+   * Add a reading at the end of the buffer, dropping the oldest reading if the buffer is full.
+   *
+   * @param sequence       The sequence number of the batch of the reading.
+   * @param time           The wall-clock time the reading was taken.
+   * @param monotonicTime  The monotonic time the reading was taken.
+   * @param sensorId       The ID of the sensor.
+   * @param sensorSequence The number of the reading on its sensor.
+   * @param value          The value read.
+   */
+  void add(long sequence, long time, long monotonicTime, int sensorId, long sensorSequence,
+           double value) {
+    if (this.size == this.capacity) {
+      removeFirst(1);
+      this.droppedCount++;
+    }
+    int position = offset(this.size);
+    this.records.putLong(position, sequence)
+            .putLong(position + TIME, time)
+            .putLong(position + MONOTONIC_TIME, monotonicTime)
+            .putInt(position + SENSOR_ID, sensorId)
+            .putLong(position + SENSOR_SEQUENCE, sensorSequence)
+            .putDouble(position + VALUE, value);
+    this.size++;
+  }
+
+  /**
+   * Remove readings from the start of the buffer.
+   *
+   * @param count The number of readings to remove.
+   */
+  void removeFirst(int count) {
+    if (count > this.size) {
+      throw new IllegalArgumentException("Only " + this.size + " readings in the buffer");
+    }
+    this.head = (this.head + count) % this.capacity;
+    this.size -= count;
+  }
+
+  /**
+   * Return the number of consecutive readings, starting at an index, that were taken in the
+   * same batch as the reading at the index.
+   *
+   * @param from    The index of the first reading.
+   * @param maxSize The largest number of readings to return.
+   * @return the number of readings, at least 1.
+   */
+  int batchSize(int from, int maxSize) {
+    long sequence = getSequence(from);
+    int size = 1;
+    while (from + size < this.size && size < maxSize && getSequence(from + size) == sequence) {
+      size++;
+    }
+    return size;
+  }
+
+  int size() {
+    return this.size;
+  }
+
+  boolean isEmpty() {
+    return this.size == 0;
+  }
+
+  /**
+   * Return the number of readings dropped because the buffer was full.
+   *
+   * @return the number of dropped readings.
+   */
+  long getDroppedCount() {
+    return this.droppedCount;
+  }
+
+  long getSequence(int index) {
+    return this.records.getLong(offset(index));
+  }
+
+  long getTime(int index) {
+    return this.records.getLong(offset(index) + TIME);
+  }
+
+  long getMonotonicTime(int index) {
+    return this.records.getLong(offset(index) + MONOTONIC_TIME);
+  }
+
+  int getSensorId(int index) {
+    return this.records.getInt(offset(index) + SENSOR_ID);
+  }
+
+  long getSensorSequence(int index) {
+    return this.records.getLong(offset(index) + SENSOR_SEQUENCE);
+  }
+
+  double getValue(int index) {
+    return this.records.getDouble(offset(index) + VALUE);
+  }
+
+  /**
+   * Return the position in the ring of the reading at an index from the start of the buffer.
+   */
+  private int offset(int index) {
+    if (index < 0 || index >= this.capacity) {
+      throw new IndexOutOfBoundsException(index);
+    }
+    return ((this.head + index) % this.capacity) * RECORD_SIZE;
+  }
+}
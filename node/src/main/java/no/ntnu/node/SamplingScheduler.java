@@ -0,0 +1,120 @@
+package no.ntnu.node;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The scheduler running the periodic sensor sampling of every node in the greenhouse.
+ * All nodes share one small pool of threads, instead of each node having a timer thread of its
+ * own, so the number of threads does not grow with the number of simulated nodes.
+ *
+ * <p>The sampling threads never wait for a socket. Sending the readings is left to a second
+ * pool of the same size, shared by all nodes as well.
+ */
+public class SamplingScheduler {
+  private static final ScheduledThreadPoolExecutor EXECUTOR = createExecutor();
+  private static final ThreadPoolExecutor WRITERS = createWriters();
+
+  /**
+   * Constructing the class is not allowed.
+   */
+  private SamplingScheduler() {
+  }
+
+  private static int defaultThreadCount() {
+    return Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+  }
+
+  private static ThreadFactory daemonThreads(String prefix) {
+    AtomicInteger threadNumber = new AtomicInteger();
+    return task -> {
+      Thread thread = new Thread(task, prefix + threadNumber.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+
+  private static ScheduledThreadPoolExecutor createExecutor() {
+    ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(defaultThreadCount(),
+            daemonThreads("sensor-sampling-"));
+    executor.setRemoveOnCancelPolicy(true);
+    return executor;
+  }
+
+  private static ThreadPoolExecutor createWriters() {
+    int threadCount = defaultThreadCount();
+    return new ThreadPoolExecutor(threadCount, threadCount, 0, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(), daemonThreads("reading-writer-"));
+  }
+
+  /**
+   * Run a task periodically at a fixed rate. If the task throws an exception, the exception is
+   * printed and the task keeps running.
+   *
+   * @param task         The task to run.
+   * @param initialDelay The delay before the first run, in milliseconds.
+   * @param period       The time between the start of two runs, in milliseconds.
+   * @return A handle that can be used to cancel the task.
+   */
+  public static ScheduledFuture<?> scheduleAtFixedRate(
+          Runnable task, long initialDelay, long period) {
+    return EXECUTOR.scheduleAtFixedRate(() -> {
+      try {
+        task.run();
+      } catch (RuntimeException e) {
+        System.out.println("Sensor sampling failed: " + e.getMessage());
+      }
+    }, initialDelay, period, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Run a task once on the shared writer pool, for example sending the readings a node has
+   * sampled. The task may wait for a socket, but should return when there is nothing left to
+   * send, so the pool is free for the other nodes.
+   *
+   * @param task The task to run.
+   */
+  public static void execute(Runnable task) {
+    WRITERS.execute(() -> {
+      try {
+        task.run();
+      } catch (RuntimeException e) {
+        System.out.println("Sending readings failed: " + e.getMessage());
+      }
+    });
+  }
+
+  /**
+   * Set the number of threads running the sampling tasks, and the number of threads sending
+   * the readings.
+   *
+   * @param threadCount The number of threads of each pool, at least 1.
+   */
+  public static synchronized void setThreadCount(int threadCount) {
+    if (threadCount < 1) {
+      throw new IllegalArgumentException("At least one sampling thread is needed");
+    }
+    EXECUTOR.setCorePoolSize(threadCount);
+    if (threadCount > WRITERS.getMaximumPoolSize()) {
+      WRITERS.setMaximumPoolSize(threadCount);
+      WRITERS.setCorePoolSize(threadCount);
+    } else {
+      WRITERS.setCorePoolSize(threadCount);
+      WRITERS.setMaximumPoolSize(threadCount);
+    }
+  }
+
+  /**
+   * Return the number of sampling tasks currently scheduled.
+   *
+   * @return the number of scheduled tasks.
+   */
+  public static int getTaskCount() {
+    return EXECUTOR.getQueue().size();
+  }
+}
@@ -12,6 +12,7 @@ public class Sensor {
 
   private final int id;
   private final int nodeId;
+  private long samplingInterval;
 
   /**
    * Create a sensor.
@@ -24,11 +25,27 @@ public class Sensor {
    * @param unit    The measurement unit. Examples: "%", "C", "lux"
    */
   public Sensor(int nodeId, String type, double min, double max, double current, String unit) {
+    this(generateUniqueId(), nodeId, type, min, max, current, unit);
+  }
+
+  /**
+   * Create a sensor with a given ID, such as a sensor restored after a restart.
+   *
+   * @param id      The ID of the sensor
+   * @param nodeId  The ID of the node to which this sensor is connected
+   * @param type    The type of the sensor. Examples: "temperature", "humidity"
+   * @param min     Minimum allowed value
+   * @param max     Maximum allowed value
+   * @param current The current value of the sensor
+   * @param unit    The measurement unit. Examples: "%", "C", "lux"
+   */
+  public Sensor(int id, int nodeId, String type, double min, double max, double current,
+                String unit) {
     this.reading = new SensorReading(type, current, unit);
     this.nodeId = nodeId;
     this.min = min;
     this.max = max;
-    this.id = generateUniqueId();
+    this.id = id;
     ensureValueBoundsAndPrecision(current);
   }
 
@@ -38,8 +55,10 @@ public class Sensor {
    * @return A clone of this sensor, where all the fields are the same
    */
   public Sensor createClone() {
-    return new Sensor(this.nodeId, reading.getType(), this.min, this.max,
+    Sensor clone = new Sensor(this.nodeId, reading.getType(), this.min, this.max,
         this.reading.getValue(), this.reading.getUnit());
+    clone.samplingInterval = this.samplingInterval;
+    return clone;
   }
 
   /**
@@ -85,6 +104,25 @@ public class Sensor {
     return nextId++;
   }
 
+  /**
+   * Return the ID the next sensor created will get.
+   *
+   * @return the next sensor ID.
+   */
+  public static int getNextId() {
+    return nextId;
+  }
+
+  /**
+   * Make sure sensors created from now on get IDs from a given ID and up, for example so they
+   * do not reuse the IDs of sensors restored after a restart. The next ID is never lowered.
+   *
+   * @param id The lowest ID to give to new sensors.
+   */
+  public static void reserveIdsBelow(int id) {
+    nextId = Math.max(nextId, id);
+  }
+
   //@Override
   //public String toString() {
   //return this.reading.readingToString();
@@ -94,6 +132,24 @@ public class Sensor {
     return this.reading.getType();
   }
 
+  /**
+   * Return the lowest value the sensor can read.
+   *
+   * @return the minimum value.
+   */
+  public double getMin() {
+    return this.min;
+  }
+
+  /**
+   * Return the highest value the sensor can read.
+   *
+   * @return the maximum value.
+   */
+  public double getMax() {
+    return this.max;
+  }
+
   /**
    * Return the current sensor reading.
    *
@@ -112,6 +168,29 @@ public class Sensor {
     return this.id;
   }
 
+  /**
+   * Return how often the sensor is sampled.
+   *
+   * @return the sampling interval in milliseconds, or 0 if the sensor is sampled as often as the
+   *         other sensors on its node.
+   */
+  public long getSamplingInterval() {
+    return this.samplingInterval;
+  }
+
+  /**
+   * Set how often the sensor is sampled. Takes effect the next time its node starts sampling.
+   *
+   * @param samplingInterval the sampling interval in milliseconds, or 0 to sample the sensor as
+   *                         often as the other sensors on its node.
+   */
+  public void setSamplingInterval(long samplingInterval) {
+    if (samplingInterval < 0) {
+      throw new IllegalArgumentException("Sampling interval can't be negative");
+    }
+    this.samplingInterval = samplingInterval;
+  }
+
   /**
    * Return the node id of the sensor.
    *
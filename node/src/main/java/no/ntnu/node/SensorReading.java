@@ -4,11 +4,16 @@ import java.util.Objects;
 
 /**
  * Represents one sensor reading (value).
+ * A sampled reading also has its number on the sensor, and the time it was taken by the wall
+ * clock and by the monotonic clock.
  */
 public class SensorReading {
   private final String type;
   private final String unit;
   private double value;
+  private long sequence;
+  private long time;
+  private long monotonicTime;
 
   /**
    * Create a new sensor reading.
@@ -30,12 +35,30 @@ public class SensorReading {
    * @param sensorId The current value of the sensor
    */
   public String readingToString(int nodeId, int sensorId) {
-    return "Data=Reading"
+    String line = "Data=Reading"
             + ";Node=" + nodeId
             + ";Sensor=" + sensorId
             + ";Type=" + this.type
             + ";Value=" + value
             + ";Unit=" + unit;
+    if (sequence > 0) {
+      line += ";SensorSeq=" + sequence
+              + ";Time=" + time
+              + ";Mono=" + monotonicTime;
+    }
+    return line;
+  }
+
+  /**
+   * Mark the current value as a new sample, taken at the given time.
+   *
+   * @param time          The wall-clock time of the sample, in milliseconds since the epoch.
+   * @param monotonicTime The time of the sample by {@link System#nanoTime()}.
+   */
+  public void stamp(long time, long monotonicTime) {
+    this.sequence++;
+    this.time = time;
+    this.monotonicTime = monotonicTime;
   }
 
 
@@ -82,4 +105,22 @@ public class SensorReading {
   public double getValue() {
     return value;
   }
+
+  /**
+   * Return the number of the latest sample of the sensor, counted from 1 since the node
+   * started.
+   *
+   * @return the sequence number, or 0 if the sensor has not been sampled yet.
+   */
+  public long getSequence() {
+    return sequence;
+  }
+
+  public long getTime() {
+    return time;
+  }
+
+  public long getMonotonicTime() {
+    return monotonicTime;
+  }
 }
\ No newline at end of file
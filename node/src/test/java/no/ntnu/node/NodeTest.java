@@ -0,0 +1,112 @@
+package no.ntnu.node;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import no.ntnu.commands.SensorReadingBatch;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link Node}, rebuilding the batches of readings it kept while it could not send
+ * them.
+ */
+public class NodeTest {
+  private static final long TIME = 1_700_000_000_000L;
+
+  private Node node;
+
+  @Before
+  public void setUp() {
+    this.node = new Node(7);
+    this.node.addSensor(new Sensor(1, 7, "temperature", 15, 30, 20, "°C"));
+    this.node.addSensor(new Sensor(2, 7, "humidity", 50, 90, 70, "%"));
+  }
+
+  private static SensorReadingBatch batch(long sequence, int... sensorIds) {
+    int size = sensorIds.length;
+    long[] sensorSequences = new long[size];
+    String[] types = new String[size];
+    double[] values = new double[size];
+    String[] units = new String[size];
+    for (int i = 0; i < size; i++) {
+      sensorSequences[i] = sequence * 10 + i;
+      values[i] = sequence + sensorIds[i] / 10.0;
+    }
+    return new SensorReadingBatch("ReadingBatch", 7, sequence, TIME + sequence, sequence * 1000,
+            sensorIds, sensorSequences, types, values, units);
+  }
+
+  private static void assertSameReadings(SensorReadingBatch expected,
+                                         SensorReadingBatch actual) {
+    assertEquals(expected.getSequence(), actual.getSequence());
+    assertEquals(expected.getTime(), actual.getTime());
+    assertEquals(expected.getMonotonicTime(), actual.getMonotonicTime());
+    assertEquals(expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      assertEquals(expected.getSensorId(i), actual.getSensorId(i));
+      assertEquals(expected.getSensorSequence(i), actual.getSensorSequence(i));
+      assertEquals(expected.getValue(i), actual.getValue(i), 0.0);
+    }
+  }
+
+  @Test
+  public void rebuildsKeptBatchesWithTheirSequenceNumbers() {
+    SensorReadingBatch[] kept = {batch(100, 1, 2), batch(101, 2), batch(102, 2, 1),
+        batch(103, 1, 2)};
+    for (SensorReadingBatch batch : kept) {
+      this.node.keepUnsent(batch);
+    }
+    List<SensorReadingBatch> rebuilt = new ArrayList<>();
+    assertEquals(7, this.node.rebuildUnsentBatches(rebuilt));
+    assertEquals(kept.length, rebuilt.size());
+    long previous = Long.MIN_VALUE;
+    for (int i = 0; i < kept.length; i++) {
+      assertSameReadings(kept[i], rebuilt.get(i));
+      assertEquals(7, rebuilt.get(i).getNodeId());
+      // The kept readings have no type or unit, so these come from the node's sensors.
+      for (int j = 0; j < rebuilt.get(i).size(); j++) {
+        String unit = rebuilt.get(i).getSensorId(j) == 1 ? "°C" : "%";
+        assertEquals(unit, rebuilt.get(i).getUnit(j));
+      }
+      // The server drops a batch whose sequence number is not above the last one it got.
+      assertTrue(rebuilt.get(i).getSequence() > previous);
+      previous = rebuilt.get(i).getSequence();
+    }
+  }
+
+  @Test
+  public void leavesOutReadingsOfRemovedSensors() {
+    this.node.keepUnsent(batch(200, 1, 9));
+    this.node.keepUnsent(batch(201, 9));
+    this.node.keepUnsent(batch(202, 2));
+    List<SensorReadingBatch> rebuilt = new ArrayList<>();
+    assertEquals(4, this.node.rebuildUnsentBatches(rebuilt));
+    assertEquals(2, rebuilt.size());
+    assertEquals(200, rebuilt.get(0).getSequence());
+    assertEquals(1, rebuilt.get(0).size());
+    assertEquals(1, rebuilt.get(0).getSensorId(0));
+    assertEquals(202, rebuilt.get(1).getSequence());
+  }
+
+  @Test
+  public void rebuildsAtMostOneReplayOfBatchesAtATime() {
+    for (int i = 0; i < 100; i++) {
+      this.node.keepUnsent(batch(300 + i, 1));
+    }
+    List<SensorReadingBatch> rebuilt = new ArrayList<>();
+    int readingCount = this.node.rebuildUnsentBatches(rebuilt);
+    assertEquals(rebuilt.size(), readingCount);
+    assertTrue(rebuilt.size() < 100);
+    assertEquals(300 + rebuilt.size() - 1, rebuilt.get(rebuilt.size() - 1).getSequence());
+  }
+
+  @Test
+  public void rebuildsNothingWhenNothingIsKept() {
+    List<SensorReadingBatch> rebuilt = new ArrayList<>();
+    assertEquals(0, this.node.rebuildUnsentBatches(rebuilt));
+    assertTrue(rebuilt.isEmpty());
+  }
+}
@@ -0,0 +1,126 @@
+package no.ntnu.node;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link ReadingBuffer}.
+ */
+public class ReadingBufferTest {
+
+  /**
+   * Add a reading whose fields are all derived from one number, so it can be checked later.
+   */
+  private static void add(ReadingBuffer buffer, long sequence, int n) {
+    buffer.add(sequence, 1000L + n, 2000L + n, n, 3000L + n, n / 4.0);
+  }
+
+  private static void assertReading(ReadingBuffer buffer, int index, long sequence, int n) {
+    assertEquals(sequence, buffer.getSequence(index));
+    assertEquals(1000L + n, buffer.getTime(index));
+    assertEquals(2000L + n, buffer.getMonotonicTime(index));
+    assertEquals(n, buffer.getSensorId(index));
+    assertEquals(3000L + n, buffer.getSensorSequence(index));
+    assertEquals(n / 4.0, buffer.getValue(index), 0.0);
+  }
+
+  @Test
+  public void keepsReadingsInOrderAcrossTheEndOfTheRing() {
+    ReadingBuffer buffer = new ReadingBuffer(4);
+    for (int n = 0; n < 3; n++) {
+      add(buffer, n, n);
+    }
+    buffer.removeFirst(2);
+    // The ring now starts at its third slot, so these wrap around to the first two slots.
+    for (int n = 3; n < 6; n++) {
+      add(buffer, n, n);
+    }
+    assertEquals(4, buffer.size());
+    assertEquals(0, buffer.getDroppedCount());
+    for (int i = 0; i < 4; i++) {
+      assertReading(buffer, i, i + 2, i + 2);
+    }
+  }
+
+  @Test
+  public void removesReadingsAcrossTheEndOfTheRing() {
+    ReadingBuffer buffer = new ReadingBuffer(5);
+    for (int n = 0; n < 4; n++) {
+      add(buffer, n, n);
+    }
+    buffer.removeFirst(3);
+    for (int n = 4; n < 8; n++) {
+      add(buffer, n, n);
+    }
+    // The oldest reading is in the last slot, and the rest wrapped around.
+    buffer.removeFirst(3);
+    assertEquals(2, buffer.size());
+    assertReading(buffer, 0, 6, 6);
+    assertReading(buffer, 1, 7, 7);
+    buffer.removeFirst(2);
+    assertTrue(buffer.isEmpty());
+    add(buffer, 8, 8);
+    assertReading(buffer, 0, 8, 8);
+  }
+
+  @Test
+  public void dropsTheOldestReadingWhenFull() {
+    ReadingBuffer buffer = new ReadingBuffer(3);
+    for (int n = 0; n < 10; n++) {
+      add(buffer, n, n);
+    }
+    assertEquals(3, buffer.size());
+    assertEquals(7, buffer.getDroppedCount());
+    for (int i = 0; i < 3; i++) {
+      assertReading(buffer, i, i + 7, i + 7);
+    }
+  }
+
+  @Test
+  public void findsTheReadingsOfOneBatchAcrossTheEndOfTheRing() {
+    ReadingBuffer buffer = new ReadingBuffer(6);
+    for (int n = 0; n < 4; n++) {
+      add(buffer, 10, n);
+    }
+    buffer.removeFirst(4);
+    // Batch 11 has slots 4, 5 and 0, and batch 12 slots 1 and 2.
+    add(buffer, 11, 4);
+    add(buffer, 11, 5);
+    add(buffer, 11, 6);
+    add(buffer, 12, 7);
+    add(buffer, 12, 8);
+    assertEquals(3, buffer.batchSize(0, 256));
+    assertEquals(2, buffer.batchSize(1, 256));
+    assertEquals(2, buffer.batchSize(3, 256));
+    assertEquals(1, buffer.batchSize(4, 256));
+    assertEquals(2, buffer.batchSize(0, 2));
+  }
+
+  @Test
+  public void keepsTheRestOfABatchWhoseFirstReadingsWereDropped() {
+    ReadingBuffer buffer = new ReadingBuffer(4);
+    for (int n = 0; n < 3; n++) {
+      add(buffer, 20, n);
+    }
+    add(buffer, 21, 3);
+    add(buffer, 21, 4);
+    assertEquals(1, buffer.getDroppedCount());
+    assertEquals(2, buffer.batchSize(0, 256));
+    assertReading(buffer, 0, 20, 1);
+    assertEquals(2, buffer.batchSize(2, 256));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsRemovingMoreReadingsThanItHas() {
+    ReadingBuffer buffer = new ReadingBuffer(4);
+    add(buffer, 1, 1);
+    buffer.removeFirst(2);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsAnEmptyCapacity() {
+    new ReadingBuffer(0);
+  }
+}
@@ -0,0 +1,107 @@
+package no.ntnu.commands;
+
+/**
+ * Class representing an ActuatorCommand.
+ * A command addresses either one actuator by its ID, or a group of actuators by their type: all
+ * actuators of the type on one node, or on all nodes when the node ID is {@link #ANY_NODE}. The
+ * type {@link #ANY_TYPE} matches actuators of every type.
+ */
+public class ActuatorCommand extends NodeCommand {
+  public static final int ANY_NODE = 0;
+  public static final String ANY_TYPE = "*";
+
+  private int actuatorId; // Optional (e.g., 3)
+  private String actuatorType; // Optional (e.g., "Fan")
+  private String action; // "On" or "Off"
+
+  /**
+   * Constructor for actuator commands with a specific actuator ID.
+   *
+   * @param nodeId     ID of the node to which the actuator is attached
+   * @param actuatorId Node-wide unique ID of the actuator
+   * @param action     Action to perform on the actuator ("On" or "Off")
+    * @param data      The data to be sent
+   */
+  public ActuatorCommand(String data, int nodeId, int actuatorId, String action) {
+    this(data, 0, nodeId, actuatorId, action);
+  }
+
+  /**
+   * Constructor for actuator commands with a specific actuator ID, answered with an
+   * acknowledgement.
+   *
+   * @param data       The data to be sent
+   * @param requestId  ID of the request, chosen by the sender, or 0 for no answer
+   * @param nodeId     ID of the node to which the actuator is attached
+   * @param actuatorId Node-wide unique ID of the actuator
+   * @param action     Action to perform on the actuator ("On" or "Off")
+   */
+  public ActuatorCommand(String data, int requestId, int nodeId, int actuatorId,
+                         String action) {
+    super(data, requestId, nodeId, action);
+    this.actuatorType = null;
+    this.actuatorId = actuatorId;
+    this.action = action;
+  }
+
+  /**
+   * Constructor for group commands, addressing the actuators of a type.
+   *
+   * @param nodeId       ID of the node of the actuators, or {@link #ANY_NODE} for all nodes
+   * @param actuatorType Type of the actuators (e.g., "fan"), or {@link #ANY_TYPE}
+   * @param action      Action to perform on the actuator ("On" or "Off")
+   * @param data        The data to be sent
+   */
+  public ActuatorCommand(String data, int nodeId, String actuatorType, String action) {
+    this(data, 0, nodeId, actuatorType, action);
+  }
+
+  /**
+   * Constructor for group commands, answered with an acknowledgement.
+   *
+   * @param data         The data to be sent
+   * @param requestId    ID of the request, chosen by the sender, or 0 for no answer
+   * @param nodeId       ID of the node of the actuators, or {@link #ANY_NODE} for all nodes
+   * @param actuatorType Type of the actuators (e.g., "fan"), or {@link #ANY_TYPE}
+   * @param action       Action to perform on the actuators ("On" or "Off")
+   */
+  public ActuatorCommand(String data, int requestId, int nodeId, String actuatorType,
+                         String action) {
+    super(data, requestId, nodeId, action);
+    this.actuatorType = actuatorType;
+    this.actuatorId = 0;
+    this.action = action;
+  }
+
+  /**
+   * Check whether the command addresses the actuators of a type rather than one actuator.
+   *
+   * @return True if this is a group command.
+   */
+  public boolean isGroupCommand() {
+    return this.actuatorType != null;
+  }
+
+  /**
+   * Check whether a group command applies to actuators of a type. Types are compared without
+   * regard to case.
+   *
+   * @param type The type of an actuator.
+   * @return True if the command applies to actuators of the type.
+   */
+  public boolean matchesType(String type) {
+    return ANY_TYPE.equals(this.actuatorType) || this.actuatorType.equalsIgnoreCase(type);
+  }
+
+  public String getActuatorType() {
+    return actuatorType;
+  }
+
+  public int getActuatorId() {
+    return actuatorId;
+  }
+
+  public String getAction() {
+    return action;
+  }
+}
\ No newline at end of file
@@ -0,0 +1,89 @@
+package no.ntnu.commands;
+
+/**
+ * Class representing the answer to a command with a request ID: an acknowledgement if the
+ * command was carried out, or a negative acknowledgement with a reason if it was not. The
+ * answer carries the request ID of the command and the number of actuators it changed.
+ *
+ * <p>A node answers the commands it receives, and the server passes the answer on to the
+ * control panel that sent the command, under the request ID the panel chose. A group command
+ * sent to several nodes is answered once, when all of them have answered.
+ */
+public class CommandAck extends Data {
+  public static final String UNKNOWN_ACTUATOR = "unknown-actuator";
+  public static final String UNKNOWN_ACTION = "unknown-action";
+  public static final String NOT_CONNECTED = "not-connected";
+  public static final String NO_ACTUATORS = "no-actuators";
+  public static final String DISCONNECTED = "disconnected";
+
+  private final int requestId;
+  private final int count;
+  private final String reason;
+
+  /**
+   * Constructor for the CommandAck class.
+   *
+   * @param data      "CommandAck" or "CommandNack".
+   * @param requestId the request ID of the command.
+   * @param nodeId    the node ID of the command.
+   * @param count     the number of actuators the command changed.
+   * @param reason    why the command was not carried out, or null for an acknowledgement.
+   */
+  public CommandAck(String data, int requestId, int nodeId, int count, String reason) {
+    super(data, nodeId);
+    this.requestId = requestId;
+    this.count = count;
+    this.reason = reason;
+  }
+
+  /**
+   * Create an acknowledgement.
+   *
+   * @param requestId the request ID of the command.
+   * @param nodeId    the node ID of the command.
+   * @param count     the number of actuators the command changed.
+   * @return the acknowledgement.
+   */
+  public static CommandAck ack(int requestId, int nodeId, int count) {
+    return new CommandAck("CommandAck", requestId, nodeId, count, null);
+  }
+
+  /**
+   * Create a negative acknowledgement.
+   *
+   * @param requestId the request ID of the command.
+   * @param nodeId    the node ID of the command.
+   * @param count     the number of actuators the command changed before it failed.
+   * @param reason    why the command was not carried out, such as {@link #UNKNOWN_ACTUATOR}.
+   * @return the negative acknowledgement.
+   */
+  public static CommandAck nack(int requestId, int nodeId, int count, String reason) {
+    return new CommandAck("CommandNack", requestId, nodeId, count, reason);
+  }
+
+  /**
+   * Check whether the command was carried out.
+   *
+   * @return True for an acknowledgement, false for a negative acknowledgement.
+   */
+  public boolean isAck() {
+    return getData().equals("CommandAck");
+  }
+
+  public int getRequestId() {
+    return this.requestId;
+  }
+
+  public int getCount() {
+    return this.count;
+  }
+
+  /**
+   * Return why the command was not carried out.
+   *
+   * @return the reason, or null for an acknowledgement.
+   */
+  public String getReason() {
+    return this.reason;
+  }
+}
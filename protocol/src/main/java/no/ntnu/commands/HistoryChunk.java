@@ -0,0 +1,171 @@
+package no.ntnu.commands;
+
+/**
+ * Class representing a part of the answer to a {@link HistoryQuery}: a number of points of
+ * the history of one sensor, in time order. Each point is a bucket at the resolution of the
+ * chunk, with the start time, minimum, maximum and average of the readings in it, and their
+ * number. At {@link HistoryQuery#RAW} resolution each point is a single reading, so the
+ * minimum, maximum and average are all its value.
+ * The points are kept in parallel arrays, one entry per point.
+ *
+ * <p>The last chunk of an answer has a reason if the answer is not the whole history that was
+ * asked for, so a failed or shortened answer is not taken for a complete one.
+ */
+public class HistoryChunk extends Data {
+  /**
+   * The maximum number of points in one chunk.
+   */
+  public static final int MAX_SIZE = 64;
+  /**
+   * The query failed, and the chunks sent before this one may be only part of the answer.
+   */
+  public static final String FAILED = "failed";
+  /**
+   * The range of the query was too long, and its oldest part was left out.
+   */
+  public static final String TRUNCATED = "truncated";
+
+  private final int requestId;
+  private final int sensorId;
+  private final String resolution;
+  private final boolean last;
+  private final String reason;
+  private final long[] times;
+  private final double[] minimums;
+  private final double[] maximums;
+  private final double[] averages;
+  private final long[] counts;
+
+  /**
+   * Constructor for a chunk of a complete answer.
+   *
+   * @param data       the type data to be sent.
+   * @param requestId  the ID of the request this chunk answers.
+   * @param nodeId     the ID of the node of the sensor.
+   * @param sensorId   the ID of the sensor.
+   * @param resolution the resolution of the points.
+   * @param last       true if this is the last chunk of the answer.
+   * @param times      the start times of the points.
+   * @param minimums   the minimums of the points.
+   * @param maximums   the maximums of the points.
+   * @param averages   the averages of the points.
+   * @param counts     the number of readings in each point.
+   * @throws IllegalArgumentException If the arrays do not have the same length, or are longer
+   *                                  than {@link #MAX_SIZE}.
+   */
+  public HistoryChunk(String data, int requestId, int nodeId, int sensorId, String resolution,
+                      boolean last, long[] times, double[] minimums, double[] maximums,
+                      double[] averages, long[] counts) {
+    this(data, requestId, nodeId, sensorId, resolution, last, null, times, minimums, maximums,
+            averages, counts);
+  }
+
+  /**
+   * Constructor for the HistoryChunk class.
+   *
+   * @param data       the type data to be sent.
+   * @param requestId  the ID of the request this chunk answers.
+   * @param nodeId     the ID of the node of the sensor.
+   * @param sensorId   the ID of the sensor.
+   * @param resolution the resolution of the points.
+   * @param last       true if this is the last chunk of the answer.
+   * @param reason     why the answer is not complete, such as {@link #FAILED}, or null if it
+   *                   is.
+   * @param times      the start times of the points.
+   * @param minimums   the minimums of the points.
+   * @param maximums   the maximums of the points.
+   * @param averages   the averages of the points.
+   * @param counts     the number of readings in each point.
+   * @throws IllegalArgumentException If the arrays do not have the same length, or are longer
+   *                                  than {@link #MAX_SIZE}.
+   */
+  public HistoryChunk(String data, int requestId, int nodeId, int sensorId, String resolution,
+                      boolean last, String reason, long[] times, double[] minimums,
+                      double[] maximums, double[] averages, long[] counts) {
+    super(data, nodeId);
+    if (minimums.length != times.length || maximums.length != times.length
+            || averages.length != times.length || counts.length != times.length) {
+      throw new IllegalArgumentException("Every point in a history chunk needs a time, "
+              + "minimum, maximum, average and count");
+    }
+    if (times.length > MAX_SIZE) {
+      throw new IllegalArgumentException("Too many points in a history chunk: "
+              + times.length);
+    }
+    this.requestId = requestId;
+    this.sensorId = sensorId;
+    this.resolution = resolution;
+    this.last = last;
+    this.reason = reason;
+    this.times = times;
+    this.minimums = minimums;
+    this.maximums = maximums;
+    this.averages = averages;
+    this.counts = counts;
+  }
+
+  public int getRequestId() {
+    return this.requestId;
+  }
+
+  public int getSensorId() {
+    return this.sensorId;
+  }
+
+  public String getResolution() {
+    return this.resolution;
+  }
+
+  /**
+   * Check whether this is the last chunk of the answer to a query.
+   *
+   * @return True if no more chunks follow for the request.
+   */
+  public boolean isLast() {
+    return this.last;
+  }
+
+  /**
+   * Return why the answer is not the whole history that was asked for. Only the last chunk of
+   * an answer has a reason.
+   *
+   * @return {@link #FAILED} or {@link #TRUNCATED}, or null if the answer is complete.
+   */
+  public String getReason() {
+    return this.reason;
+  }
+
+  /**
+   * Check whether the points are single readings, with no minimum, maximum or count of
+   * their own.
+   *
+   * @return True if the resolution is {@link HistoryQuery#RAW}.
+   */
+  public boolean isRaw() {
+    return HistoryQuery.RAW.equals(this.resolution);
+  }
+
+  public int size() {
+    return this.times.length;
+  }
+
+  public long getTime(int index) {
+    return this.times[index];
+  }
+
+  public double getMinimum(int index) {
+    return this.minimums[index];
+  }
+
+  public double getMaximum(int index) {
+    return this.maximums[index];
+  }
+
+  public double getAverage(int index) {
+    return this.averages[index];
+  }
+
+  public long getCount(int index) {
+    return this.counts[index];
+  }
+}
@@ -0,0 +1,69 @@
+package no.ntnu.commands;
+
+/**
+ * Class representing a control panel asking for the stored readings of one sensor in a time
+ * range. The server answers with one or more {@link HistoryChunk}s with the same request ID,
+ * the last of which is marked as the last.
+ *
+ * <p>The resolution is the name of a rollup resolution, such as "1m", {@link #RAW} for the
+ * readings themselves, or {@link #AUTO} to let the server choose the coarsest resolution that
+ * still gives about the requested number of points.
+ */
+public class HistoryQuery extends Data {
+  public static final String AUTO = "auto";
+  public static final String RAW = "raw";
+
+  private final int requestId;
+  private final int sensorId;
+  private final long from;
+  private final long to;
+  private final String resolution;
+  private final int points;
+
+  /**
+   * Constructor for the HistoryQuery class.
+   *
+   * @param data       the type data to be sent.
+   * @param requestId  the ID of the request, chosen by the panel.
+   * @param nodeId     the ID of the node of the sensor.
+   * @param sensorId   the ID of the sensor.
+   * @param from       the start of the range, in milliseconds since the epoch, inclusive.
+   * @param to         the end of the range, in milliseconds since the epoch, exclusive.
+   * @param resolution the resolution, {@link #RAW} or {@link #AUTO}.
+   * @param points     the number of points wanted, used when the resolution is {@link #AUTO}.
+   */
+  public HistoryQuery(String data, int requestId, int nodeId, int sensorId, long from, long to,
+                      String resolution, int points) {
+    super(data, nodeId);
+    this.requestId = requestId;
+    this.sensorId = sensorId;
+    this.from = from;
+    this.to = to;
+    this.resolution = resolution;
+    this.points = points;
+  }
+
+  public int getRequestId() {
+    return this.requestId;
+  }
+
+  public int getSensorId() {
+    return this.sensorId;
+  }
+
+  public long getFrom() {
+    return this.from;
+  }
+
+  public long getTo() {
+    return this.to;
+  }
+
+  public String getResolution() {
+    return this.resolution;
+  }
+
+  public int getPoints() {
+    return this.points;
+  }
+}
@@ -0,0 +1,54 @@
+package no.ntnu.commands;
+
+/**
+ * Class representing the type of data being sent.
+ * A command may carry a request ID chosen by its sender. The node then answers with a
+ * {@link CommandAck} with the same request ID, so the sender can have several commands in
+ * flight and tell which of them succeeded. A request ID of 0 asks for no answer.
+ */
+public class NodeCommand extends Data {
+  private final String action; // "On" or "Off"
+  private final int requestId;
+
+  /**
+   * Constructor for node commands without a request ID.
+   *
+   * @param nodeId     ID of the node to which the actuator is attached
+   * @param action     Action to perform on the actuator ("On" or "Off")
+   */
+  public NodeCommand(String data, int nodeId, String action) {
+    this(data, 0, nodeId, action);
+  }
+
+  /**
+   * Constructor for node commands answered with an acknowledgement.
+   *
+   * @param data      The data to be sent
+   * @param requestId ID of the request, chosen by the sender, or 0 for no answer
+   * @param nodeId    ID of the node
+   * @param action    Action to perform ("On" or "Off")
+   */
+  public NodeCommand(String data, int requestId, int nodeId, String action) {
+    super(data, nodeId);
+    this.action = action;
+    this.requestId = requestId;
+  }
+
+  /**
+   * Return the action.
+   *
+   * @return The action
+   */
+  public String getAction() {
+    return this.action;
+  }
+
+  /**
+   * Return the request ID.
+   *
+   * @return The request ID, or 0 if the command asks for no answer
+   */
+  public int getRequestId() {
+    return this.requestId;
+  }
+}
@@ -0,0 +1,41 @@
+package no.ntnu.commands;
+
+/**
+ * Class representing the type of data being sent.
+ */
+public class NodeIdentifier extends Data {
+  private String codec;
+
+  /**
+   * Constructor for the NodeIdentifier class.
+   * Does not contain any more than the superclass, Data.
+   *
+   * @param data the type data to be sent.
+   * @param nodeId the node ID. If -1, the message is from the control panel.
+   */
+  public NodeIdentifier(String data, int nodeId) {
+    this(data, nodeId, null);
+  }
+
+  /**
+   * Constructor for an identifier that also negotiates the wire format of the connection.
+   * Sent by a client to ask for a format, and by the server to answer with the chosen one.
+   *
+   * @param data the type data to be sent.
+   * @param nodeId the node ID. If -1, the message is from the control panel.
+   * @param codec the name of the wire format, or null if none is negotiated.
+   */
+  public NodeIdentifier(String data, int nodeId, String codec) {
+    super(data, nodeId);
+    this.codec = codec;
+  }
+
+  /**
+   * Return the wire format negotiated by this identifier.
+   *
+   * @return the name of the wire format, or null if the identifier does not negotiate one.
+   */
+  public String getCodec() {
+    return this.codec;
+  }
+}
@@ -6,6 +6,7 @@ package no.ntnu.commands;
 public class SensorIdentifier extends Data {
   private String type;
   private int sensorId;
+  private String unit;
 
   /**
    * Constructor for the Data class.
@@ -13,9 +14,20 @@ public class SensorIdentifier extends Data {
    * @param data the type data to be sent.
    */
   public SensorIdentifier(String data, int nodeId, String type, int sensorId) {
+    this(data, nodeId, type, sensorId, null);
+  }
+
+  /**
+   * Constructor for a sensor identifier that also tells the unit of the readings.
+   *
+   * @param data the type data to be sent.
+   * @param unit the unit of the readings from the sensor, or null if unknown.
+   */
+  public SensorIdentifier(String data, int nodeId, String type, int sensorId, String unit) {
     super(data, nodeId);
     this.type = type;
     this.sensorId = sensorId;
+    this.unit = unit;
   }
 
   /**
@@ -36,6 +48,15 @@ public class SensorIdentifier extends Data {
     return this.sensorId;
   }
 
+  /**
+   * Return the unit of the readings.
+   *
+   * @return the unit, or null if unknown.
+   */
+  public String getUnit() {
+    return this.unit;
+  }
+
   /**
    * Return the nodeId.
    *
@@ -0,0 +1,211 @@
+package no.ntnu.commands;
+
+import java.util.Arrays;
+
+/**
+ * Class representing the readings of several sensors on one node, taken at the same time.
+ * The readings are kept in parallel arrays, one entry per sensor.
+ *
+ * <p>A batch from a node carries a sequence number and the time the readings were taken, by
+ * the wall clock and by the monotonic clock of the node, see {@link SensorReadingMessage}. The
+ * sequence numbers of a node keep increasing, so the server can drop a batch it has already
+ * received when the node sends it again after a lost connection. Each reading also has its
+ * number on its own sensor.
+ */
+public class SensorReadingBatch extends Data {
+  /**
+   * The maximum number of readings in one batch.
+   */
+  public static final int MAX_SIZE = 256;
+
+  private final int[] sensorIds;
+  private final String[] types;
+  private final double[] values;
+  private final String[] units;
+  private final long[] sensorSequences;
+  private final long sequence;
+  private final long time;
+  private final long monotonicTime;
+
+  /**
+   * Constructor for the SensorReadingBatch class.
+   *
+   * @param data      the type data to be sent.
+   * @param nodeId    the ID of the node the readings are from.
+   * @param sensorIds the IDs of the sensors.
+   * @param types     the types of the sensors.
+   * @param values    the values read.
+   * @param units     the units of the values.
+   * @throws IllegalArgumentException If the arrays do not have the same length, or are longer
+   *                                  than {@link #MAX_SIZE}.
+   */
+  public SensorReadingBatch(String data, int nodeId, int[] sensorIds, String[] types,
+                            double[] values, String[] units) {
+    this(data, nodeId, 0, 0, 0, sensorIds, new long[sensorIds.length], types, values, units);
+  }
+
+  /**
+   * Constructor for a batch with sequence numbers and the time the readings were taken.
+   *
+   * @param data            the type data to be sent.
+   * @param nodeId          the ID of the node the readings are from.
+   * @param sequence        the sequence number of the batch on its node, or 0 if it has none.
+   * @param time            the time the readings were taken, in milliseconds since the epoch,
+   *                        or 0 if it is not known.
+   * @param monotonicTime   the time the readings were taken by the monotonic clock of the
+   *                        node, in nanoseconds, or 0 if it is not known.
+   * @param sensorIds       the IDs of the sensors.
+   * @param sensorSequences the number of each reading on its sensor, or 0 if it has none.
+   * @param types           the types of the sensors.
+   * @param values          the values read.
+   * @param units           the units of the values.
+   * @throws IllegalArgumentException If the arrays do not have the same length, or are longer
+   *                                  than {@link #MAX_SIZE}.
+   */
+  public SensorReadingBatch(String data, int nodeId, long sequence, long time,
+                            long monotonicTime, int[] sensorIds, long[] sensorSequences,
+                            String[] types, double[] values, String[] units) {
+    super(data, nodeId);
+    if (types.length != sensorIds.length || values.length != sensorIds.length
+            || units.length != sensorIds.length || sensorSequences.length != sensorIds.length) {
+      throw new IllegalArgumentException("Every reading in a batch needs a sensor, type, "
+              + "value and unit");
+    }
+    if (sensorIds.length > MAX_SIZE) {
+      throw new IllegalArgumentException("Too many readings in a batch: " + sensorIds.length);
+    }
+    this.sensorIds = sensorIds;
+    this.types = types;
+    this.values = values;
+    this.units = units;
+    this.sensorSequences = sensorSequences;
+    this.sequence = sequence;
+    this.time = time;
+    this.monotonicTime = monotonicTime;
+  }
+
+  /**
+   * Return a batch with only some of the readings of this batch.
+   *
+   * @param selected Which readings to keep, by index.
+   * @param count    The number of selected readings.
+   * @return the batch with the selected readings.
+   */
+  public SensorReadingBatch select(boolean[] selected, int count) {
+    int[] selectedIds = new int[count];
+    String[] selectedTypes = new String[count];
+    double[] selectedValues = new double[count];
+    String[] selectedUnits = new String[count];
+    long[] selectedSequences = new long[count];
+    int j = 0;
+    for (int i = 0; i < size(); i++) {
+      if (selected[i]) {
+        selectedIds[j] = this.sensorIds[i];
+        selectedTypes[j] = this.types[i];
+        selectedValues[j] = this.values[i];
+        selectedUnits[j] = this.units[i];
+        selectedSequences[j] = this.sensorSequences[i];
+        j++;
+      }
+    }
+    return new SensorReadingBatch(getData(), getNodeId(), this.sequence, this.time,
+            this.monotonicTime, selectedIds, selectedSequences, selectedTypes, selectedValues,
+            selectedUnits);
+  }
+
+  /**
+   * Return one reading of the batch as a single reading message.
+   *
+   * @param index The index of the reading.
+   * @return the reading.
+   */
+  public SensorReadingMessage getReading(int index) {
+    return new SensorReadingMessage("Reading", getNodeId(), this.sensorIds[index],
+            this.types[index], this.values[index], this.units[index],
+            this.sensorSequences[index], this.time, this.monotonicTime);
+  }
+
+  /**
+   * Return the number of readings in the batch.
+   *
+   * @return the number of readings.
+   */
+  public int size() {
+    return this.sensorIds.length;
+  }
+
+  /**
+   * Return the sequence number of the batch on its node.
+   *
+   * @return the sequence number, or 0 if the batch has none.
+   */
+  public long getSequence() {
+    return this.sequence;
+  }
+
+  /**
+   * Return the time the readings were taken.
+   *
+   * @return the time in milliseconds since the epoch, or 0 if it is not known.
+   */
+  public long getTime() {
+    return this.time;
+  }
+
+  /**
+   * Return the time the readings were taken by the monotonic clock of the node.
+   *
+   * @return the time in nanoseconds, or 0 if it is not known.
+   */
+  public long getMonotonicTime() {
+    return this.monotonicTime;
+  }
+
+  /**
+   * Return the number of a reading on its sensor.
+   *
+   * @param index The index of the reading.
+   * @return the sequence number, or 0 if the reading has none.
+   */
+  public long getSensorSequence(int index) {
+    return this.sensorSequences[index];
+  }
+
+  public int getSensorId(int index) {
+    return this.sensorIds[index];
+  }
+
+  public String getType(int index) {
+    return this.types[index];
+  }
+
+  public double getValue(int index) {
+    return this.values[index];
+  }
+
+  public String getUnit(int index) {
+    return this.units[index];
+  }
+
+  /**
+   * Return a hash of the sensors the batch has readings from. Batches from different sensors
+   * may have the same hash, so use {@link #hasSameSensors(SensorReadingBatch)} to tell them
+   * apart.
+   *
+   * @return the hash of the sensors in the batch.
+   */
+  public int getSensorSetKey() {
+    return Arrays.hashCode(this.sensorIds);
+  }
+
+  /**
+   * Check whether another batch has readings from the same sensors, in the same order, so a
+   * newer batch can replace an older one.
+   *
+   * @param other The other batch.
+   * @return True if both batches have readings from the same sensors.
+   */
+  public boolean hasSameSensors(SensorReadingBatch other) {
+    return Arrays.equals(this.sensorIds, other.sensorIds);
+  }
+}
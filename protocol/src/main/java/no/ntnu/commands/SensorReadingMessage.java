@@ -0,0 +1,162 @@
+package no.ntnu.commands;
+
+/**
+ * Class representing the type of data being sent.
+ *
+ * <p>A reading from a node carries the number of the reading on its sensor, and the time it
+ * was taken both by the wall clock and by the monotonic clock of the node. The wall-clock time
+ * is compared with the clock of the receiver to measure latency, while the monotonic time only
+ * orders and spaces the readings of one node, since it does not jump when the clock is set.
+ */
+public class SensorReadingMessage extends Data {
+  private int sensorId;
+  private String type;
+  private double value;
+  private String unit;
+  private long sensorSequence;
+  private long time;
+  private long monotonicTime;
+  private String reading;
+
+  /**
+   * Constructor for the Message class.
+   *
+   * @param nodeId the ID of the node to which the message is sent.
+   * @param data the type data to be sent.
+   */
+  public SensorReadingMessage(
+          String data, int nodeId, int sensorId, String type, double value, String unit) {
+    this(data, nodeId, sensorId, type, value, unit, 0, 0, 0, null);
+  }
+
+  /**
+   * Constructor for a reading with its sequence number and capture times.
+   *
+   * @param nodeId the ID of the node to which the message is sent.
+   * @param data the type data to be sent.
+   * @param sensorSequence the number of the reading on its sensor, or 0 if it has none.
+   * @param time the time the reading was taken, in milliseconds since the epoch, or 0 if it
+   *             is not known.
+   * @param monotonicTime the time the reading was taken by the monotonic clock of the node, in
+   *                      nanoseconds, or 0 if it is not known.
+   */
+  public SensorReadingMessage(String data, int nodeId, int sensorId, String type, double value,
+                              String unit, long sensorSequence, long time, long monotonicTime) {
+    this(data, nodeId, sensorId, type, value, unit, sensorSequence, time, monotonicTime, null);
+  }
+
+  /**
+   * Constructor for a reading received as a line of the text protocol.
+   * The line is kept, so the reading can be forwarded without being serialized again.
+   *
+   * @param nodeId the ID of the node to which the message is sent.
+   * @param data the type data to be sent.
+   * @param sensorSequence the number of the reading on its sensor, or 0 if it has none.
+   * @param time the time the reading was taken, in milliseconds since the epoch, or 0.
+   * @param monotonicTime the time the reading was taken by the monotonic clock of the node, or 0.
+   * @param reading the line the reading was received as.
+   */
+  public SensorReadingMessage(String data, int nodeId, int sensorId, String type,
+                              double value, String unit, long sensorSequence, long time,
+                              long monotonicTime, String reading) {
+    super(data, nodeId);
+    this.sensorId = sensorId;
+    this.type = type;
+    this.value = value;
+    this.unit = unit;
+    this.sensorSequence = sensorSequence;
+    this.time = time;
+    this.monotonicTime = monotonicTime;
+    this.reading = reading;
+  }
+
+  /**
+   * Return the reading.
+   *
+   * @return the reading.
+   */
+  public String getReading() {
+    if (this.reading != null) {
+      return this.reading;
+    }
+    String line = "Data=Reading"
+            + ";Node=" + getNodeId()
+            + ";Sensor=" + this.sensorId
+            + ";Type=" + this.type
+            + ";Value=" + this.value
+            + ";Unit=" + this.unit;
+    if (this.sensorSequence != 0) {
+      line += ";SensorSeq=" + this.sensorSequence;
+    }
+    if (this.time != 0) {
+      line += ";Time=" + this.time;
+    }
+    if (this.monotonicTime != 0) {
+      line += ";Mono=" + this.monotonicTime;
+    }
+    return line;
+  }
+
+  /**
+   * Return the sensorId.
+   *
+   * @return the sensorId.
+   */
+  public int getSensorId() {
+    return this.sensorId;
+  }
+
+  /**
+   * Return the value.
+   *
+   * @return the value.
+   */
+  public double getValue() {
+    return this.value;
+  }
+
+  /**
+   * Return the unit.
+   *
+   * @return the unit.
+   */
+  public String getUnit() {
+    return this.unit;
+  }
+
+  /**
+   * Return the type.
+   *
+   * @return the type.
+   */
+  public String getType() {
+    return this.type;
+  }
+
+  /**
+   * Return the number of the reading on its sensor.
+   *
+   * @return the sequence number, or 0 if the reading has none.
+   */
+  public long getSensorSequence() {
+    return this.sensorSequence;
+  }
+
+  /**
+   * Return the time the reading was taken.
+   *
+   * @return the time in milliseconds since the epoch, or 0 if it is not known.
+   */
+  public long getTime() {
+    return this.time;
+  }
+
+  /**
+   * Return the time the reading was taken by the monotonic clock of its node.
+   *
+   * @return the time in nanoseconds, or 0 if it is not known.
+   */
+  public long getMonotonicTime() {
+    return this.monotonicTime;
+  }
+}
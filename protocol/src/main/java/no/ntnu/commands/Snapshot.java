@@ -0,0 +1,105 @@
+package no.ntnu.commands;
+
+/**
+ * Class representing the last known state of one node: its sensors with their latest
+ * readings, and its actuators with their states. A snapshot is sent to a control panel when it
+ * connects, so the panel can show the greenhouse without waiting for new readings.
+ * The sensors and the actuators are each kept in parallel arrays, one entry per device.
+ */
+public class Snapshot extends Data {
+  /**
+   * The maximum number of sensors, and of actuators, in one snapshot.
+   */
+  public static final int MAX_SIZE = 128;
+
+  private final int[] sensorIds;
+  private final String[] sensorTypes;
+  private final String[] units;
+  private final double[] values;
+  private final int[] actuatorIds;
+  private final String[] actuatorTypes;
+  private final boolean[] states;
+
+  /**
+   * Constructor for the Snapshot class.
+   *
+   * @param data          the type data to be sent.
+   * @param nodeId        the ID of the node.
+   * @param sensorIds     the IDs of the sensors.
+   * @param sensorTypes   the types of the sensors.
+   * @param units         the units of the readings.
+   * @param values        the latest readings, or NaN for sensors without a reading yet.
+   * @param actuatorIds   the IDs of the actuators.
+   * @param actuatorTypes the types of the actuators.
+   * @param states        the states of the actuators.
+   * @throws IllegalArgumentException If the arrays of the sensors or of the actuators do not
+   *                                  have the same length, or are longer than
+   *                                  {@link #MAX_SIZE}.
+   */
+  public Snapshot(String data, int nodeId, int[] sensorIds, String[] sensorTypes,
+                  String[] units, double[] values, int[] actuatorIds,
+                  String[] actuatorTypes, boolean[] states) {
+    super(data, nodeId);
+    if (sensorTypes.length != sensorIds.length || units.length != sensorIds.length
+            || values.length != sensorIds.length) {
+      throw new IllegalArgumentException("Every sensor in a snapshot needs a type, unit "
+              + "and value");
+    }
+    if (actuatorTypes.length != actuatorIds.length || states.length != actuatorIds.length) {
+      throw new IllegalArgumentException("Every actuator in a snapshot needs a type "
+              + "and state");
+    }
+    if (sensorIds.length > MAX_SIZE || actuatorIds.length > MAX_SIZE) {
+      throw new IllegalArgumentException("Too many devices in a snapshot");
+    }
+    this.sensorIds = sensorIds;
+    this.sensorTypes = sensorTypes;
+    this.units = units;
+    this.values = values;
+    this.actuatorIds = actuatorIds;
+    this.actuatorTypes = actuatorTypes;
+    this.states = states;
+  }
+
+  public int getSensorCount() {
+    return this.sensorIds.length;
+  }
+
+  public int getSensorId(int index) {
+    return this.sensorIds[index];
+  }
+
+  public String getSensorType(int index) {
+    return this.sensorTypes[index];
+  }
+
+  public String getUnit(int index) {
+    return this.units[index];
+  }
+
+  /**
+   * Return the latest reading of a sensor.
+   *
+   * @param index The index of the sensor.
+   * @return the reading, or NaN if the sensor has not sent a reading yet.
+   */
+  public double getValue(int index) {
+    return this.values[index];
+  }
+
+  public int getActuatorCount() {
+    return this.actuatorIds.length;
+  }
+
+  public int getActuatorId(int index) {
+    return this.actuatorIds[index];
+  }
+
+  public String getActuatorType(int index) {
+    return this.actuatorTypes[index];
+  }
+
+  public boolean getState(int index) {
+    return this.states[index];
+  }
+}
@@ -0,0 +1,43 @@
+package no.ntnu.commands;
+
+/**
+ * Class representing a control panel subscribing to, or unsubscribing from, sensor readings.
+ * A subscription matches readings from one node, or from all nodes when the node ID is 0, and
+ * of one sensor type, or of all types when the type is {@link #ANY_TYPE}.
+ */
+public class Subscription extends Data {
+  public static final int ANY_NODE = 0;
+  public static final String ANY_TYPE = "*";
+
+  private final String sensorType;
+
+  /**
+   * Constructor for the Subscription class.
+   *
+   * @param data       "Subscribe" or "Unsubscribe".
+   * @param nodeId     The node to subscribe to, or {@link #ANY_NODE} for all nodes.
+   * @param sensorType The sensor type to subscribe to, or {@link #ANY_TYPE} for all types.
+   */
+  public Subscription(String data, int nodeId, String sensorType) {
+    super(data, nodeId);
+    this.sensorType = sensorType;
+  }
+
+  /**
+   * Return the sensor type.
+   *
+   * @return the sensor type, or {@link #ANY_TYPE}.
+   */
+  public String getSensorType() {
+    return this.sensorType;
+  }
+
+  /**
+   * Check whether this is a subscription, as opposed to an unsubscription.
+   *
+   * @return True if the client subscribes, false if it unsubscribes.
+   */
+  public boolean isSubscribe() {
+    return getData().equals("Subscribe");
+  }
+}
@@ -0,0 +1,654 @@
+package no.ntnu.tools;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import no.ntnu.commands.*;
+
+/**
+ * The binary wire format. Every message is one frame: the length of the rest of the frame as a
+ * varint, a tag byte telling the kind of message, and the fields of the message. Node IDs are
+ * zigzag varints, since they may be negative, other IDs are varints, values are raw doubles,
+ * and strings are a varint byte count followed by UTF-8 bytes. Timestamps are zigzag varlongs,
+ * and the times of the points in a history chunk are each written as the difference from the
+ * one before.
+ *
+ * <p>Readings carry only the node ID, sensor ID and value. The type and unit of a sensor are
+ * sent once, in a schema frame written before the first reading of the sensor, and are
+ * remembered by the decoder. A codec therefore belongs to a single connection. The encoding and
+ * the decoding side keep separate state, so one thread may encode while another decodes.
+ */
+public class BinaryCodec {
+  /**
+   * The maximum length of a frame, not counting the length prefix.
+   */
+  public static final int MAX_FRAME_LENGTH = 8192;
+  private static final int MAX_STRING_LENGTH = 1024;
+
+  private static final byte READING = 1;
+  private static final byte SENSOR_SCHEMA = 2;
+  private static final byte NODE_IDENTIFIER = 3;
+  private static final byte SENSOR_IDENTIFIER = 4;
+  private static final byte ACTUATOR_IDENTIFIER = 5;
+  private static final byte NODE_COMMAND = 6;
+  private static final byte ACTUATOR_COMMAND = 7;
+  private static final byte ACTUATOR_ADDED_IN_GUI = 8;
+  private static final byte SENSOR_ADDED_IN_GUI = 9;
+  private static final byte NODE_ADDED_IN_GUI = 10;
+  private static final byte SUBSCRIBE = 11;
+  private static final byte UNSUBSCRIBE = 12;
+  private static final byte READING_BATCH = 13;
+  private static final byte SNAPSHOT = 14;
+  private static final byte HISTORY_QUERY = 15;
+  private static final byte HISTORY_CHUNK = 16;
+  private static final byte COMMAND_ACK = 17;
+  private static final byte COMMAND_NACK = 18;
+
+  private final Map<Long, SensorSchema> sentSchemas;
+  private final Map<Long, SensorSchema> receivedSchemas;
+  private final ByteBuffer body;
+  private ByteBuffer output;
+  private final byte[] input;
+
+  /**
+   * The type and unit of the readings from one sensor.
+   *
+   * @param type The sensor type.
+   * @param unit The unit of the readings, or null if unknown.
+   */
+  private record SensorSchema(String type, String unit) {
+  }
+
+  /**
+   * Create a codec for a new connection.
+   */
+  public BinaryCodec() {
+    this.sentSchemas = new HashMap<>();
+    this.receivedSchemas = new HashMap<>();
+    this.body = ByteBuffer.allocate(MAX_FRAME_LENGTH);
+    this.output = ByteBuffer.allocate(2 * MAX_FRAME_LENGTH);
+    this.input = new byte[MAX_FRAME_LENGTH];
+  }
+
+  /**
+   * Encode a message as one or more frames.
+   *
+   * @param message The message to encode.
+   * @return The frames, in a buffer owned by the codec and only valid until the next call.
+   * @throws IllegalArgumentException If the message cannot be sent in the binary format.
+   */
+  public ByteBuffer encode(Data message) {
+    this.output.clear();
+    if (message instanceof SensorReadingMessage reading) {
+      describeSensor(reading.getNodeId(), reading.getSensorId(),
+              reading.getType(), reading.getUnit());
+      startFrame(READING);
+      putNodeId(reading.getNodeId());
+      putVarint(reading.getSensorId());
+      this.body.putDouble(reading.getValue());
+      putSignedVarlong(reading.getSensorSequence());
+      putSignedVarlong(reading.getTime());
+      putSignedVarlong(reading.getMonotonicTime());
+    } else if (message instanceof SensorReadingBatch batch) {
+      if (batch.size() > SensorReadingBatch.MAX_SIZE) {
+        throw new IllegalArgumentException("Too many readings in a batch: " + batch.size());
+      }
+      for (int i = 0; i < batch.size(); i++) {
+        describeSensor(batch.getNodeId(), batch.getSensorId(i),
+                batch.getType(i), batch.getUnit(i));
+      }
+      startFrame(READING_BATCH);
+      putNodeId(batch.getNodeId());
+      putSignedVarlong(batch.getSequence());
+      putSignedVarlong(batch.getTime());
+      putSignedVarlong(batch.getMonotonicTime());
+      putVarint(batch.size());
+      long previousSequence = 0;
+      for (int i = 0; i < batch.size(); i++) {
+        putVarint(batch.getSensorId(i));
+        putSignedVarlong(batch.getSensorSequence(i) - previousSequence);
+        previousSequence = batch.getSensorSequence(i);
+        this.body.putDouble(batch.getValue(i));
+      }
+    } else if (message instanceof Snapshot snapshot) {
+      for (int i = 0; i < snapshot.getSensorCount(); i++) {
+        describeSensor(snapshot.getNodeId(), snapshot.getSensorId(i),
+                snapshot.getSensorType(i), snapshot.getUnit(i));
+      }
+      startFrame(SNAPSHOT);
+      putNodeId(snapshot.getNodeId());
+      putVarint(snapshot.getSensorCount());
+      for (int i = 0; i < snapshot.getSensorCount(); i++) {
+        putVarint(snapshot.getSensorId(i));
+        this.body.putDouble(snapshot.getValue(i));
+      }
+      putVarint(snapshot.getActuatorCount());
+      for (int i = 0; i < snapshot.getActuatorCount(); i++) {
+        putVarint(snapshot.getActuatorId(i));
+        putString(snapshot.getActuatorType(i));
+        this.body.put((byte) (snapshot.getState(i) ? 1 : 0));
+      }
+    } else if (message instanceof HistoryQuery query) {
+      startFrame(HISTORY_QUERY);
+      putVarint(query.getRequestId());
+      putNodeId(query.getNodeId());
+      putVarint(query.getSensorId());
+      putSignedVarlong(query.getFrom());
+      putSignedVarlong(query.getTo());
+      putString(query.getResolution());
+      putVarint(query.getPoints());
+    } else if (message instanceof HistoryChunk chunk) {
+      if (chunk.size() > HistoryChunk.MAX_SIZE) {
+        throw new IllegalArgumentException("Too many points in a history chunk: "
+                + chunk.size());
+      }
+      startFrame(HISTORY_CHUNK);
+      putVarint(chunk.getRequestId());
+      putNodeId(chunk.getNodeId());
+      putVarint(chunk.getSensorId());
+      putString(chunk.getResolution());
+      this.body.put((byte) (chunk.isLast() ? 1 : 0));
+      putString(chunk.getReason());
+      putVarint(chunk.size());
+      long previous = 0;
+      for (int i = 0; i < chunk.size(); i++) {
+        putSignedVarlong(chunk.getTime(i) - previous);
+        previous = chunk.getTime(i);
+        if (chunk.isRaw()) {
+          this.body.putDouble(chunk.getAverage(i));
+        } else {
+          this.body.putDouble(chunk.getMinimum(i));
+          this.body.putDouble(chunk.getMaximum(i));
+          this.body.putDouble(chunk.getAverage(i));
+          putSignedVarlong(chunk.getCount(i));
+        }
+      }
+    } else if (message instanceof NodeIdentifier) {
+      startFrame(NODE_IDENTIFIER);
+      putNodeId(message.getNodeId());
+    } else if (message instanceof SensorIdentifier identifier) {
+      this.sentSchemas.put(sensorKey(identifier.getNodeId(), identifier.getSensorId()),
+              new SensorSchema(identifier.getType(), identifier.getUnit()));
+      startFrame(SENSOR_IDENTIFIER);
+      putNodeId(identifier.getNodeId());
+      putVarint(identifier.getSensorId());
+      putString(identifier.getType());
+      putString(identifier.getUnit());
+    } else if (message instanceof ActuatorIdentifier identifier) {
+      startFrame(ACTUATOR_IDENTIFIER);
+      putNodeId(identifier.getNodeId());
+      putVarint(identifier.getActuatorId());
+      putString(identifier.getType());
+      this.body.put((byte) (identifier.getState() ? 1 : 0));
+    } else if (message instanceof ActuatorCommand command) {
+      startFrame(ACTUATOR_COMMAND);
+      putNodeId(command.getNodeId());
+      putVarint(command.getActuatorId());
+      putString(command.getActuatorType());
+      putString(command.getAction());
+      putVarint(command.getRequestId());
+    } else if (message instanceof NodeCommand command) {
+      startFrame(NODE_COMMAND);
+      putNodeId(command.getNodeId());
+      putString(command.getAction());
+      putVarint(command.getRequestId());
+    } else if (message instanceof ActuatorAddedInGui added) {
+      startFrame(ACTUATOR_ADDED_IN_GUI);
+      putNodeId(added.getNodeId());
+      putString(added.getActuatorType());
+    } else if (message instanceof SensorAddedInGui added) {
+      startFrame(SENSOR_ADDED_IN_GUI);
+      putNodeId(added.getNodeId());
+      putString(added.getSensorType());
+    } else if (message instanceof NodeAddedInGui) {
+      startFrame(NODE_ADDED_IN_GUI);
+      putNodeId(message.getNodeId());
+    } else if (message instanceof Subscription subscription) {
+      startFrame(subscription.isSubscribe() ? SUBSCRIBE : UNSUBSCRIBE);
+      putNodeId(subscription.getNodeId());
+      putString(subscription.getSensorType());
+    } else if (message instanceof CommandAck ack) {
+      startFrame(ack.isAck() ? COMMAND_ACK : COMMAND_NACK);
+      putVarint(ack.getRequestId());
+      putNodeId(ack.getNodeId());
+      putVarint(ack.getCount());
+      putString(ack.getReason());
+    } else {
+      throw new IllegalArgumentException("Could not encode the message: " + message.getData());
+    }
+    endFrame();
+    return this.output.flip();
+  }
+
+  /**
+   * Write a schema frame for a sensor, unless the type and unit have already been sent.
+   */
+  private void describeSensor(int nodeId, int sensorId, String type, String unit) {
+    long key = sensorKey(nodeId, sensorId);
+    SensorSchema sent = this.sentSchemas.get(key);
+    if (sent == null || !Objects.equals(sent.type(), type)
+            || !Objects.equals(sent.unit(), unit)) {
+      this.sentSchemas.put(key, new SensorSchema(type, unit));
+      startFrame(SENSOR_SCHEMA);
+      putNodeId(nodeId);
+      putVarint(sensorId);
+      putString(type);
+      putString(unit);
+      endFrame();
+    }
+  }
+
+  /**
+   * Decode the body of one frame, from the tag byte up to the limit of the buffer.
+   *
+   * @param frame The body of the frame.
+   * @return The message, or null if the frame only updated the state of the codec.
+   * @throws IllegalArgumentException If the frame is not a valid message.
+   */
+  public Data decode(ByteBuffer frame) {
+    try {
+      byte tag = frame.get();
+      return switch (tag) {
+        case READING -> {
+          int nodeId = getNodeId(frame);
+          int sensorId = getVarint(frame);
+          double value = frame.getDouble();
+          long sensorSequence = getSignedVarlong(frame);
+          long time = getSignedVarlong(frame);
+          long monotonicTime = getSignedVarlong(frame);
+          SensorSchema schema = this.receivedSchemas.get(sensorKey(nodeId, sensorId));
+          if (schema == null) {
+            throw new IllegalArgumentException("Reading from unknown sensor " + sensorId
+                    + " on node " + nodeId);
+          }
+          yield new SensorReadingMessage("Reading", nodeId, sensorId, schema.type(), value,
+                  schema.unit(), sensorSequence, time, monotonicTime);
+        }
+        case READING_BATCH -> {
+          int nodeId = getNodeId(frame);
+          long sequence = getSignedVarlong(frame);
+          long time = getSignedVarlong(frame);
+          long monotonicTime = getSignedVarlong(frame);
+          int size = getVarint(frame);
+          if (size > SensorReadingBatch.MAX_SIZE) {
+            throw new IllegalArgumentException("Too many readings in a batch: " + size);
+          }
+          int[] sensorIds = new int[size];
+          String[] types = new String[size];
+          double[] values = new double[size];
+          String[] units = new String[size];
+          long[] sensorSequences = new long[size];
+          long previousSequence = 0;
+          for (int i = 0; i < size; i++) {
+            sensorIds[i] = getVarint(frame);
+            sensorSequences[i] = previousSequence + getSignedVarlong(frame);
+            previousSequence = sensorSequences[i];
+            values[i] = frame.getDouble();
+            SensorSchema schema = this.receivedSchemas.get(sensorKey(nodeId, sensorIds[i]));
+            if (schema == null) {
+              throw new IllegalArgumentException("Reading from unknown sensor " + sensorIds[i]
+                      + " on node " + nodeId);
+            }
+            types[i] = schema.type();
+            units[i] = schema.unit();
+          }
+          yield new SensorReadingBatch("ReadingBatch", nodeId, sequence, time, monotonicTime,
+                  sensorIds, sensorSequences, types, values, units);
+        }
+        case SNAPSHOT -> {
+          int nodeId = getNodeId(frame);
+          int sensorCount = getVarint(frame);
+          if (sensorCount > Snapshot.MAX_SIZE) {
+            throw new IllegalArgumentException("Too many sensors in a snapshot: " + sensorCount);
+          }
+          int[] sensorIds = new int[sensorCount];
+          String[] sensorTypes = new String[sensorCount];
+          String[] units = new String[sensorCount];
+          double[] values = new double[sensorCount];
+          for (int i = 0; i < sensorCount; i++) {
+            sensorIds[i] = getVarint(frame);
+            values[i] = frame.getDouble();
+            SensorSchema schema = this.receivedSchemas.get(sensorKey(nodeId, sensorIds[i]));
+            if (schema == null) {
+              throw new IllegalArgumentException("Snapshot of unknown sensor " + sensorIds[i]
+                      + " on node " + nodeId);
+            }
+            sensorTypes[i] = schema.type();
+            units[i] = schema.unit();
+          }
+          int actuatorCount = getVarint(frame);
+          if (actuatorCount > Snapshot.MAX_SIZE) {
+            throw new IllegalArgumentException(
+                    "Too many actuators in a snapshot: " + actuatorCount);
+          }
+          int[] actuatorIds = new int[actuatorCount];
+          String[] actuatorTypes = new String[actuatorCount];
+          boolean[] states = new boolean[actuatorCount];
+          for (int i = 0; i < actuatorCount; i++) {
+            actuatorIds[i] = getVarint(frame);
+            actuatorTypes[i] = getString(frame);
+            states[i] = frame.get() != 0;
+          }
+          yield new Snapshot("Snapshot", nodeId, sensorIds, sensorTypes, units, values,
+                  actuatorIds, actuatorTypes, states);
+        }
+        case HISTORY_QUERY -> {
+          int requestId = getVarint(frame);
+          int nodeId = getNodeId(frame);
+          int sensorId = getVarint(frame);
+          long from = getSignedVarlong(frame);
+          long to = getSignedVarlong(frame);
+          String resolution = getString(frame);
+          int points = getVarint(frame);
+          yield new HistoryQuery("HistoryQuery", requestId, nodeId, sensorId, from, to,
+                  resolution, points);
+        }
+        case HISTORY_CHUNK -> {
+          int requestId = getVarint(frame);
+          int nodeId = getNodeId(frame);
+          int sensorId = getVarint(frame);
+          String resolution = getString(frame);
+          boolean last = frame.get() != 0;
+          String reason = getString(frame);
+          boolean raw = HistoryQuery.RAW.equals(resolution);
+          int size = getVarint(frame);
+          if (size > HistoryChunk.MAX_SIZE) {
+            throw new IllegalArgumentException("Too many points in a history chunk: " + size);
+          }
+          long[] times = new long[size];
+          double[] minimums = new double[size];
+          double[] maximums = new double[size];
+          double[] averages = new double[size];
+          long[] counts = new long[size];
+          long previous = 0;
+          for (int i = 0; i < size; i++) {
+            previous += getSignedVarlong(frame);
+            times[i] = previous;
+            if (raw) {
+              averages[i] = frame.getDouble();
+              minimums[i] = averages[i];
+              maximums[i] = averages[i];
+              counts[i] = 1;
+            } else {
+              minimums[i] = frame.getDouble();
+              maximums[i] = frame.getDouble();
+              averages[i] = frame.getDouble();
+              counts[i] = getSignedVarlong(frame);
+            }
+          }
+          yield new HistoryChunk("HistoryChunk", requestId, nodeId, sensorId, resolution,
+                  last, reason, times, minimums, maximums, averages, counts);
+        }
+        case SENSOR_SCHEMA -> {
+          int nodeId = getNodeId(frame);
+          int sensorId = getVarint(frame);
+          this.receivedSchemas.put(sensorKey(nodeId, sensorId),
+                  new SensorSchema(getString(frame), getString(frame)));
+          yield null;
+        }
+        case NODE_IDENTIFIER -> new NodeIdentifier("Identifier", getNodeId(frame));
+        case SENSOR_IDENTIFIER -> {
+          int nodeId = getNodeId(frame);
+          int sensorId = getVarint(frame);
+          String type = getString(frame);
+          String unit = getString(frame);
+          this.receivedSchemas.put(sensorKey(nodeId, sensorId), new SensorSchema(type, unit));
+          yield new SensorIdentifier("Identifier", nodeId, type, sensorId, unit);
+        }
+        case ACTUATOR_IDENTIFIER -> {
+          int nodeId = getNodeId(frame);
+          int actuatorId = getVarint(frame);
+          String type = getString(frame);
+          boolean state = frame.get() != 0;
+          yield new ActuatorIdentifier("Identifier", nodeId, type, actuatorId, state);
+        }
+        case ACTUATOR_COMMAND -> {
+          int nodeId = getNodeId(frame);
+          int actuatorId = getVarint(frame);
+          String actuatorType = getString(frame);
+          String action = MessageHandler.requireAction(getString(frame));
+          int requestId = getVarint(frame);
+          yield actuatorType != null
+                  ? new ActuatorCommand("ActuatorCommand", requestId, nodeId, actuatorType, action)
+                  : new ActuatorCommand("ActuatorCommand", requestId, nodeId, actuatorId, action);
+        }
+        case NODE_COMMAND -> {
+          int nodeId = getNodeId(frame);
+          String action = MessageHandler.requireAction(getString(frame));
+          yield new NodeCommand("NodeCommand", getVarint(frame), nodeId, action);
+        }
+        case ACTUATOR_ADDED_IN_GUI ->
+                new ActuatorAddedInGui("ActuatorAddedInGui", getNodeId(frame), getString(frame));
+        case SENSOR_ADDED_IN_GUI ->
+                new SensorAddedInGui("SensorAddedInGui", getNodeId(frame), getString(frame));
+        case NODE_ADDED_IN_GUI -> new NodeAddedInGui("NodeAddedInGui", getNodeId(frame));
+        case SUBSCRIBE -> new Subscription("Subscribe", getNodeId(frame), getString(frame));
+        case UNSUBSCRIBE -> new Subscription("Unsubscribe", getNodeId(frame), getString(frame));
+        case COMMAND_ACK, COMMAND_NACK -> {
+          int requestId = getVarint(frame);
+          int nodeId = getNodeId(frame);
+          int count = getVarint(frame);
+          String reason = getString(frame);
+          yield new CommandAck(tag == COMMAND_ACK ? "CommandAck" : "CommandNack", requestId,
+                  nodeId, count, reason);
+        }
+        default -> throw new IllegalArgumentException("Unknown frame tag: " + tag);
+      };
+    } catch (BufferUnderflowException e) {
+      throw new IllegalArgumentException("Truncated frame");
+    }
+  }
+
+  /**
+   * Encode a message and write it to a stream. The stream is not flushed.
+   *
+   * @param message The message to write.
+   * @param out     The stream to write to.
+   * @throws IOException If the message could not be written.
+   */
+  public void write(Data message, OutputStream out) throws IOException {
+    ByteBuffer frames = encode(message);
+    out.write(frames.array(), 0, frames.limit());
+  }
+
+  /**
+   * Read frames from a stream until a message is decoded.
+   *
+   * @param in The stream to read from.
+   * @return The message.
+   * @throws EOFException If the stream ends.
+   * @throws IOException  If the stream could not be read.
+   */
+  public Data read(InputStream in) throws IOException {
+    Data message = null;
+    while (message == null) {
+      int length = readFrameLength(in);
+      if (length < 0 || in.readNBytes(this.input, 0, length) < length) {
+        throw new EOFException("The connection was closed.");
+      }
+      message = decode(ByteBuffer.wrap(this.input, 0, length));
+    }
+    return message;
+  }
+
+  /**
+   * Read the length prefix of a frame from a buffer. If the buffer does not hold the whole
+   * prefix, its position is left unchanged.
+   *
+   * @param in The buffer to read from.
+   * @return The length of the frame, or -1 if the prefix is incomplete.
+   * @throws IllegalArgumentException If the length is larger than {@link #MAX_FRAME_LENGTH}.
+   */
+  public static int readFrameLength(ByteBuffer in) {
+    int start = in.position();
+    int length = 0;
+    int shift = 0;
+    while (in.hasRemaining()) {
+      byte b = in.get();
+      length |= (b & 0x7f) << shift;
+      if (b >= 0) {
+        return checkFrameLength(length);
+      }
+      shift += 7;
+      if (shift > 14) {
+        throw new IllegalArgumentException("Frame length prefix too long");
+      }
+    }
+    in.position(start);
+    return -1;
+  }
+
+  /**
+   * Read the length prefix of a frame from a stream.
+   *
+   * @param in The stream to read from.
+   * @return The length of the frame, or -1 if the stream ended before the prefix.
+   * @throws IOException If the stream could not be read.
+   */
+  public static int readFrameLength(InputStream in) throws IOException {
+    int length = 0;
+    int shift = 0;
+    int b = in.read();
+    while (b >= 0) {
+      length |= (b & 0x7f) << shift;
+      if ((b & 0x80) == 0) {
+        return checkFrameLength(length);
+      }
+      shift += 7;
+      if (shift > 14) {
+        throw new IllegalArgumentException("Frame length prefix too long");
+      }
+      b = in.read();
+    }
+    return -1;
+  }
+
+  private static int checkFrameLength(int length) {
+    if (length == 0 || length > MAX_FRAME_LENGTH) {
+      throw new IllegalArgumentException("Invalid frame length: " + length);
+    }
+    return length;
+  }
+
+  private static long sensorKey(int nodeId, int sensorId) {
+    return ((long) nodeId << 32) | (sensorId & 0xffffffffL);
+  }
+
+  private void startFrame(byte tag) {
+    this.body.clear();
+    this.body.put(tag);
+  }
+
+  private void endFrame() {
+    this.body.flip();
+    int length = this.body.remaining();
+    if (this.output.remaining() < length + 3) {
+      ByteBuffer larger = ByteBuffer.allocate(
+              Math.max(this.output.capacity() * 2, this.output.position() + length + 3));
+      this.output.flip();
+      larger.put(this.output);
+      this.output = larger;
+    }
+    while (length >= 0x80) {
+      this.output.put((byte) (length | 0x80));
+      length >>>= 7;
+    }
+    this.output.put((byte) length);
+    this.output.put(this.body);
+  }
+
+  private void putVarint(int value) {
+    while ((value & ~0x7f) != 0) {
+      this.body.put((byte) ((value & 0x7f) | 0x80));
+      value >>>= 7;
+    }
+    this.body.put((byte) value);
+  }
+
+  private void putSignedVarlong(long value) {
+    long zigzag = (value << 1) ^ (value >> 63);
+    while ((zigzag & ~0x7fL) != 0) {
+      this.body.put((byte) ((zigzag & 0x7f) | 0x80));
+      zigzag >>>= 7;
+    }
+    this.body.put((byte) zigzag);
+  }
+
+  private void putNodeId(int nodeId) {
+    putVarint((nodeId << 1) ^ (nodeId >> 31));
+  }
+
+  /**
+   * Put a string, where null is written as length zero and read back as null.
+   */
+  private void putString(String value) {
+    if (value == null || value.isEmpty()) {
+      putVarint(0);
+      return;
+    }
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    if (bytes.length > MAX_STRING_LENGTH) {
+      throw new IllegalArgumentException("String too long for a frame: " + bytes.length);
+    }
+    putVarint(bytes.length);
+    this.body.put(bytes);
+  }
+
+  private static int getVarint(ByteBuffer in) {
+    int value = 0;
+    int shift = 0;
+    byte b = in.get();
+    while (b < 0) {
+      value |= (b & 0x7f) << shift;
+      shift += 7;
+      if (shift > 28) {
+        throw new IllegalArgumentException("Varint too long");
+      }
+      b = in.get();
+    }
+    return value | (b << shift);
+  }
+
+  private static long getSignedVarlong(ByteBuffer in) {
+    long value = 0;
+    int shift = 0;
+    byte b = in.get();
+    while (b < 0) {
+      value |= (long) (b & 0x7f) << shift;
+      shift += 7;
+      if (shift > 63) {
+        throw new IllegalArgumentException("Varlong too long");
+      }
+      b = in.get();
+    }
+    value |= (long) b << shift;
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  private static int getNodeId(ByteBuffer in) {
+    int value = getVarint(in);
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  private static String getString(ByteBuffer in) {
+    int length = getVarint(in);
+    if (length == 0) {
+      return null;
+    }
+    if (length > in.remaining()) {
+      throw new IllegalArgumentException("Truncated frame");
+    }
+    String value = new String(in.array(), in.arrayOffset() + in.position(), length,
+            StandardCharsets.UTF_8);
+    in.position(in.position() + length);
+    return value;
+  }
+}
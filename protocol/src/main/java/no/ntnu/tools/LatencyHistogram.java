@@ -0,0 +1,179 @@
+package no.ntnu.tools;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of latencies in milliseconds, which any number of threads may record into at the
+ * same time. Latencies below {@value #LINEAR_LIMIT} ms get a bucket each, and every larger power
+ * of two is split into {@value #SUB_BUCKETS} buckets, so a percentile is at most about 6% above
+ * the true value, in a fixed array of counters, whatever the number of latencies recorded.
+ *
+ * <p>Latencies are measured between the wall clocks of two machines, so a clock set behind
+ * gives negative latencies. They are recorded as 0.
+ */
+public class LatencyHistogram {
+  private static final int LINEAR_LIMIT = 32;
+  private static final int SUB_BUCKETS = 16;
+  private static final int SUB_BUCKET_BITS = 4;
+  private static final int FIRST_EXPONENT = 5;
+  private static final int LAST_EXPONENT = 40;
+  private static final int BUCKET_COUNT =
+          LINEAR_LIMIT + (LAST_EXPONENT - FIRST_EXPONENT + 1) * SUB_BUCKETS;
+  private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+  private static final ScheduledExecutorService REPORTER =
+          Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "latency-report");
+            thread.setDaemon(true);
+            return thread;
+          });
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+
+  /**
+   * Record one latency.
+   *
+   * @param latency The latency in milliseconds.
+   */
+  public void record(long latency) {
+    record(latency, 1);
+  }
+
+  /**
+   * Record the same latency several times, for example for every reading of a batch.
+   *
+   * @param latency The latency in milliseconds.
+   * @param count   The number of times to record it.
+   */
+  public void record(long latency, long count) {
+    this.counts.addAndGet(bucketOf(latency), count);
+  }
+
+  /**
+   * Return the number of latencies recorded.
+   *
+   * @return the number of latencies.
+   */
+  public long getCount() {
+    long total = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      total += this.counts.get(i);
+    }
+    return total;
+  }
+
+  /**
+   * Return a latency that the given percentage of the recorded latencies do not exceed.
+   *
+   * @param percentile The percentage, from 0 to 100.
+   * @return the highest latency of the bucket the percentile falls in, or 0 if nothing was
+   *         recorded.
+   */
+  public long getPercentile(double percentile) {
+    long total = getCount();
+    long rank = (long) Math.ceil(total * percentile / 100.0);
+    long seen = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      seen += this.counts.get(i);
+      if (seen >= Math.max(rank, 1)) {
+        return upperBound(i);
+      }
+    }
+    return 0;
+  }
+
+  /**
+   * Return the highest recorded latency, to the precision of the buckets.
+   *
+   * @return the highest latency, or 0 if nothing was recorded.
+   */
+  public long getMax() {
+    for (int i = BUCKET_COUNT - 1; i >= 0; i--) {
+      if (this.counts.get(i) > 0) {
+        return upperBound(i);
+      }
+    }
+    return 0;
+  }
+
+  /**
+   * Move the latencies recorded so far to a new histogram, leaving this one empty.
+   * Latencies recorded during the call end up in one of the two.
+   *
+   * @return the histogram with the latencies recorded so far.
+   */
+  public LatencyHistogram takeSnapshot() {
+    LatencyHistogram snapshot = new LatencyHistogram();
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      snapshot.counts.set(i, this.counts.getAndSet(i, 0));
+    }
+    return snapshot;
+  }
+
+  /**
+   * Add the latencies recorded in another histogram to this one.
+   *
+   * @param other The histogram to add.
+   */
+  public void add(LatencyHistogram other) {
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      this.counts.addAndGet(i, other.counts.get(i));
+    }
+  }
+
+  /**
+   * Return the number of latencies, the 50th, 90th, 99th and 99.9th percentiles and the
+   * maximum, in one line.
+   *
+   * @return the summary.
+   */
+  public String getSummary() {
+    StringBuilder summary = new StringBuilder("n=").append(getCount());
+    for (double percentile : PERCENTILES) {
+      summary.append(" p").append(percentile == Math.rint(percentile)
+                      ? String.valueOf((long) percentile) : String.valueOf(percentile))
+              .append('=').append(getPercentile(percentile));
+    }
+    return summary.append(" max=").append(getMax()).append(" ms").toString();
+  }
+
+  /**
+   * Print a summary of the latencies recorded in every interval, on a shared daemon thread.
+   * Intervals without latencies are left out.
+   *
+   * @param name     The name of the latencies, printed before the summary.
+   * @param interval The interval, in milliseconds.
+   * @return the task printing the summaries, which can be cancelled.
+   */
+  public ScheduledFuture<?> reportEvery(String name, long interval) {
+    return REPORTER.scheduleAtFixedRate(() -> {
+      LatencyHistogram recorded = takeSnapshot();
+      if (recorded.getCount() > 0) {
+        System.out.println(name + " latency: " + recorded.getSummary());
+      }
+    }, interval, interval, TimeUnit.MILLISECONDS);
+  }
+
+  private static int bucketOf(long latency) {
+    if (latency < LINEAR_LIMIT) {
+      return (int) Math.max(latency, 0);
+    }
+    int exponent = Math.min(63 - Long.numberOfLeadingZeros(latency), LAST_EXPONENT);
+    int subBucket = (int) ((Math.min(latency, (2L << LAST_EXPONENT) - 1)
+            >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1));
+    return LINEAR_LIMIT + (exponent - FIRST_EXPONENT) * SUB_BUCKETS + subBucket;
+  }
+
+  private static long upperBound(int bucket) {
+    if (bucket < LINEAR_LIMIT) {
+      return bucket;
+    }
+    int exponent = (bucket - LINEAR_LIMIT) / SUB_BUCKETS + FIRST_EXPONENT;
+    long subBucket = (bucket - LINEAR_LIMIT) % SUB_BUCKETS;
+    return ((SUB_BUCKETS + subBucket + 1) << (exponent - SUB_BUCKET_BITS)) - 1;
+  }
+}
@@ -0,0 +1,236 @@
+package no.ntnu.tools;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+import no.ntnu.commands.Data;
+import no.ntnu.commands.NodeIdentifier;
+
+/**
+ * The client side of a connection to the server, used by nodes and control panels.
+ * The connection starts in the text format. When the preferred format is binary, the first
+ * identifier asks the server for it, and the connection switches if the server agrees. A server
+ * that does not know about the binary format never agrees, and the connection stays in text.
+ */
+public class MessageChannel {
+  private static final int NEGOTIATION_TIMEOUT = 2000;
+
+  private static volatile WireFormat preferredFormat = WireFormat.TEXT;
+
+  private final Socket socket;
+  private final InputStream input;
+  private final OutputStream output;
+  // A lock rather than synchronized methods, so a virtual thread blocked in a write does not
+  // pin its carrier thread.
+  private final ReentrantLock writeLock;
+
+  private BinaryCodec codec;
+  private byte[] lineBuffer;
+  private int lineLength;
+  private String pendingLine;
+
+  /**
+   * Create a channel over a connected socket.
+   *
+   * @param socket The socket connected to the server.
+   * @throws IOException If the streams of the socket could not be opened.
+   */
+  public MessageChannel(Socket socket) throws IOException {
+    this.socket = socket;
+    this.input = new BufferedInputStream(socket.getInputStream());
+    this.output = new BufferedOutputStream(socket.getOutputStream());
+    this.writeLock = new ReentrantLock();
+    this.lineBuffer = new byte[256];
+    this.lineLength = 0;
+  }
+
+  /**
+   * Set the format that new channels ask the server for.
+   *
+   * @param format The preferred format.
+   */
+  public static void setPreferredFormat(WireFormat format) {
+    preferredFormat = format;
+  }
+
+  /**
+   * Identify this client to the server, and negotiate the format of the connection.
+   *
+   * @param nodeId The ID of the node, or -1 for a control panel.
+   * @throws IOException If the identifier could not be sent.
+   */
+  public void identify(int nodeId) throws IOException {
+    this.writeLock.lock();
+    try {
+      if (preferredFormat == WireFormat.TEXT) {
+        write("Data=Identifier;Node=" + nodeId);
+        return;
+      }
+      write(MessageHandler.serializeNodeIdentifier(
+              new NodeIdentifier("Identifier", nodeId, preferredFormat.getName())));
+      this.socket.setSoTimeout(NEGOTIATION_TIMEOUT);
+      try {
+        String line = readLine();
+        Data answer = line == null ? null : MessageHandler.getData(line);
+        if (answer instanceof NodeIdentifier nodeIdentifier
+                && nodeIdentifier.getCodec() != null) {
+          if (WireFormat.fromName(nodeIdentifier.getCodec()) == WireFormat.BINARY) {
+            this.codec = new BinaryCodec();
+          }
+        } else {
+          this.pendingLine = line;
+        }
+      } catch (SocketTimeoutException e) {
+        System.out.println("No answer to the wire format, staying with text.");
+      } finally {
+        this.socket.setSoTimeout(0);
+      }
+    } finally {
+      this.writeLock.unlock();
+    }
+  }
+
+  /**
+   * Check which format the connection uses.
+   *
+   * @return The format of the connection.
+   */
+  public WireFormat getFormat() {
+    return this.codec == null ? WireFormat.TEXT : WireFormat.BINARY;
+  }
+
+  /**
+   * Read the next message from the server. Blocks until a message has arrived.
+   *
+   * @return The message, or null if the server closed the connection.
+   * @throws IOException If the connection could not be read.
+   */
+  public Data read() throws IOException {
+    if (this.pendingLine != null) {
+      String line = this.pendingLine;
+      this.pendingLine = null;
+      return MessageHandler.getData(line);
+    }
+    if (this.codec != null) {
+      try {
+        return this.codec.read(this.input);
+      } catch (EOFException e) {
+        return null;
+      }
+    }
+    String line = readLine();
+    return line == null ? null : MessageHandler.getData(line);
+  }
+
+  /**
+   * Send a message to the server.
+   *
+   * @param message The message to send.
+   * @throws IOException If the message could not be sent.
+   */
+  public void write(Data message) throws IOException {
+    this.writeLock.lock();
+    try {
+      if (this.codec != null) {
+        this.codec.write(message, this.output);
+      } else {
+        writeLine(MessageHandler.serialize(message));
+      }
+      this.output.flush();
+    } finally {
+      this.writeLock.unlock();
+    }
+  }
+
+  /**
+   * Send several messages to the server, flushing only once after the last.
+   *
+   * @param messages The messages to send, in order.
+   * @throws IOException If the messages could not be sent.
+   */
+  public void write(List<? extends Data> messages) throws IOException {
+    this.writeLock.lock();
+    try {
+      for (Data message : messages) {
+        if (this.codec != null) {
+          this.codec.write(message, this.output);
+        } else {
+          writeLine(MessageHandler.serialize(message));
+        }
+      }
+      this.output.flush();
+    } finally {
+      this.writeLock.unlock();
+    }
+  }
+
+  /**
+   * Send a message in the text format to the server. On a binary connection the message is
+   * converted to a frame first.
+   *
+   * @param rawMessage The message to send.
+   * @throws IOException If the message could not be sent.
+   */
+  public void write(String rawMessage) throws IOException {
+    this.writeLock.lock();
+    try {
+      if (this.codec != null) {
+        this.codec.write(MessageHandler.getData(rawMessage), this.output);
+      } else {
+        writeLine(rawMessage);
+      }
+      this.output.flush();
+    } finally {
+      this.writeLock.unlock();
+    }
+  }
+
+  /**
+   * Close the connection.
+   *
+   * @throws IOException If the socket could not be closed.
+   */
+  public void close() throws IOException {
+    this.socket.close();
+  }
+
+  private void writeLine(String line) throws IOException {
+    this.output.write(line.getBytes(StandardCharsets.UTF_8));
+    this.output.write('\n');
+  }
+
+  /**
+   * Read a line of text. The bytes of a partly read line are kept if the read times out.
+   *
+   * @return The line, or null if the connection was closed.
+   */
+  private String readLine() throws IOException {
+    int b = this.input.read();
+    while (b != '\n') {
+      if (b < 0) {
+        return null;
+      }
+      if (this.lineLength == this.lineBuffer.length) {
+        this.lineBuffer = Arrays.copyOf(this.lineBuffer, this.lineLength * 2);
+      }
+      this.lineBuffer[this.lineLength++] = (byte) b;
+      b = this.input.read();
+    }
+    int length = this.lineLength;
+    if (length > 0 && this.lineBuffer[length - 1] == '\r') {
+      length--;
+    }
+    this.lineLength = 0;
+    return new String(this.lineBuffer, 0, length, StandardCharsets.UTF_8);
+  }
+}
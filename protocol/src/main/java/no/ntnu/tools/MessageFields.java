@@ -0,0 +1,446 @@
+package no.ntnu.tools;
+
+import java.util.Arrays;
+
+/**
+ * The fields of one message in the {@code key=value;key=value} text format.
+ * A message is scanned once, and only the positions of the known fields are recorded, so
+ * looking up a field, or parsing it as a number, does not split or copy the message.
+ * Instances are meant to be reused for message after message by the same thread.
+ */
+public class MessageFields {
+  /**
+   * The field names known by the protocol. Fields with other names are ignored.
+   */
+  public enum Field {
+    DATA("Data"),
+    NODE("Node"),
+    SENSOR("Sensor"),
+    ACTUATOR("Actuator"),
+    TYPE("Type"),
+    VALUE("Value"),
+    UNIT("Unit"),
+    STATE("State"),
+    ACTION("Action"),
+    ACTUATOR_TYPE("ActuatorType"),
+    SENSOR_TYPE("SensorType"),
+    CODEC("Codec"),
+    REQUEST("Request"),
+    FROM("From"),
+    TO("To"),
+    RESOLUTION("Resolution"),
+    POINTS("Points"),
+    TIME("Time"),
+    MIN("Min"),
+    MAX("Max"),
+    COUNT("Count"),
+    LAST("Last"),
+    SEQ("Seq"),
+    SENSOR_SEQ("SensorSeq"),
+    MONO("Mono"),
+    REASON("Reason");
+
+    private static final Field[] FIELDS = values();
+
+    private final String key;
+
+    Field(String key) {
+      this.key = key;
+    }
+
+    public String getKey() {
+      return this.key;
+    }
+  }
+
+  private static final double[] POWERS_OF_TEN = {
+      1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+      1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+  };
+  private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+  private final int[] starts;
+  private final int[] ends;
+  private final StringCache strings;
+  private String message;
+
+  /**
+   * Create an empty set of fields.
+   */
+  public MessageFields() {
+    this.starts = new int[Field.FIELDS.length];
+    this.ends = new int[Field.FIELDS.length];
+    this.strings = new StringCache();
+  }
+
+  /**
+   * Scan a message and record where each known field is.
+   *
+   * @param message The message to scan.
+   * @throws IllegalArgumentException If a part of the message is not a key-value pair.
+   */
+  public void parse(String message) {
+    this.message = message;
+    Arrays.fill(this.starts, -1);
+    int length = message.length();
+    int partStart = 0;
+    boolean anyField = false;
+    while (partStart < length) {
+      int separator = partStart;
+      int equals = -1;
+      while (separator < length && message.charAt(separator) != ';') {
+        if (message.charAt(separator) == '=') {
+          if (equals != -1) {
+            throw new IllegalArgumentException(
+                    "Invalid key-value pair: " + message.substring(partStart, separator));
+          }
+          equals = separator;
+        }
+        separator++;
+      }
+      if (equals <= partStart || equals == separator - 1) {
+        throw new IllegalArgumentException(
+                "Invalid key-value pair: " + message.substring(partStart, separator));
+      }
+      Field field = findField(partStart, equals);
+      if (field != null) {
+        this.starts[field.ordinal()] = equals + 1;
+        this.ends[field.ordinal()] = separator;
+      }
+      anyField = true;
+      partStart = separator + 1;
+    }
+    if (!anyField) {
+      throw new IllegalArgumentException("Could not parse fields.");
+    }
+  }
+
+  private Field findField(int keyStart, int keyEnd) {
+    int keyLength = keyEnd - keyStart;
+    for (Field field : Field.FIELDS) {
+      if (field.key.length() == keyLength
+              && this.message.regionMatches(keyStart, field.key, 0, keyLength)) {
+        return field;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Check whether the message has a field.
+   *
+   * @param field The field to look for.
+   * @return True if the message has the field.
+   */
+  public boolean has(Field field) {
+    return this.starts[field.ordinal()] != -1;
+  }
+
+  /**
+   * Check whether a field of the message has a given value.
+   *
+   * @param field The field to check.
+   * @param value The value to compare with.
+   * @return True if the message has the field, with the given value.
+   */
+  public boolean is(Field field, String value) {
+    int start = this.starts[field.ordinal()];
+    int length = this.ends[field.ordinal()] - start;
+    return start != -1 && length == value.length()
+            && this.message.regionMatches(start, value, 0, length);
+  }
+
+  /**
+   * Return the value of a field as a string. Frequently repeated values, such as sensor types
+   * and units, are returned as shared string instances instead of new copies.
+   *
+   * @param field The field to return.
+   * @return The value of the field, or null if the message does not have it.
+   */
+  public String getString(Field field) {
+    int start = this.starts[field.ordinal()];
+    if (start == -1) {
+      return null;
+    }
+    return this.strings.get(this.message, start, this.ends[field.ordinal()]);
+  }
+
+  /**
+   * Return the value of a field as a string, or a default when the message does not have it.
+   *
+   * @param field        The field to return.
+   * @param defaultValue The value to return if the message does not have the field.
+   * @return The value of the field, or the default value.
+   */
+  public String getString(Field field, String defaultValue) {
+    return has(field) ? getString(field) : defaultValue;
+  }
+
+  /**
+   * Parse the value of a field as an integer, directly from the message.
+   *
+   * @param field The field to parse.
+   * @return The value of the field.
+   * @throws NumberFormatException If the field is missing or is not an integer.
+   */
+  public int getInt(Field field) {
+    int start = this.starts[field.ordinal()];
+    if (start == -1) {
+      throw new NumberFormatException("Missing field " + field.key);
+    }
+    return parseInt(field, start, this.ends[field.ordinal()]);
+  }
+
+  private int parseInt(Field field, int start, int end) {
+    long result = parseLong(field, start, end);
+    if (result < Integer.MIN_VALUE || result > Integer.MAX_VALUE) {
+      throw new NumberFormatException("Integer out of range in field " + field.key);
+    }
+    return (int) result;
+  }
+
+  /**
+   * Parse the value of a field as a long, such as a timestamp, directly from the message.
+   *
+   * @param field The field to parse.
+   * @return The value of the field.
+   * @throws NumberFormatException If the field is missing or is not an integer.
+   */
+  public long getLong(Field field) {
+    int start = this.starts[field.ordinal()];
+    if (start == -1) {
+      throw new NumberFormatException("Missing field " + field.key);
+    }
+    return parseLong(field, start, this.ends[field.ordinal()]);
+  }
+
+  private long parseLong(Field field, int start, int end) {
+    if (start == end) {
+      throw new NumberFormatException("Invalid integer in field " + field.key);
+    }
+    char first = this.message.charAt(start);
+    boolean negative = first == '-';
+    int position = negative || first == '+' ? start + 1 : start;
+    if (position == end) {
+      throw new NumberFormatException("Invalid integer in field " + field.key);
+    }
+    // Summed as a negative number, like Long.parseLong does, so Long.MIN_VALUE fits.
+    long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+    long result = 0;
+    while (position < end) {
+      int digit = this.message.charAt(position++) - '0';
+      if (digit < 0 || digit > 9) {
+        throw new NumberFormatException("Invalid integer in field " + field.key);
+      }
+      if (result < limit / 10 || result * 10 < limit + digit) {
+        throw new NumberFormatException("Integer out of range in field " + field.key);
+      }
+      result = result * 10 - digit;
+    }
+    return negative ? result : -result;
+  }
+
+  /**
+   * Parse the value of a field as a double, directly from the message.
+   * Plain decimal numbers with up to 15 significant digits are parsed without copying, and are
+   * exact since both the digits and the power of ten are exactly representable. Other numbers,
+   * such as those with an exponent, fall back to {@link Double#parseDouble(String)}.
+   *
+   * @param field The field to parse.
+   * @return The value of the field.
+   * @throws NumberFormatException If the field is missing or is not a number.
+   */
+  public double getDouble(Field field) {
+    int start = this.starts[field.ordinal()];
+    if (start == -1) {
+      throw new NumberFormatException("Missing field " + field.key);
+    }
+    return parseDouble(start, this.ends[field.ordinal()]);
+  }
+
+  private double parseDouble(int start, int end) {
+    if (start == end) {
+      throw new NumberFormatException("Empty number");
+    }
+    boolean negative = this.message.charAt(start) == '-';
+    int position = negative ? start + 1 : start;
+    long mantissa = 0;
+    int fractionDigits = -1;
+    boolean anyDigit = false;
+    while (position < end) {
+      char c = this.message.charAt(position++);
+      if (c >= '0' && c <= '9') {
+        mantissa = mantissa * 10 + (c - '0');
+        anyDigit = true;
+        if (fractionDigits >= 0) {
+          fractionDigits++;
+        }
+        if (mantissa >= MAX_EXACT_MANTISSA) {
+          return Double.parseDouble(this.message.substring(start, end));
+        }
+      } else if (c == '.' && fractionDigits < 0) {
+        fractionDigits = 0;
+      } else {
+        return Double.parseDouble(this.message.substring(start, end));
+      }
+    }
+    if (!anyDigit || fractionDigits >= POWERS_OF_TEN.length) {
+      return Double.parseDouble(this.message.substring(start, end));
+    }
+    double value = fractionDigits > 0 ? mantissa / POWERS_OF_TEN[fractionDigits] : mantissa;
+    return negative ? -value : value;
+  }
+
+  /**
+   * Return the number of comma-separated items in the value of a field.
+   *
+   * @param field The field to count the items of.
+   * @return The number of items, or 0 if the message does not have the field.
+   */
+  public int getListSize(Field field) {
+    int start = this.starts[field.ordinal()];
+    if (start == -1) {
+      return 0;
+    }
+    int count = 1;
+    for (int i = start; i < this.ends[field.ordinal()]; i++) {
+      if (this.message.charAt(i) == ',') {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Parse the comma-separated items of a field as integers.
+   *
+   * @param field The field to parse.
+   * @param items The array to put the items in, as long as the list.
+   * @throws NumberFormatException If the field is missing, is shorter than the array, or has
+   *                               an item that is not an integer.
+   */
+  public void getIntList(Field field, int[] items) {
+    int start = this.starts[field.ordinal()];
+    for (int i = 0; i < items.length; i++) {
+      int end = itemEnd(field, start);
+      items[i] = parseInt(field, start, end);
+      start = end + 1;
+    }
+  }
+
+  /**
+   * Parse the comma-separated items of a field as longs.
+   *
+   * @param field The field to parse.
+   * @param items The array to put the items in, as long as the list.
+   * @throws NumberFormatException If the field is missing, is shorter than the array, or has
+   *                               an item that is not an integer.
+   */
+  public void getLongList(Field field, long[] items) {
+    int start = this.starts[field.ordinal()];
+    for (int i = 0; i < items.length; i++) {
+      int end = itemEnd(field, start);
+      items[i] = parseLong(field, start, end);
+      start = end + 1;
+    }
+  }
+
+  /**
+   * Parse the comma-separated items of a field as doubles.
+   *
+   * @param field The field to parse.
+   * @param items The array to put the items in, as long as the list.
+   * @throws NumberFormatException If the field is missing, is shorter than the array, or has
+   *                               an item that is not a number.
+   */
+  public void getDoubleList(Field field, double[] items) {
+    int start = this.starts[field.ordinal()];
+    for (int i = 0; i < items.length; i++) {
+      int end = itemEnd(field, start);
+      items[i] = parseDouble(start, end);
+      start = end + 1;
+    }
+  }
+
+  /**
+   * Return the comma-separated items of a field as strings.
+   *
+   * @param field The field to return.
+   * @param items The array to put the items in, as long as the list.
+   * @throws NumberFormatException If the field is missing or is shorter than the array.
+   */
+  public void getStringList(Field field, String[] items) {
+    int start = this.starts[field.ordinal()];
+    for (int i = 0; i < items.length; i++) {
+      int end = itemEnd(field, start);
+      items[i] = this.strings.get(this.message, start, end);
+      start = end + 1;
+    }
+  }
+
+  private int itemEnd(Field field, int start) {
+    int end = this.ends[field.ordinal()];
+    if (start == -1 || start > end) {
+      throw new NumberFormatException("Too few items in field " + field.key);
+    }
+    int comma = start;
+    while (comma < end && this.message.charAt(comma) != ',') {
+      comma++;
+    }
+    return comma;
+  }
+
+  /**
+   * Parse the value of a field as a boolean, in the same way as
+   * {@link Boolean#parseBoolean(String)}.
+   *
+   * @param field The field to parse.
+   * @return True if the field has the value "true", ignoring case.
+   */
+  public boolean getBoolean(Field field) {
+    int start = this.starts[field.ordinal()];
+    return start != -1 && this.ends[field.ordinal()] - start == 4
+            && this.message.regionMatches(true, start, "true", 0, 4);
+  }
+
+  /**
+   * Return the message that was scanned last.
+   *
+   * @return the message.
+   */
+  public String getMessage() {
+    return this.message;
+  }
+
+  /**
+   * A small cache of string values, so frequently repeated values are not copied out of every
+   * message. The cache has a fixed number of slots, and a value replaces whatever was in its
+   * slot before.
+   */
+  private static class StringCache {
+    private static final int SIZE = 256;
+    private static final int MAX_LENGTH = 32;
+
+    private final String[] values = new String[SIZE];
+
+    String get(String message, int start, int end) {
+      int length = end - start;
+      if (length > MAX_LENGTH) {
+        return message.substring(start, end);
+      }
+      int hash = 0;
+      for (int i = start; i < end; i++) {
+        hash = 31 * hash + message.charAt(i);
+      }
+      int slot = (hash ^ (hash >>> 16)) & (SIZE - 1);
+      String cached = this.values[slot];
+      if (cached != null && cached.length() == length
+              && message.regionMatches(start, cached, 0, length)) {
+        return cached;
+      }
+      String value = message.substring(start, end);
+      this.values[slot] = value;
+      return value;
+    }
+  }
+}
@@ -0,0 +1,782 @@
+package no.ntnu.tools;
+
+import java.util.Arrays;
+
+import no.ntnu.commands.*;
+import no.ntnu.tools.MessageFields.Field;
+
+/**
+ * A class for handling messages.
+ * A message is scanned only once, into the {@link MessageFields} of the current thread, and the
+ * deserializers read their fields from there.
+ */
+public class MessageHandler {
+  private static final ThreadLocal<MessageFields> FIELDS =
+          ThreadLocal.withInitial(MessageFields::new);
+
+  /**
+   * Serialize the sensor reading message.
+   *
+   * @param actuator The sensor reading message to serialize.
+   * @return The serialized sensor reading message.
+   */
+  public static String serializeActuatorInformation(ActuatorIdentifier actuator) {
+    return "Data=Identifier;Node=" + actuator.getNodeId()
+            + ";Actuator=" + actuator.getActuatorId()
+            + ";Type=" + actuator.getType()
+            + ";State=" + actuator.getState();
+  }
+
+  /**
+   * Deserialize the actuator information.
+   *
+   * @param rawMessage The raw message to deserialize.
+   * @return The actuator information.
+   */
+  public static ActuatorIdentifier deserializeActuatorInformation(String rawMessage) {
+    return deserializeActuatorInformation(parseFields(rawMessage));
+  }
+
+  private static ActuatorIdentifier deserializeActuatorInformation(MessageFields fields) {
+    String dataType = fields.getString(Field.DATA);
+    int nodeId = fields.getInt(Field.NODE);
+    String actuatorType = fields.getString(Field.TYPE);
+    int actuatorId = fields.getInt(Field.ACTUATOR);
+    boolean state = fields.getBoolean(Field.STATE);
+    return new ActuatorIdentifier(dataType, nodeId, actuatorType, actuatorId, state);
+  }
+
+  /**
+   * Serialize the sensor information.
+   *
+   * @param sensor The sensor to serialize.
+   * @return The serialized sensor information.
+   */
+  public static String serializeSensorInformation(SensorIdentifier sensor) {
+    String identifier = "Data=Identifier;Node=" + sensor.getNodeId()
+            + ";Sensor=" + sensor.getSensorId()
+            + ";Type=" + sensor.getType();
+    return sensor.getUnit() == null ? identifier : identifier + ";Unit=" + sensor.getUnit();
+  }
+
+  /**
+   * Deserialize the sensor information.
+   *
+   * @param rawMessage The raw message to deserialize.
+   * @return The sensor information.
+   */
+  public static SensorIdentifier deserializeSensorInformation(String rawMessage) {
+    return deserializeSensorInformation(parseFields(rawMessage));
+  }
+
+  private static SensorIdentifier deserializeSensorInformation(MessageFields fields) {
+    int nodeId = fields.getInt(Field.NODE);
+    int sensorId = fields.getInt(Field.SENSOR);
+    String sensorType = fields.getString(Field.TYPE);
+    String dataType = fields.getString(Field.DATA);
+    String unit = fields.getString(Field.UNIT);
+    return new SensorIdentifier(dataType, nodeId, sensorType, sensorId, unit);
+  }
+
+  /**
+   * Serialize the actuator command.
+   *
+   * @param actuatorCommand The actuator command to serialize.
+   * @return The serialized actuator command.
+   */
+  public static String serializeActuatorCommand(ActuatorCommand actuatorCommand) {
+    StringBuilder builder = new StringBuilder("Data=ActuatorCommand;");
+    builder.append("Node=").append(actuatorCommand.getNodeId()).append(";");
+    if (actuatorCommand.getActuatorType() != null) {
+      builder.append("ActuatorType=").append(actuatorCommand.getActuatorType()).append(";");
+    } else if (actuatorCommand.getActuatorId() != 0) {
+      builder.append("Actuator=").append(actuatorCommand.getActuatorId()).append(";");
+    }
+    builder.append("Action=").append(actuatorCommand.getAction());
+    if (actuatorCommand.getRequestId() != 0) {
+      builder.append(";Request=").append(actuatorCommand.getRequestId());
+    }
+    return builder.toString();
+  }
+
+  /**
+   * Deserialize the actuator command.
+   *
+   * @param rawMessage The raw message to deserialize.
+   * @return The actuator command.
+   */
+  public static ActuatorCommand deserializeActuatorCommand(String rawMessage) {
+    return deserializeActuatorCommand(parseFields(rawMessage));
+  }
+
+  private static ActuatorCommand deserializeActuatorCommand(MessageFields fields) {
+    String data = fields.getString(Field.DATA);
+    int nodeId = fields.getInt(Field.NODE);
+    String action = requireAction(fields.getString(Field.ACTION));
+    int requestId = fields.has(Field.REQUEST) ? fields.getInt(Field.REQUEST) : 0;
+
+    if (fields.has(Field.ACTUATOR)) {
+      int actuatorId = fields.getInt(Field.ACTUATOR);
+      return new ActuatorCommand(data, requestId, nodeId, actuatorId, action);
+    } else if (fields.has(Field.ACTUATOR_TYPE)) {
+      String actuatorType = fields.getString(Field.ACTUATOR_TYPE);
+      return new ActuatorCommand(data, requestId, nodeId, actuatorType, action);
+    }
+    throw new IllegalArgumentException("Invalid ActuatorCommand format");
+  }
+
+  /**
+   * Serialize the node command.
+   *
+   * @param nodeCommand The node command to serialize.
+   * @return The serialized node command.
+   */
+  public static String serializeNodeCommand(NodeCommand nodeCommand) {
+    return "Data=NodeCommand;Node=" + nodeCommand.getNodeId() + ";Action="
+            + nodeCommand.getAction()
+            + (nodeCommand.getRequestId() != 0 ? ";Request=" + nodeCommand.getRequestId() : "");
+  }
+
+  /**
+   * Deserialize the node command.
+   *
+   * @param rawMessage The raw message to deserialize.
+   * @return The node command.
+   */
+  public static NodeCommand deserializeNodeCommand(String rawMessage) {
+    return deserializeNodeCommand(parseFields(rawMessage));
+  }
+
+  private static NodeCommand deserializeNodeCommand(MessageFields fields) {
+    String data = fields.getString(Field.DATA);
+    int nodeId = fields.getInt(Field.NODE);
+    String action = requireAction(fields.getString(Field.ACTION));
+    int requestId = fields.has(Field.REQUEST) ? fields.getInt(Field.REQUEST) : 0;
+    return new NodeCommand(data, requestId, nodeId, action);
+  }
+
+  /**
+   * Check that a command has an action, since a command without one cannot be carried out.
+   *
+   * @param action The action of the command.
+   * @return The action.
+   * @throws IllegalArgumentException If the action is missing.
+   */
+  static String requireAction(String action) {
+    if (action == null || action.isEmpty()) {
+      throw new IllegalArgumentException("Command without an action");
+    }
+    return action;
+  }
+
+  /**
+   * Serialize the sensor reading message.
+   *
+   * @param rawMessage The sensor reading message to serialize.
+   * @return The serialized sensor reading message.
+   */
+  public static SensorReadingMessage deserializeSensorReadingMessage(String rawMessage) {
+    return deserializeSensorReadingMessage(parseFields(rawMessage));
+  }
+
+  /**
+   * Deserialize a sensor reading. The received line is kept in the reading, so it can be
+   * forwarded as it is instead of being serialized again.
+   */
+  private static SensorReadingMessage deserializeSensorReadingMessage(MessageFields fields) {
+    String data = fields.getString(Field.DATA);
+    int nodeId = fields.getInt(Field.NODE);
+    int sensorId = fields.getInt(Field.SENSOR);
+    String type = fields.getString(Field.TYPE);
+    double value = fields.getDouble(Field.VALUE);
+    String unit = fields.getString(Field.UNIT);
+    long sensorSequence = fields.has(Field.SENSOR_SEQ) ? fields.getLong(Field.SENSOR_SEQ) : 0;
+    long time = fields.has(Field.TIME) ? fields.getLong(Field.TIME) : 0;
+    long monotonicTime = fields.has(Field.MONO) ? fields.getLong(Field.MONO) : 0;
+    return new SensorReadingMessage(data, nodeId, sensorId, type, value, unit,
+            sensorSequence, time, monotonicTime, fields.getMessage());
+  }
+
+  /**
+   * Serialize a batch of sensor readings. The readings are written as comma-separated lists
+   * in the sensor, sensor sequence, type, value and unit fields, in the same order in every
+   * list. The sequence numbers and times are left out if the batch has none.
+   *
+   * @param batch The batch to serialize.
+   * @return The serialized batch.
+   */
+  public static String serializeSensorReadingBatch(SensorReadingBatch batch) {
+    StringBuilder sensors = new StringBuilder();
+    StringBuilder types = new StringBuilder();
+    StringBuilder values = new StringBuilder();
+    StringBuilder units = new StringBuilder();
+    StringBuilder sensorSequences = new StringBuilder();
+    boolean hasSensorSequences = false;
+    for (int i = 0; i < batch.size(); i++) {
+      if (i > 0) {
+        sensors.append(',');
+        types.append(',');
+        values.append(',');
+        units.append(',');
+        sensorSequences.append(',');
+      }
+      sensorSequences.append(batch.getSensorSequence(i));
+      hasSensorSequences |= batch.getSensorSequence(i) != 0;
+      sensors.append(batch.getSensorId(i));
+      types.append(batch.getType(i));
+      values.append(batch.getValue(i));
+      units.append(batch.getUnit(i));
+    }
+    StringBuilder message = new StringBuilder("Data=ReadingBatch;Node=")
+            .append(batch.getNodeId());
+    if (batch.getSequence() != 0) {
+      message.append(";Seq=").append(batch.getSequence());
+    }
+    if (batch.getTime() != 0) {
+      message.append(";Time=").append(batch.getTime());
+    }
+    if (batch.getMonotonicTime() != 0) {
+      message.append(";Mono=").append(batch.getMonotonicTime());
+    }
+    message.append(";Sensor=").append(sensors);
+    if (hasSensorSequences) {
+      message.append(";SensorSeq=").append(sensorSequences);
+    }
+    return message.append(";Type=").append(types)
+            .append(";Value=").append(values)
+            .append(";Unit=").append(units)
+            .toString();
+  }
+
+  /**
+   * Deserialize a batch of sensor readings.
+   *
+   * @param rawMessage The raw message to deserialize.
+   * @return The batch of readings.
+   */
+  public static SensorReadingBatch deserializeSensorReadingBatch(String rawMessage) {
+    return deserializeSensorReadingBatch(parseFields(rawMessage));
+  }
+
+  private static SensorReadingBatch deserializeSensorReadingBatch(MessageFields fields) {
+    String data = fields.getString(Field.DATA);
+    int nodeId = fields.getInt(Field.NODE);
+    int size = fields.getListSize(Field.SENSOR);
+    int[] sensorIds = new int[size];
+    String[] types = new String[size];
+    double[] values = new double[size];
+    String[] units = new String[size];
+    fields.getIntList(Field.SENSOR, sensorIds);
+    fields.getStringList(Field.TYPE, types);
+    fields.getDoubleList(Field.VALUE, values);
+    fields.getStringList(Field.UNIT, units);
+    long[] sensorSequences = new long[size];
+    if (fields.has(Field.SENSOR_SEQ)) {
+      fields.getLongList(Field.SENSOR_SEQ, sensorSequences);
+    }
+    long sequence = fields.has(Field.SEQ) ? fields.getLong(Field.SEQ) : 0;
+    long time = fields.has(Field.TIME) ? fields.getLong(Field.TIME) : 0;
+    long monotonicTime = fields.has(Field.MONO) ? fields.getLong(Field.MONO) : 0;
+    return new SensorReadingBatch(data, nodeId, sequence, time, monotonicTime,
+            sensorIds, sensorSequences, types, values, units);
+  }
+
+  /**
+   * Serialize a snapshot of a node. The sensors are written as comma-separated lists in the
+   * sensor, type, unit and value fields, and the actuators in the actuator, actuator type and
+   * state fields. The fields of an empty list are left out.
+   *
+   * @param snapshot The snapshot to serialize.
+   * @return The serialized snapshot.
+   */
+  public static String serializeSnapshot(Snapshot snapshot) {
+    StringBuilder message = new StringBuilder("Data=Snapshot;Node=" + snapshot.getNodeId());
+    if (snapshot.getSensorCount() > 0) {
+      StringBuilder sensors = new StringBuilder();
+      StringBuilder types = new StringBuilder();
+      StringBuilder units = new StringBuilder();
+      StringBuilder values = new StringBuilder();
+      for (int i = 0; i < snapshot.getSensorCount(); i++) {
+        if (i > 0) {
+          sensors.append(',');
+          types.append(',');
+          units.append(',');
+          values.append(',');
+        }
+        sensors.append(snapshot.getSensorId(i));
+        types.append(snapshot.getSensorType(i));
+        units.append(snapshot.getUnit(i));
+        values.append(snapshot.getValue(i));
+      }
+      message.append(";Sensor=").append(sensors)
+              .append(";Type=").append(types)
+              .append(";Unit=").append(units)
+              .append(";Value=").append(values);
+    }
+    if (snapshot.getActuatorCount() > 0) {
+      StringBuilder actuators = new StringBuilder();
+      StringBuilder types = new StringBuilder();
+      StringBuilder states = new StringBuilder();
+      for (int i = 0; i < snapshot.getActuatorCount(); i++) {
+        if (i > 0) {
+          actuators.append(',');
+          types.append(',');
+          states.append(',');
+        }
+        actuators.append(snapshot.getActuatorId(i));
+        types.append(snapshot.getActuatorType(i));
+        states.append(snapshot.getState(i));
+      }
+      message.append(";Actuator=").append(actuators)
+              .append(";ActuatorType=").append(types)
+              .append(";State=").append(states);
+    }
+    return message.toString();
+  }
+
+  /**
+   * Deserialize a snapshot of a node.
+   *
+   * @param rawMessage The raw message to deserialize.
+   * @return The snapshot.
+   */
+  public static Snapshot deserializeSnapshot(String rawMessage) {
+    return deserializeSnapshot(parseFields(rawMessage));
+  }
+
+  private static Snapshot deserializeSnapshot(MessageFields fields) {
+    String data = fields.getString(Field.DATA);
+    int nodeId = fields.getInt(Field.NODE);
+    int sensorCount = fields.getListSize(Field.SENSOR);
+    int[] sensorIds = new int[sensorCount];
+    String[] sensorTypes = new String[sensorCount];
+    String[] units = new String[sensorCount];
+    double[] values = new double[sensorCount];
+    fields.getIntList(Field.SENSOR, sensorIds);
+    fields.getStringList(Field.TYPE, sensorTypes);
+    fields.getStringList(Field.UNIT, units);
+    fields.getDoubleList(Field.VALUE, values);
+    int actuatorCount = fields.getListSize(Field.ACTUATOR);
+    int[] actuatorIds = new int[actuatorCount];
+    String[] actuatorTypes = new String[actuatorCount];
+    String[] stateNames = new String[actuatorCount];
+    boolean[] states = new boolean[actuatorCount];
+    fields.getIntList(Field.ACTUATOR, actuatorIds);
+    fields.getStringList(Field.ACTUATOR_TYPE, actuatorTypes);
+    fields.getStringList(Field.STATE, stateNames);
+    for (int i = 0; i < actuatorCount; i++) {
+      states[i] = Boolean.parseBoolean(stateNames[i]);
+    }
+    return new Snapshot(data, nodeId, sensorIds, sensorTypes, units, values,
+            actuatorIds, actuatorTypes, states);
+  }
+
+  /**
+   * Serialize a query for the history of a sensor.
+   *
+   * @param query The query to serialize.
+   * @return The serialized query.
+   */
+  public static String serializeHistoryQuery(HistoryQuery query) {
+    return "Data=HistoryQuery;Request=" + query.getRequestId()
+            + ";Node=" + query.getNodeId()
+            + ";Sensor=" + query.getSensorId()
+            + ";From=" + query.getFrom()
+            + ";To=" + query.getTo()
+            + ";Resolution=" + query.getResolution()
+            + ";Points=" + query.getPoints();
+  }
+
+  /**
+   * Deserialize a query for the history of a sensor.
+   *
+   * @param rawMessage The raw message to deserialize.
+   * @return The query.
+   */
+  public static HistoryQuery deserializeHistoryQuery(String rawMessage) {
+    return deserializeHistoryQuery(parseFields(rawMessage));
+  }
+
+  private static HistoryQuery deserializeHistoryQuery(MessageFields fields) {
+    String data = fields.getString(Field.DATA);
+    int requestId = fields.getInt(Field.REQUEST);
+    int nodeId = fields.getInt(Field.NODE);
+    int sensorId = fields.getInt(Field.SENSOR);
+    long from = fields.getLong(Field.FROM);
+    long to = fields.getLong(Field.TO);
+    String resolution = fields.getString(Field.RESOLUTION, HistoryQuery.AUTO);
+    int points = fields.has(Field.POINTS) ? fields.getInt(Field.POINTS) : 0;
+    return new HistoryQuery(data, requestId, nodeId, sensorId, from, to, resolution, points);
+  }
+
+  /**
+   * Serialize a chunk of the history of a sensor. The points are written as comma-separated
+   * lists in the time, minimum, maximum, value and count fields, where the value is the
+   * average. At raw resolution only the time and value fields are written. The fields of an
+   * empty chunk are left out, and so is the reason of a complete answer.
+   *
+   * @param chunk The chunk to serialize.
+   * @return The serialized chunk.
+   */
+  public static String serializeHistoryChunk(HistoryChunk chunk) {
+    StringBuilder message = new StringBuilder("Data=HistoryChunk;Request=")
+            .append(chunk.getRequestId())
+            .append(";Node=").append(chunk.getNodeId())
+            .append(";Sensor=").append(chunk.getSensorId())
+            .append(";Resolution=").append(chunk.getResolution())
+            .append(";Last=").append(chunk.isLast());
+    if (chunk.getReason() != null) {
+      message.append(";Reason=").append(chunk.getReason());
+    }
+    if (chunk.size() > 0) {
+      StringBuilder times = new StringBuilder();
+      StringBuilder minimums = new StringBuilder();
+      StringBuilder maximums = new StringBuilder();
+      StringBuilder averages = new StringBuilder();
+      StringBuilder counts = new StringBuilder();
+      for (int i = 0; i < chunk.size(); i++) {
+        if (i > 0) {
+          times.append(',');
+          minimums.append(',');
+          maximums.append(',');
+          averages.append(',');
+          counts.append(',');
+        }
+        times.append(chunk.getTime(i));
+        minimums.append(chunk.getMinimum(i));
+        maximums.append(chunk.getMaximum(i));
+        averages.append(chunk.getAverage(i));
+        counts.append(chunk.getCount(i));
+      }
+      message.append(";Time=").append(times);
+      if (!chunk.isRaw()) {
+        message.append(";Min=").append(minimums)
+                .append(";Max=").append(maximums);
+      }
+      message.append(";Value=").append(averages);
+      if (!chunk.isRaw()) {
+        message.append(";Count=").append(counts);
+      }
+    }
+    return message.toString();
+  }
+
+  /**
+   * Deserialize a chunk of the history of a sensor.
+   *
+   * @param rawMessage The raw message to deserialize.
+   * @return The chunk.
+   */
+  public static HistoryChunk deserializeHistoryChunk(String rawMessage) {
+    return deserializeHistoryChunk(parseFields(rawMessage));
+  }
+
+  private static HistoryChunk deserializeHistoryChunk(MessageFields fields) {
+    String data = fields.getString(Field.DATA);
+    int requestId = fields.getInt(Field.REQUEST);
+    int nodeId = fields.getInt(Field.NODE);
+    int sensorId = fields.getInt(Field.SENSOR);
+    String resolution = fields.getString(Field.RESOLUTION);
+    boolean last = fields.getBoolean(Field.LAST);
+    String reason = fields.getString(Field.REASON);
+    int size = fields.getListSize(Field.TIME);
+    long[] times = new long[size];
+    double[] minimums = new double[size];
+    double[] maximums = new double[size];
+    double[] averages = new double[size];
+    long[] counts = new long[size];
+    fields.getLongList(Field.TIME, times);
+    fields.getDoubleList(Field.VALUE, averages);
+    if (HistoryQuery.RAW.equals(resolution)) {
+      System.arraycopy(averages, 0, minimums, 0, size);
+      System.arraycopy(averages, 0, maximums, 0, size);
+      Arrays.fill(counts, 1);
+    } else {
+      fields.getDoubleList(Field.MIN, minimums);
+      fields.getDoubleList(Field.MAX, maximums);
+      fields.getLongList(Field.COUNT, counts);
+    }
+    return new HistoryChunk(data, requestId, nodeId, sensorId, resolution, last, reason,
+            times, minimums, maximums, averages, counts);
+  }
+
+  /**
+   * Serialize the node identifier.
+   *
+   * @param nodeIdentifier The node identifier to serialize.
+   * @return The serialized node identifier.
+   */
+  public static String serializeNodeIdentifier(NodeIdentifier nodeIdentifier) {
+    if (nodeIdentifier.getCodec() != null) {
+      return "Data=Identifier;Node=" + nodeIdentifier.getNodeId()
+              + ";Codec=" + nodeIdentifier.getCodec();
+    }
+    return "Data=Identifier;Node=" + nodeIdentifier.getNodeId();
+  }
+
+  /**
+   * Deserialize the sensor reading message.
+   *
+   * @param rawMessage The sensor reading message to serialize.
+   * @return The serialized sensor reading message.
+   */
+  public static Data deserializeNodeInformation(String rawMessage) {
+    return deserializeNodeInformation(parseFields(rawMessage));
+  }
+
+  private static Data deserializeNodeInformation(MessageFields fields) {
+    int nodeId = fields.getInt(Field.NODE);
+    String dataType = fields.getString(Field.DATA);
+    return new NodeIdentifier(dataType, nodeId, fields.getString(Field.CODEC));
+  }
+
+  /**
+   * Serialize the sensor reading message.
+   *
+   * @param actuatorAddedInGui The sensor reading message to serialize.
+   * @return The serialized sensor reading message.
+   */
+  public static String serializeActuatorAddedInGui(ActuatorAddedInGui actuatorAddedInGui) {
+    return "Data=ActuatorAddedInGui;Node="
+            + actuatorAddedInGui.getNodeId()
+            + ";ActuatorType="
+            + actuatorAddedInGui.getActuatorType();
+  }
+
+  /**
+   * Serialize the sensor reading message.
+   *
+   * @param sensorAddedInGui The sensor reading message to serialize.
+   * @return The serialized sensor reading message.
+   */
+  public static String serializeSensorAddedInGui(SensorAddedInGui sensorAddedInGui) {
+    return "Data=SensorAddedInGui;Node="
+            + sensorAddedInGui.getNodeId()
+            + ";SensorType="
+            + sensorAddedInGui.getSensorType();
+  }
+
+  /**
+   * Serialize the sensor reading message.
+   *
+   * @param rawMessage The sensor reading message to serialize.
+   * @return The serialized sensor reading message.
+   */
+  public static ActuatorAddedInGui deserializeActuatorAddedInGui(String rawMessage) {
+    return deserializeActuatorAddedInGui(parseFields(rawMessage));
+  }
+
+  private static ActuatorAddedInGui deserializeActuatorAddedInGui(MessageFields fields) {
+    int nodeId = fields.getInt(Field.NODE);
+    String actuatorType = fields.getString(Field.ACTUATOR_TYPE);
+    String dataType = fields.getString(Field.DATA);
+    return new ActuatorAddedInGui(dataType, nodeId, actuatorType);
+  }
+
+  /**
+   * Deserialize the sensor reading message.
+   *
+   * @param rawMessage The sensor reading message to serialize.
+   * @return The serialized sensor reading message.
+   */
+  public static SensorAddedInGui deserializeSensorAddedInGui(String rawMessage) {
+    return deserializeSensorAddedInGui(parseFields(rawMessage));
+  }
+
+  private static SensorAddedInGui deserializeSensorAddedInGui(MessageFields fields) {
+    int nodeId = fields.getInt(Field.NODE);
+    String sensorType = fields.getString(Field.SENSOR_TYPE);
+    String dataType = fields.getString(Field.DATA);
+    return new SensorAddedInGui(dataType, nodeId, sensorType);
+  }
+
+  private static Data deserializeNodeAddedInGui(MessageFields fields) {
+    String dataType = fields.getString(Field.DATA);
+    int nodeId = fields.getInt(Field.NODE);
+    return new NodeAddedInGui(dataType, nodeId);
+  }
+
+  /**
+   * Serialize the sensor reading message.
+   *
+   * @param nodeAddedInGui The sensor reading message to serialize.
+   * @return The serialized sensor reading message.
+   */
+  public static String serializeNodeAddedInGui(NodeAddedInGui nodeAddedInGui) {
+    return "Data=NodeAddedInGui;Node=" + nodeAddedInGui.getNodeId();
+  }
+
+  /**
+   * Serialize a subscription or unsubscription.
+   *
+   * @param subscription The subscription to serialize.
+   * @return The serialized subscription.
+   */
+  public static String serializeSubscription(Subscription subscription) {
+    return "Data=" + subscription.getData()
+            + ";Node=" + subscription.getNodeId()
+            + ";Type=" + subscription.getSensorType();
+  }
+
+  /**
+   * Deserialize a subscription or unsubscription.
+   *
+   * @param rawMessage The raw message to deserialize.
+   * @return The subscription.
+   */
+  public static Subscription deserializeSubscription(String rawMessage) {
+    return deserializeSubscription(parseFields(rawMessage));
+  }
+
+  private static Subscription deserializeSubscription(MessageFields fields) {
+    String dataType = fields.getString(Field.DATA);
+    int nodeId = fields.getInt(Field.NODE);
+    String sensorType = fields.getString(Field.TYPE, Subscription.ANY_TYPE);
+    return new Subscription(dataType, nodeId, sensorType);
+  }
+
+  /**
+   * Serialize the answer to a command.
+   *
+   * @param ack The acknowledgement or negative acknowledgement to serialize.
+   * @return The serialized answer.
+   */
+  public static String serializeCommandAck(CommandAck ack) {
+    return "Data=" + ack.getData()
+            + ";Request=" + ack.getRequestId()
+            + ";Node=" + ack.getNodeId()
+            + ";Count=" + ack.getCount()
+            + (ack.getReason() != null ? ";Reason=" + ack.getReason() : "");
+  }
+
+  /**
+   * Deserialize the answer to a command.
+   *
+   * @param rawMessage The raw message to deserialize.
+   * @return The acknowledgement or negative acknowledgement.
+   */
+  public static CommandAck deserializeCommandAck(String rawMessage) {
+    return deserializeCommandAck(parseFields(rawMessage));
+  }
+
+  private static CommandAck deserializeCommandAck(MessageFields fields) {
+    String dataType = fields.getString(Field.DATA);
+    int requestId = fields.getInt(Field.REQUEST);
+    int nodeId = fields.getInt(Field.NODE);
+    int count = fields.has(Field.COUNT) ? fields.getInt(Field.COUNT) : 0;
+    String reason = fields.getString(Field.REASON);
+    return new CommandAck(dataType, requestId, nodeId, count, reason);
+  }
+
+  /**
+   * Serialize any message that can be sent in the text format.
+   *
+   * @param message The message to serialize.
+   * @return The serialized message.
+   * @throws IllegalArgumentException If the message cannot be serialized.
+   */
+  public static String serialize(Data message) {
+    if (message instanceof SensorReadingMessage sensorReadingMessage) {
+      return sensorReadingMessage.getReading();
+    } else if (message instanceof SensorReadingBatch batch) {
+      return serializeSensorReadingBatch(batch);
+    } else if (message instanceof Snapshot snapshot) {
+      return serializeSnapshot(snapshot);
+    } else if (message instanceof HistoryQuery query) {
+      return serializeHistoryQuery(query);
+    } else if (message instanceof HistoryChunk chunk) {
+      return serializeHistoryChunk(chunk);
+    } else if (message instanceof NodeIdentifier nodeIdentifier) {
+      return serializeNodeIdentifier(nodeIdentifier);
+    } else if (message instanceof ActuatorCommand actuatorCommand) {
+      return serializeActuatorCommand(actuatorCommand);
+    } else if (message instanceof NodeCommand nodeCommand) {
+      return serializeNodeCommand(nodeCommand);
+    } else if (message instanceof SensorIdentifier sensorIdentifier) {
+      return serializeSensorInformation(sensorIdentifier);
+    } else if (message instanceof ActuatorIdentifier actuatorIdentifier) {
+      return serializeActuatorInformation(actuatorIdentifier);
+    } else if (message instanceof ActuatorAddedInGui actuatorAddedInGui) {
+      return serializeActuatorAddedInGui(actuatorAddedInGui);
+    } else if (message instanceof SensorAddedInGui sensorAddedInGui) {
+      return serializeSensorAddedInGui(sensorAddedInGui);
+    } else if (message instanceof NodeAddedInGui nodeAddedInGui) {
+      return serializeNodeAddedInGui(nodeAddedInGui);
+    } else if (message instanceof Subscription subscription) {
+      return serializeSubscription(subscription);
+    } else if (message instanceof CommandAck ack) {
+      return serializeCommandAck(ack);
+    }
+    throw new IllegalArgumentException("Could not transmit the message.");
+  }
+
+  /**
+   * Scan a message into the reusable fields of the current thread.
+   *
+   * @param rawMessage The message to scan.
+   * @return The fields of the message, valid until the next message is scanned on this thread.
+   */
+  private static MessageFields parseFields(String rawMessage) {
+    MessageFields fields = FIELDS.get();
+    fields.parse(rawMessage);
+    return fields;
+  }
+
+  /**
+   * Deserialize the sensor reading message.
+   *
+   * @param rawMessage The sensor reading message to serialize.
+   * @return The serialized sensor reading message.
+   */
+  public static Data getData(String rawMessage) {
+    MessageFields fields = parseFields(rawMessage);
+    if (rawMessage.isBlank()) {
+      throw new IllegalArgumentException("rawMessage is null");
+    }
+    if (!fields.has(Field.DATA)) {
+      System.out.println(rawMessage);
+      throw new IllegalArgumentException("Could not get the data type.");
+    }
+    try {
+      if (fields.is(Field.DATA, "Reading")) {
+        return deserializeSensorReadingMessage(fields);
+      } else if (fields.is(Field.DATA, "ReadingBatch")) {
+        return deserializeSensorReadingBatch(fields);
+      } else if (fields.is(Field.DATA, "Snapshot")) {
+        return deserializeSnapshot(fields);
+      } else if (fields.is(Field.DATA, "HistoryQuery")) {
+        return deserializeHistoryQuery(fields);
+      } else if (fields.is(Field.DATA, "HistoryChunk")) {
+        return deserializeHistoryChunk(fields);
+      } else if (fields.is(Field.DATA, "ActuatorCommand")) {
+        return deserializeActuatorCommand(fields);
+      } else if (fields.is(Field.DATA, "NodeCommand")) {
+        return deserializeNodeCommand(fields);
+      } else if (fields.is(Field.DATA, "ActuatorAddedInGui")) {
+        return deserializeActuatorAddedInGui(fields);
+      } else if (fields.is(Field.DATA, "SensorAddedInGui")) {
+        return deserializeSensorAddedInGui(fields);
+      } else if (fields.is(Field.DATA, "NodeAddedInGui")) {
+        return deserializeNodeAddedInGui(fields);
+      } else if (fields.is(Field.DATA, "Subscribe") || fields.is(Field.DATA, "Unsubscribe")) {
+        return deserializeSubscription(fields);
+      } else if (fields.is(Field.DATA, "CommandAck") || fields.is(Field.DATA, "CommandNack")) {
+        return deserializeCommandAck(fields);
+      } else if (fields.is(Field.DATA, "Identifier")) {
+        if (fields.has(Field.ACTUATOR)) {
+          return deserializeActuatorInformation(fields);
+        } else if (fields.has(Field.SENSOR)) {
+          return deserializeSensorInformation(fields);
+        } else if (fields.has(Field.NODE)) {
+          return deserializeNodeInformation(fields);
+        }
+      }
+      throw new IllegalArgumentException("Could not get the data type.");
+    } catch (NumberFormatException e) {
+      System.out.println(rawMessage);
+      e.printStackTrace();
+    }
+    System.out.println(rawMessage);
+    throw new IllegalArgumentException("Could not get the data type.");
+  }
+}
@@ -0,0 +1,58 @@
+package no.ntnu.tools;
+
+/**
+ * Starts the long-running, mostly blocked loops of the application, such as the reader loops of
+ * client handlers, nodes and the control panel.
+ * By default these run on platform threads. When virtual threads are enabled at startup, they
+ * run as virtual threads on a bounded pool of carrier threads instead, so one JVM can host a very
+ * large number of simulated nodes.
+ */
+public class Threads {
+  private static volatile boolean virtualThreads = false;
+
+  /**
+   * Constructing the class is not allowed.
+   */
+  private Threads() {
+  }
+
+  /**
+   * Run all loops started after this call on virtual threads.
+   * Must be called at startup, before the first virtual thread is created, since the size of the
+   * carrier pool is fixed when the virtual thread scheduler starts.
+   *
+   * @param carrierThreadCount The maximum number of carrier (platform) threads.
+   */
+  public static void useVirtualThreads(int carrierThreadCount) {
+    if (carrierThreadCount < 1) {
+      throw new IllegalArgumentException("At least one carrier thread is needed");
+    }
+    String count = String.valueOf(carrierThreadCount);
+    System.setProperty("jdk.virtualThreadScheduler.parallelism", count);
+    System.setProperty("jdk.virtualThreadScheduler.maxPoolSize", count);
+    virtualThreads = true;
+  }
+
+  /**
+   * Check whether loops are run on virtual threads.
+   *
+   * @return True if virtual threads are used, false if platform threads are used
+   */
+  public static boolean isUsingVirtualThreads() {
+    return virtualThreads;
+  }
+
+  /**
+   * Start a loop on a new thread of the configured kind.
+   *
+   * @param name The name of the thread.
+   * @param task The loop to run.
+   * @return The started thread.
+   */
+  public static Thread start(String name, Runnable task) {
+    if (virtualThreads) {
+      return Thread.ofVirtual().name(name).start(task);
+    }
+    return Thread.ofPlatform().name(name).start(task);
+  }
+}
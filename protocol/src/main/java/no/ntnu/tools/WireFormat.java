@@ -0,0 +1,40 @@
+package no.ntnu.tools;
+
+/**
+ * The formats a connection can use on the wire. Every connection starts in the text format,
+ * and may switch to the binary format when both sides agree in the first identifier.
+ */
+public enum WireFormat {
+  /**
+   * Lines of {@code key=value} pairs, see {@link MessageHandler}.
+   */
+  TEXT,
+  /**
+   * Length-prefixed binary frames, see {@link BinaryCodec}.
+   */
+  BINARY;
+
+  /**
+   * Return the name of the format, as used in the {@code Codec} field of an identifier.
+   *
+   * @return the name of the format.
+   */
+  public String getName() {
+    return name().toLowerCase();
+  }
+
+  /**
+   * Find a format from its name in the {@code Codec} field of an identifier.
+   *
+   * @param name The name of the format.
+   * @return The format, or {@link #TEXT} if the name is not a known format.
+   */
+  public static WireFormat fromName(String name) {
+    for (WireFormat format : values()) {
+      if (format.getName().equals(name)) {
+        return format;
+      }
+    }
+    return TEXT;
+  }
+}
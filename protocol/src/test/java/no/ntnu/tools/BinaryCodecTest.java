@@ -0,0 +1,315 @@
+package no.ntnu.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import no.ntnu.commands.ActuatorCommand;
+import no.ntnu.commands.ActuatorIdentifier;
+import no.ntnu.commands.CommandAck;
+import no.ntnu.commands.Data;
+import no.ntnu.commands.HistoryChunk;
+import no.ntnu.commands.HistoryQuery;
+import no.ntnu.commands.NodeCommand;
+import no.ntnu.commands.NodeIdentifier;
+import no.ntnu.commands.SensorIdentifier;
+import no.ntnu.commands.SensorReadingBatch;
+import no.ntnu.commands.SensorReadingMessage;
+import no.ntnu.commands.Snapshot;
+import no.ntnu.commands.Subscription;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link BinaryCodec}, encoding messages on one codec and decoding them on another,
+ * as the two ends of a connection do.
+ */
+public class BinaryCodecTest {
+  private BinaryCodec sender;
+  private BinaryCodec receiver;
+
+  @Before
+  public void setUp() {
+    this.sender = new BinaryCodec();
+    this.receiver = new BinaryCodec();
+  }
+
+  private byte[] encode(Data message) {
+    ByteBuffer frames = this.sender.encode(message);
+    return Arrays.copyOf(frames.array(), frames.limit());
+  }
+
+  @SuppressWarnings("unchecked")
+  private <T extends Data> T roundTrip(T message) throws IOException {
+    return (T) this.receiver.read(new ByteArrayInputStream(encode(message)));
+  }
+
+  /**
+   * Decode the body of a frame built by hand, starting with its tag.
+   */
+  private Data decode(int... bytes) {
+    ByteBuffer frame = ByteBuffer.allocate(bytes.length);
+    for (int b : bytes) {
+      frame.put((byte) b);
+    }
+    return this.receiver.decode(frame.flip());
+  }
+
+  @Test
+  public void roundTripsAReadingAndSendsItsSchemaOnce() throws IOException {
+    SensorReadingMessage reading = new SensorReadingMessage("Reading", -3, 7, "temperature",
+            21.5, "°C", 42, 1_700_000_000_000L, -5);
+    int firstLength = encode(reading).length;
+    this.sender = new BinaryCodec();
+
+    SensorReadingMessage decoded = roundTrip(reading);
+    assertEquals(-3, decoded.getNodeId());
+    assertEquals(7, decoded.getSensorId());
+    assertEquals("temperature", decoded.getType());
+    assertEquals("°C", decoded.getUnit());
+    assertEquals(21.5, decoded.getValue(), 0.0);
+    assertEquals(42, decoded.getSensorSequence());
+    assertEquals(1_700_000_000_000L, decoded.getTime());
+    assertEquals(-5, decoded.getMonotonicTime());
+
+    SensorReadingMessage next = new SensorReadingMessage("Reading", -3, 7, "temperature",
+            Double.NaN, "°C", 43, 1_700_000_001_000L, 0);
+    byte[] nextFrames = encode(next);
+    assertTrue(nextFrames.length < firstLength);
+    SensorReadingMessage nextDecoded =
+            (SensorReadingMessage) this.receiver.read(new ByteArrayInputStream(nextFrames));
+    assertTrue(Double.isNaN(nextDecoded.getValue()));
+    assertEquals("temperature", nextDecoded.getType());
+  }
+
+  @Test
+  public void roundTripsABatchWithDecreasingSequences() throws IOException {
+    SensorReadingBatch batch = new SensorReadingBatch("ReadingBatch", 4, Long.MAX_VALUE,
+            Long.MIN_VALUE, 123, new int[] {1, 2, 3}, new long[] {100, 5, -7},
+            new String[] {"temperature", "humidity", "temperature"},
+            new double[] {-1.25, 80, Double.POSITIVE_INFINITY},
+            new String[] {"°C", "%", null});
+    SensorReadingBatch decoded = roundTrip(batch);
+    assertEquals(4, decoded.getNodeId());
+    assertEquals(Long.MAX_VALUE, decoded.getSequence());
+    assertEquals(Long.MIN_VALUE, decoded.getTime());
+    assertEquals(123, decoded.getMonotonicTime());
+    assertEquals(3, decoded.size());
+    for (int i = 0; i < batch.size(); i++) {
+      assertEquals(batch.getSensorId(i), decoded.getSensorId(i));
+      assertEquals(batch.getSensorSequence(i), decoded.getSensorSequence(i));
+      assertEquals(batch.getType(i), decoded.getType(i));
+      assertEquals(batch.getUnit(i), decoded.getUnit(i));
+      assertEquals(batch.getValue(i), decoded.getValue(i), 0.0);
+    }
+  }
+
+  @Test
+  public void roundTripsASnapshot() throws IOException {
+    Snapshot snapshot = new Snapshot("Snapshot", 2, new int[] {5, 6},
+            new String[] {"temperature", "humidity"}, new String[] {"°C", "%"},
+            new double[] {19.5, 60}, new int[] {8, 9}, new String[] {"fan", "heater"},
+            new boolean[] {true, false});
+    Snapshot decoded = roundTrip(snapshot);
+    assertEquals(2, decoded.getSensorCount());
+    assertEquals(6, decoded.getSensorId(1));
+    assertEquals("humidity", decoded.getSensorType(1));
+    assertEquals("%", decoded.getUnit(1));
+    assertEquals(19.5, decoded.getValue(0), 0.0);
+    assertEquals(2, decoded.getActuatorCount());
+    assertEquals("heater", decoded.getActuatorType(1));
+    assertTrue(decoded.getState(0));
+    assertFalse(decoded.getState(1));
+  }
+
+  @Test
+  public void roundTripsHistory() throws IOException {
+    HistoryQuery query = new HistoryQuery("HistoryQuery", 77, 1, 2, -1000, 1_700_000_000_000L,
+            "1h", 500);
+    HistoryQuery decodedQuery = roundTrip(query);
+    assertEquals(77, decodedQuery.getRequestId());
+    assertEquals(2, decodedQuery.getSensorId());
+    assertEquals(-1000, decodedQuery.getFrom());
+    assertEquals(1_700_000_000_000L, decodedQuery.getTo());
+    assertEquals("1h", decodedQuery.getResolution());
+    assertEquals(500, decodedQuery.getPoints());
+
+    long[] times = {1_700_000_000_000L, 1_700_003_600_000L, 1_699_999_000_000L};
+    HistoryChunk chunk = new HistoryChunk("HistoryChunk", 77, 1, 2, "1h", true, times,
+            new double[] {1, 2, 3}, new double[] {4, 5, 6}, new double[] {2.5, 3.5, 4.5},
+            new long[] {10, 0, 1});
+    HistoryChunk decodedChunk = roundTrip(chunk);
+    assertTrue(decodedChunk.isLast());
+    assertNull(decodedChunk.getReason());
+    assertFalse(decodedChunk.isRaw());
+    for (int i = 0; i < times.length; i++) {
+      assertEquals(times[i], decodedChunk.getTime(i));
+      assertEquals(chunk.getMinimum(i), decodedChunk.getMinimum(i), 0.0);
+      assertEquals(chunk.getMaximum(i), decodedChunk.getMaximum(i), 0.0);
+      assertEquals(chunk.getAverage(i), decodedChunk.getAverage(i), 0.0);
+      assertEquals(chunk.getCount(i), decodedChunk.getCount(i));
+    }
+
+    HistoryChunk raw = new HistoryChunk("HistoryChunk", 78, 1, 2, HistoryQuery.RAW, false,
+            new long[] {5, 6}, new double[] {1, 2}, new double[] {1, 2}, new double[] {1, 2},
+            new long[] {1, 1});
+    HistoryChunk decodedRaw = roundTrip(raw);
+    assertTrue(decodedRaw.isRaw());
+    assertEquals(6, decodedRaw.getTime(1));
+    assertEquals(2, decodedRaw.getAverage(1), 0.0);
+    assertEquals(1, decodedRaw.getCount(1));
+
+    HistoryChunk failed = roundTrip(new HistoryChunk("HistoryChunk", 79, 1, 2, HistoryQuery.RAW,
+            true, HistoryChunk.FAILED, new long[0], new double[0], new double[0], new double[0],
+            new long[0]));
+    assertTrue(failed.isLast());
+    assertEquals(HistoryChunk.FAILED, failed.getReason());
+    assertEquals(0, failed.size());
+  }
+
+  @Test
+  public void roundTripsCommandsAndTheirAnswers() throws IOException {
+    ActuatorCommand single = roundTrip(
+            new ActuatorCommand("ActuatorCommand", 9, 3, 12, "On"));
+    assertEquals(9, single.getRequestId());
+    assertEquals(3, single.getNodeId());
+    assertEquals(12, single.getActuatorId());
+    assertNull(single.getActuatorType());
+    assertEquals("On", single.getAction());
+
+    ActuatorCommand group = roundTrip(new ActuatorCommand("ActuatorCommand", 10,
+            ActuatorCommand.ANY_NODE, "fan", "Off"));
+    assertTrue(group.isGroupCommand());
+    assertEquals("fan", group.getActuatorType());
+    assertEquals(ActuatorCommand.ANY_NODE, group.getNodeId());
+
+    NodeCommand node = roundTrip(new NodeCommand("NodeCommand", 11, 3, "Off"));
+    assertEquals(11, node.getRequestId());
+    assertEquals("Off", node.getAction());
+
+    CommandAck ack = roundTrip(CommandAck.ack(9, 3, 1));
+    assertTrue(ack.isAck());
+    assertEquals(9, ack.getRequestId());
+    assertEquals(1, ack.getCount());
+    assertNull(ack.getReason());
+
+    CommandAck nack = roundTrip(CommandAck.nack(10, 0, 2, CommandAck.DISCONNECTED));
+    assertFalse(nack.isAck());
+    assertEquals(2, nack.getCount());
+    assertEquals(CommandAck.DISCONNECTED, nack.getReason());
+  }
+
+  @Test
+  public void roundTripsIdentifiersAndSubscriptions() throws IOException {
+    assertEquals(-1, roundTrip(new NodeIdentifier("Identifier", -1)).getNodeId());
+
+    SensorIdentifier sensor = roundTrip(new SensorIdentifier("Identifier", 1, "humidity", 4,
+            "%"));
+    assertEquals(4, sensor.getSensorId());
+    assertEquals("humidity", sensor.getType());
+    assertEquals("%", sensor.getUnit());
+
+    ActuatorIdentifier actuator = roundTrip(new ActuatorIdentifier("Identifier", 1, "window",
+            Integer.MAX_VALUE, true));
+    assertEquals(Integer.MAX_VALUE, actuator.getActuatorId());
+    assertTrue(actuator.getState());
+
+    Subscription subscription = roundTrip(new Subscription("Unsubscribe", 1, "temperature"));
+    assertFalse(subscription.isSubscribe());
+    assertEquals("temperature", subscription.getSensorType());
+  }
+
+  @Test
+  public void readsSeveralMessagesFromOneStream() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    for (int i = 0; i < 3; i++) {
+      this.sender.write(new SensorReadingMessage("Reading", 1, 2, "temperature", i, "°C"), out);
+    }
+    ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray());
+    for (int i = 0; i < 3; i++) {
+      assertEquals(i, ((SensorReadingMessage) this.receiver.read(in)).getValue(), 0.0);
+    }
+    try {
+      this.receiver.read(in);
+      fail("Expected the end of the stream");
+    } catch (EOFException e) {
+      // Expected.
+    }
+  }
+
+  @Test
+  public void leavesAnIncompleteLengthPrefixUnread() {
+    ByteBuffer in = ByteBuffer.wrap(new byte[] {(byte) 0x80});
+    assertEquals(-1, BinaryCodec.readFrameLength(in));
+    assertEquals(0, in.position());
+    assertEquals(300, BinaryCodec.readFrameLength(ByteBuffer.wrap(new byte[] {(byte) 0xac, 2})));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsAFrameLongerThanTheMaximum() {
+    int length = BinaryCodec.MAX_FRAME_LENGTH + 1;
+    BinaryCodec.readFrameLength(ByteBuffer.wrap(new byte[] {
+        (byte) ((length & 0x7f) | 0x80), (byte) (length >>> 7)}));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsAnEmptyFrame() throws IOException {
+    this.receiver.read(new ByteArrayInputStream(new byte[] {0}));
+  }
+
+  @Test(expected = EOFException.class)
+  public void rejectsAFrameCutOffByTheEndOfTheStream() throws IOException {
+    byte[] frames = encode(new NodeIdentifier("Identifier", 5));
+    this.receiver.read(new ByteArrayInputStream(Arrays.copyOf(frames, frames.length - 1)));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsATruncatedBody() {
+    // A reading with only its node ID.
+    decode(1, 2);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsAStringLongerThanTheFrame() {
+    // A subscription whose sensor type claims 10 bytes but has 2.
+    decode(11, 2, 10, 'a', 'b');
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsAnUnknownTag() {
+    decode(99);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsAReadingFromAnUnknownSensor() throws IOException {
+    encode(new SensorReadingMessage("Reading", 1, 2, "temperature", 1.0, "°C"));
+    // The schema frame went to the first frames only, so this codec never saw it.
+    this.receiver.read(new ByteArrayInputStream(
+            encode(new SensorReadingMessage("Reading", 1, 2, "temperature", 2.0, "°C"))));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsACommandWithoutAnAction() {
+    // A node command to node 1 with an empty action and request ID 0.
+    decode(6, 2, 0, 0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsAVarintThatNeverEnds() {
+    decode(3, 0xff, 0xff, 0xff, 0xff, 0xff, 0xff);
+  }
+
+  @Test
+  public void decodesASchemaFrameAsNoMessage() {
+    // The schema of sensor 3 on node 1: type "x", no unit.
+    assertNull(decode(2, 2, 3, 1, 'x', 0));
+  }
+}
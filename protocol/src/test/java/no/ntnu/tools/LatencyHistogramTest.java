@@ -0,0 +1,134 @@
+package no.ntnu.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.Test;
+
+/**
+ * Tests for {@link LatencyHistogram}.
+ */
+public class LatencyHistogramTest {
+  /**
+   * The highest latency the last bucket holds, 2^41 - 1 ms.
+   */
+  private static final long LAST_UPPER_BOUND = (2L << 40) - 1;
+
+  private static long maxOf(long latency) {
+    LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(latency);
+    return histogram.getMax();
+  }
+
+  @Test
+  public void givesSmallLatenciesABucketEach() {
+    for (long latency = 0; latency < 32; latency++) {
+      assertEquals(latency, maxOf(latency));
+    }
+  }
+
+  @Test
+  public void splitsTheFirstPowerOfTwoIntoBucketsOfTwo() {
+    assertEquals(31, maxOf(31));
+    assertEquals(33, maxOf(32));
+    assertEquals(33, maxOf(33));
+    assertEquals(35, maxOf(34));
+    assertEquals(63, maxOf(63));
+    assertEquals(67, maxOf(64));
+  }
+
+  @Test
+  public void recordsNegativeLatenciesAsZero() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(-5);
+    histogram.record(Long.MIN_VALUE, 2);
+    assertEquals(3, histogram.getCount());
+    assertEquals(0, histogram.getMax());
+    assertEquals(0, histogram.getPercentile(100));
+  }
+
+  @Test
+  public void clampsHugeLatenciesToTheLastBucket() {
+    assertEquals((17L << 36) - 1, maxOf(1L << 40));
+    assertEquals(LAST_UPPER_BOUND, maxOf(LAST_UPPER_BOUND));
+    assertEquals(LAST_UPPER_BOUND, maxOf(LAST_UPPER_BOUND + 1));
+    assertEquals(LAST_UPPER_BOUND, maxOf(1L << 41));
+    assertEquals(LAST_UPPER_BOUND, maxOf(Long.MAX_VALUE));
+  }
+
+  @Test
+  public void keepsPercentilesWithinTheErrorBound() {
+    Random random = new Random(17);
+    for (int i = 0; i < 100_000; i++) {
+      long latency = random.nextLong() >>> (23 + random.nextInt(41));
+      long percentile = maxOf(latency);
+      assertTrue(latency + " gave " + percentile, percentile >= latency);
+      assertTrue(latency + " gave " + percentile, percentile <= latency + latency / 16);
+    }
+  }
+
+  @Test
+  public void findsPercentilesByRank() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    assertEquals(0, histogram.getPercentile(50));
+    for (long latency = 1; latency <= 20; latency++) {
+      histogram.record(latency);
+    }
+    histogram.record(1000, 80);
+    assertEquals(100, histogram.getCount());
+    assertEquals(10, histogram.getPercentile(10));
+    assertEquals(20, histogram.getPercentile(20));
+    assertEquals(1023, histogram.getPercentile(21));
+    assertEquals(1023, histogram.getMax());
+    assertEquals(1, histogram.getPercentile(0));
+  }
+
+  @Test
+  public void takesSnapshotsWithoutLosingConcurrentLatencies() throws InterruptedException {
+    int threadCount = 4;
+    int perThread = 200_000;
+    LatencyHistogram histogram = new LatencyHistogram();
+    LatencyHistogram taken = new LatencyHistogram();
+    CountDownLatch start = new CountDownLatch(1);
+    AtomicBoolean failed = new AtomicBoolean();
+    Thread[] threads = new Thread[threadCount];
+    for (int t = 0; t < threadCount; t++) {
+      long latency = 10L << (t * 4);
+      threads[t] = new Thread(() -> {
+        try {
+          start.await();
+          for (int i = 0; i < perThread; i++) {
+            histogram.record(latency);
+          }
+        } catch (InterruptedException e) {
+          failed.set(true);
+        }
+      });
+      threads[t].start();
+    }
+    start.countDown();
+    boolean recording = true;
+    while (recording) {
+      taken.add(histogram.takeSnapshot());
+      recording = false;
+      for (Thread thread : threads) {
+        recording |= thread.isAlive();
+      }
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    taken.add(histogram.takeSnapshot());
+    assertFalse(failed.get());
+    assertEquals(0, histogram.getCount());
+    assertEquals((long) threadCount * perThread, taken.getCount());
+    for (int t = 0; t < threadCount; t++) {
+      // Every thread recorded a quarter of the latencies, each in a bucket of its own.
+      assertEquals(maxOf(10L << (t * 4)), taken.getPercentile(25.0 * (t + 1)));
+    }
+  }
+}
@@ -0,0 +1,330 @@
+package no.ntnu.tools;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import no.ntnu.commands.ActuatorAddedInGui;
+import no.ntnu.commands.ActuatorCommand;
+import no.ntnu.commands.ActuatorIdentifier;
+import no.ntnu.commands.CommandAck;
+import no.ntnu.commands.Data;
+import no.ntnu.commands.HistoryChunk;
+import no.ntnu.commands.HistoryQuery;
+import no.ntnu.commands.NodeAddedInGui;
+import no.ntnu.commands.NodeCommand;
+import no.ntnu.commands.NodeIdentifier;
+import no.ntnu.commands.SensorAddedInGui;
+import no.ntnu.commands.SensorIdentifier;
+import no.ntnu.commands.SensorReadingBatch;
+import no.ntnu.commands.SensorReadingMessage;
+import no.ntnu.commands.Snapshot;
+import no.ntnu.commands.Subscription;
+import no.ntnu.tools.MessageFields.Field;
+import org.junit.Test;
+
+/**
+ * Tests for {@link MessageFields}, comparing it with the parser it replaced, which split the
+ * message into a map.
+ */
+public class MessageFieldsTest {
+  /**
+   * One message of every type, as sent on the wire.
+   */
+  private static final String[] MESSAGES = {
+      "Data=Reading;Node=3;Sensor=1;Type=temperature;Value=26.8;Unit=°C",
+      "Data=Reading;Node=3;Sensor=1;Type=temperature;Value=-0.5;Unit=°C;SensorSeq=40;"
+          + "Time=1792336113175;Mono=4467648863027",
+      "Data=ReadingBatch;Node=3;Seq=1792336113175017;Time=1792336113175;Mono=4467648863027;"
+          + "Sensor=1,2;SensorSeq=40,41;Type=temperature,humidity;Value=26.8,80.1;Unit=°C,%",
+      "Data=Snapshot;Node=3;Sensor=1,2;Type=temperature,humidity;Unit=°C,%;Value=26.8,NaN;"
+          + "Actuator=4;ActuatorType=fan;State=false",
+      "Data=HistoryQuery;Request=7;Node=3;Sensor=1;From=1792330000000;To=1792333600000;"
+          + "Resolution=auto;Points=60",
+      "Data=HistoryChunk;Request=7;Node=3;Sensor=1;Resolution=1m;Last=false;"
+          + "Time=1792330020000,1792330080000;Min=26.1,26.2;Max=26.9,27.0;Value=26.5,26.6;"
+          + "Count=12,12",
+      "Data=HistoryChunk;Request=7;Node=3;Sensor=1;Resolution=raw;Last=true;Reason=failed",
+      "Data=ActuatorCommand;Node=3;Actuator=2;Action=On;Request=17",
+      "Data=ActuatorCommand;Node=0;ActuatorType=window;Action=Off",
+      "Data=NodeCommand;Node=3;Action=Off",
+      "Data=CommandAck;Request=17;Node=3;Count=1",
+      "Data=CommandNack;Request=18;Node=3;Count=0;Reason=unknown-actuator",
+      "Data=Identifier;Node=-1",
+      "Data=Identifier;Node=3;Codec=binary",
+      "Data=Identifier;Node=3;Sensor=1;Type=temperature",
+      "Data=Identifier;Node=3;Actuator=2;Type=fan;State=true",
+      "Data=ActuatorAddedInGui;Node=3;ActuatorType=heater",
+      "Data=SensorAddedInGui;Node=3;SensorType=humidity",
+      "Data=NodeAddedInGui;Node=12",
+      "Data=Subscribe;Node=7;Type=temperature",
+      "Data=Unsubscribe;Node=0;Type=*",
+  };
+
+  /**
+   * The parser {@link MessageFields} replaced: the message split on semicolons, and each part
+   * split on the equals sign.
+   */
+  private static Map<String, String> splitFields(String rawMessage) {
+    Map<String, String> fields = new HashMap<>();
+    String[] parts = rawMessage.split(";");
+    for (String part : parts) {
+      String[] keyValue = part.split("=");
+      if (keyValue.length == 2) {
+        fields.put(keyValue[0], keyValue[1]);
+      } else {
+        throw new IllegalArgumentException("Invalid key-value pair: " + part);
+      }
+    }
+    if (fields.isEmpty()) {
+      throw new IllegalArgumentException("Could not parse fields.");
+    }
+    return fields;
+  }
+
+  private static MessageFields parse(String message) {
+    MessageFields fields = new MessageFields();
+    fields.parse(message);
+    return fields;
+  }
+
+  /**
+   * Check that every known field has the same value as with the split parser, and that
+   * numbers parse to the same value.
+   */
+  private static void assertSameAsSplit(String message) {
+    Map<String, String> expected = splitFields(message);
+    MessageFields fields = parse(message);
+    for (Field field : Field.values()) {
+      String value = expected.get(field.getKey());
+      assertEquals(message + " " + field, value != null, fields.has(field));
+      assertEquals(message + " " + field, value, fields.getString(field));
+      assertEquals(Boolean.parseBoolean(value), fields.getBoolean(field));
+      if (value == null) {
+        continue;
+      }
+      assertTrue(fields.is(field, value));
+      assertSameNumber(value, () -> Long.parseLong(value), () -> fields.getLong(field));
+      assertSameNumber(value, () -> Integer.parseInt(value), () -> fields.getInt(field));
+      assertSameNumber(value, () -> Double.doubleToLongBits(Double.parseDouble(value)),
+          () -> Double.doubleToLongBits(fields.getDouble(field)));
+    }
+  }
+
+  private interface NumberParser {
+    Object parse();
+  }
+
+  /**
+   * Check that two parsers both give the same number, or both reject the value.
+   */
+  private static void assertSameNumber(String value, NumberParser expected,
+                                       NumberParser actual) {
+    Object expectedNumber;
+    try {
+      expectedNumber = expected.parse();
+    } catch (NumberFormatException e) {
+      try {
+        actual.parse();
+      } catch (NumberFormatException expectedException) {
+        return;
+      }
+      throw new AssertionError("Expected " + value + " to be rejected");
+    }
+    assertEquals(value, expectedNumber, actual.parse());
+  }
+
+  private static void assertBothReject(String message) {
+    try {
+      splitFields(message);
+      fail("The split parser accepted " + message);
+    } catch (IllegalArgumentException e) {
+      // Expected.
+    }
+    try {
+      parse(message);
+      fail("Accepted " + message);
+    } catch (IllegalArgumentException e) {
+      // Expected.
+    }
+  }
+
+  @Test
+  public void findsTheSameFieldsAsTheSplitParser() {
+    for (String message : MESSAGES) {
+      assertSameAsSplit(message);
+    }
+  }
+
+  @Test
+  public void ignoresATrailingSemicolon() {
+    for (String message : MESSAGES) {
+      assertSameAsSplit(message + ";");
+    }
+  }
+
+  @Test
+  public void keepsTheLastOfRepeatedFields() {
+    assertSameAsSplit("Data=Reading;Node=1;Node=2;Sensor=3;Value=1.5;Value=2.5");
+    assertEquals(2, parse("Data=Reading;Node=1;Node=2").getInt(Field.NODE));
+  }
+
+  @Test
+  public void ignoresUnknownFields() {
+    assertSameAsSplit("Data=Identifier;Colour=blue;Node=4");
+  }
+
+  @Test
+  public void reportsMissingFields() {
+    MessageFields fields = parse("Data=Reading;Node=3");
+    assertFalse(fields.has(Field.SENSOR));
+    assertNull(fields.getString(Field.UNIT));
+    assertEquals("°C", fields.getString(Field.UNIT, "°C"));
+    assertFalse(fields.is(Field.TYPE, ""));
+    assertFalse(fields.getBoolean(Field.STATE));
+    assertEquals(0, fields.getListSize(Field.TIME));
+    assertSameNumber("missing", () -> Integer.parseInt(null), () -> fields.getInt(Field.SENSOR));
+    assertSameNumber("missing", () -> Long.parseLong(null), () -> fields.getLong(Field.TIME));
+    try {
+      fields.getDouble(Field.VALUE);
+      fail("Expected a missing value to be rejected");
+    } catch (NumberFormatException e) {
+      // Expected, where the split parser threw a NullPointerException.
+    }
+  }
+
+  @Test
+  public void rejectsWhatTheSplitParserRejects() {
+    assertBothReject("");
+    assertBothReject(";");
+    assertBothReject("Data=Reading;;Node=3");
+    assertBothReject("Data=Reading;Node=3=4");
+    assertBothReject("Data=Reading;Node==3");
+    assertBothReject("Data=Reading;Unit=");
+    assertBothReject("Data=Reading;Node");
+    assertBothReject("Data");
+  }
+
+  @Test
+  public void parsesIntegersLikeTheJdk() {
+    String[] values = {"0", "-0", "+7", "007", "-1", "2147483647", "-2147483648", "2147483648",
+        "-2147483649", "9223372036854775807", "-9223372036854775808", "9223372036854775808",
+        "-9223372036854775809", "99999999999999999999", "-", "+", "1.5", "1e3", "0x10", " 1",
+        "1 "};
+    for (String value : values) {
+      assertSameAsSplit("Data=Reading;Node=" + value);
+    }
+  }
+
+  @Test
+  public void parsesDoublesLikeTheJdk() {
+    String[] values = {"0", "-0", "-0.0", "0.0", "26.8", "-26.8", "+26.8", ".5", "-.5", "5.",
+        "1e3", "1E3", "-2.5e-4", "2.5E+10", "1e400", "-1e400", "4.9e-324", "1e-400",
+        "NaN", "Infinity", "-Infinity", "1.7976931348623157E308", "0.1", "0.30000000000000004",
+        "123456789012345", "1234567890123456789", "0.000000000000000000001",
+        "0.0000000000000000000001", "9007199254740993", "1.5d", "1.5f", "0x1p3", " 1.5",
+        "1..5", "1.5.", "-", ".", "e3", "abc"};
+    for (String value : values) {
+      assertSameAsSplit("Data=Reading;Value=" + value);
+    }
+  }
+
+  @Test
+  public void parsesRandomDoublesLikeTheJdk() {
+    Random random = new Random(42);
+    for (int i = 0; i < 10_000; i++) {
+      double value = switch (i % 3) {
+        case 0 -> Double.longBitsToDouble(random.nextLong());
+        case 1 -> Math.round(random.nextGaussian() * 1e6) / 100.0;
+        default -> (random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(40) - 20);
+      };
+      assertSameAsSplit("Data=Reading;Value=" + value);
+    }
+  }
+
+  @Test
+  public void parsesLists() {
+    MessageFields fields = parse("Data=ReadingBatch;Sensor=1,-2,3;Value=1.5,-1e3,NaN;"
+            + "Type=a,,c;Time=9223372036854775807,-9223372036854775808");
+    assertEquals(3, fields.getListSize(Field.SENSOR));
+    int[] sensors = new int[3];
+    fields.getIntList(Field.SENSOR, sensors);
+    assertArrayEquals(new int[] {1, -2, 3}, sensors);
+    double[] values = new double[3];
+    fields.getDoubleList(Field.VALUE, values);
+    assertArrayEquals(new double[] {1.5, -1000, Double.NaN}, values, 0.0);
+    String[] types = new String[3];
+    fields.getStringList(Field.TYPE, types);
+    assertArrayEquals(new String[] {"a", "", "c"}, types);
+    long[] times = new long[2];
+    fields.getLongList(Field.TIME, times);
+    assertArrayEquals(new long[] {Long.MAX_VALUE, Long.MIN_VALUE}, times);
+  }
+
+  @Test(expected = NumberFormatException.class)
+  public void rejectsAListShorterThanExpected() {
+    parse("Data=ReadingBatch;Sensor=1,2").getIntList(Field.SENSOR, new int[3]);
+  }
+
+  @Test(expected = NumberFormatException.class)
+  public void rejectsAnEmptyListItem() {
+    parse("Data=ReadingBatch;Sensor=1,,3").getIntList(Field.SENSOR, new int[3]);
+  }
+
+  @Test
+  public void reusesOneInstanceForManyMessages() {
+    MessageFields fields = new MessageFields();
+    fields.parse("Data=Reading;Node=3;Sensor=1;Unit=°C");
+    fields.parse("Data=Identifier;Node=4");
+    assertEquals(4, fields.getInt(Field.NODE));
+    assertFalse(fields.has(Field.SENSOR));
+    assertFalse(fields.has(Field.UNIT));
+    assertEquals("Data=Identifier;Node=4", fields.getMessage());
+  }
+
+  @Test
+  public void readsEveryMessageTypeThroughTheHandler() {
+    Data[] messages = {
+        new SensorReadingMessage("Reading", 3, 1, "temperature", -26.5, "°C", 40,
+            1_792_336_113_175L, 4_467_648_863_027L),
+        new SensorReadingBatch("ReadingBatch", 3, 17, 1_792_336_113_175L, 5, new int[] {1, 2},
+            new long[] {40, 41}, new String[] {"temperature", "humidity"},
+            new double[] {26.8, -1e-7}, new String[] {"°C", "%"}),
+        new Snapshot("Snapshot", 3, new int[] {1}, new String[] {"temperature"},
+            new String[] {"°C"}, new double[] {26.8}, new int[] {4}, new String[] {"fan"},
+            new boolean[] {true}),
+        new HistoryQuery("HistoryQuery", 7, 3, 1, 1_792_330_000_000L, 1_792_333_600_000L,
+            "1h", 60),
+        new HistoryChunk("HistoryChunk", 7, 3, 1, "1m", true, HistoryChunk.TRUNCATED,
+            new long[] {1_792_330_020_000L}, new double[] {26.1}, new double[] {26.9},
+            new double[] {26.5}, new long[] {12}),
+        new ActuatorCommand("ActuatorCommand", 17, 3, 2, "On"),
+        new ActuatorCommand("ActuatorCommand", 0, "window", "Off"),
+        new NodeCommand("NodeCommand", 3, "Off"),
+        CommandAck.ack(17, 3, 1),
+        CommandAck.nack(18, 3, 0, CommandAck.UNKNOWN_ACTUATOR),
+        new NodeIdentifier("Identifier", -1),
+        new SensorIdentifier("Identifier", 3, "temperature", 1, "°C"),
+        new ActuatorIdentifier("Identifier", 3, "fan", 2, true),
+        new ActuatorAddedInGui("ActuatorAddedInGui", 3, "heater"),
+        new SensorAddedInGui("SensorAddedInGui", 3, "humidity"),
+        new NodeAddedInGui("NodeAddedInGui", 12),
+        new Subscription("Subscribe", 7, "temperature"),
+    };
+    for (Data message : messages) {
+      String line = MessageHandler.serialize(message);
+      assertSameAsSplit(line);
+      Data decoded = MessageHandler.getData(line);
+      assertEquals(line, message.getClass(), decoded.getClass());
+      assertEquals(line, message.getData(), decoded.getData());
+      assertEquals(line, message.getNodeId(), decoded.getNodeId());
+      assertEquals(line, MessageHandler.serialize(decoded));
+    }
+  }
+}
@@ -0,0 +1,31 @@
+package no.ntnu.run;
+
+import no.ntnu.node.SamplingScheduler;
+import no.ntnu.server.Server;
+import no.ntnu.server.ServerConfig;
+import no.ntnu.tools.MessageChannel;
+import no.ntnu.tools.Threads;
+
+/**
+ * Main class for starting the greenhouse server.
+ */
+public class RunServer {
+
+  /**
+   * Main method for starting the greenhouse server.
+   *
+   * @param args Command line arguments, see {@link ServerConfig#fromArgs(String[])}.
+   */
+  public static void main(String[] args) {
+    System.out.println("Starting the greenhouse server.");
+    ServerConfig config = ServerConfig.fromArgs(args);
+    if (config.isVirtualThreads()) {
+      Threads.useVirtualThreads(config.getCarrierThreadCount());
+    }
+    MessageChannel.setPreferredFormat(config.getClientFormat());
+    SamplingScheduler.setThreadCount(config.getSamplingThreadCount());
+    Server server = new Server(config);
+    server.closeOnExit();
+    server.run();
+  }
+}
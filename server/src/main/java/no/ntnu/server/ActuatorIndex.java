@@ -0,0 +1,86 @@
+package no.ntnu.server;
+
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import no.ntnu.commands.ActuatorCommand;
+import no.ntnu.commands.ActuatorIdentifier;
+
+/**
+ * An index of which connected nodes have actuators of which type, kept up to date from the
+ * actuator identifiers the nodes send. A group command is resolved to the nodes it concerns by
+ * one lookup, so each of them can be sent a single command however many actuators it has.
+ *
+ * <p>The index only knows which nodes have an actuator of a type, not which actuators; a node
+ * applies a group command to its own actuators. Types are kept in lower case.
+ */
+public class ActuatorIndex {
+  private final Map<String, Set<Integer>> nodesByType;
+  private final Map<Integer, Set<String>> typesByNode;
+
+  /**
+   * Constructor for the class.
+   */
+  public ActuatorIndex() {
+    this.nodesByType = new ConcurrentHashMap<>();
+    this.typesByNode = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * Add the actuator an identifier describes. Identifiers without a type, as some answers to
+   * actuator commands are, are ignored.
+   *
+   * @param identifier The actuator identifier sent by a node.
+   */
+  public void add(ActuatorIdentifier identifier) {
+    String type = identifier.getType();
+    if (type == null || type.equals("null")) {
+      return;
+    }
+    String key = type.toLowerCase(Locale.ROOT);
+    this.nodesByType.computeIfAbsent(key, t -> ConcurrentHashMap.newKeySet())
+            .add(identifier.getNodeId());
+    this.typesByNode.computeIfAbsent(identifier.getNodeId(), n -> ConcurrentHashMap.newKeySet())
+            .add(key);
+  }
+
+  /**
+   * Remove all actuators of a node, for example when it disconnects.
+   *
+   * @param nodeId The ID of the node.
+   */
+  public void removeNode(int nodeId) {
+    Set<String> types = this.typesByNode.remove(nodeId);
+    if (types != null) {
+      for (String type : types) {
+        Set<Integer> nodes = this.nodesByType.get(type);
+        if (nodes != null) {
+          nodes.remove(nodeId);
+        }
+      }
+    }
+  }
+
+  /**
+   * Return the nodes a group command concerns: those with an actuator of its type, limited to
+   * the node it names unless it names {@link ActuatorCommand#ANY_NODE}.
+   *
+   * @param command The group command.
+   * @return The IDs of the nodes, each at most once.
+   */
+  public Set<Integer> getNodes(ActuatorCommand command) {
+    Set<Integer> nodes = ActuatorCommand.ANY_TYPE.equals(command.getActuatorType())
+            ? this.typesByNode.keySet()
+            : this.nodesByType.get(command.getActuatorType().toLowerCase(Locale.ROOT));
+    if (nodes == null) {
+      return Collections.emptySet();
+    }
+    int nodeId = command.getNodeId();
+    if (nodeId == ActuatorCommand.ANY_NODE) {
+      return nodes;
+    }
+    return nodes.contains(nodeId) ? Set.of(nodeId) : Collections.emptySet();
+  }
+}
@@ -0,0 +1,241 @@
+package no.ntnu.server;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import no.ntnu.commands.*;
+import no.ntnu.tools.BinaryCodec;
+import no.ntnu.tools.MessageHandler;
+import no.ntnu.tools.WireFormat;
+
+/**
+ * A connection from a client (sensor/actuator node or control panel) to the server.
+ * Holds the routing logic shared by the blocking and the selector-based server modes.
+ * Messages to the client are put in a bounded {@link OutboundQueue}, which is drained by the
+ * writer of the connection, so a slow client never stalls the thread sending to it.
+ *
+ * <p>A connection starts in the text format. If the first identifier from the client asks for
+ * the binary format with a {@code Codec} field, the server answers with an identifier naming the
+ * chosen format, and both directions switch to it right after that identifier.
+ */
+public abstract class ClientConnection {
+  private Server server;
+  private final OutboundQueue outboundQueue;
+
+  private boolean identified;
+  private volatile int nodeId;
+
+  private BinaryCodec codec;
+  private boolean binaryReads;
+  private boolean binaryWrites;
+
+  /**
+   * Constructor for the class.
+   *
+   * @param server The server of the application.
+   */
+  protected ClientConnection(Server server) {
+    this.server = server;
+    this.outboundQueue = new OutboundQueue(
+            server.getConfig().getQueueCapacity(), server.getConfig().getOverflowPolicy());
+    this.identified = false;
+  }
+
+  /**
+   * Decodes a raw line received from the client.
+   *
+   * @param rawMessage The raw line received from the client.
+   * @return The decoded message.
+   */
+  protected Data decode(String rawMessage) {
+    Data data = MessageHandler.getData(rawMessage);
+    if (data instanceof NodeIdentifier nodeIdentifier && nodeIdentifier.getCodec() != null) {
+      data = negotiateFormat(nodeIdentifier);
+    }
+    return identify(data);
+  }
+
+  /**
+   * Decodes a binary frame received from the client.
+   *
+   * @param frame The body of the frame.
+   * @return The decoded message, or null if the frame did not carry a message.
+   */
+  protected Data decodeFrame(ByteBuffer frame) {
+    Data data = this.codec.decode(frame);
+    return data == null ? null : identify(data);
+  }
+
+  /**
+   * Answers the format asked for by the client, and switches reading to that format.
+   * The answer is queued before the client is registered, so it is the first message the
+   * client receives, and everything written after it uses the new format.
+   *
+   * @return The identifier without the format, to be routed like any other identifier.
+   */
+  private Data negotiateFormat(NodeIdentifier nodeIdentifier) {
+    WireFormat format = WireFormat.fromName(nodeIdentifier.getCodec());
+    if (format == WireFormat.BINARY && this.codec == null) {
+      this.codec = new BinaryCodec();
+      this.binaryReads = true;
+    }
+    transmitToClient(new NodeIdentifier(
+            nodeIdentifier.getData(), nodeIdentifier.getNodeId(), format.getName()));
+    return new NodeIdentifier(nodeIdentifier.getData(), nodeIdentifier.getNodeId());
+  }
+
+  private Data identify(Data data) {
+    if (data instanceof NodeIdentifier) {
+      System.out.println("Received node identifier: " + data.getNodeId());
+      if (!this.identified || data.getNodeId() != this.nodeId) {
+        this.server.registerNodeId(this, this.nodeId, data.getNodeId());
+        this.identified = true;
+      }
+      this.nodeId = data.getNodeId();
+    }
+    return data;
+  }
+
+  /**
+   * Routes a message received from the client to the rest of the application.
+   *
+   * @param message The message received from the client.
+   * @return False if the client asked to close the connection, true otherwise.
+   */
+  protected boolean handleMessage(Data message) {
+    if (message instanceof NodeCommand nodeCommand && !(message instanceof ActuatorCommand)) {
+      if ("Off".equals(nodeCommand.getAction())) {
+        return false;
+      }
+    }
+    if (message instanceof SensorReadingMessage
+            || message instanceof SensorReadingBatch
+            || message instanceof SensorIdentifier
+            || message instanceof ActuatorIdentifier) {
+      this.server.broadcast(message);
+    } else if (message instanceof NodeCommand command) {
+      this.server.sendCommand(this, command);
+    } else if (message instanceof CommandAck ack) {
+      this.server.acknowledgeCommand(ack);
+    } else if (message instanceof ActuatorAddedInGui) {
+      this.server.sendToClient(message);
+    } else if (message instanceof SensorAddedInGui) {
+      this.server.sendToClient(message);
+    } else if (message instanceof Subscription subscription) {
+      this.server.updateSubscription(this, subscription);
+    } else if (message instanceof HistoryQuery query) {
+      this.server.queryHistory(this, query);
+    } else if (message instanceof NodeAddedInGui) {
+      this.server.addNode();
+    } else if (message instanceof NodeIdentifier && message.getNodeId() == -1) {
+      this.server.sendSnapshot(this);
+    } else if (message.getData().equals("Stop")) {
+      this.server.stop();
+    }
+    if (message instanceof NodeIdentifier && this.nodeId != -1) {
+      this.server.broadcast(message);
+    }
+    return true;
+  }
+
+  /**
+   * Transmits the message to the client.
+   * The message is queued and written later by the writer of the connection. If the queue
+   * overflows and the overflow policy is to disconnect, the client is disconnected.
+   *
+   * @param message The message to transmit.
+   */
+  public void transmitToClient(Data message) {
+    if (this.outboundQueue.offer(message)) {
+      onOutboundReady();
+    } else {
+      System.out.println("Outbound queue of client " + this.nodeId
+              + " overflowed, disconnecting it.");
+      disconnect();
+    }
+  }
+
+  /**
+   * Serializes a queued message and writes it to the client.
+   * Called by the writer of the connection.
+   *
+   * @param message The message to write.
+   */
+  protected void writeMessage(Data message) {
+    if (this.binaryWrites) {
+      writeBytes(this.codec.encode(message));
+      return;
+    }
+    writeLine(MessageHandler.serialize(message));
+    if (message instanceof NodeIdentifier nodeIdentifier
+            && WireFormat.fromName(nodeIdentifier.getCodec()) == WireFormat.BINARY) {
+      this.binaryWrites = true;
+    }
+  }
+
+  /**
+   * Signals the writer of the connection that the outbound queue has messages to write.
+   */
+  protected abstract void onOutboundReady();
+
+  /**
+   * Disconnects the client, for example when it cannot keep up with its outbound queue.
+   */
+  protected abstract void disconnect();
+
+  /**
+   * Writes a single line of the text protocol to the client.
+   *
+   * @param line The line to write, without the trailing line separator.
+   */
+  protected abstract void writeLine(String line);
+
+  /**
+   * Writes binary frames to the client.
+   *
+   * @param bytes The frames to write, between the position and the limit of the buffer.
+   */
+  protected abstract void writeBytes(ByteBuffer bytes);
+
+  /**
+   * Check whether the client has switched to sending binary frames.
+   *
+   * @return True if the next bytes from the client are binary frames, false if text lines.
+   */
+  protected boolean isBinaryReads() {
+    return this.binaryReads;
+  }
+
+  /**
+   * Close the connection to the client.
+   *
+   * @throws IOException If an I/O error occurs when closing the channel
+   */
+  public abstract void closeAll() throws IOException;
+
+  public void setServer(Server server) {
+    this.server = server;
+  }
+
+  /**
+   * Set the node ID of the client and update the routing of the server accordingly.
+   *
+   * @param nodeId The node ID of the client, or -1 for a control panel.
+   */
+  public void setNodeId(int nodeId) {
+    this.server.registerNodeId(this, this.nodeId, nodeId);
+    this.identified = true;
+    this.nodeId = nodeId;
+  }
+
+  public Server getServer() {
+    return this.server;
+  }
+
+  public int getNodeId() {
+    return this.nodeId;
+  }
+
+  public OutboundQueue getOutboundQueue() {
+    return this.outboundQueue;
+  }
+}
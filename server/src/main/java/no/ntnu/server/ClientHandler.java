@@ -0,0 +1,198 @@
+package no.ntnu.server;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import no.ntnu.commands.*;
+import no.ntnu.tools.BinaryCodec;
+import no.ntnu.tools.Threads;
+
+/**
+ * The client handler of the application.
+ * Serves one client with a dedicated thread doing blocking reads, and a dedicated writer
+ * thread draining the outbound queue of the client.
+ */
+public class ClientHandler extends ClientConnection implements Runnable {
+  private static final int MAX_LINE_LENGTH = 64 * 1024;
+
+  private Socket socket;
+
+  private InputStream input;
+  private OutputStream output;
+
+  private byte[] lineBuffer;
+  private final byte[] frameBuffer;
+
+  /**
+   * Constructor for the class.
+   *
+   * @param server The server of the application.
+   * @param socket The socket of the application.
+   * @throws IOException If an I/O error occurs.
+   */
+  public ClientHandler(Server server, Socket socket) throws IOException {
+    super(server);
+    this.socket = socket;
+    this.input = new BufferedInputStream(socket.getInputStream());
+    this.output = new BufferedOutputStream(socket.getOutputStream());
+    this.lineBuffer = new byte[256];
+    this.frameBuffer = new byte[BinaryCodec.MAX_FRAME_LENGTH];
+  }
+
+  /**
+   * Runs the client handler.
+   */
+  @Override
+  public void run() {
+    Threads.start("client-writer", this::writeQueuedMessages);
+    try {
+      boolean open = true;
+      while (open) {
+        open = handleMessage(receive());
+      }
+      this.socket.close();
+    } catch (IOException | RuntimeException e) {
+      System.out.println("Could not read the message.");
+      System.out.println(e.getMessage());
+      disconnect();
+    } finally {
+      getOutboundQueue().close();
+      getServer().removeClient(this);
+    }
+  }
+
+  /**
+   * Writes queued messages to the client until the outbound queue is closed.
+   * The output is flushed whenever the queue runs empty, instead of after every message.
+   */
+  private void writeQueuedMessages() {
+    try {
+      Data message = getOutboundQueue().take();
+      while (message != null) {
+        try {
+          writeMessage(message);
+        } catch (IllegalArgumentException e) {
+          System.out.println(e.getMessage());
+        }
+        message = getOutboundQueue().poll();
+        if (message == null) {
+          this.output.flush();
+          message = getOutboundQueue().take();
+        }
+      }
+    } catch (IOException e) {
+      disconnect();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Returns the message from the client as a command.
+   *
+   * @return The message from the client as a command.
+   * @throws IOException If an I/O error occurs.
+   */
+  public Data receive() throws IOException {
+    Data message = null;
+    while (message == null) {
+      if (isBinaryReads()) {
+        message = decodeFrame(readFrame());
+      } else {
+        message = decode(readLine());
+      }
+    }
+    return message;
+  }
+
+  private String readLine() throws IOException {
+    int length = 0;
+    int b = this.input.read();
+    while (b != '\n') {
+      if (b < 0) {
+        throw new IllegalArgumentException("Could not read the message.");
+      }
+      if (length == this.lineBuffer.length) {
+        if (length >= MAX_LINE_LENGTH) {
+          throw new IllegalArgumentException("Line too long from client " + getNodeId());
+        }
+        this.lineBuffer = Arrays.copyOf(this.lineBuffer, length * 2);
+      }
+      this.lineBuffer[length++] = (byte) b;
+      b = this.input.read();
+    }
+    if (length > 0 && this.lineBuffer[length - 1] == '\r') {
+      length--;
+    }
+    return new String(this.lineBuffer, 0, length, StandardCharsets.UTF_8);
+  }
+
+  private ByteBuffer readFrame() throws IOException {
+    int length = BinaryCodec.readFrameLength(this.input);
+    if (length < 0 || this.input.readNBytes(this.frameBuffer, 0, length) < length) {
+      throw new IllegalArgumentException("Could not read the message.");
+    }
+    return ByteBuffer.wrap(this.frameBuffer, 0, length);
+  }
+
+  @Override
+  protected void onOutboundReady() {
+    // The writer thread is woken up by the outbound queue itself.
+  }
+
+  @Override
+  protected void disconnect() {
+    getOutboundQueue().close();
+    try {
+      this.socket.close();
+    } catch (IOException e) {
+      System.out.println("Could not close the socket: " + e.getMessage());
+    }
+  }
+
+  @Override
+  protected void writeLine(String line) {
+    try {
+      this.output.write(line.getBytes(StandardCharsets.UTF_8));
+      this.output.write('\n');
+    } catch (IOException e) {
+      disconnect();
+    }
+  }
+
+  @Override
+  protected void writeBytes(ByteBuffer bytes) {
+    try {
+      this.output.write(bytes.array(), bytes.arrayOffset() + bytes.position(), bytes.remaining());
+    } catch (IOException e) {
+      disconnect();
+    }
+  }
+
+  /**
+   * Close the reader, writer, and socket.
+   *
+   * @throws IOException If an I/O error occurs when closing the channel
+   */
+  @Override
+  public void closeAll() throws IOException {
+    this.socket.close();
+    this.input.close();
+    this.output.close();
+  }
+
+  public void setSocket(Socket socket) {
+    this.socket = socket;
+  }
+
+  public Socket getSocket() {
+    return this.socket;
+  }
+}
@@ -0,0 +1,112 @@
+package no.ntnu.server;
+
+import java.io.IOException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * A selector-based event loop serving a share of the NIO client connections.
+ * All reads, writes and routing of a connection happen on the thread of its event loop.
+ */
+public class EventLoop implements Runnable {
+  private final Selector selector;
+  private final Queue<Runnable> tasks;
+  private volatile boolean running;
+
+  /**
+   * Constructor for the class.
+   *
+   * @throws IOException If the selector could not be opened.
+   */
+  public EventLoop() throws IOException {
+    this.selector = Selector.open();
+    this.tasks = new ConcurrentLinkedQueue<>();
+    this.running = true;
+  }
+
+  /**
+   * Runs the event loop until it is stopped.
+   */
+  @Override
+  public void run() {
+    while (this.running) {
+      try {
+        this.selector.select();
+        runTasks();
+        Iterator<SelectionKey> keys = this.selector.selectedKeys().iterator();
+        while (keys.hasNext()) {
+          SelectionKey key = keys.next();
+          keys.remove();
+          handleKey(key);
+        }
+      } catch (IOException e) {
+        System.out.println("Event loop failed: " + e.getMessage());
+      }
+    }
+    try {
+      this.selector.close();
+    } catch (IOException e) {
+      System.out.println("Could not close the selector: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Handles the events of one connection. A connection failing in an unexpected way is closed,
+   * so it cannot stop the loop serving the other connections.
+   */
+  private void handleKey(SelectionKey key) {
+    NioClientConnection connection = (NioClientConnection) key.attachment();
+    try {
+      if (!key.isValid()) {
+        connection.close();
+        return;
+      }
+      if (key.isReadable()) {
+        connection.onReadable();
+      }
+      if (key.isValid() && key.isWritable()) {
+        connection.onWritable();
+      }
+    } catch (RuntimeException e) {
+      System.out.println("Closing client " + connection.getNodeId() + " after an error: " + e);
+      connection.close();
+    }
+  }
+
+  private void runTasks() {
+    Runnable task = this.tasks.poll();
+    while (task != null) {
+      try {
+        task.run();
+      } catch (RuntimeException e) {
+        System.out.println("Event loop task failed: " + e);
+      }
+      task = this.tasks.poll();
+    }
+  }
+
+  /**
+   * Runs a task on the event loop thread.
+   *
+   * @param task The task to run.
+   */
+  public void execute(Runnable task) {
+    this.tasks.add(task);
+    this.selector.wakeup();
+  }
+
+  /**
+   * Stops the event loop and closes its selector.
+   */
+  public void stop() {
+    this.running = false;
+    this.selector.wakeup();
+  }
+
+  public Selector getSelector() {
+    return this.selector;
+  }
+}
@@ -0,0 +1,208 @@
+package no.ntnu.server;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import no.ntnu.commands.HistoryChunk;
+import no.ntnu.commands.HistoryQuery;
+import no.ntnu.storage.AggregateSeries;
+import no.ntnu.storage.Resolution;
+import no.ntnu.storage.TimeSeriesStore;
+
+/**
+ * Answers the history queries of control panels from the store of sensor readings.
+ * The range of a query is read one time slice at a time, and the points are sent in chunks of
+ * at most {@link HistoryChunk#MAX_SIZE} as soon as they are read, so neither the server nor
+ * the outbound queue of the panel ever holds the whole answer. Before each chunk the streamer
+ * waits until the panel has taken most of the earlier ones, since chunks are queued in the
+ * control lane, which is never dropped.
+ *
+ * <p>Queries are answered on a small pool of threads, so a long query does not hold up the
+ * reader of the connection it came from. Every answer ends with a chunk marked as the last,
+ * which is empty if there was nothing to send. If the query failed, or its range was too long
+ * and was shortened, the last chunk says so with its reason.
+ */
+public class HistoryStreamer {
+  /**
+   * The number of points of an automatic query that does not ask for a number.
+   */
+  public static final int DEFAULT_POINTS = 300;
+  /**
+   * The maximum number of buckets of a query at a rollup resolution. The oldest part of a
+   * longer range is left out.
+   */
+  public static final int MAX_BUCKETS = 20_000;
+  /**
+   * The maximum length of the range of a query for raw readings. The oldest part of a longer
+   * range is left out.
+   */
+  public static final long MAX_RAW_RANGE = 86_400_000L;
+
+  private static final long RAW_SLICE = 600_000L;
+  private static final int MAX_QUEUED_MESSAGES = 16;
+  private static final long QUEUE_POLL_MILLIS = 5;
+
+  private final TimeSeriesStore store;
+  private final ExecutorService executor;
+
+  /**
+   * Create a streamer reading from a store.
+   *
+   * @param store       The store of sensor readings, or null if readings are not stored.
+   * @param threadCount The number of queries answered at the same time.
+   */
+  public HistoryStreamer(TimeSeriesStore store, int threadCount) {
+    this.store = store;
+    AtomicInteger threadNumber = new AtomicInteger();
+    this.executor = Executors.newFixedThreadPool(threadCount, task -> {
+      Thread thread = new Thread(task, "history-query-" + threadNumber.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Answer a query in the background.
+   *
+   * @param client The control panel that sent the query.
+   * @param query  The query.
+   */
+  public void submit(ClientConnection client, HistoryQuery query) {
+    this.executor.execute(() -> {
+      try {
+        stream(client, query);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } catch (IOException | RuntimeException e) {
+        System.out.println("History query " + query.getRequestId() + " failed: "
+                + e.getMessage());
+        client.transmitToClient(new ChunkBuilder(query, HistoryQuery.RAW)
+                .build(true, HistoryChunk.FAILED));
+      }
+    });
+  }
+
+  /**
+   * Stop answering queries. Queries being answered are interrupted.
+   */
+  public void close() {
+    this.executor.shutdownNow();
+  }
+
+  private void stream(ClientConnection client, HistoryQuery query)
+          throws IOException, InterruptedException {
+    Resolution resolution = resolve(query);
+    ChunkBuilder chunk = new ChunkBuilder(query,
+            resolution == null ? HistoryQuery.RAW : resolution.getName());
+    boolean truncated = false;
+    if (this.store != null && query.getTo() > query.getFrom()) {
+      long to = query.getTo();
+      long earliest;
+      long slice;
+      if (resolution == null) {
+        earliest = to - MAX_RAW_RANGE;
+        slice = RAW_SLICE;
+      } else {
+        earliest = to - resolution.getDuration() * MAX_BUCKETS;
+        slice = resolution.getDuration() * HistoryChunk.MAX_SIZE;
+      }
+      truncated = query.getFrom() < earliest;
+      long from = Math.max(query.getFrom(), earliest);
+      if (resolution != null) {
+        from = resolution.bucketStart(from);
+      }
+      for (long start = from; start < to; start += slice) {
+        AggregateSeries series = this.store.queryAggregated(query.getNodeId(),
+                query.getSensorId(), start, Math.min(to, start + slice), resolution);
+        for (int i = 0; i < series.size(); i++) {
+          chunk.add(series, i);
+          if (chunk.isFull()) {
+            if (!awaitRoom(client)) {
+              return;
+            }
+            client.transmitToClient(chunk.build(false, null));
+            chunk = new ChunkBuilder(query, chunk.resolution);
+          }
+        }
+      }
+    }
+    if (awaitRoom(client)) {
+      client.transmitToClient(chunk.build(true, truncated ? HistoryChunk.TRUNCATED : null));
+    }
+  }
+
+  /**
+   * Return the resolution a query asks for, or null for the raw readings.
+   */
+  private static Resolution resolve(HistoryQuery query) {
+    String name = query.getResolution();
+    if (name == null || name.equals(HistoryQuery.AUTO)) {
+      int points = query.getPoints() > 0
+              ? Math.min(query.getPoints(), MAX_BUCKETS) : DEFAULT_POINTS;
+      return Resolution.choose(query.getFrom(), query.getTo(), points);
+    } else if (name.equals(HistoryQuery.RAW)) {
+      return null;
+    }
+    return Resolution.fromName(name);
+  }
+
+  /**
+   * Wait until the outbound queue of a client has room for another chunk.
+   *
+   * @return False if the client disconnected while waiting.
+   */
+  private static boolean awaitRoom(ClientConnection client) throws InterruptedException {
+    OutboundQueue queue = client.getOutboundQueue();
+    while (queue.getDepth() > MAX_QUEUED_MESSAGES) {
+      if (queue.isClosed()) {
+        return false;
+      }
+      Thread.sleep(QUEUE_POLL_MILLIS);
+    }
+    return !queue.isClosed();
+  }
+
+  /**
+   * The points of the chunk being filled.
+   */
+  private static class ChunkBuilder {
+    private final HistoryQuery query;
+    private final String resolution;
+    private final long[] times = new long[HistoryChunk.MAX_SIZE];
+    private final double[] minimums = new double[HistoryChunk.MAX_SIZE];
+    private final double[] maximums = new double[HistoryChunk.MAX_SIZE];
+    private final double[] averages = new double[HistoryChunk.MAX_SIZE];
+    private final long[] counts = new long[HistoryChunk.MAX_SIZE];
+    private int size;
+
+    private ChunkBuilder(HistoryQuery query, String resolution) {
+      this.query = query;
+      this.resolution = resolution;
+    }
+
+    private void add(AggregateSeries series, int index) {
+      this.times[this.size] = series.getStart(index);
+      this.minimums[this.size] = series.getMinimum(index);
+      this.maximums[this.size] = series.getMaximum(index);
+      this.averages[this.size] = series.getAverage(index);
+      this.counts[this.size] = series.getCount(index);
+      this.size++;
+    }
+
+    private boolean isFull() {
+      return this.size == HistoryChunk.MAX_SIZE;
+    }
+
+    private HistoryChunk build(boolean last, String reason) {
+      return new HistoryChunk("HistoryChunk", this.query.getRequestId(),
+              this.query.getNodeId(), this.query.getSensorId(), this.resolution, last, reason,
+              Arrays.copyOf(this.times, this.size),
+              Arrays.copyOf(this.minimums, this.size),
+              Arrays.copyOf(this.maximums, this.size),
+              Arrays.copyOf(this.averages, this.size),
+              Arrays.copyOf(this.counts, this.size));
+    }
+  }
+}
@@ -0,0 +1,169 @@
+package no.ntnu.server;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import no.ntnu.commands.ActuatorIdentifier;
+import no.ntnu.commands.Data;
+import no.ntnu.commands.NodeIdentifier;
+import no.ntnu.commands.SensorIdentifier;
+import no.ntnu.commands.SensorReadingBatch;
+import no.ntnu.commands.SensorReadingMessage;
+import no.ntnu.commands.Snapshot;
+
+/**
+ * The last known state of every connected node, kept up to date from the messages the server
+ * routes: the type, unit and latest reading of every sensor, and the type and state of every
+ * actuator. A control panel that connects gets this state as snapshots, instead of the server
+ * asking every node for its devices again.
+ *
+ * <p>The messages of one node come from the thread reading its connection, while snapshots
+ * are taken by the threads of connecting control panels. A snapshot taken during an update
+ * may therefore mix an older and a newer reading, which the next reading corrects.
+ */
+public class LastValueCache {
+  private final Map<Integer, NodeState> nodes;
+
+  /**
+   * The devices of one node, by ID.
+   */
+  private static class NodeState {
+    private final Map<Integer, SensorState> sensors = new ConcurrentHashMap<>();
+    private final Map<Integer, ActuatorState> actuators = new ConcurrentHashMap<>();
+  }
+
+  private static class SensorState {
+    private volatile String type;
+    private volatile String unit;
+    private volatile double value = Double.NaN;
+  }
+
+  private static class ActuatorState {
+    private volatile String type;
+    private volatile boolean state;
+  }
+
+  /**
+   * Constructor for the class.
+   */
+  public LastValueCache() {
+    this.nodes = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * Update the cache from a message sent by a node. Messages that do not describe the state
+   * of a node are ignored.
+   *
+   * @param message The message.
+   */
+  public void update(Data message) {
+    if (message instanceof SensorReadingMessage reading) {
+      updateSensor(reading.getNodeId(), reading.getSensorId(),
+              reading.getType(), reading.getUnit()).value = reading.getValue();
+    } else if (message instanceof SensorReadingBatch batch) {
+      for (int i = 0; i < batch.size(); i++) {
+        updateSensor(batch.getNodeId(), batch.getSensorId(i),
+                batch.getType(i), batch.getUnit(i)).value = batch.getValue(i);
+      }
+    } else if (message instanceof SensorIdentifier identifier) {
+      updateSensor(identifier.getNodeId(), identifier.getSensorId(),
+              identifier.getType(), identifier.getUnit());
+    } else if (message instanceof ActuatorIdentifier identifier) {
+      ActuatorState actuator = getNode(identifier.getNodeId()).actuators
+              .computeIfAbsent(identifier.getActuatorId(), id -> new ActuatorState());
+      // The answer of a node to an actuator command does not always carry the type.
+      if (identifier.getType() != null && !identifier.getType().equals("null")) {
+        actuator.type = identifier.getType();
+      }
+      actuator.state = identifier.getState();
+    } else if (message instanceof NodeIdentifier identifier && identifier.getNodeId() != -1) {
+      getNode(identifier.getNodeId());
+    }
+  }
+
+  private SensorState updateSensor(int nodeId, int sensorId, String type, String unit) {
+    SensorState sensor = getNode(nodeId).sensors
+            .computeIfAbsent(sensorId, id -> new SensorState());
+    if (type != null) {
+      sensor.type = type;
+    }
+    if (unit != null) {
+      sensor.unit = unit;
+    }
+    return sensor;
+  }
+
+  private NodeState getNode(int nodeId) {
+    return this.nodes.computeIfAbsent(nodeId, id -> new NodeState());
+  }
+
+  /**
+   * Forget the state of a node, when it has disconnected.
+   *
+   * @param nodeId The ID of the node.
+   */
+  public void removeNode(int nodeId) {
+    this.nodes.remove(nodeId);
+  }
+
+  /**
+   * Return the state of every known node, as snapshots. A node has one snapshot, unless it has
+   * more than {@link Snapshot#MAX_SIZE} sensors or actuators.
+   *
+   * @return the snapshots.
+   */
+  public List<Snapshot> getSnapshots() {
+    List<Snapshot> snapshots = new ArrayList<>();
+    this.nodes.forEach((nodeId, node) -> addSnapshots(snapshots, nodeId, node));
+    return snapshots;
+  }
+
+  private static void addSnapshots(List<Snapshot> snapshots, int nodeId, NodeState node) {
+    int[] sensorIds = new int[node.sensors.size()];
+    String[] sensorTypes = new String[sensorIds.length];
+    String[] units = new String[sensorIds.length];
+    double[] values = new double[sensorIds.length];
+    int sensorCount = 0;
+    for (Map.Entry<Integer, SensorState> entry : node.sensors.entrySet()) {
+      if (sensorCount < sensorIds.length) {
+        SensorState sensor = entry.getValue();
+        sensorIds[sensorCount] = entry.getKey();
+        sensorTypes[sensorCount] = sensor.type;
+        units[sensorCount] = sensor.unit;
+        values[sensorCount] = sensor.value;
+        sensorCount++;
+      }
+    }
+    int[] actuatorIds = new int[node.actuators.size()];
+    String[] actuatorTypes = new String[actuatorIds.length];
+    boolean[] states = new boolean[actuatorIds.length];
+    int actuatorCount = 0;
+    for (Map.Entry<Integer, ActuatorState> entry : node.actuators.entrySet()) {
+      if (actuatorCount < actuatorIds.length) {
+        ActuatorState actuator = entry.getValue();
+        actuatorIds[actuatorCount] = entry.getKey();
+        actuatorTypes[actuatorCount] = actuator.type;
+        states[actuatorCount] = actuator.state;
+        actuatorCount++;
+      }
+    }
+    int offset = 0;
+    do {
+      int sensorEnd = Math.min(sensorCount, offset + Snapshot.MAX_SIZE);
+      int actuatorEnd = Math.min(actuatorCount, offset + Snapshot.MAX_SIZE);
+      int sensorStart = Math.min(offset, sensorEnd);
+      int actuatorStart = Math.min(offset, actuatorEnd);
+      snapshots.add(new Snapshot("Snapshot", nodeId,
+              Arrays.copyOfRange(sensorIds, sensorStart, sensorEnd),
+              Arrays.copyOfRange(sensorTypes, sensorStart, sensorEnd),
+              Arrays.copyOfRange(units, sensorStart, sensorEnd),
+              Arrays.copyOfRange(values, sensorStart, sensorEnd),
+              Arrays.copyOfRange(actuatorIds, actuatorStart, actuatorEnd),
+              Arrays.copyOfRange(actuatorTypes, actuatorStart, actuatorEnd),
+              Arrays.copyOfRange(states, actuatorStart, actuatorEnd)));
+      offset += Snapshot.MAX_SIZE;
+    } while (offset < sensorCount || offset < actuatorCount);
+  }
+}
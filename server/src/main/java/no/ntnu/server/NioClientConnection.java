@@ -0,0 +1,275 @@
+package no.ntnu.server;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import no.ntnu.commands.Data;
+import no.ntnu.tools.BinaryCodec;
+
+/**
+ * A client connection served by an {@link EventLoop} with non-blocking reads and writes.
+ * Incoming bytes are collected until a full line or binary frame has arrived, so a message may
+ * be split across any number of reads.
+ */
+public class NioClientConnection extends ClientConnection {
+  private static final int READ_BUFFER_SIZE = 8192;
+  private static final int MAX_LINE_LENGTH = 64 * 1024;
+  private static final int WRITE_BATCH_SIZE = 8192;
+
+  private final SocketChannel channel;
+  private final EventLoop eventLoop;
+  private SelectionKey key;
+
+  private final ByteBuffer readBuffer;
+  private byte[] lineBuffer;
+  private int lineLength;
+  private ByteBuffer frameView;
+
+  private ByteBuffer writeBuffer;
+  private final AtomicBoolean writeScheduled;
+  private final AtomicBoolean closed;
+
+  /**
+   * Constructor for the class.
+   *
+   * @param server    The server of the application.
+   * @param channel   The non-blocking channel to the client.
+   * @param eventLoop The event loop serving this connection.
+   */
+  public NioClientConnection(Server server, SocketChannel channel, EventLoop eventLoop) {
+    super(server);
+    this.channel = channel;
+    this.eventLoop = eventLoop;
+    this.readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+    this.lineBuffer = new byte[256];
+    this.lineLength = 0;
+    this.writeBuffer = ByteBuffer.allocate(2 * WRITE_BATCH_SIZE).flip();
+    this.writeScheduled = new AtomicBoolean(false);
+    this.closed = new AtomicBoolean(false);
+  }
+
+  /**
+   * Registers the connection with the selector of its event loop.
+   * Must be called on the event loop thread.
+   *
+   * @throws ClosedChannelException If the channel has been closed in the meantime.
+   */
+  void register() throws ClosedChannelException {
+    this.key = this.channel.register(this.eventLoop.getSelector(), SelectionKey.OP_READ, this);
+  }
+
+  /**
+   * Reads what is available from the channel and routes every complete line or frame.
+   * Called on the event loop thread when the channel is readable.
+   */
+  void onReadable() {
+    try {
+      int read = this.channel.read(this.readBuffer);
+      if (read < 0) {
+        close();
+        return;
+      }
+      this.readBuffer.flip();
+      boolean open = true;
+      while (open && this.readBuffer.hasRemaining()) {
+        if (isBinaryReads()) {
+          open = handleFrames();
+        } else {
+          byte b = this.readBuffer.get();
+          if (b == '\n') {
+            open = handleLine();
+          } else {
+            appendToLine(b);
+          }
+        }
+      }
+      this.readBuffer.clear();
+      if (!open) {
+        close();
+      }
+    } catch (IOException | RuntimeException e) {
+      System.out.println("Could not read the message.");
+      System.out.println(e.getMessage());
+      close();
+    }
+  }
+
+  private void appendToLine(byte b) {
+    if (this.lineLength == this.lineBuffer.length) {
+      if (this.lineLength >= MAX_LINE_LENGTH) {
+        throw new IllegalArgumentException("Line too long from client " + getNodeId());
+      }
+      this.lineBuffer = Arrays.copyOf(this.lineBuffer, this.lineLength * 2);
+    }
+    this.lineBuffer[this.lineLength++] = b;
+  }
+
+  /**
+   * Appends the rest of the read buffer to the pending bytes, and routes every complete frame.
+   * The bytes of an incomplete frame are kept for the next read.
+   */
+  private boolean handleFrames() {
+    int length = this.readBuffer.remaining();
+    if (this.lineLength + length > this.lineBuffer.length) {
+      if (this.lineLength + length > MAX_LINE_LENGTH) {
+        throw new IllegalArgumentException("Frame too long from client " + getNodeId());
+      }
+      this.lineBuffer = Arrays.copyOf(this.lineBuffer,
+              Math.max(this.lineBuffer.length * 2, this.lineLength + length));
+    }
+    this.readBuffer.get(this.lineBuffer, this.lineLength, length);
+    this.lineLength += length;
+    if (this.frameView == null || this.frameView.array() != this.lineBuffer) {
+      this.frameView = ByteBuffer.wrap(this.lineBuffer);
+    }
+    ByteBuffer frames = this.frameView.limit(this.lineLength).position(0);
+    boolean open = true;
+    while (open) {
+      int start = frames.position();
+      int frameLength = BinaryCodec.readFrameLength(frames);
+      if (frameLength < 0 || frames.remaining() < frameLength) {
+        frames.position(start);
+        break;
+      }
+      int end = frames.position() + frameLength;
+      frames.limit(end);
+      Data message = decodeFrame(frames);
+      frames.limit(this.lineLength).position(end);
+      if (message != null) {
+        open = handleMessage(message);
+      }
+    }
+    int rest = frames.remaining();
+    System.arraycopy(this.lineBuffer, frames.position(), this.lineBuffer, 0, rest);
+    this.lineLength = rest;
+    return open;
+  }
+
+  private boolean handleLine() {
+    int length = this.lineLength;
+    if (length > 0 && this.lineBuffer[length - 1] == '\r') {
+      length--;
+    }
+    String line = new String(this.lineBuffer, 0, length, StandardCharsets.UTF_8);
+    this.lineLength = 0;
+    Data message = decode(line);
+    return handleMessage(message);
+  }
+
+  /**
+   * Writes as much of the queued output as the channel accepts without blocking.
+   * Queued messages are serialized in batches, so several lines go out in one write.
+   * Called on the event loop thread when the channel is writable.
+   */
+  void onWritable() {
+    try {
+      while (this.writeBuffer.hasRemaining() || fillWriteBuffer()) {
+        this.channel.write(this.writeBuffer);
+        if (this.writeBuffer.hasRemaining()) {
+          return;
+        }
+      }
+      this.key.interestOps(SelectionKey.OP_READ);
+      this.writeScheduled.set(false);
+      if (getOutboundQueue().getDepth() > 0) {
+        scheduleWrite();
+      }
+    } catch (IOException e) {
+      System.out.println("Could not write to the client: " + e.getMessage());
+      close();
+    }
+  }
+
+  private boolean fillWriteBuffer() {
+    this.writeBuffer.clear();
+    Data message = getOutboundQueue().poll();
+    while (message != null) {
+      try {
+        writeMessage(message);
+      } catch (IllegalArgumentException e) {
+        System.out.println(e.getMessage());
+      }
+      if (this.writeBuffer.position() >= WRITE_BATCH_SIZE) {
+        break;
+      }
+      message = getOutboundQueue().poll();
+    }
+    this.writeBuffer.flip();
+    return this.writeBuffer.hasRemaining();
+  }
+
+  @Override
+  protected void writeLine(String line) {
+    byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+    if (this.writeBuffer.remaining() < bytes.length + 1) {
+      int capacity = Math.max(this.writeBuffer.capacity() * 2,
+              this.writeBuffer.position() + bytes.length + 1);
+      ByteBuffer larger = ByteBuffer.allocate(capacity);
+      this.writeBuffer.flip();
+      larger.put(this.writeBuffer);
+      this.writeBuffer = larger;
+    }
+    this.writeBuffer.put(bytes).put((byte) '\n');
+  }
+
+  @Override
+  protected void writeBytes(ByteBuffer bytes) {
+    if (this.writeBuffer.remaining() < bytes.remaining()) {
+      int capacity = Math.max(this.writeBuffer.capacity() * 2,
+              this.writeBuffer.position() + bytes.remaining());
+      ByteBuffer larger = ByteBuffer.allocate(capacity);
+      this.writeBuffer.flip();
+      larger.put(this.writeBuffer);
+      this.writeBuffer = larger;
+    }
+    this.writeBuffer.put(bytes);
+  }
+
+  @Override
+  protected void onOutboundReady() {
+    scheduleWrite();
+  }
+
+  @Override
+  protected void disconnect() {
+    this.eventLoop.execute(this::close);
+  }
+
+  private void scheduleWrite() {
+    if (this.writeScheduled.compareAndSet(false, true)) {
+      this.eventLoop.execute(() -> {
+        if (this.key != null && this.key.isValid()) {
+          this.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        }
+      });
+    }
+  }
+
+  /**
+   * Closes the connection and removes it from the server.
+   */
+  void close() {
+    if (this.closed.compareAndSet(false, true)) {
+      getOutboundQueue().close();
+      try {
+        closeAll();
+      } catch (IOException e) {
+        System.out.println("Could not close the connection: " + e.getMessage());
+      }
+      getServer().removeClient(this);
+    }
+  }
+
+  @Override
+  public void closeAll() throws IOException {
+    if (this.key != null) {
+      this.key.cancel();
+    }
+    this.channel.close();
+  }
+}
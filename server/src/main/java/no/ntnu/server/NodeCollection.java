@@ -1,21 +1,47 @@
 package no.ntnu.server;
 
+import java.io.IOException;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import no.ntnu.listeners.GreenhouseEventListener;
+import no.ntnu.listeners.node.ActuatorListener;
 import no.ntnu.listeners.node.NodeStateListener;
+import no.ntnu.listeners.node.TopologyListener;
+import no.ntnu.node.Actuator;
+import no.ntnu.node.DeviceFactory;
 import no.ntnu.node.Node;
+import no.ntnu.node.Sensor;
 import no.ntnu.node.SensorReading;
-import no.ntnu.tools.DeviceFactory;
 
 /**
  * A collection of all nodes in the greenhouse.
+ * When the collection has a {@link TopologyStore}, every node created and every device added
+ * or switched is saved in it, and the greenhouse is restored from it on the next start.
  */
-public class NodeCollection implements NodeStateListener, GreenhouseEventListener {
+public class NodeCollection
+        implements NodeStateListener, GreenhouseEventListener, TopologyListener, ActuatorListener {
+  private static final long SNAPSHOT_INTERVAL = 60_000;
+
   private final Map<Integer, Node> nodes = new ConcurrentHashMap<>();
+  private final TopologyStore topology;
+
+  /**
+   * Create a collection whose nodes are not saved.
+   */
+  public NodeCollection() {
+    this(null);
+  }
+
+  /**
+   * Create a collection saving its nodes in a topology store.
+   *
+   * @param topology The store, or null if the nodes are not saved.
+   */
+  public NodeCollection(TopologyStore topology) {
+    this.topology = topology;
+  }
 
   /**
    * Create a new node with the given parameters.
@@ -29,18 +55,52 @@ public class NodeCollection implements NodeStateListener, GreenhouseEventListene
   public void createNode(int temperature, int humidity, int windows, int fans, int heaters) {
     Node node = DeviceFactory.createNode(
             temperature, humidity, windows, fans, heaters);
+    if (this.topology != null) {
+      this.topology.recordNode(node);
+    }
+    startNode(node);
+  }
+
+  private void startNode(Node node) {
     node.addStateListener(this);
+    node.addTopologyListener(this);
+    node.addActuatorListener(this);
     node.start();
     this.nodes.put(node.getId(), node);
   }
 
   /**
-   * Initialize the greenhouse with some nodes.
+   * Initialize the greenhouse, with the saved nodes if there are any, or with some new nodes.
    */
   public void initialize() {
-    createNode(1, 1, 1, 1, 1);
-    createNode(1, 1, 1, 1, 1);
-    createNode(1, 1, 1, 1, 1);
+    List<Node> restored = List.of();
+    if (this.topology != null) {
+      try {
+        restored = this.topology.restore();
+      } catch (IOException e) {
+        System.out.println("Could not restore the greenhouse: " + e.getMessage());
+      }
+    }
+    if (restored.isEmpty()) {
+      createNode(1, 1, 1, 1, 1);
+      createNode(1, 1, 1, 1, 1);
+      createNode(1, 1, 1, 1, 1);
+    } else {
+      System.out.println("Restored " + restored.size() + " nodes.");
+      restored.forEach(this::startNode);
+    }
+    if (this.topology != null) {
+      this.topology.start(this::getNodes, SNAPSHOT_INTERVAL);
+    }
+  }
+
+  /**
+   * Save the greenhouse a last time, if it is saved.
+   */
+  public void close() {
+    if (this.topology != null) {
+      this.topology.close();
+    }
   }
 
   /**
@@ -123,6 +183,34 @@ public class NodeCollection implements NodeStateListener, GreenhouseEventListene
    */
   @Override
   public void onActuatorStateChanged(int nodeId, int actuatorId, boolean isOn) {
+    if (this.topology != null) {
+      this.topology.recordActuatorState(nodeId, actuatorId, isOn);
+    }
+  }
 
+  /**
+   * This event is fired when a sensor has been added to a node.
+   *
+   * @param nodeId The ID of the node
+   * @param sensor The added sensor
+   */
+  @Override
+  public void onSensorAdded(int nodeId, Sensor sensor) {
+    if (this.topology != null) {
+      this.topology.recordSensor(nodeId, sensor);
+    }
+  }
+
+  /**
+   * This event is fired when an actuator has been added to a node.
+   *
+   * @param nodeId   The ID of the node
+   * @param actuator The added actuator
+   */
+  @Override
+  public void onActuatorAdded(int nodeId, Actuator actuator) {
+    if (this.topology != null) {
+      this.topology.recordActuator(nodeId, actuator);
+    }
   }
 }
\ No newline at end of file
@@ -0,0 +1,302 @@
+package no.ntnu.server;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import no.ntnu.commands.Data;
+import no.ntnu.commands.SensorReadingBatch;
+import no.ntnu.commands.SensorReadingMessage;
+
+/**
+ * The messages waiting to be written to one client.
+ * Sensor readings and batches of readings go to a bounded ring buffer handled according to an
+ * {@link OverflowPolicy}, where a batch counts as one entry and is coalesced with an older
+ * batch from the same sensors.
+ * All other messages, such as commands and identifiers, go to a separate control lane which is
+ * never dropped and is always drained first.
+ */
+public class OutboundQueue {
+  private final OverflowPolicy policy;
+  private final ReentrantLock lock;
+  private final Condition notEmpty;
+
+  private final ArrayDeque<Data> controlLane;
+  private final Data[] readings;
+  private final Key[] readingKeys;
+  private final Map<Key, Long> positionByKey;
+  private long head;
+  private long tail;
+
+  private boolean closed;
+  private long droppedCount;
+  private long coalescedCount;
+  private int highWaterMark;
+
+  /**
+   * Constructor for the class.
+   *
+   * @param capacity The maximum number of queued sensor readings.
+   * @param policy   What to do when a reading arrives and the queue is full.
+   */
+  public OutboundQueue(int capacity, OverflowPolicy policy) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("Queue capacity must be at least 1");
+    }
+    this.policy = policy;
+    this.lock = new ReentrantLock();
+    this.notEmpty = this.lock.newCondition();
+    this.controlLane = new ArrayDeque<>();
+    this.readings = new Data[capacity];
+    this.readingKeys = new Key[capacity];
+    this.positionByKey = new HashMap<>();
+    this.closed = false;
+  }
+
+  /**
+   * Add a message to the queue.
+   *
+   * @param message The message to add.
+   * @return False if the queue overflowed and the client should be disconnected, true otherwise.
+   */
+  public boolean offer(Data message) {
+    this.lock.lock();
+    try {
+      if (this.closed) {
+        return true;
+      }
+      if (message instanceof SensorReadingMessage || message instanceof SensorReadingBatch) {
+        if (!offerReading(message)) {
+          return false;
+        }
+      } else {
+        this.controlLane.add(message);
+      }
+      this.highWaterMark = Math.max(this.highWaterMark, depth());
+      this.notEmpty.signal();
+      return true;
+    } finally {
+      this.lock.unlock();
+    }
+  }
+
+  private boolean offerReading(Data reading) {
+    Key key = null;
+    if (this.policy == OverflowPolicy.COALESCE) {
+      key = new Key(reading);
+      Long position = this.positionByKey.get(key);
+      if (position != null) {
+        this.readings[slot(position)] = reading;
+        this.coalescedCount++;
+        return true;
+      }
+    }
+    if (this.tail - this.head == this.readings.length) {
+      if (this.policy == OverflowPolicy.DISCONNECT) {
+        return false;
+      }
+      pollReading();
+      this.droppedCount++;
+    }
+    this.readings[slot(this.tail)] = reading;
+    if (key != null) {
+      this.readingKeys[slot(this.tail)] = key;
+      this.positionByKey.put(key, this.tail);
+    }
+    this.tail++;
+    return true;
+  }
+
+  /**
+   * Take the next message, waiting until one is available.
+   *
+   * @return The next message, or null if the queue has been closed.
+   * @throws InterruptedException If interrupted while waiting.
+   */
+  public Data take() throws InterruptedException {
+    this.lock.lock();
+    try {
+      while (!this.closed && depth() == 0) {
+        this.notEmpty.await();
+      }
+      return this.closed ? null : next();
+    } finally {
+      this.lock.unlock();
+    }
+  }
+
+  /**
+   * Take the next message if one is available.
+   *
+   * @return The next message, or null if the queue is empty or closed.
+   */
+  public Data poll() {
+    this.lock.lock();
+    try {
+      return this.closed ? null : next();
+    } finally {
+      this.lock.unlock();
+    }
+  }
+
+  private Data next() {
+    Data message = this.controlLane.poll();
+    if (message == null) {
+      message = pollReading();
+    }
+    return message;
+  }
+
+  private Data pollReading() {
+    if (this.head == this.tail) {
+      return null;
+    }
+    int slot = slot(this.head);
+    Data reading = this.readings[slot];
+    this.readings[slot] = null;
+    if (this.policy == OverflowPolicy.COALESCE) {
+      this.positionByKey.remove(this.readingKeys[slot]);
+      this.readingKeys[slot] = null;
+    }
+    this.head++;
+    return reading;
+  }
+
+  /**
+   * Close the queue. Waiting writers are woken up and all queued messages are discarded.
+   */
+  public void close() {
+    this.lock.lock();
+    try {
+      this.closed = true;
+      this.controlLane.clear();
+      this.notEmpty.signalAll();
+    } finally {
+      this.lock.unlock();
+    }
+  }
+
+  /**
+   * Check whether the queue has been closed, because the connection to the client was closed.
+   *
+   * @return True if the queue is closed.
+   */
+  public boolean isClosed() {
+    this.lock.lock();
+    try {
+      return this.closed;
+    } finally {
+      this.lock.unlock();
+    }
+  }
+
+  private int slot(long position) {
+    return (int) (position % this.readings.length);
+  }
+
+  /**
+   * The key a reading or batch is coalesced by. Readings are keyed by their node and sensor,
+   * and batches by their node and set of sensors. Batches are compared by their sensors, not
+   * only by the hash of them, so batches from different sensors never replace each other.
+   */
+  private static final class Key {
+    private final int nodeId;
+    private final int sensorId;
+    private final SensorReadingBatch batch;
+    private final int hash;
+
+    Key(Data reading) {
+      this.nodeId = reading.getNodeId();
+      if (reading instanceof SensorReadingMessage single) {
+        this.sensorId = single.getSensorId();
+        this.batch = null;
+        this.hash = 31 * this.nodeId + this.sensorId;
+      } else {
+        this.sensorId = 0;
+        this.batch = (SensorReadingBatch) reading;
+        this.hash = ~(31 * this.nodeId + this.batch.getSensorSetKey());
+      }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Key other) || this.nodeId != other.nodeId) {
+        return false;
+      }
+      if (this.batch == null || other.batch == null) {
+        return this.batch == other.batch && this.sensorId == other.sensorId;
+      }
+      return this.batch.hasSameSensors(other.batch);
+    }
+
+    @Override
+    public int hashCode() {
+      return this.hash;
+    }
+  }
+
+  private int depth() {
+    return this.controlLane.size() + (int) (this.tail - this.head);
+  }
+
+  /**
+   * Return the number of messages currently waiting in the queue.
+   *
+   * @return the number of queued messages.
+   */
+  public int getDepth() {
+    this.lock.lock();
+    try {
+      return depth();
+    } finally {
+      this.lock.unlock();
+    }
+  }
+
+  /**
+   * Return the highest number of messages that have been waiting in the queue at once.
+   *
+   * @return the high-water mark of the queue depth.
+   */
+  public int getHighWaterMark() {
+    this.lock.lock();
+    try {
+      return this.highWaterMark;
+    } finally {
+      this.lock.unlock();
+    }
+  }
+
+  /**
+   * Return the number of readings dropped because the queue was full.
+   *
+   * @return the number of dropped readings.
+   */
+  public long getDroppedCount() {
+    this.lock.lock();
+    try {
+      return this.droppedCount;
+    } finally {
+      this.lock.unlock();
+    }
+  }
+
+  /**
+   * Return the number of readings replaced by a newer reading from the same sensor.
+   *
+   * @return the number of coalesced readings.
+   */
+  public long getCoalescedCount() {
+    this.lock.lock();
+    try {
+      return this.coalescedCount;
+    } finally {
+      this.lock.unlock();
+    }
+  }
+
+  public OverflowPolicy getPolicy() {
+    return this.policy;
+  }
+}
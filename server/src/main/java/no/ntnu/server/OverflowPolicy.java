@@ -0,0 +1,23 @@
+package no.ntnu.server;
+
+/**
+ * What a client's outbound queue does when it is full of sensor readings.
+ * Commands, identifiers and other control messages are never dropped.
+ */
+public enum OverflowPolicy {
+  /**
+   * Drop the oldest queued reading to make room for the new one.
+   */
+  DROP_OLDEST,
+
+  /**
+   * Replace a queued reading from the same sensor with the new one. If no reading from the same
+   * sensor is queued, the oldest reading is dropped.
+   */
+  COALESCE,
+
+  /**
+   * Disconnect the client, since it cannot keep up.
+   */
+  DISCONNECT
+}
@@ -0,0 +1,124 @@
+package no.ntnu.server;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import no.ntnu.commands.CommandAck;
+
+/**
+ * The commands sent on to nodes that have not been answered yet, for routing the answers back
+ * to the control panels that sent them.
+ *
+ * <p>Request IDs are chosen by the panels, so two panels may use the same one. The server
+ * therefore sends every command on under a request ID of its own, and remembers the panel and
+ * its request ID under it. A group command is sent to several nodes under the same ID, and is
+ * answered once all of them have answered, with the number of actuators they changed in all.
+ * It is negatively acknowledged if any node did so, or disconnected before answering.
+ */
+public class PendingCommands {
+  private final AtomicInteger nextRequestId;
+  private final Map<Integer, PendingCommand> commands;
+
+  /**
+   * A command waiting for the answers of one or more nodes.
+   */
+  private static class PendingCommand {
+    private final ClientConnection client;
+    private final int requestId;
+    private final int nodeId;
+    private final Set<Integer> remainingNodes;
+    private int count;
+    private String reason;
+
+    private PendingCommand(ClientConnection client, int requestId, int nodeId,
+                           Set<Integer> nodes) {
+      this.client = client;
+      this.requestId = requestId;
+      this.nodeId = nodeId;
+      this.remainingNodes = new HashSet<>(nodes);
+    }
+  }
+
+  /**
+   * Constructor for the class.
+   */
+  public PendingCommands() {
+    this.nextRequestId = new AtomicInteger();
+    this.commands = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * Remember a command before it is sent on to nodes.
+   *
+   * @param client    The control panel that sent the command.
+   * @param requestId The request ID the panel chose.
+   * @param nodeId    The node ID of the command, as the panel sent it.
+   * @param nodes     The IDs of the nodes the command is sent to, at least one.
+   * @return The request ID to send the command to the nodes with.
+   */
+  public int add(ClientConnection client, int requestId, int nodeId, Set<Integer> nodes) {
+    int serverRequestId;
+    do {
+      serverRequestId = this.nextRequestId.incrementAndGet();
+    } while (serverRequestId == 0);
+    this.commands.put(serverRequestId, new PendingCommand(client, requestId, nodeId, nodes));
+    return serverRequestId;
+  }
+
+  /**
+   * Take the answer of a node to a command, and answer the panel that sent the command once
+   * all nodes have answered. Answers to unknown commands are ignored.
+   *
+   * @param ack The answer of the node, with the request ID the server sent the command with.
+   */
+  public void acknowledge(CommandAck ack) {
+    PendingCommand command = this.commands.get(ack.getRequestId());
+    if (command != null) {
+      complete(ack.getRequestId(), command, ack.getNodeId(), ack.getCount(), ack.getReason());
+    }
+  }
+
+  /**
+   * Fail the commands waiting for a node that has disconnected.
+   *
+   * @param nodeId The ID of the node.
+   */
+  public void removeNode(int nodeId) {
+    this.commands.forEach((serverRequestId, command) ->
+            complete(serverRequestId, command, nodeId, 0, CommandAck.DISCONNECTED));
+  }
+
+  /**
+   * Forget the commands of a control panel that has disconnected.
+   *
+   * @param client The control panel.
+   */
+  public void removeClient(ClientConnection client) {
+    this.commands.values().removeIf(command -> command.client == client);
+  }
+
+  private void complete(int serverRequestId, PendingCommand command, int nodeId, int count,
+                        String reason) {
+    CommandAck answer;
+    synchronized (command) {
+      if (!command.remainingNodes.remove(nodeId)) {
+        return;
+      }
+      command.count += count;
+      if (command.reason == null) {
+        command.reason = reason;
+      }
+      if (!command.remainingNodes.isEmpty()) {
+        return;
+      }
+      answer = command.reason == null
+              ? CommandAck.ack(command.requestId, command.nodeId, command.count)
+              : CommandAck.nack(command.requestId, command.nodeId, command.count,
+                      command.reason);
+    }
+    this.commands.remove(serverRequestId);
+    command.client.transmitToClient(answer);
+  }
+}
@@ -0,0 +1,629 @@
+package no.ntnu.server;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import no.ntnu.commands.ActuatorCommand;
+import no.ntnu.commands.ActuatorIdentifier;
+import no.ntnu.commands.CommandAck;
+import no.ntnu.commands.Data;
+import no.ntnu.commands.HistoryQuery;
+import no.ntnu.commands.NodeCommand;
+import no.ntnu.commands.SensorReadingBatch;
+import no.ntnu.commands.SensorReadingMessage;
+import no.ntnu.commands.Subscription;
+import no.ntnu.node.Node;
+import no.ntnu.storage.TimeSeriesStore;
+import no.ntnu.tools.LatencyHistogram;
+import no.ntnu.tools.Threads;
+
+/**
+ * The server of the application.
+ */
+public class Server {
+  public static final int TCP_PORT = 1238; //The port of the server.
+  private static final int HISTORY_THREADS = 2;
+  private static final long LATENCY_REPORT_INTERVAL = 60_000L;
+  private ServerSocket serverSocket;
+  private ServerSocketChannel serverChannel;
+  private EventLoop[] eventLoops;
+  private int nextEventLoop;
+
+  private final Set<ClientConnection> clientHandlers;
+  private final Map<Integer, ClientConnection> nodeRoutes;
+  private final Set<ClientConnection> controlPanels;
+  private final Set<ClientConnection> sensorNodes;
+  private final SubscriptionIndex subscriptions;
+  private final LastValueCache lastValues;
+  private final ActuatorIndex actuatorIndex;
+  private final PendingCommands pendingCommands;
+  private final TimeSeriesStore store;
+  private final HistoryStreamer history;
+  private final Map<Integer, Long> lastSequences;
+  private final AtomicLong repeatedBatchCount;
+  private final LatencyHistogram sensorLatency;
+
+  private final ServerConfig config;
+  private NodeCollection nodes;
+  private volatile boolean isRunning;
+  private final AtomicBoolean closed = new AtomicBoolean();
+
+  /**
+   * Constructor for the class, using the default configuration.
+   */
+  public Server() {
+    this(new ServerConfig());
+  }
+
+  /**
+   * Constructor for the class.
+   *
+   * @param config The configuration of the server.
+   */
+  public Server(ServerConfig config) {
+    this.config = config;
+    this.clientHandlers = ConcurrentHashMap.newKeySet();
+    this.nodeRoutes = new ConcurrentHashMap<>();
+    this.controlPanels = ConcurrentHashMap.newKeySet();
+    this.sensorNodes = ConcurrentHashMap.newKeySet();
+    this.subscriptions = new SubscriptionIndex();
+    this.lastValues = new LastValueCache();
+    this.actuatorIndex = new ActuatorIndex();
+    this.pendingCommands = new PendingCommands();
+    this.store = openStore(config);
+    this.history = new HistoryStreamer(this.store, HISTORY_THREADS);
+    this.lastSequences = new ConcurrentHashMap<>();
+    this.repeatedBatchCount = new AtomicLong();
+    this.sensorLatency = new LatencyHistogram();
+    this.nodes = new NodeCollection(openTopology(config));
+    this.isRunning = false;
+  }
+
+  private static TimeSeriesStore openStore(ServerConfig config) {
+    if (config.getStorageDirectory() == null) {
+      return null;
+    }
+    try {
+      return TimeSeriesStore.open(config.getStorageDirectory());
+    } catch (IOException e) {
+      System.out.println("Could not open the reading storage, readings will not be stored.");
+      System.out.println(e.getMessage());
+      return null;
+    }
+  }
+
+  private static TopologyStore openTopology(ServerConfig config) {
+    if (config.getStorageDirectory() == null) {
+      return null;
+    }
+    try {
+      return TopologyStore.open(config.getStorageDirectory().resolve("topology"));
+    } catch (IOException e) {
+      System.out.println("Could not open the topology storage, the greenhouse will not be "
+              + "saved.");
+      System.out.println(e.getMessage());
+      return null;
+    }
+  }
+
+  /**
+   * Runs the server.
+   * The server will establish a connection, and then wait for clients to connect.
+   * In the blocking mode, each client gets a client handler running in its own thread.
+   * In the NIO mode, each client is handed to one of the event loops.
+   */
+  public void run() {
+    if (this.config.getMode() == ServerMode.NIO) {
+      openChannel();
+    } else {
+      openSocket();
+    }
+    System.out.println("Server started on port " + TCP_PORT + " in "
+            + this.config.getMode() + " mode");
+    this.sensorLatency.reportEvery("Sensor-to-server", LATENCY_REPORT_INTERVAL);
+    new Thread(() -> {
+      try {
+        Thread.sleep(1000);
+        this.nodes.initialize();
+      } catch (InterruptedException e) {
+        throw new RuntimeException(e);
+      }
+    }).start();
+    while (this.isRunning) {
+      ClientConnection clientConnection = this.config.getMode() == ServerMode.NIO
+              ? connectNioClient() : connectClient();
+      if (clientConnection != null) {
+        this.clientHandlers.add(clientConnection);
+      }
+    }
+  }
+
+  /**
+   * Creates a port.
+   */
+  public void openSocket() {
+    try {
+      this.serverSocket = new ServerSocket(TCP_PORT);
+      this.isRunning = true;
+    } catch (IOException e) {
+      System.out.println("Could not start the server.");
+      System.out.println(e.getMessage());
+    }
+  }
+
+  /**
+   * Opens the server channel and starts the event loops used in the NIO mode.
+   */
+  public void openChannel() {
+    try {
+      this.serverChannel = ServerSocketChannel.open();
+      this.serverChannel.bind(new InetSocketAddress(TCP_PORT));
+      this.eventLoops = new EventLoop[this.config.getEventLoopCount()];
+      for (int i = 0; i < this.eventLoops.length; i++) {
+        this.eventLoops[i] = new EventLoop();
+        new Thread(this.eventLoops[i], "event-loop-" + i).start();
+      }
+      this.isRunning = true;
+    } catch (IOException e) {
+      System.out.println("Could not start the server.");
+      System.out.println(e.getMessage());
+    }
+  }
+
+  /**
+   * Accepts a client and hands it to one of the event loops, in round-robin order.
+   *
+   * @return The connection to the client, or null if no client could be accepted.
+   */
+  public ClientConnection connectNioClient() {
+    try {
+      SocketChannel channel = this.serverChannel.accept();
+      channel.configureBlocking(false);
+      EventLoop eventLoop = this.eventLoops[this.nextEventLoop];
+      this.nextEventLoop = (this.nextEventLoop + 1) % this.eventLoops.length;
+      NioClientConnection connection = new NioClientConnection(this, channel, eventLoop);
+      eventLoop.execute(() -> {
+        try {
+          connection.register();
+        } catch (IOException e) {
+          System.out.println("Could not register a client: " + e.getMessage());
+          connection.close();
+        }
+      });
+      return connection;
+    } catch (IOException e) {
+      if (this.isRunning) {
+        System.out.println("Could not connect a client: " + e.getMessage());
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Connects a client to the server.
+   *
+   * @return The client handler for the client.
+   */
+  public ClientHandler connectClient() {
+    ClientHandler clientHandler = null;
+    try {
+      if (this.isRunning) {
+        clientHandler = new ClientHandler(this, this.serverSocket.accept());
+        Threads.start("client-handler", clientHandler);
+      } else {
+        throw new IllegalArgumentException("Server is not running.");
+      }
+    } catch (IOException e) {
+      if (this.isRunning) {
+        System.out.println("Could not connect a client: " + e.getMessage());
+      }
+    }
+    return clientHandler;
+  }
+
+  /**
+   * Stops the server and exits the application.
+   */
+  public void stop() {
+    close();
+    System.exit(0);
+  }
+
+  /**
+   * Stops accepting clients and closes the storage, writing the readings still queued and
+   * saving the greenhouse a last time. Closing the server again does nothing.
+   */
+  public void close() {
+    if (!this.closed.compareAndSet(false, true)) {
+      return;
+    }
+    System.out.println("Stopping the server.");
+    this.isRunning = false;
+    this.history.close();
+    this.nodes.close();
+    if (this.store != null) {
+      this.store.close();
+    }
+    try {
+      if (this.serverChannel != null) {
+        for (EventLoop eventLoop : this.eventLoops) {
+          eventLoop.stop();
+        }
+        this.serverChannel.close();
+      } else if (this.serverSocket != null) {
+        this.serverSocket.close();
+      }
+    } catch (IOException e) {
+      System.out.println("Could not close the server socket.");
+      System.out.println(e.getMessage());
+    }
+  }
+
+  /**
+   * Close the server when the application exits, for example on Ctrl+C or a termination
+   * signal, so the storage is closed cleanly.
+   */
+  public void closeOnExit() {
+    Runtime.getRuntime().addShutdownHook(new Thread(this::close, "server-shutdown"));
+  }
+
+  /**
+   * Broadcasts a message to the interested control panels.
+   * Sensor readings only go to the control panels subscribed to them, while other messages go
+   * to all control panels. Sensor/actuator nodes have no use for broadcast messages, so they are
+   * left out. The message also updates the last known state of its node and the index of
+   * actuators by type, and its readings are stored with the time they were taken, or received
+   * if the node did not say. A batch of readings the node sent before is dropped, and counted in
+   * {@link #getRepeatedBatchCount()}. The time from taking each reading to receiving it is
+   * recorded in the sensor-to-server latency histogram.
+   *
+   * @param message the message to broadcast.
+   */
+  public void broadcast(Data message) {
+    if (message instanceof SensorReadingBatch batch && isRepeated(batch)) {
+      this.repeatedBatchCount.incrementAndGet();
+      return;
+    }
+    long now = System.currentTimeMillis();
+    // Readings are stored at the time they were taken, if the node sent it.
+    long measured = now;
+    if (message instanceof SensorReadingBatch batch && batch.getTime() > 0) {
+      measured = batch.getTime();
+      this.sensorLatency.record(now - measured, batch.size());
+    } else if (message instanceof SensorReadingMessage reading && reading.getTime() > 0) {
+      measured = reading.getTime();
+      this.sensorLatency.record(now - measured);
+    }
+    this.lastValues.update(message);
+    if (message instanceof ActuatorIdentifier identifier) {
+      this.actuatorIndex.add(identifier);
+    }
+    if (this.store != null) {
+      this.store.record(message, measured);
+    }
+    if (message instanceof SensorReadingMessage reading) {
+      this.subscriptions.getSubscribers(reading.getNodeId(), reading.getType())
+              .forEach(client -> client.transmitToClient(message));
+    } else if (message instanceof SensorReadingBatch batch) {
+      broadcastBatch(batch);
+    } else {
+      this.controlPanels.forEach(client -> client.transmitToClient(message));
+    }
+  }
+
+  /**
+   * Return the histogram of the times from taking readings on the nodes to receiving them.
+   *
+   * @return the sensor-to-server latency histogram.
+   */
+  public LatencyHistogram getSensorLatency() {
+    return this.sensorLatency;
+  }
+
+  /**
+   * Return the number of batches of readings dropped because they were received before.
+   *
+   * @return the number of repeated batches.
+   */
+  public long getRepeatedBatchCount() {
+    return this.repeatedBatchCount.get();
+  }
+
+  /**
+   * Check whether a batch of readings was received before. A node sends its batches in the
+   * order of their sequence numbers, also when it sends the batches it kept while disconnected,
+   * so a batch is repeated if its number is not above the highest one seen from the node.
+   * The numbers are remembered after the node disconnects, since that is when repeats happen.
+   *
+   * @param batch the batch to check.
+   * @return true if the batch should be dropped.
+   */
+  private boolean isRepeated(SensorReadingBatch batch) {
+    long sequence = batch.getSequence();
+    if (sequence == 0) {
+      return false;
+    }
+    boolean[] repeated = new boolean[1];
+    this.lastSequences.compute(batch.getNodeId(), (nodeId, highest) -> {
+      if (highest != null && highest >= sequence) {
+        repeated[0] = true;
+        return highest;
+      }
+      return sequence;
+    });
+    return repeated[0];
+  }
+
+  /**
+   * Sends a batch of readings to the control panels subscribed to any of them.
+   * A control panel subscribed to every reading in the batch gets the batch as it is, while one
+   * subscribed to only some of them gets a smaller batch with just those.
+   *
+   * @param batch the batch to send.
+   */
+  private void broadcastBatch(SensorReadingBatch batch) {
+    Map<String, Set<ClientConnection>> subscribersByType = new HashMap<>();
+    Map<ClientConnection, boolean[]> selections = new HashMap<>();
+    for (int i = 0; i < batch.size(); i++) {
+      Set<ClientConnection> subscribers = subscribersByType.computeIfAbsent(batch.getType(i),
+              type -> this.subscriptions.getSubscribers(batch.getNodeId(), type));
+      for (ClientConnection client : subscribers) {
+        selections.computeIfAbsent(client, c -> new boolean[batch.size()])[i] = true;
+      }
+    }
+    selections.forEach((client, selected) -> {
+      int count = 0;
+      for (boolean isSelected : selected) {
+        count += isSelected ? 1 : 0;
+      }
+      client.transmitToClient(count == batch.size() ? batch : batch.select(selected, count));
+    });
+  }
+
+  /**
+   * Subscribes or unsubscribes a client to sensor readings.
+   *
+   * @param client       The client.
+   * @param subscription The subscription or unsubscription.
+   */
+  public void updateSubscription(ClientConnection client, Subscription subscription) {
+    if (subscription.isSubscribe()) {
+      this.subscriptions.subscribe(
+              client, subscription.getNodeId(), subscription.getSensorType());
+    } else {
+      this.subscriptions.unsubscribe(
+              client, subscription.getNodeId(), subscription.getSensorType());
+    }
+  }
+
+  /**
+   * Sends a message to a specific client.
+   *
+   * @param message the message to send.
+   */
+  public void sendToClient(Data message) throws IllegalArgumentException {
+    getClientHandler(message.getNodeId()).transmitToClient(message);
+  }
+
+  /**
+   * Sends a command from a control panel on to the nodes it concerns. A group command goes to
+   * the nodes with actuators of its type, one command per node whatever the number of its
+   * actuators, and other commands go to the node they name. Each node carries out the command
+   * and answers with the new states of its actuators.
+   *
+   * <p>A command with a request ID is sent on under a request ID of the server, and the answers
+   * of the nodes are passed back to the panel as one acknowledgement. A command that concerns
+   * no connected node is negatively acknowledged at once.
+   *
+   * @param client  the control panel that sent the command.
+   * @param command the command to send.
+   */
+  public void sendCommand(ClientConnection client, NodeCommand command) {
+    Set<Integer> targets;
+    if (command instanceof ActuatorCommand actuatorCommand && actuatorCommand.isGroupCommand()) {
+      targets = new HashSet<>(this.actuatorIndex.getNodes(actuatorCommand));
+      targets.retainAll(this.nodeRoutes.keySet());
+    } else {
+      targets = this.nodeRoutes.containsKey(command.getNodeId())
+              ? Set.of(command.getNodeId()) : Set.of();
+    }
+    if (targets.isEmpty()) {
+      System.out.println("No connected node for command " + command.getData()
+              + " to node " + command.getNodeId());
+      if (command.getRequestId() != 0) {
+        client.transmitToClient(CommandAck.nack(command.getRequestId(), command.getNodeId(), 0,
+                command instanceof ActuatorCommand actuatorCommand
+                        && actuatorCommand.isGroupCommand()
+                        ? CommandAck.NO_ACTUATORS : CommandAck.NOT_CONNECTED));
+      }
+      return;
+    }
+    int requestId = command.getRequestId() == 0 ? 0
+            : this.pendingCommands.add(client, command.getRequestId(), command.getNodeId(),
+                    targets);
+    for (int nodeId : targets) {
+      ClientConnection node = this.nodeRoutes.get(nodeId);
+      if (node == null) {
+        this.pendingCommands.removeNode(nodeId);
+      } else {
+        node.transmitToClient(readdress(command, nodeId, requestId));
+      }
+    }
+  }
+
+  /**
+   * Copy a command for one node and the request ID of the server.
+   */
+  private static NodeCommand readdress(NodeCommand command, int nodeId, int requestId) {
+    if (command instanceof ActuatorCommand actuatorCommand) {
+      return actuatorCommand.isGroupCommand()
+              ? new ActuatorCommand(command.getData(), requestId, nodeId,
+                      actuatorCommand.getActuatorType(), command.getAction())
+              : new ActuatorCommand(command.getData(), requestId, nodeId,
+                      actuatorCommand.getActuatorId(), command.getAction());
+    }
+    return new NodeCommand(command.getData(), requestId, nodeId, command.getAction());
+  }
+
+  /**
+   * Passes the answer of a node to a command back to the control panel that sent it.
+   *
+   * @param ack the answer of the node.
+   */
+  public void acknowledgeCommand(CommandAck ack) {
+    this.pendingCommands.acknowledge(ack);
+  }
+
+  /**
+   * Removes a client whose connection has been closed.
+   *
+   * @param clientConnection The connection to remove.
+   */
+  public void removeClient(ClientConnection clientConnection) {
+    this.clientHandlers.remove(clientConnection);
+    this.controlPanels.remove(clientConnection);
+    if (this.sensorNodes.remove(clientConnection)) {
+      this.lastValues.removeNode(clientConnection.getNodeId());
+      this.actuatorIndex.removeNode(clientConnection.getNodeId());
+      this.pendingCommands.removeNode(clientConnection.getNodeId());
+    }
+    this.nodeRoutes.remove(clientConnection.getNodeId(), clientConnection);
+    this.subscriptions.removeClient(clientConnection);
+    this.pendingCommands.removeClient(clientConnection);
+  }
+
+  /**
+   * Registers the node ID a client has identified itself with, so messages can be routed to it.
+   * A node ID of -1 marks the client as a control panel.
+   *
+   * @param clientConnection The client that has identified itself.
+   * @param previousNodeId   The node ID the client was registered with before.
+   * @param nodeId           The node ID of the client.
+   */
+  public void registerNodeId(ClientConnection clientConnection, int previousNodeId, int nodeId) {
+    this.nodeRoutes.remove(previousNodeId, clientConnection);
+    if (nodeId == -1) {
+      this.sensorNodes.remove(clientConnection);
+      this.controlPanels.add(clientConnection);
+    } else {
+      this.controlPanels.remove(clientConnection);
+      this.sensorNodes.add(clientConnection);
+      this.nodeRoutes.put(nodeId, clientConnection);
+    }
+  }
+
+  /**
+   * Sends the last known state of every node to a control panel that has just connected.
+   * Only the new control panel gets the snapshots, one per node.
+   *
+   * @param controlPanel The control panel.
+   */
+  public void sendSnapshot(ClientConnection controlPanel) {
+    System.out.println("Sending the state of all nodes to a new control panel.");
+    this.lastValues.getSnapshots().forEach(controlPanel::transmitToClient);
+  }
+
+  /**
+   * Answers a history query of a control panel with the stored readings, streamed back in
+   * chunks. If readings are not stored, the answer is a single empty chunk.
+   *
+   * @param controlPanel The control panel.
+   * @param query        The query.
+   */
+  public void queryHistory(ClientConnection controlPanel, HistoryQuery query) {
+    this.history.submit(controlPanel, query);
+  }
+
+  /**
+   * Return the clientHandler.
+   *
+   * @param nodeId the nodeId of the client.
+   * @return the clientHandler.
+   */
+  public ClientConnection getClientHandler(int nodeId) {
+    ClientConnection clientHandler = this.nodeRoutes.get(nodeId);
+    if (clientHandler == null) {
+      throw new IllegalArgumentException("No clientHandler found for node with ID " + nodeId);
+    }
+    return clientHandler;
+  }
+
+  /**
+   * Return the configuration of the server.
+   *
+   * @return the configuration.
+   */
+  public ServerConfig getConfig() {
+    return this.config;
+  }
+
+  /**
+   * Return the connected control panels.
+   *
+   * @return the connected control panels.
+   */
+  public Collection<ClientConnection> getControlPanels() {
+    return Collections.unmodifiableCollection(this.controlPanels);
+  }
+
+  /**
+   * Return the connected sensor/actuator nodes.
+   *
+   * @return the connected sensor/actuator nodes.
+   */
+  public Collection<ClientConnection> getSensorNodes() {
+    return Collections.unmodifiableCollection(this.sensorNodes);
+  }
+
+  /**
+   * Return the connected clients, for example to inspect their outbound queue metrics.
+   *
+   * @return the connected clients.
+   */
+  public Collection<ClientConnection> getClientConnections() {
+    return Collections.unmodifiableCollection(this.clientHandlers);
+  }
+
+  /**
+   * Return the store of sensor readings.
+   *
+   * @return the store, or null if readings are not stored.
+   */
+  public TimeSeriesStore getStore() {
+    return this.store;
+  }
+
+  /**
+   * Return the node collection.
+   *
+   * @return the node collection.
+   */
+  public NodeCollection getNodes() {
+    return this.nodes;
+  }
+
+  public void addNode() {
+    this.nodes.createNode(0, 0, 0, 0, 0);
+  }
+
+  /**
+   * Return a specific node by its ID.
+   *
+   * @param nodeId The ID of the node to get
+   * @return The node with the given ID, or null if no such node exists
+   */
+  public Node getNode(int nodeId) {
+    return this.nodes.getNode(nodeId);
+  }
+}
\ No newline at end of file
@@ -0,0 +1,198 @@
+package no.ntnu.server;
+
+import java.nio.file.Path;
+import no.ntnu.tools.WireFormat;
+
+/**
+ * Configuration of the server, usually given as {@code key=value} command line arguments.
+ */
+public class ServerConfig {
+  private ServerMode mode;
+  private int eventLoopCount;
+  private boolean virtualThreads;
+  private int carrierThreadCount;
+  private int queueCapacity;
+  private OverflowPolicy overflowPolicy;
+  private WireFormat clientFormat;
+  private int samplingThreadCount;
+  private Path storageDirectory;
+
+  /**
+   * Create a configuration with the default values: the blocking server mode, one event loop
+   * per two available processors, platform threads for all reader loops, and outbound queues
+   * of 1024 readings per client which coalesce readings from the same sensor when full, and
+   * the text format for the clients started in the same process, whose sensors are sampled by
+   * one thread per two available processors. Readings are stored in the {@code data} directory.
+   */
+  public ServerConfig() {
+    this.mode = ServerMode.BLOCKING;
+    this.eventLoopCount = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    this.virtualThreads = false;
+    this.carrierThreadCount = Runtime.getRuntime().availableProcessors();
+    this.queueCapacity = 1024;
+    this.overflowPolicy = OverflowPolicy.COALESCE;
+    this.clientFormat = WireFormat.TEXT;
+    this.samplingThreadCount = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    this.storageDirectory = Path.of("data");
+  }
+
+  /**
+   * Create a configuration from command line arguments.
+   * Supported arguments are {@code mode=blocking|nio}, {@code eventLoops=<count>},
+   * {@code threads=platform|virtual}, {@code carrierThreads=<count>},
+   * {@code queueCapacity=<count>}, {@code overflow=drop_oldest|coalesce|disconnect},
+   * {@code codec=text|binary}, {@code samplingThreads=<count>} and
+   * {@code storage=<directory>|off}.
+   *
+   * @param args The command line arguments.
+   * @return The configuration.
+   * @throws IllegalArgumentException If an argument is not recognized.
+   */
+  public static ServerConfig fromArgs(String[] args) {
+    ServerConfig config = new ServerConfig();
+    for (String arg : args) {
+      String[] keyValue = arg.split("=");
+      if (keyValue.length != 2) {
+        throw new IllegalArgumentException("Invalid argument: " + arg);
+      }
+      switch (keyValue[0]) {
+        case "mode" -> config.setMode(ServerMode.valueOf(keyValue[1].toUpperCase()));
+        case "eventLoops" -> config.setEventLoopCount(Integer.parseInt(keyValue[1]));
+        case "threads" -> config.setVirtualThreads(parseThreadKind(keyValue[1]));
+        case "carrierThreads" -> config.setCarrierThreadCount(Integer.parseInt(keyValue[1]));
+        case "queueCapacity" -> config.setQueueCapacity(Integer.parseInt(keyValue[1]));
+        case "overflow" -> config.setOverflowPolicy(
+                OverflowPolicy.valueOf(keyValue[1].toUpperCase()));
+        case "codec" -> config.setClientFormat(WireFormat.valueOf(keyValue[1].toUpperCase()));
+        case "samplingThreads" -> config.setSamplingThreadCount(Integer.parseInt(keyValue[1]));
+        case "storage" -> config.setStorageDirectory(
+                keyValue[1].equals("off") ? null : Path.of(keyValue[1]));
+        default -> throw new IllegalArgumentException("Unknown argument: " + arg);
+      }
+    }
+    return config;
+  }
+
+  private static boolean parseThreadKind(String kind) {
+    return switch (kind) {
+      case "virtual" -> true;
+      case "platform" -> false;
+      default -> throw new IllegalArgumentException("Unknown thread kind: " + kind);
+    };
+  }
+
+  public ServerMode getMode() {
+    return this.mode;
+  }
+
+  public void setMode(ServerMode mode) {
+    this.mode = mode;
+  }
+
+  public int getEventLoopCount() {
+    return this.eventLoopCount;
+  }
+
+  /**
+   * Set the number of event loops used in the NIO server mode.
+   *
+   * @param eventLoopCount The number of event loops, at least 1.
+   */
+  public void setEventLoopCount(int eventLoopCount) {
+    if (eventLoopCount < 1) {
+      throw new IllegalArgumentException("At least one event loop is needed");
+    }
+    this.eventLoopCount = eventLoopCount;
+  }
+
+  public boolean isVirtualThreads() {
+    return this.virtualThreads;
+  }
+
+  public void setVirtualThreads(boolean virtualThreads) {
+    this.virtualThreads = virtualThreads;
+  }
+
+  public int getCarrierThreadCount() {
+    return this.carrierThreadCount;
+  }
+
+  /**
+   * Set the maximum number of carrier threads used when reader loops run on virtual threads.
+   *
+   * @param carrierThreadCount The number of carrier threads, at least 1.
+   */
+  public void setCarrierThreadCount(int carrierThreadCount) {
+    if (carrierThreadCount < 1) {
+      throw new IllegalArgumentException("At least one carrier thread is needed");
+    }
+    this.carrierThreadCount = carrierThreadCount;
+  }
+
+  public int getQueueCapacity() {
+    return this.queueCapacity;
+  }
+
+  /**
+   * Set the maximum number of sensor readings queued for each client.
+   *
+   * @param queueCapacity The number of readings, at least 1.
+   */
+  public void setQueueCapacity(int queueCapacity) {
+    if (queueCapacity < 1) {
+      throw new IllegalArgumentException("Queue capacity must be at least 1");
+    }
+    this.queueCapacity = queueCapacity;
+  }
+
+  public OverflowPolicy getOverflowPolicy() {
+    return this.overflowPolicy;
+  }
+
+  public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+    this.overflowPolicy = overflowPolicy;
+  }
+
+  public WireFormat getClientFormat() {
+    return this.clientFormat;
+  }
+
+  /**
+   * Set the wire format asked for by the nodes and control panels started in the same process
+   * as the server. The server itself accepts both formats from any client.
+   *
+   * @param clientFormat The wire format.
+   */
+  public void setClientFormat(WireFormat clientFormat) {
+    this.clientFormat = clientFormat;
+  }
+
+  public int getSamplingThreadCount() {
+    return this.samplingThreadCount;
+  }
+
+  /**
+   * Set the number of threads sampling the sensors of the nodes started by the server.
+   *
+   * @param samplingThreadCount The number of threads, at least 1.
+   */
+  public void setSamplingThreadCount(int samplingThreadCount) {
+    if (samplingThreadCount < 1) {
+      throw new IllegalArgumentException("At least one sampling thread is needed");
+    }
+    this.samplingThreadCount = samplingThreadCount;
+  }
+
+  public Path getStorageDirectory() {
+    return this.storageDirectory;
+  }
+
+  /**
+   * Set the directory the server stores sensor readings in.
+   *
+   * @param storageDirectory The directory, or null to not store readings.
+   */
+  public void setStorageDirectory(Path storageDirectory) {
+    this.storageDirectory = storageDirectory;
+  }
+}
@@ -0,0 +1,16 @@
+package no.ntnu.server;
+
+/**
+ * How the server serves its client connections.
+ */
+public enum ServerMode {
+  /**
+   * One thread per client, doing blocking reads on the socket.
+   */
+  BLOCKING,
+
+  /**
+   * A small pool of selector-based event loops doing non-blocking reads and writes.
+   */
+  NIO
+}
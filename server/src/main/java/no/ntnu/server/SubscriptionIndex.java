@@ -0,0 +1,121 @@
+package no.ntnu.server;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import no.ntnu.commands.Subscription;
+
+/**
+ * An index of which control panels are subscribed to which sensor readings.
+ * A reading is matched by looking up at most four topics (exact node and type, exact node and
+ * any type, any node and exact type, any node and any type), so finding the subscribers of a
+ * reading costs time in the number of subscribers, not in the number of connected clients.
+ */
+public class SubscriptionIndex {
+  private final Map<Topic, Set<ClientConnection>> subscribers;
+  private final Map<ClientConnection, Set<Topic>> topicsByClient;
+
+  /**
+   * A node ID and sensor type pair, where either may be a wildcard.
+   *
+   * @param nodeId     The node ID, or {@link Subscription#ANY_NODE}.
+   * @param sensorType The sensor type, or {@link Subscription#ANY_TYPE}.
+   */
+  private record Topic(int nodeId, String sensorType) {
+  }
+
+  /**
+   * Constructor for the class.
+   */
+  public SubscriptionIndex() {
+    this.subscribers = new ConcurrentHashMap<>();
+    this.topicsByClient = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * Subscribe a client to the readings of a node and sensor type.
+   *
+   * @param client     The subscribing client.
+   * @param nodeId     The node ID, or {@link Subscription#ANY_NODE}.
+   * @param sensorType The sensor type, or {@link Subscription#ANY_TYPE}.
+   */
+  public void subscribe(ClientConnection client, int nodeId, String sensorType) {
+    Topic topic = new Topic(nodeId, sensorType);
+    this.subscribers.computeIfAbsent(topic, t -> ConcurrentHashMap.newKeySet()).add(client);
+    this.topicsByClient.computeIfAbsent(client, c -> ConcurrentHashMap.newKeySet()).add(topic);
+  }
+
+  /**
+   * Unsubscribe a client from the readings of a node and sensor type.
+   *
+   * @param client     The unsubscribing client.
+   * @param nodeId     The node ID, or {@link Subscription#ANY_NODE}.
+   * @param sensorType The sensor type, or {@link Subscription#ANY_TYPE}.
+   */
+  public void unsubscribe(ClientConnection client, int nodeId, String sensorType) {
+    Topic topic = new Topic(nodeId, sensorType);
+    Set<ClientConnection> clients = this.subscribers.get(topic);
+    if (clients != null) {
+      clients.remove(client);
+    }
+    Set<Topic> topics = this.topicsByClient.get(client);
+    if (topics != null) {
+      topics.remove(topic);
+    }
+  }
+
+  /**
+   * Remove all subscriptions of a client, for example when it disconnects.
+   *
+   * @param client The client to remove.
+   */
+  public void removeClient(ClientConnection client) {
+    Set<Topic> topics = this.topicsByClient.remove(client);
+    if (topics != null) {
+      for (Topic topic : topics) {
+        Set<ClientConnection> clients = this.subscribers.get(topic);
+        if (clients != null) {
+          clients.remove(client);
+        }
+      }
+    }
+  }
+
+  /**
+   * Return the clients subscribed to readings from a sensor.
+   *
+   * @param nodeId     The node ID of the reading.
+   * @param sensorType The sensor type of the reading.
+   * @return The subscribed clients, each at most once.
+   */
+  public Set<ClientConnection> getSubscribers(int nodeId, String sensorType) {
+    Set<ClientConnection> exact = this.subscribers.get(new Topic(nodeId, sensorType));
+    Set<ClientConnection> anyType =
+            this.subscribers.get(new Topic(nodeId, Subscription.ANY_TYPE));
+    Set<ClientConnection> anyNode =
+            this.subscribers.get(new Topic(Subscription.ANY_NODE, sensorType));
+    Set<ClientConnection> any =
+            this.subscribers.get(new Topic(Subscription.ANY_NODE, Subscription.ANY_TYPE));
+    Set<ClientConnection> result = merge(merge(merge(merge(null, exact), anyType), anyNode), any);
+    return result == null ? Collections.emptySet() : result;
+  }
+
+  /**
+   * Merge a set of clients into a result. The first non-empty set is used as it is, and is only
+   * copied when a second non-empty set has to be added.
+   */
+  private static Set<ClientConnection> merge(Set<ClientConnection> result,
+                                             Set<ClientConnection> clients) {
+    if (clients == null || clients.isEmpty()) {
+      return result;
+    }
+    if (result == null) {
+      return clients;
+    }
+    Set<ClientConnection> merged = result instanceof HashSet ? result : new HashSet<>(result);
+    merged.addAll(clients);
+    return merged;
+  }
+}
@@ -0,0 +1,552 @@
+package no.ntnu.server;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+import no.ntnu.node.Actuator;
+import no.ntnu.node.DeviceFactory;
+import no.ntnu.node.Node;
+import no.ntnu.node.Sensor;
+
+/**
+ * The saved topology of the simulated greenhouse: its nodes, their sensors with their latest
+ * values, their actuators with their states, and the counters the IDs of new devices are taken
+ * from. The server restores the greenhouse from it when it starts, instead of creating the
+ * default nodes again.
+ *
+ * <p>The topology is kept as a binary snapshot of the whole greenhouse, written every so often,
+ * and a write-ahead log of the changes made since. Every change, such as a sensor added from a
+ * control panel or an actuator turned on, is appended to the log at once. The log is forced to
+ * the disk a few milliseconds later, once for all the changes appended in the meantime, so a
+ * burst of actuator toggles costs one disk flush instead of one each, and a power failure loses
+ * at most the changes of the last few milliseconds. Writing a snapshot starts a new log, named
+ * after its generation, and deletes the old one. Restoring reads the snapshot and replays the
+ * logs of its generation and later, so a restart brings back the state as of the last change,
+ * except for sensor values, which are as of the last snapshot. Replaying a change that is
+ * already in the snapshot has no effect.
+ *
+ * <p>Both the snapshot and every log record end with a CRC32 checksum. A record torn by a crash
+ * is dropped, together with anything after it.
+ */
+public class TopologyStore {
+  private static final int MAGIC = 0x47485450; // "GHTP"
+  private static final int VERSION = 1;
+  private static final String SNAPSHOT_FILE = "topology.snapshot";
+  private static final String LOG_PREFIX = "topology-";
+  private static final String LOG_SUFFIX = ".wal";
+  private static final int RECORD_HEADER = 8;
+  private static final int MAX_RECORD_LENGTH = 1 << 20;
+  private static final long FORCE_DELAY = 10;
+
+  private static final byte NODE_RECORD = 1;
+  private static final byte SENSOR_RECORD = 2;
+  private static final byte ACTUATOR_RECORD = 3;
+  private static final byte ACTUATOR_STATE_RECORD = 4;
+
+  private final Path directory;
+  private final ScheduledExecutorService snapshotter;
+  private Supplier<Collection<Node>> nodes;
+  private long generation;
+  private FileChannel log;
+  private boolean forceScheduled;
+
+  private TopologyStore(Path directory) {
+    this.directory = directory;
+    this.snapshotter = Executors.newSingleThreadScheduledExecutor(task -> {
+      Thread thread = new Thread(task, "topology-snapshot");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Open the topology saved in a directory. Nothing is read until {@link #restore()}.
+   *
+   * @param directory The directory, created if it does not exist.
+   * @return The store.
+   * @throws IOException If the directory could not be created.
+   */
+  public static TopologyStore open(Path directory) throws IOException {
+    Files.createDirectories(directory);
+    return new TopologyStore(directory);
+  }
+
+  /**
+   * Read the saved topology, and open the log for the changes to come. The ID counters are
+   * moved past every restored node, sensor and actuator. Must be called once, before any
+   * change is recorded.
+   *
+   * @return The restored nodes, not started, in the order of their IDs. Empty if nothing has
+   *         been saved.
+   * @throws IOException If the snapshot or a log could not be read, or the log could not be
+   *                     opened.
+   */
+  public synchronized List<Node> restore() throws IOException {
+    Map<Integer, Node> restored = new TreeMap<>();
+    int[] nextIds = {0, 0, 0};
+    Path snapshot = this.directory.resolve(SNAPSHOT_FILE);
+    if (Files.exists(snapshot)) {
+      this.generation = readSnapshot(snapshot, restored, nextIds);
+    }
+    Map<Long, Path> logs = new TreeMap<>();
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(this.directory,
+            LOG_PREFIX + "*" + LOG_SUFFIX)) {
+      for (Path file : files) {
+        String name = file.getFileName().toString();
+        logs.put(Long.parseLong(name.substring(LOG_PREFIX.length(),
+                name.length() - LOG_SUFFIX.length())), file);
+      }
+    } catch (NumberFormatException e) {
+      throw new IOException("Unexpected file in " + this.directory, e);
+    }
+    for (Map.Entry<Long, Path> entry : logs.entrySet()) {
+      if (entry.getKey() < this.generation) {
+        Files.delete(entry.getValue());
+      } else {
+        replayLog(entry.getValue(), restored);
+        this.generation = entry.getKey();
+      }
+    }
+    this.log = openLog(this.generation);
+
+    for (Node node : restored.values()) {
+      nextIds[0] = Math.max(nextIds[0], node.getId() + 1);
+      for (Sensor sensor : node.getSensors()) {
+        nextIds[1] = Math.max(nextIds[1], sensor.getSensorId() + 1);
+      }
+      for (Actuator actuator : node.getActuators()) {
+        nextIds[2] = Math.max(nextIds[2], actuator.getId() + 1);
+      }
+    }
+    DeviceFactory.reserveNodeIdsBelow(nextIds[0]);
+    Sensor.reserveIdsBelow(nextIds[1]);
+    Actuator.reserveIdsBelow(nextIds[2]);
+    return new ArrayList<>(restored.values());
+  }
+
+  /**
+   * Write a snapshot of the greenhouse periodically, and when the store is closed.
+   *
+   * @param nodes    Supplies the nodes of the greenhouse.
+   * @param interval The time between two snapshots, in milliseconds.
+   */
+  public void start(Supplier<Collection<Node>> nodes, long interval) {
+    this.nodes = nodes;
+    this.snapshotter.scheduleWithFixedDelay(this::writeSnapshot,
+            interval, interval, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Save a node that has been created, with all its devices.
+   *
+   * @param node The node.
+   */
+  public void recordNode(Node node) {
+    appendRecord(NODE_RECORD, out -> writeNode(out, node));
+  }
+
+  /**
+   * Save a sensor that has been added to a node.
+   *
+   * @param nodeId The ID of the node.
+   * @param sensor The sensor.
+   */
+  public void recordSensor(int nodeId, Sensor sensor) {
+    appendRecord(SENSOR_RECORD, out -> {
+      out.writeInt(nodeId);
+      writeSensor(out, sensor);
+    });
+  }
+
+  /**
+   * Save an actuator that has been added to a node.
+   *
+   * @param nodeId   The ID of the node.
+   * @param actuator The actuator.
+   */
+  public void recordActuator(int nodeId, Actuator actuator) {
+    appendRecord(ACTUATOR_RECORD, out -> {
+      out.writeInt(nodeId);
+      writeActuator(out, actuator);
+    });
+  }
+
+  /**
+   * Save the new state of an actuator.
+   *
+   * @param nodeId     The ID of the node.
+   * @param actuatorId The ID of the actuator.
+   * @param on         The new state.
+   */
+  public void recordActuatorState(int nodeId, int actuatorId, boolean on) {
+    appendRecord(ACTUATOR_STATE_RECORD, out -> {
+      out.writeInt(nodeId);
+      out.writeInt(actuatorId);
+      out.writeBoolean(on);
+    });
+  }
+
+  /**
+   * Stop the periodic snapshots, write a last snapshot and close the log.
+   */
+  public void close() {
+    this.snapshotter.shutdown();
+    writeSnapshot();
+    synchronized (this) {
+      try {
+        if (this.log != null) {
+          this.log.close();
+          this.log = null;
+        }
+      } catch (IOException e) {
+        System.out.println("Could not close the topology log: " + e.getMessage());
+      }
+    }
+  }
+
+  /**
+   * Write a snapshot of the greenhouse, start a new log and delete the old one.
+   */
+  private synchronized void writeSnapshot() {
+    if (this.nodes == null || this.log == null) {
+      return;
+    }
+    long nextGeneration = this.generation + 1;
+    FileChannel nextLog = null;
+    try {
+      nextLog = openLog(nextGeneration);
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      DataOutputStream out = new DataOutputStream(bytes);
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeLong(nextGeneration);
+      out.writeInt(DeviceFactory.getNextNodeId());
+      out.writeInt(Sensor.getNextId());
+      out.writeInt(Actuator.getNextId());
+      Collection<Node> current = List.copyOf(this.nodes.get());
+      out.writeInt(current.size());
+      for (Node node : current) {
+        writeNode(out, node);
+      }
+      CRC32 checksum = new CRC32();
+      checksum.update(bytes.toByteArray());
+      out.writeInt((int) checksum.getValue());
+
+      Path temporary = this.directory.resolve(SNAPSHOT_FILE + ".tmp");
+      try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+              StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+        writeFully(channel, ByteBuffer.wrap(bytes.toByteArray()));
+        channel.force(true);
+      }
+      Files.move(temporary, this.directory.resolve(SNAPSHOT_FILE),
+              StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+      FileChannel previousLog = this.log;
+      long previousGeneration = this.generation;
+      this.log = nextLog;
+      this.generation = nextGeneration;
+      previousLog.close();
+      Files.deleteIfExists(logPath(previousGeneration));
+    } catch (IOException | RuntimeException e) {
+      System.out.println("Could not save the topology: " + e.getMessage());
+      if (nextLog != null && nextLog != this.log) {
+        try {
+          nextLog.close();
+        } catch (IOException closeFailure) {
+          e.addSuppressed(closeFailure);
+        }
+      }
+    }
+  }
+
+  /**
+   * The fields of a log record.
+   */
+  private interface RecordWriter {
+    void write(DataOutputStream out) throws IOException;
+  }
+
+  /**
+   * Append a record to the log, as its length, its CRC32 checksum and its type and fields, and
+   * have the log forced to the disk shortly, unless that is already planned.
+   */
+  private synchronized void appendRecord(byte type, RecordWriter writer) {
+    if (this.log == null) {
+      return;
+    }
+    try {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      DataOutputStream out = new DataOutputStream(bytes);
+      out.writeByte(type);
+      writer.write(out);
+      byte[] payload = bytes.toByteArray();
+      CRC32 checksum = new CRC32();
+      checksum.update(payload);
+      ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER + payload.length);
+      record.putInt(payload.length).putInt((int) checksum.getValue()).put(payload).flip();
+      writeFully(this.log, record);
+    } catch (IOException e) {
+      System.out.println("Could not save a topology change: " + e.getMessage());
+      return;
+    }
+    if (!this.forceScheduled) {
+      this.forceScheduled = true;
+      try {
+        this.snapshotter.schedule(this::forceLog, FORCE_DELAY, TimeUnit.MILLISECONDS);
+      } catch (RejectedExecutionException e) {
+        // The store is closing, and the last snapshot will include the change.
+        this.forceScheduled = false;
+      }
+    }
+  }
+
+  /**
+   * Force the changes appended to the log to the disk. Runs on the snapshot thread, without
+   * holding the lock of the store, so changes can be appended meanwhile.
+   */
+  private void forceLog() {
+    FileChannel channel;
+    synchronized (this) {
+      this.forceScheduled = false;
+      channel = this.log;
+    }
+    if (channel == null) {
+      return;
+    }
+    try {
+      channel.force(false);
+    } catch (ClosedChannelException e) {
+      // The log was replaced by a snapshot, which includes its changes.
+    } catch (IOException e) {
+      System.out.println("Could not save a topology change: " + e.getMessage());
+    }
+  }
+
+  private FileChannel openLog(long logGeneration) throws IOException {
+    return FileChannel.open(logPath(logGeneration), StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+  }
+
+  private Path logPath(long logGeneration) {
+    return this.directory.resolve(LOG_PREFIX + logGeneration + LOG_SUFFIX);
+  }
+
+  /**
+   * Read a snapshot into a map of nodes.
+   *
+   * @return The generation of the first log to replay after the snapshot.
+   */
+  private static long readSnapshot(Path file, Map<Integer, Node> restored, int[] nextIds)
+          throws IOException {
+    byte[] bytes = Files.readAllBytes(file);
+    if (bytes.length < Integer.BYTES) {
+      throw new IOException("Topology snapshot is truncated");
+    }
+    CRC32 checksum = new CRC32();
+    checksum.update(bytes, 0, bytes.length - Integer.BYTES);
+    if ((int) checksum.getValue() != ByteBuffer.wrap(bytes).getInt(bytes.length - Integer.BYTES)) {
+      throw new IOException("Topology snapshot is corrupt");
+    }
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+    if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+      throw new IOException("Not a topology snapshot: " + file);
+    }
+    long generation = in.readLong();
+    nextIds[0] = in.readInt();
+    nextIds[1] = in.readInt();
+    nextIds[2] = in.readInt();
+    int nodeCount = in.readInt();
+    for (int i = 0; i < nodeCount; i++) {
+      Node node = readNode(in);
+      restored.put(node.getId(), node);
+    }
+    return generation;
+  }
+
+  /**
+   * Apply the records of a log to a map of nodes. A torn or corrupt record, and everything
+   * after it, is cut off the log.
+   */
+  private static void replayLog(Path file, Map<Integer, Node> restored) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ,
+            StandardOpenOption.WRITE)) {
+      long size = channel.size();
+      long position = 0;
+      ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER);
+      while (position + RECORD_HEADER <= size) {
+        header.clear();
+        readFully(channel, header, position);
+        int length = header.getInt(0);
+        if (length <= 0 || length > MAX_RECORD_LENGTH
+                || position + RECORD_HEADER + length > size) {
+          break;
+        }
+        ByteBuffer payload = ByteBuffer.allocate(length);
+        readFully(channel, payload, position + RECORD_HEADER);
+        CRC32 checksum = new CRC32();
+        checksum.update(payload.array());
+        if ((int) checksum.getValue() != header.getInt(4)) {
+          break;
+        }
+        applyRecord(new DataInputStream(new ByteArrayInputStream(payload.array())), restored);
+        position += RECORD_HEADER + length;
+      }
+      if (position < size) {
+        System.out.println("Dropping a torn record at the end of " + file);
+        channel.truncate(position);
+      }
+    }
+  }
+
+  private static void applyRecord(DataInputStream in, Map<Integer, Node> restored)
+          throws IOException {
+    byte type = in.readByte();
+    switch (type) {
+      case NODE_RECORD -> {
+        Node node = readNode(in);
+        restored.putIfAbsent(node.getId(), node);
+      }
+      case SENSOR_RECORD -> {
+        Node node = restored.get(in.readInt());
+        if (node != null) {
+          Sensor sensor = readSensor(in, node.getId());
+          boolean known = node.getSensors().stream()
+                  .anyMatch(existing -> existing.getSensorId() == sensor.getSensorId());
+          if (!known) {
+            node.addSensor(sensor);
+          }
+        }
+      }
+      case ACTUATOR_RECORD -> {
+        Node node = restored.get(in.readInt());
+        if (node != null) {
+          Actuator actuator = readActuator(in, node.getId());
+          if (node.getActuator(actuator.getId()) == null) {
+            node.addActuator(actuator);
+          }
+        }
+      }
+      case ACTUATOR_STATE_RECORD -> {
+        Node node = restored.get(in.readInt());
+        int actuatorId = in.readInt();
+        boolean on = in.readBoolean();
+        if (node != null && node.getActuator(actuatorId) != null) {
+          node.getActuator(actuatorId).setState(on);
+        }
+      }
+      default -> throw new IOException("Unknown topology record type: " + type);
+    }
+  }
+
+  private static void writeNode(DataOutputStream out, Node node) throws IOException {
+    List<Sensor> sensors = List.copyOf(node.getSensors());
+    List<Actuator> actuators = new ArrayList<>();
+    node.getActuators().forEach(actuators::add);
+    out.writeInt(node.getId());
+    out.writeLong(node.getSamplingInterval());
+    out.writeInt(sensors.size());
+    for (Sensor sensor : sensors) {
+      writeSensor(out, sensor);
+    }
+    out.writeInt(actuators.size());
+    for (Actuator actuator : actuators) {
+      writeActuator(out, actuator);
+    }
+  }
+
+  private static Node readNode(DataInputStream in) throws IOException {
+    Node node = new Node(in.readInt());
+    node.setSamplingInterval(in.readLong());
+    int sensorCount = in.readInt();
+    for (int i = 0; i < sensorCount; i++) {
+      node.addSensor(readSensor(in, node.getId()));
+    }
+    int actuatorCount = in.readInt();
+    for (int i = 0; i < actuatorCount; i++) {
+      node.addActuator(readActuator(in, node.getId()));
+    }
+    return node;
+  }
+
+  private static void writeSensor(DataOutputStream out, Sensor sensor) throws IOException {
+    out.writeInt(sensor.getSensorId());
+    out.writeUTF(sensor.getType());
+    out.writeUTF(sensor.getReading().getUnit());
+    out.writeDouble(sensor.getMin());
+    out.writeDouble(sensor.getMax());
+    out.writeDouble(sensor.getReading().getValue());
+    out.writeLong(sensor.getSamplingInterval());
+  }
+
+  private static Sensor readSensor(DataInputStream in, int nodeId) throws IOException {
+    int id = in.readInt();
+    String type = in.readUTF();
+    String unit = in.readUTF();
+    double min = in.readDouble();
+    double max = in.readDouble();
+    double value = in.readDouble();
+    Sensor sensor = new Sensor(id, nodeId, type, min, max, value, unit);
+    sensor.setSamplingInterval(in.readLong());
+    return sensor;
+  }
+
+  private static void writeActuator(DataOutputStream out, Actuator actuator)
+          throws IOException {
+    Map<String, Double> impacts = actuator.getImpacts();
+    out.writeInt(actuator.getId());
+    out.writeUTF(actuator.getType());
+    out.writeBoolean(actuator.isOn());
+    out.writeInt(impacts.size());
+    for (Map.Entry<String, Double> impact : impacts.entrySet()) {
+      out.writeUTF(impact.getKey());
+      out.writeDouble(impact.getValue());
+    }
+  }
+
+  private static Actuator readActuator(DataInputStream in, int nodeId) throws IOException {
+    Actuator actuator = new Actuator(in.readInt(), in.readUTF(), nodeId);
+    actuator.setState(in.readBoolean());
+    int impactCount = in.readInt();
+    for (int i = 0; i < impactCount; i++) {
+      actuator.setImpact(in.readUTF(), in.readDouble());
+    }
+    return actuator;
+  }
+
+  private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+  }
+
+  private static void readFully(FileChannel channel, ByteBuffer buffer, long position)
+          throws IOException {
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, position + buffer.position()) < 0) {
+        throw new EOFException("Topology log is truncated");
+      }
+    }
+  }
+}
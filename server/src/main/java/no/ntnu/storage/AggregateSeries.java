@@ -0,0 +1,170 @@
+package no.ntnu.storage;
+
+import java.util.Arrays;
+
+/**
+ * The readings of one sensor in a time range, rolled up into buckets with the minimum,
+ * maximum, sum and count of the readings in each. Buckets are kept as parallel arrays in time
+ * order. A series at the raw resolution has one bucket per reading.
+ */
+public class AggregateSeries {
+  private final int nodeId;
+  private final int sensorId;
+  private final Resolution resolution;
+  private long[] starts;
+  private double[] minimums;
+  private double[] maximums;
+  private double[] sums;
+  private long[] counts;
+  private int size;
+
+  /**
+   * Create an empty series.
+   *
+   * @param nodeId     The ID of the node of the sensor.
+   * @param sensorId   The ID of the sensor.
+   * @param resolution The resolution of the buckets, or null for raw readings.
+   */
+  public AggregateSeries(int nodeId, int sensorId, Resolution resolution) {
+    this.nodeId = nodeId;
+    this.sensorId = sensorId;
+    this.resolution = resolution;
+    this.starts = new long[64];
+    this.minimums = new double[64];
+    this.maximums = new double[64];
+    this.sums = new double[64];
+    this.counts = new long[64];
+  }
+
+  /**
+   * Create a series at the raw resolution from stored readings.
+   *
+   * @param readings The readings.
+   * @return the series.
+   */
+  public static AggregateSeries fromReadings(TimeSeries readings) {
+    AggregateSeries series = new AggregateSeries(
+            readings.getNodeId(), readings.getSensorId(), null);
+    for (int i = 0; i < readings.size(); i++) {
+      double value = readings.getValue(i);
+      series.add(readings.getTimestamp(i), value, value, value, 1);
+    }
+    return series;
+  }
+
+  /**
+   * Add a bucket at the end of the series. A bucket with the same start as the last one is
+   * merged into it.
+   *
+   * @param start   The start of the bucket, in milliseconds since the epoch.
+   * @param minimum The smallest reading in the bucket.
+   * @param maximum The largest reading in the bucket.
+   * @param sum     The sum of the readings in the bucket.
+   * @param count   The number of readings in the bucket.
+   */
+  public void add(long start, double minimum, double maximum, double sum, long count) {
+    if (this.resolution != null && this.size > 0 && this.starts[this.size - 1] == start) {
+      int last = this.size - 1;
+      this.minimums[last] = Math.min(this.minimums[last], minimum);
+      this.maximums[last] = Math.max(this.maximums[last], maximum);
+      this.sums[last] += sum;
+      this.counts[last] += count;
+      return;
+    }
+    if (this.size == this.starts.length) {
+      int capacity = this.size * 2;
+      this.starts = Arrays.copyOf(this.starts, capacity);
+      this.minimums = Arrays.copyOf(this.minimums, capacity);
+      this.maximums = Arrays.copyOf(this.maximums, capacity);
+      this.sums = Arrays.copyOf(this.sums, capacity);
+      this.counts = Arrays.copyOf(this.counts, capacity);
+    }
+    this.starts[this.size] = start;
+    this.minimums[this.size] = minimum;
+    this.maximums[this.size] = maximum;
+    this.sums[this.size] = sum;
+    this.counts[this.size] = count;
+    this.size++;
+  }
+
+  /**
+   * Merge a bucket into the series, in time order. A bucket with the same start as one already
+   * in the series is combined with it.
+   *
+   * @param start   The start of the bucket, in milliseconds since the epoch.
+   * @param minimum The smallest reading in the bucket.
+   * @param maximum The largest reading in the bucket.
+   * @param sum     The sum of the readings in the bucket.
+   * @param count   The number of readings in the bucket.
+   */
+  void merge(long start, double minimum, double maximum, double sum, long count) {
+    int index = Arrays.binarySearch(this.starts, 0, this.size, start);
+    if (index >= 0) {
+      this.minimums[index] = Math.min(this.minimums[index], minimum);
+      this.maximums[index] = Math.max(this.maximums[index], maximum);
+      this.sums[index] += sum;
+      this.counts[index] += count;
+      return;
+    }
+    int position = -index - 1;
+    add(start, minimum, maximum, sum, count);
+    if (position < this.size - 1) {
+      int moved = this.size - 1 - position;
+      System.arraycopy(this.starts, position, this.starts, position + 1, moved);
+      System.arraycopy(this.minimums, position, this.minimums, position + 1, moved);
+      System.arraycopy(this.maximums, position, this.maximums, position + 1, moved);
+      System.arraycopy(this.sums, position, this.sums, position + 1, moved);
+      System.arraycopy(this.counts, position, this.counts, position + 1, moved);
+      this.starts[position] = start;
+      this.minimums[position] = minimum;
+      this.maximums[position] = maximum;
+      this.sums[position] = sum;
+      this.counts[position] = count;
+    }
+  }
+
+  public int getNodeId() {
+    return this.nodeId;
+  }
+
+  public int getSensorId() {
+    return this.sensorId;
+  }
+
+  /**
+   * Return the resolution of the buckets.
+   *
+   * @return the resolution, or null if every bucket is a single reading.
+   */
+  public Resolution getResolution() {
+    return this.resolution;
+  }
+
+  public int size() {
+    return this.size;
+  }
+
+  public long getStart(int index) {
+    return this.starts[index];
+  }
+
+  public double getMinimum(int index) {
+    return this.minimums[index];
+  }
+
+  public double getMaximum(int index) {
+    return this.maximums[index];
+  }
+
+  public double getSum(int index) {
+    return this.sums[index];
+  }
+
+  public long getCount(int index) {
+    return this.counts[index];
+  }
+
+  public double getAverage(int index) {
+    return this.sums[index] / this.counts[index];
+  }
+}
@@ -0,0 +1,70 @@
+package no.ntnu.storage;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/**
+ * Reads the bits written by a {@link BitOutput}, most significant bit first.
+ * Bits are taken from whole 64-bit words of the array, so the array must have
+ * {@link #PADDING} bytes to spare after the bits.
+ */
+class BitInput {
+  static final int PADDING = 8;
+
+  private static final VarHandle WORDS =
+          MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+  private final byte[] bytes;
+  private final long end;
+  private long position;
+
+  /**
+   * Read bits from a byte array.
+   *
+   * @param bytes  The bytes to read, followed by at least {@link #PADDING} more bytes.
+   * @param length The number of bytes holding bits.
+   */
+  BitInput(byte[] bytes, int length) {
+    if (bytes.length < length + PADDING) {
+      throw new IllegalArgumentException("The bytes must be followed by padding");
+    }
+    this.bytes = bytes;
+    this.end = (long) length << 3;
+  }
+
+  boolean readBit() {
+    return readBits(1) != 0;
+  }
+
+  /**
+   * Read a value of a number of bits.
+   *
+   * @param count The number of bits to read, from 1 to 64.
+   * @return The value, in the lowest bits.
+   * @throws IllegalStateException If there are fewer bits left.
+   */
+  long readBits(int count) {
+    if (count > 56) {
+      long high = readBits(count - 32);
+      return (high << 32) | readBits(32);
+    }
+    if (this.position + count > this.end) {
+      throw new IllegalStateException("Read past the end of a compressed block");
+    }
+    long word = (long) WORDS.get(this.bytes, (int) (this.position >>> 3));
+    long value = (word << (this.position & 7)) >>> (64 - count);
+    this.position += count;
+    return value;
+  }
+
+  /**
+   * Read a signed value of a number of bits, written as its lowest bits.
+   *
+   * @param count The number of bits, from 1 to 64.
+   * @return The value.
+   */
+  long readSignedBits(int count) {
+    return (readBits(count) << (64 - count)) >> (64 - count);
+  }
+}
@@ -0,0 +1,54 @@
+package no.ntnu.storage;
+
+import java.util.Arrays;
+
+/**
+ * A growable sequence of bits, written most significant bit first.
+ */
+class BitOutput {
+  private byte[] bytes;
+  private long position;
+
+  BitOutput() {
+    this.bytes = new byte[1024];
+  }
+
+  void writeBit(boolean bit) {
+    writeBits(bit ? 1 : 0, 1);
+  }
+
+  /**
+   * Write the lowest bits of a value.
+   *
+   * @param value The value to write.
+   * @param count The number of bits to write, from 1 to 64.
+   */
+  void writeBits(long value, int count) {
+    ensureCapacity(count);
+    while (count > 0) {
+      int byteIndex = (int) (this.position >>> 3);
+      int free = 8 - (int) (this.position & 7);
+      int take = Math.min(free, count);
+      int bits = (int) (value >>> (count - take)) & ((1 << take) - 1);
+      this.bytes[byteIndex] |= (byte) (bits << (free - take));
+      this.position += take;
+      count -= take;
+    }
+  }
+
+  private void ensureCapacity(int count) {
+    long needed = (this.position + count + 7) >>> 3;
+    if (needed > this.bytes.length) {
+      this.bytes = Arrays.copyOf(this.bytes, (int) Math.max(needed, this.bytes.length * 2L));
+    }
+  }
+
+  /**
+   * Return the written bits, padded with zero bits to a whole number of bytes.
+   *
+   * @return the bytes.
+   */
+  byte[] toByteArray() {
+    return Arrays.copyOf(this.bytes, (int) ((this.position + 7) >>> 3));
+  }
+}
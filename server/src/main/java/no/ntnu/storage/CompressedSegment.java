@@ -0,0 +1,368 @@
+package no.ntnu.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A sealed segment, compressed into blocks of up to {@link Segment#INDEX_INTERVAL} readings.
+ * Each block holds the timestamps and then the values of its readings, and can be decoded on its
+ * own, so a range query only reads the blocks that overlap the range.
+ *
+ * <p>Timestamps are stored as the difference between consecutive differences, which is zero or
+ * a few milliseconds for readings taken at a fixed interval, in a prefix code of 1 to 68 bits.
+ * Values are stored in one of two ways, chosen per block. If every value has at most two
+ * decimals, as the simulated sensors give, the values are scaled to integers and the
+ * differences between them are stored in a prefix code of 1 to 67 bits. Otherwise the bits of
+ * each value are XORed with those of the value before, and only the bits between the leading
+ * and trailing zeros of the result are stored.
+ *
+ * <p>The file starts with a header and a table with the first timestamp, offset and length of
+ * every block, which is kept in memory once the segment is opened.
+ */
+class CompressedSegment implements SegmentFile {
+  static final String SUFFIX = ".chunk";
+
+  private static final int MAGIC = 0x47485443; // "GHTC"
+  private static final int VERSION = 1;
+  private static final int HEADER_SIZE = 24;
+  private static final int BLOCK_ENTRY_SIZE = 16;
+  private static final byte SCALED_VALUES = 0;
+  private static final byte XOR_VALUES = 1;
+  private static final double SCALE = 100;
+  private static final double MAX_SCALED = 1e15;
+
+  private final Path path;
+  private final long firstTimestamp;
+  private final long lastTimestamp;
+  private final int count;
+  private final long[] blockTimestamps;
+  private final int[] blockOffsets;
+  private final int[] blockLengths;
+
+  private CompressedSegment(Path path, long firstTimestamp, long lastTimestamp, int count,
+                            long[] blockTimestamps, int[] blockOffsets, int[] blockLengths) {
+    this.path = path;
+    this.firstTimestamp = firstTimestamp;
+    this.lastTimestamp = lastTimestamp;
+    this.count = count;
+    this.blockTimestamps = blockTimestamps;
+    this.blockOffsets = blockOffsets;
+    this.blockLengths = blockLengths;
+  }
+
+  /**
+   * Compress the readings of a sealed segment into a new file. The file is written under a
+   * temporary name and then renamed, so it is either complete or missing.
+   *
+   * @param target The file to write.
+   * @param source The segment to compress.
+   * @return The compressed segment.
+   * @throws IOException If the segment could not be read or the file could not be written.
+   */
+  static CompressedSegment write(Path target, Segment source) throws IOException {
+    TimeSeries readings = new TimeSeries(0, 0);
+    source.read(Long.MIN_VALUE, Long.MAX_VALUE, readings);
+    int count = readings.size();
+    int blockCount = (count + Segment.INDEX_INTERVAL - 1) / Segment.INDEX_INTERVAL;
+    long[] blockTimestamps = new long[blockCount];
+    int[] blockOffsets = new int[blockCount];
+    int[] blockLengths = new int[blockCount];
+    byte[][] blocks = new byte[blockCount][];
+    int offset = HEADER_SIZE + blockCount * BLOCK_ENTRY_SIZE;
+    for (int block = 0; block < blockCount; block++) {
+      int start = block * Segment.INDEX_INTERVAL;
+      int end = Math.min(count, start + Segment.INDEX_INTERVAL);
+      blocks[block] = encodeBlock(readings, start, end);
+      blockTimestamps[block] = readings.getTimestamp(start);
+      blockOffsets[block] = offset;
+      blockLengths[block] = blocks[block].length;
+      offset += blocks[block].length;
+    }
+    long lastTimestamp = count > 0 ? readings.getTimestamp(count - 1) : source.getLastTimestamp();
+
+    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE + blockCount * BLOCK_ENTRY_SIZE);
+    header.putInt(MAGIC).putInt(VERSION).putInt(count).putInt(blockCount).putLong(lastTimestamp);
+    for (int block = 0; block < blockCount; block++) {
+      header.putLong(blockTimestamps[block]).putInt(blockOffsets[block])
+              .putInt(blockLengths[block]);
+    }
+    header.flip();
+    Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+    try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+      writeFully(channel, header);
+      for (byte[] block : blocks) {
+        writeFully(channel, ByteBuffer.wrap(block));
+      }
+      channel.force(true);
+    }
+    Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE,
+            StandardCopyOption.REPLACE_EXISTING);
+    return new CompressedSegment(target, source.getFirstTimestamp(), lastTimestamp, count,
+            blockTimestamps, blockOffsets, blockLengths);
+  }
+
+  private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+  }
+
+  /**
+   * Open a compressed segment, reading its header and block table.
+   *
+   * @param path           The file of the segment.
+   * @param firstTimestamp The timestamp of the first reading, from the name of the file.
+   * @return The segment.
+   * @throws IOException If the file could not be read, or is not a compressed segment.
+   */
+  static CompressedSegment open(Path path, long firstTimestamp) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      ByteBuffer header = readFully(channel, 0, HEADER_SIZE);
+      if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+        throw new IOException("Not a compressed segment file: " + path);
+      }
+      int count = header.getInt();
+      int blockCount = header.getInt();
+      long lastTimestamp = header.getLong();
+      if (count < 0 || count > Segment.CAPACITY
+              || blockCount != (count + Segment.INDEX_INTERVAL - 1) / Segment.INDEX_INTERVAL) {
+        throw new IOException("Invalid header in " + path);
+      }
+      ByteBuffer table = readFully(channel, HEADER_SIZE, blockCount * BLOCK_ENTRY_SIZE);
+      long[] blockTimestamps = new long[blockCount];
+      int[] blockOffsets = new int[blockCount];
+      int[] blockLengths = new int[blockCount];
+      for (int block = 0; block < blockCount; block++) {
+        blockTimestamps[block] = table.getLong();
+        blockOffsets[block] = table.getInt();
+        blockLengths[block] = table.getInt();
+      }
+      return new CompressedSegment(path, firstTimestamp, lastTimestamp, count,
+              blockTimestamps, blockOffsets, blockLengths);
+    }
+  }
+
+  private static ByteBuffer readFully(FileChannel channel, long position, int length)
+          throws IOException {
+    return readFully(channel, ByteBuffer.allocate(length), position);
+  }
+
+  private static ByteBuffer readFully(FileChannel channel, ByteBuffer buffer, long position)
+          throws IOException {
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, position + buffer.position()) < 0) {
+        throw new IOException("Compressed segment file is truncated");
+      }
+    }
+    return buffer.flip();
+  }
+
+  @Override
+  public long getFirstTimestamp() {
+    return this.firstTimestamp;
+  }
+
+  @Override
+  public long getLastTimestamp() {
+    return this.lastTimestamp;
+  }
+
+  @Override
+  public void read(long from, long to, TimeSeries result) throws IOException {
+    if (this.count == 0 || this.firstTimestamp >= to || this.lastTimestamp < from) {
+      return;
+    }
+    int block = 0;
+    while (block + 1 < this.blockTimestamps.length && this.blockTimestamps[block + 1] < from) {
+      block++;
+    }
+    try (FileChannel channel = FileChannel.open(this.path, StandardOpenOption.READ)) {
+      for (; block < this.blockTimestamps.length && this.blockTimestamps[block] < to; block++) {
+        int length = this.blockLengths[block];
+        ByteBuffer bytes = ByteBuffer.allocate(length + BitInput.PADDING).limit(length);
+        readFully(channel, bytes, this.blockOffsets[block]);
+        int size = Math.min(Segment.INDEX_INTERVAL, this.count - block * Segment.INDEX_INTERVAL);
+        try {
+          decodeBlock(bytes.array(), length, size, from, to, result);
+        } catch (IllegalStateException e) {
+          throw new IOException("Corrupt block " + block + " in " + this.path, e);
+        }
+      }
+    }
+  }
+
+  private static byte[] encodeBlock(TimeSeries readings, int start, int end) {
+    boolean scaled = true;
+    for (int i = start; i < end && scaled; i++) {
+      scaled = isScalable(readings.getValue(i));
+    }
+    BitOutput out = new BitOutput();
+    out.writeBits(scaled ? SCALED_VALUES : XOR_VALUES, 8);
+
+    long previousTimestamp = readings.getTimestamp(start);
+    long previousDelta = 0;
+    out.writeBits(previousTimestamp, 64);
+    for (int i = start + 1; i < end; i++) {
+      long delta = readings.getTimestamp(i) - previousTimestamp;
+      writeTimestampDelta(out, delta - previousDelta);
+      previousTimestamp = readings.getTimestamp(i);
+      previousDelta = delta;
+    }
+
+    if (scaled) {
+      long previous = Math.round(readings.getValue(start) * SCALE);
+      out.writeBits(previous, 64);
+      for (int i = start + 1; i < end; i++) {
+        long value = Math.round(readings.getValue(i) * SCALE);
+        writeScaledDelta(out, value - previous);
+        previous = value;
+      }
+    } else {
+      long previous = Double.doubleToRawLongBits(readings.getValue(start));
+      out.writeBits(previous, 64);
+      int previousLeading = -1;
+      int previousTrailing = 0;
+      for (int i = start + 1; i < end; i++) {
+        long value = Double.doubleToRawLongBits(readings.getValue(i));
+        long xor = value ^ previous;
+        previous = value;
+        if (xor == 0) {
+          out.writeBit(false);
+          continue;
+        }
+        out.writeBit(true);
+        int leading = Math.min(31, Long.numberOfLeadingZeros(xor));
+        int trailing = Long.numberOfTrailingZeros(xor);
+        if (previousLeading >= 0 && leading >= previousLeading && trailing >= previousTrailing) {
+          out.writeBit(false);
+          out.writeBits(xor >>> previousTrailing, 64 - previousLeading - previousTrailing);
+        } else {
+          int length = 64 - leading - trailing;
+          out.writeBit(true);
+          out.writeBits(leading, 5);
+          out.writeBits(length - 1, 6);
+          out.writeBits(xor >>> trailing, length);
+          previousLeading = leading;
+          previousTrailing = trailing;
+        }
+      }
+    }
+    return out.toByteArray();
+  }
+
+  private static boolean isScalable(double value) {
+    double scaled = value * SCALE;
+    return Math.abs(scaled) < MAX_SCALED && Math.round(scaled) / SCALE == value;
+  }
+
+  private static void writeTimestampDelta(BitOutput out, long deltaOfDelta) {
+    if (deltaOfDelta == 0) {
+      out.writeBit(false);
+    } else if (deltaOfDelta >= -64 && deltaOfDelta < 64) {
+      out.writeBits(0b10, 2);
+      out.writeBits(deltaOfDelta, 7);
+    } else if (deltaOfDelta >= -256 && deltaOfDelta < 256) {
+      out.writeBits(0b110, 3);
+      out.writeBits(deltaOfDelta, 9);
+    } else if (deltaOfDelta >= -2048 && deltaOfDelta < 2048) {
+      out.writeBits(0b1110, 4);
+      out.writeBits(deltaOfDelta, 12);
+    } else {
+      out.writeBits(0b1111, 4);
+      out.writeBits(deltaOfDelta, 64);
+    }
+  }
+
+  private static long readTimestampDelta(BitInput in) {
+    if (!in.readBit()) {
+      return 0;
+    } else if (!in.readBit()) {
+      return in.readSignedBits(7);
+    } else if (!in.readBit()) {
+      return in.readSignedBits(9);
+    } else if (!in.readBit()) {
+      return in.readSignedBits(12);
+    }
+    return in.readBits(64);
+  }
+
+  private static void writeScaledDelta(BitOutput out, long delta) {
+    if (delta == 0) {
+      out.writeBit(false);
+    } else if (delta >= -128 && delta < 128) {
+      out.writeBits(0b10, 2);
+      out.writeBits(delta, 8);
+    } else if (delta >= -32768 && delta < 32768) {
+      out.writeBits(0b110, 3);
+      out.writeBits(delta, 16);
+    } else {
+      out.writeBits(0b111, 3);
+      out.writeBits(delta, 64);
+    }
+  }
+
+  private static long readScaledDelta(BitInput in) {
+    if (!in.readBit()) {
+      return 0;
+    } else if (!in.readBit()) {
+      return in.readSignedBits(8);
+    } else if (!in.readBit()) {
+      return in.readSignedBits(16);
+    }
+    return in.readBits(64);
+  }
+
+  /**
+   * Decode a block, adding the readings in a time range to a series. The timestamps are decoded
+   * first, into a buffer, since they come before the values in the block.
+   */
+  private static void decodeBlock(byte[] bytes, int length, int size, long from, long to,
+                                  TimeSeries result) {
+    BitInput in = new BitInput(bytes, length);
+    boolean scaled = in.readBits(8) == SCALED_VALUES;
+    long[] timestamps = new long[size];
+    timestamps[0] = in.readBits(64);
+    long delta = 0;
+    for (int i = 1; i < size; i++) {
+      delta += readTimestampDelta(in);
+      timestamps[i] = timestamps[i - 1] + delta;
+    }
+    if (scaled) {
+      long value = in.readBits(64);
+      for (int i = 0; i < size; i++) {
+        if (i > 0) {
+          value += readScaledDelta(in);
+        }
+        addInRange(result, timestamps[i], value / SCALE, from, to);
+      }
+      return;
+    }
+    long bits = in.readBits(64);
+    int leading = 0;
+    int trailing = 0;
+    for (int i = 0; i < size; i++) {
+      if (i > 0 && in.readBit()) {
+        if (in.readBit()) {
+          leading = (int) in.readBits(5);
+          int meaningful = (int) in.readBits(6) + 1;
+          trailing = 64 - leading - meaningful;
+        }
+        bits ^= in.readBits(64 - leading - trailing) << trailing;
+      }
+      addInRange(result, timestamps[i], Double.longBitsToDouble(bits), from, to);
+    }
+  }
+
+  private static void addInRange(TimeSeries result, long timestamp, double value,
+                                 long from, long to) {
+    if (timestamp >= from && timestamp < to) {
+      result.add(timestamp, value);
+    }
+  }
+}
@@ -0,0 +1,83 @@
+package no.ntnu.storage;
+
+/**
+ * The resolutions sensor readings are rolled up to, from the finest to the coarsest.
+ * Buckets are aligned to the epoch, so the daily buckets follow UTC days.
+ */
+public enum Resolution {
+  MINUTE("1m", 60_000L),
+  HOUR("1h", 3_600_000L),
+  DAY("1d", 86_400_000L);
+
+  private final String name;
+  private final long duration;
+
+  Resolution(String name, long duration) {
+    this.name = name;
+    this.duration = duration;
+  }
+
+  /**
+   * Return the short name of the resolution, such as {@code 1m}.
+   *
+   * @return the name of the resolution.
+   */
+  public String getName() {
+    return this.name;
+  }
+
+  /**
+   * Return the length of a bucket.
+   *
+   * @return the length, in milliseconds.
+   */
+  public long getDuration() {
+    return this.duration;
+  }
+
+  /**
+   * Return the start of the bucket a time falls in.
+   *
+   * @param timestamp The time, in milliseconds since the epoch.
+   * @return the start of the bucket.
+   */
+  public long bucketStart(long timestamp) {
+    return Math.floorDiv(timestamp, this.duration) * this.duration;
+  }
+
+  /**
+   * Return the resolution with a short name.
+   *
+   * @param name The name, such as {@code 1h}.
+   * @return the resolution.
+   * @throws IllegalArgumentException If no resolution has the name.
+   */
+  public static Resolution fromName(String name) {
+    for (Resolution resolution : values()) {
+      if (resolution.name.equals(name)) {
+        return resolution;
+      }
+    }
+    throw new IllegalArgumentException("Unknown resolution: " + name);
+  }
+
+  /**
+   * Choose the coarsest resolution that still has at least a number of buckets in a time
+   * range, so a chart of the range gets a point for every pixel, and no more than needed.
+   *
+   * @param from      The start of the range, in milliseconds since the epoch.
+   * @param to        The end of the range, in milliseconds since the epoch.
+   * @param maxPoints The number of points wanted, such as the width of a chart.
+   * @return the resolution, or null if the range needs the raw readings.
+   */
+  public static Resolution choose(long from, long to, int maxPoints) {
+    long step = (to - from) / Math.max(1, maxPoints);
+    Resolution chosen = null;
+    for (Resolution resolution : values()) {
+      if (resolution.duration <= step) {
+        chosen = resolution;
+      }
+    }
+    return chosen;
+  }
+}
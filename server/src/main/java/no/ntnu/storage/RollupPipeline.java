@@ -0,0 +1,512 @@
+package no.ntnu.storage;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Rolls the stored readings of every sensor up into buckets at each {@link Resolution}, as they
+ * are written. For every sensor and resolution only the bucket currently being filled is kept
+ * in memory. When a reading falls in a later bucket, the finished bucket is appended to the
+ * file {@code rollup-<resolution>.dat} in the directory of the sensor, as a fixed-size record
+ * of its start, minimum, maximum, sum and count.
+ *
+ * <p>A reading that falls in an earlier bucket than the one being filled, because it was
+ * measured before readings that arrived ahead of it, is written at once as a record of its own
+ * to {@code rollup-<resolution>-late.dat}, and merged into its bucket by queries.
+ *
+ * <p>The buckets being filled, the number of records in each file and the position of the last
+ * reading added are saved to {@code rollup-open.dat} whenever a record is written and when the
+ * store closes. When the rollups of a sensor are opened again, records written after the last
+ * save are dropped, and the buckets are rebuilt from the saved ones and the stored readings
+ * that came after them. A server that was killed therefore loses no readings from its rollups,
+ * but readings rebuilt this way are rolled up at the time they were stored, which for a late
+ * reading is the time of the reading before it.
+ *
+ * <p>Readings are added by the writer thread of the store, while queries may come from any
+ * thread. A query reads the records that were in the files when it started, and adds the
+ * bucket that was being filled at that time, so it neither misses nor counts a bucket twice.
+ */
+class RollupPipeline {
+  private static final int RECORD_SIZE = 40;
+  private static final int STATE_SIZE = 2 * Long.BYTES
+          + Resolution.values().length * (2 * Long.BYTES + RECORD_SIZE);
+  private static final int READ_RECORDS = 1024;
+
+  private final Path root;
+  private final RawReader reader;
+  private final Map<Long, SensorRollups> sensors;
+
+  /**
+   * Reads the stored readings of a sensor, to rebuild its buckets from.
+   */
+  @FunctionalInterface
+  interface RawReader {
+    TimeSeries read(int nodeId, int sensorId, long from, long to) throws IOException;
+  }
+
+  /**
+   * A bucket being filled.
+   */
+  private static class Bucket {
+    private long start;
+    private double minimum;
+    private double maximum;
+    private double sum;
+    private long count;
+
+    private Bucket(long start, double value) {
+      this(start, value, value, value, 1);
+    }
+
+    private Bucket(long start, double minimum, double maximum, double sum, long count) {
+      this.start = start;
+      this.minimum = minimum;
+      this.maximum = maximum;
+      this.sum = sum;
+      this.count = count;
+    }
+
+    private Bucket(Bucket other) {
+      this(other.start, other.minimum, other.maximum, other.sum, other.count);
+    }
+
+    private void add(double value) {
+      this.minimum = Math.min(this.minimum, value);
+      this.maximum = Math.max(this.maximum, value);
+      this.sum += value;
+      this.count++;
+    }
+  }
+
+  /**
+   * The buckets being filled for one sensor, the number of records in each rollup file, and
+   * the stored time of the last reading added, with how many readings were added at that time.
+   */
+  private static class SensorRollups {
+    private final Path directory;
+    private final Bucket[] open;
+    private final long[] recordCounts;
+    private final long[] lateCounts;
+    private long lastTimestamp;
+    private long lastTimestampCount;
+
+    private SensorRollups(Path directory) {
+      this.directory = directory;
+      this.open = new Bucket[Resolution.values().length];
+      this.recordCounts = new long[Resolution.values().length];
+      this.lateCounts = new long[Resolution.values().length];
+      this.lastTimestamp = Long.MIN_VALUE;
+    }
+
+    /**
+     * Open the rollups of a sensor, and rebuild the buckets being filled.
+     */
+    private static SensorRollups open(Path directory, int nodeId, int sensorId,
+                                      RawReader reader) throws IOException {
+      SensorRollups rollups = new SensorRollups(directory);
+      if (rollups.loadState()) {
+        rollups.replay(reader.read(nodeId, sensorId, rollups.lastTimestamp, Long.MAX_VALUE),
+                rollups.lastTimestampCount, null);
+      } else {
+        // No saved state, so every resolution continues after its last record.
+        long[] ends = new long[Resolution.values().length];
+        long from = Long.MAX_VALUE;
+        for (Resolution resolution : Resolution.values()) {
+          ends[resolution.ordinal()] = rollups.lastRecordEnd(resolution);
+          from = Math.min(from, ends[resolution.ordinal()]);
+        }
+        TimeSeries readings = reader.read(nodeId, sensorId, from, Long.MAX_VALUE);
+        rollups.lastTimestamp = from;
+        rollups.replay(readings, 0, ends);
+      }
+      return rollups;
+    }
+
+    private Path file(Resolution resolution) {
+      return this.directory.resolve("rollup-" + resolution.getName() + ".dat");
+    }
+
+    private Path lateFile(Resolution resolution) {
+      return this.directory.resolve("rollup-" + resolution.getName() + "-late.dat");
+    }
+
+    private Path stateFile() {
+      return this.directory.resolve("rollup-open.dat");
+    }
+
+    /**
+     * Read the saved state, and drop the records written after it. Without a saved state, only
+     * a record the server stopped in the middle of is dropped.
+     *
+     * @return True if there was a saved state.
+     */
+    private boolean loadState() throws IOException {
+      Path stateFile = stateFile();
+      ByteBuffer state = null;
+      if (Files.exists(stateFile)) {
+        state = ByteBuffer.wrap(Files.readAllBytes(stateFile));
+        if (state.remaining() != STATE_SIZE) {
+          System.out.println("Ignoring the damaged rollup state " + stateFile);
+          state = null;
+        }
+      }
+      if (state != null) {
+        this.lastTimestamp = state.getLong();
+        this.lastTimestampCount = state.getLong();
+      }
+      for (Resolution resolution : Resolution.values()) {
+        long records = Long.MAX_VALUE;
+        long late = Long.MAX_VALUE;
+        if (state != null) {
+          records = state.getLong();
+          late = state.getLong();
+          long start = state.getLong();
+          double minimum = state.getDouble();
+          double maximum = state.getDouble();
+          double sum = state.getDouble();
+          long count = state.getLong();
+          if (count > 0) {
+            this.open[resolution.ordinal()] = new Bucket(start, minimum, maximum, sum, count);
+          }
+        }
+        this.recordCounts[resolution.ordinal()] = truncate(file(resolution), records);
+        this.lateCounts[resolution.ordinal()] = truncate(lateFile(resolution), late);
+      }
+      return state != null;
+    }
+
+    /**
+     * Cut a rollup file down to a number of whole records, and return the number it has.
+     */
+    private static long truncate(Path file, long records) throws IOException {
+      if (!Files.exists(file)) {
+        return 0;
+      }
+      long size = Files.size(file);
+      records = Math.min(records, size / RECORD_SIZE);
+      if (size != records * RECORD_SIZE) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+          channel.truncate(records * RECORD_SIZE);
+        }
+      }
+      return records;
+    }
+
+    private long lastRecordEnd(Resolution resolution) throws IOException {
+      long records = this.recordCounts[resolution.ordinal()];
+      if (records == 0) {
+        return Long.MIN_VALUE;
+      }
+      try (FileChannel channel = FileChannel.open(file(resolution), StandardOpenOption.READ)) {
+        ByteBuffer start = ByteBuffer.allocate(Long.BYTES);
+        readFully(channel, start, (records - 1) * RECORD_SIZE);
+        return start.getLong(0) + resolution.getDuration();
+      }
+    }
+
+    /**
+     * Add stored readings again, skipping a number of readings at the start, and at each
+     * resolution the readings before an end if given.
+     */
+    private synchronized void replay(TimeSeries readings, long skip, long[] ends)
+            throws IOException {
+      int first = 0;
+      while (first < readings.size() && first < skip
+              && readings.getTimestamp(first) == this.lastTimestamp) {
+        first++;
+      }
+      for (int i = first; i < readings.size(); i++) {
+        long timestamp = readings.getTimestamp(i);
+        countTimestamp(timestamp);
+        for (Resolution resolution : Resolution.values()) {
+          if (ends == null || timestamp >= ends[resolution.ordinal()]) {
+            add(resolution, timestamp, readings.getValue(i));
+          }
+        }
+      }
+      saveState();
+    }
+
+    private synchronized void add(long storedTimestamp, long timestamp, double value)
+            throws IOException {
+      countTimestamp(storedTimestamp);
+      boolean written = false;
+      for (Resolution resolution : Resolution.values()) {
+        written |= add(resolution, timestamp, value);
+      }
+      if (written) {
+        saveState();
+      }
+    }
+
+    private void countTimestamp(long storedTimestamp) {
+      if (storedTimestamp == this.lastTimestamp) {
+        this.lastTimestampCount++;
+      } else {
+        this.lastTimestamp = storedTimestamp;
+        this.lastTimestampCount = 1;
+      }
+    }
+
+    /**
+     * Add a reading at a resolution.
+     *
+     * @return True if a record was written.
+     */
+    private boolean add(Resolution resolution, long timestamp, double value) throws IOException {
+      Bucket bucket = this.open[resolution.ordinal()];
+      long start = resolution.bucketStart(timestamp);
+      if (bucket == null) {
+        this.open[resolution.ordinal()] = new Bucket(start, value);
+        return false;
+      } else if (start > bucket.start) {
+        write(file(resolution), bucket);
+        this.recordCounts[resolution.ordinal()]++;
+        this.open[resolution.ordinal()] = new Bucket(start, value);
+        return true;
+      } else if (start < bucket.start) {
+        write(lateFile(resolution), new Bucket(start, value));
+        this.lateCounts[resolution.ordinal()]++;
+        return true;
+      } else {
+        bucket.add(value);
+        return false;
+      }
+    }
+
+    private void write(Path file, Bucket bucket) throws IOException {
+      Files.createDirectories(this.directory);
+      ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+      put(record, bucket).flip();
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+              StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+        while (record.hasRemaining()) {
+          channel.write(record);
+        }
+      }
+    }
+
+    private static ByteBuffer put(ByteBuffer buffer, Bucket bucket) {
+      return buffer.putLong(bucket.start).putDouble(bucket.minimum).putDouble(bucket.maximum)
+              .putDouble(bucket.sum).putLong(bucket.count);
+    }
+
+    /**
+     * Save the state, replacing the saved one in a single step.
+     */
+    private synchronized void saveState() throws IOException {
+      ByteBuffer state = ByteBuffer.allocate(STATE_SIZE);
+      state.putLong(this.lastTimestamp).putLong(this.lastTimestampCount);
+      for (Resolution resolution : Resolution.values()) {
+        state.putLong(this.recordCounts[resolution.ordinal()])
+                .putLong(this.lateCounts[resolution.ordinal()]);
+        Bucket bucket = this.open[resolution.ordinal()];
+        put(state, bucket == null ? new Bucket(0, 0, 0, 0, 0) : bucket);
+      }
+      Files.createDirectories(this.directory);
+      Path temporary = this.directory.resolve("rollup-open.tmp");
+      Files.write(temporary, state.array());
+      Files.move(temporary, stateFile(), StandardCopyOption.REPLACE_EXISTING,
+              StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private AggregateSeries read(int nodeId, int sensorId, Resolution resolution,
+                                 long from, long to) throws IOException {
+      long records;
+      long late;
+      Bucket open;
+      synchronized (this) {
+        records = this.recordCounts[resolution.ordinal()];
+        late = this.lateCounts[resolution.ordinal()];
+        Bucket bucket = this.open[resolution.ordinal()];
+        open = bucket == null ? null : new Bucket(bucket);
+      }
+      AggregateSeries result = new AggregateSeries(nodeId, sensorId, resolution);
+      long first = resolution.bucketStart(from);
+      if (records > 0) {
+        readFile(file(resolution), records, first, to, result);
+      }
+      if (open != null && open.start >= first && open.start < to) {
+        result.add(open.start, open.minimum, open.maximum, open.sum, open.count);
+      }
+      if (late > 0) {
+        readLateFile(lateFile(resolution), late, first, to, result);
+      }
+      return result;
+    }
+  }
+
+  /**
+   * Create a pipeline keeping its rollups in the sensor directories of a store.
+   *
+   * @param root   The root directory of the store.
+   * @param reader Reads the stored readings, to rebuild the buckets being filled from.
+   */
+  RollupPipeline(Path root, RawReader reader) {
+    this.root = root;
+    this.reader = reader;
+    this.sensors = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * Open the rollups of a sensor before a reading of it is stored, so the reading is not also
+   * rebuilt from the stored readings. Must only be called by the writer thread.
+   *
+   * @param nodeId   The ID of the node of the sensor.
+   * @param sensorId The ID of the sensor.
+   * @throws IOException If the rollups could not be opened.
+   */
+  void prepare(int nodeId, int sensorId) throws IOException {
+    try {
+      getSensor(nodeId, sensorId);
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  /**
+   * Add a stored reading to the buckets of its sensor. Must only be called by the writer thread.
+   *
+   * @param nodeId          The ID of the node of the sensor.
+   * @param sensorId        The ID of the sensor.
+   * @param storedTimestamp The time the reading was stored at.
+   * @param timestamp       The time of the reading.
+   * @param value           The value of the reading.
+   * @throws IOException If a finished bucket could not be written.
+   */
+  void add(int nodeId, int sensorId, long storedTimestamp, long timestamp, double value)
+          throws IOException {
+    try {
+      getSensor(nodeId, sensorId).add(storedTimestamp, timestamp, value);
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  /**
+   * Read the buckets of a sensor at a resolution, in a time range. The bucket the start of the
+   * range falls in is included.
+   *
+   * @param nodeId     The ID of the node of the sensor.
+   * @param sensorId   The ID of the sensor.
+   * @param resolution The resolution.
+   * @param from       The start of the range, inclusive.
+   * @param to         The end of the range, exclusive.
+   * @return The buckets.
+   * @throws IOException If a rollup file could not be read.
+   */
+  AggregateSeries query(int nodeId, int sensorId, Resolution resolution, long from, long to)
+          throws IOException {
+    try {
+      return getSensor(nodeId, sensorId).read(nodeId, sensorId, resolution, from, to);
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  /**
+   * Save the buckets being filled, for example when the server stops.
+   */
+  void flush() {
+    for (SensorRollups sensor : this.sensors.values()) {
+      try {
+        sensor.saveState();
+      } catch (IOException e) {
+        System.out.println("Could not save rollups to " + sensor.directory
+                + ": " + e.getMessage());
+      }
+    }
+  }
+
+  private SensorRollups getSensor(int nodeId, int sensorId) {
+    return this.sensors.computeIfAbsent(TimeSeriesStore.seriesKey(nodeId, sensorId), key -> {
+      try {
+        return SensorRollups.open(TimeSeriesStore.seriesDirectory(this.root, nodeId, sensorId),
+                nodeId, sensorId, this.reader);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    });
+  }
+
+  /**
+   * Add the records of a rollup file with starts in a range to a series. The first record in
+   * the range is found by a binary search, since the records are in time order.
+   */
+  private static void readFile(Path file, long records, long from, long to,
+                               AggregateSeries result) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      ByteBuffer buffer = ByteBuffer.allocate(READ_RECORDS * RECORD_SIZE);
+      long low = 0;
+      long high = records;
+      while (low < high) {
+        long middle = (low + high) >>> 1;
+        buffer.clear().limit(Long.BYTES);
+        readFully(channel, buffer, middle * RECORD_SIZE);
+        if (buffer.getLong(0) < from) {
+          low = middle + 1;
+        } else {
+          high = middle;
+        }
+      }
+      for (long position = low; position < records; position += READ_RECORDS) {
+        int count = (int) Math.min(READ_RECORDS, records - position);
+        buffer.clear().limit(count * RECORD_SIZE);
+        readFully(channel, buffer, position * RECORD_SIZE);
+        buffer.flip();
+        for (int i = 0; i < count; i++) {
+          long start = buffer.getLong();
+          if (start >= to) {
+            return;
+          }
+          result.add(start, buffer.getDouble(), buffer.getDouble(), buffer.getDouble(),
+                  buffer.getLong());
+        }
+      }
+    }
+  }
+
+  /**
+   * Merge the records of a file of late readings with starts in a range into a series. The
+   * records are in the order the readings arrived, so the whole file is read.
+   */
+  private static void readLateFile(Path file, long records, long from, long to,
+                                   AggregateSeries result) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      ByteBuffer buffer = ByteBuffer.allocate(READ_RECORDS * RECORD_SIZE);
+      for (long position = 0; position < records; position += READ_RECORDS) {
+        int count = (int) Math.min(READ_RECORDS, records - position);
+        buffer.clear().limit(count * RECORD_SIZE);
+        readFully(channel, buffer, position * RECORD_SIZE);
+        buffer.flip();
+        for (int i = 0; i < count; i++) {
+          long start = buffer.getLong();
+          double minimum = buffer.getDouble();
+          double maximum = buffer.getDouble();
+          double sum = buffer.getDouble();
+          long bucketCount = buffer.getLong();
+          if (start >= from && start < to) {
+            result.merge(start, minimum, maximum, sum, bucketCount);
+          }
+        }
+      }
+    }
+  }
+
+  private static void readFully(FileChannel channel, ByteBuffer buffer, long position)
+          throws IOException {
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, position + buffer.position()) < 0) {
+        throw new IOException("Rollup file is truncated");
+      }
+    }
+  }
+}
@@ -0,0 +1,259 @@
+package no.ntnu.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * One file of a series: a header followed by fixed-size records of a timestamp and a value, in
+ * the order they were appended. The timestamps never decrease within a segment.
+ *
+ * <p>The segment being appended to is memory-mapped, and the record count in its header is
+ * updated after every record, so a restarted server finds every record written before it
+ * stopped. A full segment is sealed: the mapping is dropped, and later reads go through the file.
+ * Every segment keeps a sparse index of every {@link #INDEX_INTERVAL}th timestamp, so a time
+ * range is found by a binary search in the index and a short scan in the file.
+ *
+ * <p>Records are appended by a single writer thread, while any thread may read. The record
+ * count is volatile and written after the record, so readers only see complete records.
+ */
+class Segment implements SegmentFile {
+  /**
+   * The number of records in a segment, about four days of readings every five seconds.
+   */
+  static final int CAPACITY = 65536;
+  static final int RECORD_SIZE = 16;
+  static final int INDEX_INTERVAL = 4096;
+
+  private static final int MAGIC = 0x47485453; // "GHTS"
+  private static final int VERSION = 1;
+  private static final int HEADER_SIZE = 16;
+  private static final int COUNT_OFFSET = 8;
+  private static final int FILE_SIZE = HEADER_SIZE + CAPACITY * RECORD_SIZE;
+
+  private final Path path;
+  private final long firstTimestamp;
+  private final long[] index;
+  private volatile MappedByteBuffer buffer;
+  private volatile int count;
+  private volatile long lastTimestamp;
+
+  private Segment(Path path, long firstTimestamp, MappedByteBuffer buffer, int count) {
+    this.path = path;
+    this.firstTimestamp = firstTimestamp;
+    this.index = new long[CAPACITY / INDEX_INTERVAL];
+    this.buffer = buffer;
+    this.count = count;
+  }
+
+  /**
+   * Create a new, empty segment for appending.
+   *
+   * @param path           The file of the segment, which must not exist.
+   * @param firstTimestamp The timestamp of the first record to be appended.
+   * @return The segment.
+   * @throws IOException If the file could not be created.
+   */
+  static Segment create(Path path, long firstTimestamp) throws IOException {
+    MappedByteBuffer buffer = map(path, StandardOpenOption.CREATE_NEW);
+    buffer.putInt(0, MAGIC);
+    buffer.putInt(4, VERSION);
+    buffer.putInt(COUNT_OFFSET, 0);
+    return new Segment(path, firstTimestamp, buffer, 0);
+  }
+
+  /**
+   * Open an existing segment. A segment that is not full is mapped, so records can be appended
+   * to it, while a full segment is opened sealed.
+   *
+   * @param path           The file of the segment.
+   * @param firstTimestamp The timestamp of the first record, from the name of the file.
+   * @return The segment.
+   * @throws IOException If the file could not be read, or is not a segment.
+   */
+  static Segment open(Path path, long firstTimestamp) throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+    ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+    Segment segment;
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      readFully(channel, header, 0);
+      if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+        throw new IOException("Not a segment file: " + path);
+      }
+      int count = header.getInt(COUNT_OFFSET);
+      if (count < 0 || count > CAPACITY) {
+        throw new IOException("Invalid record count in " + path);
+      }
+      segment = new Segment(path, firstTimestamp, null, count);
+      for (int i = 0; i < count; i += INDEX_INTERVAL) {
+        readFully(channel, record.clear(), HEADER_SIZE + (long) i * RECORD_SIZE);
+        segment.index[i / INDEX_INTERVAL] = record.getLong(0);
+      }
+      if (count > 0) {
+        readFully(channel, record.clear(), HEADER_SIZE + (long) (count - 1) * RECORD_SIZE);
+        segment.lastTimestamp = record.getLong(0);
+      }
+    }
+    if (segment.count < CAPACITY) {
+      segment.buffer = map(path);
+    }
+    return segment;
+  }
+
+  private static void readFully(FileChannel channel, ByteBuffer target, long position)
+          throws IOException {
+    while (target.hasRemaining()) {
+      if (channel.read(target, position + target.position()) < 0) {
+        throw new IOException("Segment file is truncated");
+      }
+    }
+  }
+
+  private static MappedByteBuffer map(Path path, StandardOpenOption... options)
+          throws IOException {
+    try (FileChannel channel = FileChannel.open(path, withReadWrite(options))) {
+      return channel.map(FileChannel.MapMode.READ_WRITE, 0, FILE_SIZE);
+    }
+  }
+
+  private static StandardOpenOption[] withReadWrite(StandardOpenOption[] options) {
+    StandardOpenOption[] all = new StandardOpenOption[options.length + 2];
+    all[0] = StandardOpenOption.READ;
+    all[1] = StandardOpenOption.WRITE;
+    System.arraycopy(options, 0, all, 2, options.length);
+    return all;
+  }
+
+  /**
+   * Append a record. Must only be called by the writer thread.
+   *
+   * @param timestamp The timestamp, not before the last timestamp of the segment.
+   * @param value     The value.
+   * @return False if the segment is full or sealed, and the record was not appended.
+   */
+  boolean append(long timestamp, double value) {
+    int position = this.count;
+    if (this.buffer == null || position == CAPACITY) {
+      return false;
+    }
+    int offset = HEADER_SIZE + position * RECORD_SIZE;
+    this.buffer.putLong(offset, timestamp);
+    this.buffer.putDouble(offset + 8, value);
+    this.buffer.putInt(COUNT_OFFSET, position + 1);
+    if (position % INDEX_INTERVAL == 0) {
+      this.index[position / INDEX_INTERVAL] = timestamp;
+    }
+    this.lastTimestamp = timestamp;
+    this.count = position + 1;
+    return true;
+  }
+
+  /**
+   * Stop appending to the segment and drop its mapping.
+   */
+  void seal() {
+    this.buffer = null;
+  }
+
+  boolean isSealed() {
+    return this.buffer == null;
+  }
+
+  /**
+   * Write the mapped records to the disk.
+   */
+  void force() {
+    MappedByteBuffer mapped = this.buffer;
+    if (mapped != null) {
+      mapped.force();
+    }
+  }
+
+  Path getPath() {
+    return this.path;
+  }
+
+  @Override
+  public long getFirstTimestamp() {
+    return this.firstTimestamp;
+  }
+
+  @Override
+  public long getLastTimestamp() {
+    return this.lastTimestamp;
+  }
+
+  int getCount() {
+    return this.count;
+  }
+
+  @Override
+  public void read(long from, long to, TimeSeries result) throws IOException {
+    int size = this.count;
+    if (size == 0 || this.firstTimestamp >= to || this.lastTimestamp < from) {
+      return;
+    }
+    int start = findStart(from, size);
+    MappedByteBuffer mapped = this.buffer;
+    if (mapped != null) {
+      for (int i = start; i < size; i++) {
+        int offset = HEADER_SIZE + i * RECORD_SIZE;
+        long timestamp = mapped.getLong(offset);
+        if (timestamp >= to) {
+          return;
+        }
+        if (timestamp >= from) {
+          result.add(timestamp, mapped.getDouble(offset + 8));
+        }
+      }
+      return;
+    }
+    readSealed(start, size, from, to, result);
+  }
+
+  private void readSealed(int start, int size, long from, long to, TimeSeries result)
+          throws IOException {
+    ByteBuffer chunk = ByteBuffer.allocate(INDEX_INTERVAL * RECORD_SIZE);
+    try (FileChannel channel = FileChannel.open(this.path, StandardOpenOption.READ)) {
+      int position = start;
+      while (position < size) {
+        int records = Math.min(INDEX_INTERVAL, size - position);
+        chunk.clear().limit(records * RECORD_SIZE);
+        readFully(channel, chunk, HEADER_SIZE + (long) position * RECORD_SIZE);
+        chunk.flip();
+        for (int i = 0; i < records; i++) {
+          long timestamp = chunk.getLong();
+          double value = chunk.getDouble();
+          if (timestamp >= to) {
+            return;
+          }
+          if (timestamp >= from) {
+            result.add(timestamp, value);
+          }
+        }
+        position += records;
+      }
+    }
+  }
+
+  /**
+   * Find the first record that may have a timestamp at or after a time, using the index.
+   */
+  private int findStart(long from, int size) {
+    int entries = (size + INDEX_INTERVAL - 1) / INDEX_INTERVAL;
+    int low = 0;
+    int high = entries - 1;
+    while (low < high) {
+      int middle = (low + high + 1) >>> 1;
+      if (this.index[middle] < from) {
+        low = middle;
+      } else {
+        high = middle - 1;
+      }
+    }
+    return low * INDEX_INTERVAL;
+  }
+}
@@ -0,0 +1,23 @@
+package no.ntnu.storage;
+
+import java.io.IOException;
+
+/**
+ * A file with the readings of one sensor in a span of time, either a {@link Segment} of raw
+ * records or a {@link CompressedSegment}.
+ */
+interface SegmentFile {
+  long getFirstTimestamp();
+
+  long getLastTimestamp();
+
+  /**
+   * Add the readings with timestamps in a range to a series, in time order.
+   *
+   * @param from   The start of the range, inclusive.
+   * @param to     The end of the range, exclusive.
+   * @param result The series to add the readings to.
+   * @throws IOException If the file could not be read.
+   */
+  void read(long from, long to, TimeSeries result) throws IOException;
+}
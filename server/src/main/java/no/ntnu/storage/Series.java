@@ -0,0 +1,186 @@
+package no.ntnu.storage;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+
+/**
+ * The readings of one sensor, stored in a directory of segments. Each segment file is named
+ * after the timestamp of its first reading, and only the newest segment is appended to.
+ * A segment that has been sealed is compressed in the background, and the compressed file
+ * takes its place.
+ */
+class Series {
+  private static final String SEGMENT_SUFFIX = ".seg";
+
+  private final int nodeId;
+  private final int sensorId;
+  private final Path directory;
+  private final Executor compactor;
+  private final List<SegmentFile> segments;
+  private Segment active;
+
+  private Series(int nodeId, int sensorId, Path directory, Executor compactor) {
+    this.nodeId = nodeId;
+    this.sensorId = sensorId;
+    this.directory = directory;
+    this.compactor = compactor;
+    this.segments = new CopyOnWriteArrayList<>();
+  }
+
+  /**
+   * Open the series of a sensor, with the segments already in its directory. Raw segments
+   * left sealed but not compressed by an earlier run are compressed again.
+   *
+   * @param directory The directory of the series, created if it does not exist.
+   * @param nodeId    The ID of the node of the sensor.
+   * @param sensorId  The ID of the sensor.
+   * @param compactor The executor compressing sealed segments.
+   * @return The series.
+   * @throws IOException If the directory or a segment could not be read.
+   */
+  static Series open(Path directory, int nodeId, int sensorId, Executor compactor)
+          throws IOException {
+    Files.createDirectories(directory);
+    Map<Long, Path> raw = new HashMap<>();
+    Map<Long, Path> compressed = new HashMap<>();
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+      for (Path file : files) {
+        String name = file.getFileName().toString();
+        if (name.endsWith(SEGMENT_SUFFIX)) {
+          raw.put(parseTimestamp(name, SEGMENT_SUFFIX), file);
+        } else if (name.endsWith(CompressedSegment.SUFFIX)) {
+          compressed.put(parseTimestamp(name, CompressedSegment.SUFFIX), file);
+        }
+      }
+    } catch (NumberFormatException e) {
+      throw new IOException("Unexpected file in " + directory, e);
+    }
+    List<SegmentFile> segments = new ArrayList<>();
+    for (Map.Entry<Long, Path> entry : compressed.entrySet()) {
+      segments.add(CompressedSegment.open(entry.getValue(), entry.getKey()));
+      Path leftover = raw.remove(entry.getKey());
+      if (leftover != null) {
+        Files.delete(leftover);
+      }
+    }
+    for (Map.Entry<Long, Path> entry : raw.entrySet()) {
+      segments.add(Segment.open(entry.getValue(), entry.getKey()));
+    }
+    segments.sort(Comparator.comparingLong(SegmentFile::getFirstTimestamp));
+
+    Series series = new Series(nodeId, sensorId, directory, compactor);
+    series.segments.addAll(segments);
+    for (int i = 0; i < segments.size(); i++) {
+      if (segments.get(i) instanceof Segment segment) {
+        if (i == segments.size() - 1 && !segment.isSealed()) {
+          series.active = segment;
+        } else {
+          series.compact(segment);
+        }
+      }
+    }
+    return series;
+  }
+
+  private static long parseTimestamp(String name, String suffix) {
+    return Long.parseLong(name.substring(0, name.length() - suffix.length()));
+  }
+
+  /**
+   * Append a reading. Must only be called by the writer thread. A reading older than the last
+   * stored one is stored with the last timestamp, so the series stays in time order.
+   *
+   * @param timestamp The time of the reading.
+   * @param value     The value of the reading.
+   * @return The time the reading was stored at.
+   * @throws IOException If a new segment was needed and could not be created.
+   */
+  long append(long timestamp, double value) throws IOException {
+    if (!this.segments.isEmpty()) {
+      timestamp = Math.max(timestamp,
+              this.segments.get(this.segments.size() - 1).getLastTimestamp());
+    }
+    if (this.active != null) {
+      if (this.active.append(timestamp, value)) {
+        return timestamp;
+      }
+      this.active.seal();
+      compact(this.active);
+    }
+    Segment segment = Segment.create(
+            this.directory.resolve(timestamp + SEGMENT_SUFFIX), timestamp);
+    segment.append(timestamp, value);
+    this.segments.add(segment);
+    this.active = segment;
+    return timestamp;
+  }
+
+  /**
+   * Compress a sealed segment in the background, and replace it with the compressed file.
+   */
+  private void compact(Segment segment) {
+    this.compactor.execute(() -> {
+      try {
+        Path target = this.directory.resolve(
+                segment.getFirstTimestamp() + CompressedSegment.SUFFIX);
+        CompressedSegment compressed = CompressedSegment.write(target, segment);
+        this.segments.set(this.segments.indexOf(segment), compressed);
+        Files.delete(segment.getPath());
+      } catch (IOException e) {
+        System.out.println("Could not compress " + segment.getPath() + ": " + e.getMessage());
+      }
+    });
+  }
+
+  /**
+   * Read the readings in a time range.
+   *
+   * @param from The start of the range, inclusive.
+   * @param to   The end of the range, exclusive.
+   * @return The readings.
+   * @throws IOException If a segment could not be read.
+   */
+  TimeSeries read(long from, long to) throws IOException {
+    try {
+      return readSegments(from, to);
+    } catch (NoSuchFileException e) {
+      // A raw segment was replaced by its compressed file while it was read.
+      return readSegments(from, to);
+    }
+  }
+
+  private TimeSeries readSegments(long from, long to) throws IOException {
+    TimeSeries result = new TimeSeries(this.nodeId, this.sensorId);
+    for (SegmentFile segment : this.segments) {
+      segment.read(from, to, result);
+    }
+    return result;
+  }
+
+  /**
+   * Write the records of the segment being appended to, to the disk.
+   */
+  void force() {
+    if (this.active != null) {
+      this.active.force();
+    }
+  }
+
+  int getNodeId() {
+    return this.nodeId;
+  }
+
+  int getSensorId() {
+    return this.sensorId;
+  }
+}
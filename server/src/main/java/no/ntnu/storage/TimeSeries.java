@@ -0,0 +1,64 @@
+package no.ntnu.storage;
+
+import java.util.Arrays;
+
+/**
+ * The stored readings of one sensor in a time range, as parallel arrays of timestamps and
+ * values in time order.
+ */
+public class TimeSeries {
+  private final int nodeId;
+  private final int sensorId;
+  private long[] timestamps;
+  private double[] values;
+  private int size;
+
+  /**
+   * Create an empty series.
+   *
+   * @param nodeId   The ID of the node of the sensor.
+   * @param sensorId The ID of the sensor.
+   */
+  public TimeSeries(int nodeId, int sensorId) {
+    this.nodeId = nodeId;
+    this.sensorId = sensorId;
+    this.timestamps = new long[64];
+    this.values = new double[64];
+  }
+
+  /**
+   * Add a reading at the end of the series.
+   *
+   * @param timestamp The time of the reading, in milliseconds since the epoch.
+   * @param value     The value of the reading.
+   */
+  public void add(long timestamp, double value) {
+    if (this.size == this.timestamps.length) {
+      this.timestamps = Arrays.copyOf(this.timestamps, this.size * 2);
+      this.values = Arrays.copyOf(this.values, this.size * 2);
+    }
+    this.timestamps[this.size] = timestamp;
+    this.values[this.size] = value;
+    this.size++;
+  }
+
+  public int getNodeId() {
+    return this.nodeId;
+  }
+
+  public int getSensorId() {
+    return this.sensorId;
+  }
+
+  public int size() {
+    return this.size;
+  }
+
+  public long getTimestamp(int index) {
+    return this.timestamps[index];
+  }
+
+  public double getValue(int index) {
+    return this.values[index];
+  }
+}
@@ -0,0 +1,283 @@
+package no.ntnu.storage;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import no.ntnu.commands.Data;
+import no.ntnu.commands.SensorReadingBatch;
+import no.ntnu.commands.SensorReadingMessage;
+
+/**
+ * An embedded store of the sensor readings passing through the server.
+ * Readings are kept per node and sensor, in a directory {@code node-<id>/sensor-<id>} of
+ * append-only segment files under the root directory of the store.
+ *
+ * <p>The threads routing messages only hand readings to {@link #record(Data, long)}, which puts
+ * them in a bounded queue. A single writer thread takes the queued readings in batches and
+ * appends them to the segments, so a slow disk never holds up the routing. If the queue is
+ * full, the readings are dropped and counted instead.
+ *
+ * <p>Full segments are compressed by a second background thread, see {@link CompressedSegment}.
+ * The writer thread also rolls every reading up into minute, hour and day buckets, see
+ * {@link RollupPipeline}, so queries over long ranges read a few buckets instead of every
+ * reading.
+ */
+public class TimeSeriesStore {
+  private static final int QUEUE_CAPACITY = 65536;
+  private static final int MAX_BATCH = 4096;
+
+  private final Path root;
+  private final Map<Long, Series> series;
+  private final BlockingQueue<Pending> queue;
+  private final AtomicLong droppedCount;
+  private final Thread writer;
+  private final ExecutorService compactor;
+  private final RollupPipeline rollups;
+  private volatile boolean running;
+
+  /**
+   * A message with readings, waiting to be written.
+   *
+   * @param timestamp The time the server received the message.
+   * @param message   The reading or batch of readings, or null to stop the writer.
+   */
+  private record Pending(long timestamp, Data message) {
+  }
+
+  private TimeSeriesStore(Path root) {
+    this.root = root;
+    this.series = new ConcurrentHashMap<>();
+    this.queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    this.droppedCount = new AtomicLong();
+    this.rollups = new RollupPipeline(root, this::query);
+    this.running = true;
+    this.writer = new Thread(this::writeLoop, "storage-writer");
+    this.writer.setDaemon(true);
+    this.compactor = Executors.newSingleThreadExecutor(task -> {
+      Thread thread = new Thread(task, "storage-compactor");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Open a store, and start its writer thread.
+   *
+   * @param root The root directory of the store, created if it does not exist.
+   * @return The store.
+   * @throws IOException If the directory could not be created.
+   */
+  public static TimeSeriesStore open(Path root) throws IOException {
+    Files.createDirectories(root);
+    TimeSeriesStore store = new TimeSeriesStore(root);
+    store.writer.start();
+    return store;
+  }
+
+  /**
+   * Queue the readings of a message to be stored. Messages without readings are ignored.
+   *
+   * @param message   The message.
+   * @param timestamp The time the readings were received, in milliseconds since the epoch.
+   * @return False if the queue was full and the readings were dropped, true otherwise.
+   */
+  public boolean record(Data message, long timestamp) {
+    if (!(message instanceof SensorReadingMessage || message instanceof SensorReadingBatch)) {
+      return true;
+    }
+    if (!this.running || !this.queue.offer(new Pending(timestamp, message))) {
+      this.droppedCount.incrementAndGet();
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Read the stored readings of a sensor in a time range. Readings still waiting in the queue
+   * are not included.
+   *
+   * @param nodeId   The ID of the node of the sensor.
+   * @param sensorId The ID of the sensor.
+   * @param from     The start of the range, inclusive, in milliseconds since the epoch.
+   * @param to       The end of the range, exclusive, in milliseconds since the epoch.
+   * @return The readings, in time order.
+   * @throws IOException If the stored readings could not be read.
+   */
+  public TimeSeries query(int nodeId, int sensorId, long from, long to) throws IOException {
+    Series stored = this.series.get(seriesKey(nodeId, sensorId));
+    if (stored == null) {
+      Path directory = seriesDirectory(nodeId, sensorId);
+      if (!Files.isDirectory(directory)) {
+        return new TimeSeries(nodeId, sensorId);
+      }
+      try {
+        stored = getSeries(nodeId, sensorId);
+      } catch (UncheckedIOException e) {
+        throw e.getCause();
+      }
+    }
+    return stored.read(from, to);
+  }
+
+  /**
+   * Read the readings of a sensor in a time range, rolled up to the coarsest resolution that
+   * still gives a number of points. A range too short for the finest resolution gives the raw
+   * readings.
+   *
+   * @param nodeId    The ID of the node of the sensor.
+   * @param sensorId  The ID of the sensor.
+   * @param from      The start of the range, inclusive, in milliseconds since the epoch.
+   * @param to        The end of the range, exclusive, in milliseconds since the epoch.
+   * @param maxPoints The number of points wanted, such as the width of a chart.
+   * @return The buckets, in time order.
+   * @throws IOException If the stored readings could not be read.
+   * @see Resolution#choose(long, long, int)
+   */
+  public AggregateSeries queryAggregated(int nodeId, int sensorId, long from, long to,
+                                         int maxPoints) throws IOException {
+    return queryAggregated(nodeId, sensorId, from, to, Resolution.choose(from, to, maxPoints));
+  }
+
+  /**
+   * Read the readings of a sensor in a time range, rolled up to a resolution.
+   *
+   * @param nodeId     The ID of the node of the sensor.
+   * @param sensorId   The ID of the sensor.
+   * @param from       The start of the range, inclusive, in milliseconds since the epoch.
+   * @param to         The end of the range, exclusive, in milliseconds since the epoch.
+   * @param resolution The resolution, or null for the raw readings.
+   * @return The buckets, in time order.
+   * @throws IOException If the stored readings could not be read.
+   */
+  public AggregateSeries queryAggregated(int nodeId, int sensorId, long from, long to,
+                                         Resolution resolution) throws IOException {
+    if (resolution == null) {
+      return AggregateSeries.fromReadings(query(nodeId, sensorId, from, to));
+    }
+    if (!Files.isDirectory(seriesDirectory(nodeId, sensorId))) {
+      return new AggregateSeries(nodeId, sensorId, resolution);
+    }
+    return this.rollups.query(nodeId, sensorId, resolution, from, to);
+  }
+
+  /**
+   * Return the number of readings dropped because the write queue was full.
+   *
+   * @return the number of dropped readings.
+   */
+  public long getDroppedCount() {
+    return this.droppedCount.get();
+  }
+
+  /**
+   * Return the number of messages waiting to be written.
+   *
+   * @return the number of queued messages.
+   */
+  public int getQueuedCount() {
+    return this.queue.size();
+  }
+
+  /**
+   * Write the queued readings, stop the background threads and flush the segments to the disk.
+   * Called from a shutdown hook when the server is stopped by a signal.
+   */
+  public void close() {
+    if (!this.running) {
+      return;
+    }
+    this.running = false;
+    try {
+      this.queue.put(new Pending(0, null));
+      this.writer.join();
+      // Readings queued by a routing thread just as the store was closed.
+      for (Pending pending = this.queue.poll(); pending != null; pending = this.queue.poll()) {
+        if (pending.message() != null) {
+          write(pending);
+        }
+      }
+      this.rollups.flush();
+      this.compactor.shutdown();
+      this.compactor.awaitTermination(1, TimeUnit.MINUTES);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    this.series.values().forEach(Series::force);
+  }
+
+  private void writeLoop() {
+    List<Pending> batch = new ArrayList<>(MAX_BATCH);
+    while (true) {
+      try {
+        batch.add(this.queue.take());
+      } catch (InterruptedException e) {
+        return;
+      }
+      this.queue.drainTo(batch, MAX_BATCH - 1);
+      for (Pending pending : batch) {
+        if (pending.message() == null) {
+          return;
+        }
+        write(pending);
+      }
+      batch.clear();
+    }
+  }
+
+  private void write(Pending pending) {
+    try {
+      if (pending.message() instanceof SensorReadingMessage reading) {
+        write(reading.getNodeId(), reading.getSensorId(), pending.timestamp(),
+                reading.getValue());
+      } else if (pending.message() instanceof SensorReadingBatch readings) {
+        for (int i = 0; i < readings.size(); i++) {
+          write(readings.getNodeId(), readings.getSensorId(i), pending.timestamp(),
+                  readings.getValue(i));
+        }
+      }
+    } catch (IOException | UncheckedIOException e) {
+      System.out.println("Could not store readings: " + e.getMessage());
+    }
+  }
+
+  private void write(int nodeId, int sensorId, long timestamp, double value)
+          throws IOException {
+    this.rollups.prepare(nodeId, sensorId);
+    long storedTimestamp = getSeries(nodeId, sensorId).append(timestamp, value);
+    this.rollups.add(nodeId, sensorId, storedTimestamp, timestamp, value);
+  }
+
+  private Series getSeries(int nodeId, int sensorId) {
+    return this.series.computeIfAbsent(seriesKey(nodeId, sensorId), key -> {
+      try {
+        return Series.open(seriesDirectory(nodeId, sensorId), nodeId, sensorId,
+                this.compactor);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    });
+  }
+
+  private Path seriesDirectory(int nodeId, int sensorId) {
+    return seriesDirectory(this.root, nodeId, sensorId);
+  }
+
+  static Path seriesDirectory(Path root, int nodeId, int sensorId) {
+    return root.resolve("node-" + nodeId).resolve("sensor-" + sensorId);
+  }
+
+  static long seriesKey(int nodeId, int sensorId) {
+    return ((long) nodeId << 32) | (sensorId & 0xffffffffL);
+  }
+}
@@ -0,0 +1,246 @@
+package no.ntnu.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import no.ntnu.commands.ActuatorCommand;
+import no.ntnu.commands.Data;
+import no.ntnu.commands.NodeIdentifier;
+import no.ntnu.commands.SensorReadingBatch;
+import no.ntnu.commands.SensorReadingMessage;
+import org.junit.Test;
+
+/**
+ * Tests for {@link OutboundQueue}.
+ */
+public class OutboundQueueTest {
+
+  private static SensorReadingMessage reading(int nodeId, int sensorId, double value) {
+    return new SensorReadingMessage("Reading", nodeId, sensorId, "temperature", value, "°C");
+  }
+
+  private static SensorReadingBatch batch(int nodeId, int... sensorIds) {
+    int size = sensorIds.length;
+    return new SensorReadingBatch("ReadingBatch", nodeId, sensorIds, new String[size],
+            new double[size], new String[size]);
+  }
+
+  private static ActuatorCommand command(int nodeId) {
+    return new ActuatorCommand("ActuatorCommand", nodeId, 1, "On");
+  }
+
+  @Test
+  public void dropsTheOldestReadingWhenFull() {
+    OutboundQueue queue = new OutboundQueue(3, OverflowPolicy.DROP_OLDEST);
+    Data[] readings = new Data[5];
+    for (int i = 0; i < readings.length; i++) {
+      readings[i] = reading(1, 1, i);
+      assertTrue(queue.offer(readings[i]));
+    }
+    assertEquals(2, queue.getDroppedCount());
+    assertEquals(0, queue.getCoalescedCount());
+    assertEquals(3, queue.getDepth());
+    assertSame(readings[2], queue.poll());
+    assertSame(readings[3], queue.poll());
+    assertSame(readings[4], queue.poll());
+    assertNull(queue.poll());
+  }
+
+  @Test
+  public void replacesAQueuedReadingFromTheSameSensorInPlace() {
+    OutboundQueue queue = new OutboundQueue(4, OverflowPolicy.COALESCE);
+    Data first = reading(1, 1, 1);
+    Data other = reading(1, 2, 2);
+    Data otherNode = reading(2, 1, 3);
+    Data newer = reading(1, 1, 4);
+    queue.offer(first);
+    queue.offer(other);
+    queue.offer(otherNode);
+    queue.offer(newer);
+    assertEquals(1, queue.getCoalescedCount());
+    assertEquals(0, queue.getDroppedCount());
+    assertEquals(3, queue.getDepth());
+    assertSame(newer, queue.poll());
+    assertSame(other, queue.poll());
+    assertSame(otherNode, queue.poll());
+
+    // Once taken, a reading is no longer replaced.
+    Data next = reading(1, 1, 5);
+    queue.offer(next);
+    assertEquals(1, queue.getCoalescedCount());
+    assertSame(next, queue.poll());
+  }
+
+  @Test
+  public void replacesABatchFromTheSameSensorsButNotAReading() {
+    OutboundQueue queue = new OutboundQueue(4, OverflowPolicy.COALESCE);
+    Data single = reading(1, 1, 1);
+    Data older = batch(1, 1, 2);
+    Data differentOrder = batch(1, 2, 1);
+    Data newer = batch(1, 1, 2);
+    queue.offer(single);
+    queue.offer(older);
+    queue.offer(differentOrder);
+    queue.offer(newer);
+    assertEquals(1, queue.getCoalescedCount());
+    assertSame(single, queue.poll());
+    assertSame(newer, queue.poll());
+    assertSame(differentOrder, queue.poll());
+    assertNull(queue.poll());
+  }
+
+  @Test
+  public void keepsBatchesFromDifferentSensorsWithTheSameHash() {
+    SensorReadingBatch first = batch(1, 1, 32);
+    SensorReadingBatch second = batch(1, 2, 1);
+    assertEquals(first.getSensorSetKey(), second.getSensorSetKey());
+
+    OutboundQueue queue = new OutboundQueue(4, OverflowPolicy.COALESCE);
+    queue.offer(first);
+    queue.offer(second);
+    assertEquals(0, queue.getCoalescedCount());
+    assertSame(first, queue.poll());
+    assertSame(second, queue.poll());
+    assertNull(queue.poll());
+  }
+
+  @Test
+  public void coalescingDropsTheOldestWhenFullOfOtherSensors() {
+    OutboundQueue queue = new OutboundQueue(2, OverflowPolicy.COALESCE);
+    Data first = reading(1, 1, 1);
+    Data second = reading(1, 2, 2);
+    Data third = reading(1, 3, 3);
+    queue.offer(first);
+    queue.offer(second);
+    queue.offer(third);
+    assertEquals(1, queue.getDroppedCount());
+    assertEquals(0, queue.getCoalescedCount());
+
+    // The dropped reading is forgotten, so a newer one from its sensor is queued at the end.
+    Data newer = reading(1, 1, 4);
+    queue.offer(newer);
+    assertEquals(2, queue.getDroppedCount());
+    assertSame(third, queue.poll());
+    assertSame(newer, queue.poll());
+  }
+
+  @Test
+  public void asksToDisconnectWhenFull() {
+    OutboundQueue queue = new OutboundQueue(2, OverflowPolicy.DISCONNECT);
+    assertTrue(queue.offer(reading(1, 1, 1)));
+    assertTrue(queue.offer(reading(1, 2, 2)));
+    assertFalse(queue.offer(reading(1, 3, 3)));
+    assertEquals(0, queue.getDroppedCount());
+    assertEquals(2, queue.getDepth());
+    // Control messages are still accepted.
+    assertTrue(queue.offer(command(1)));
+  }
+
+  @Test
+  public void neverDropsControlMessages() {
+    for (OverflowPolicy policy : OverflowPolicy.values()) {
+      OutboundQueue queue = new OutboundQueue(1, policy);
+      queue.offer(reading(1, 1, 1));
+      for (int i = 0; i < 100; i++) {
+        assertTrue(queue.offer(command(i)));
+      }
+      assertEquals(101, queue.getDepth());
+      assertEquals(0, queue.getDroppedCount());
+      for (int i = 0; i < 100; i++) {
+        assertEquals(i, queue.poll().getNodeId());
+      }
+    }
+  }
+
+  @Test
+  public void drainsControlMessagesBeforeReadings() {
+    OutboundQueue queue = new OutboundQueue(8, OverflowPolicy.DROP_OLDEST);
+    Data firstReading = reading(1, 1, 1);
+    Data secondReading = reading(1, 2, 2);
+    Data firstCommand = command(1);
+    Data identifier = new NodeIdentifier("Identifier", 1);
+    queue.offer(firstReading);
+    queue.offer(firstCommand);
+    queue.offer(secondReading);
+    queue.offer(identifier);
+    assertSame(firstCommand, queue.poll());
+    assertSame(identifier, queue.poll());
+    assertSame(firstReading, queue.poll());
+    assertSame(secondReading, queue.poll());
+    assertNull(queue.poll());
+  }
+
+  @Test
+  public void tracksTheDepthAndItsHighWaterMark() {
+    OutboundQueue queue = new OutboundQueue(4, OverflowPolicy.DROP_OLDEST);
+    for (int i = 0; i < 3; i++) {
+      queue.offer(reading(1, i, i));
+    }
+    queue.offer(command(1));
+    assertEquals(4, queue.getDepth());
+    queue.poll();
+    queue.poll();
+    assertEquals(2, queue.getDepth());
+    assertEquals(4, queue.getHighWaterMark());
+    for (int i = 0; i < 10; i++) {
+      queue.offer(reading(1, i, i));
+    }
+    assertEquals(4, queue.getDepth());
+    assertEquals(4, queue.getHighWaterMark());
+    queue.offer(command(1));
+    assertEquals(5, queue.getDepth());
+    assertEquals(5, queue.getHighWaterMark());
+  }
+
+  @Test
+  public void wrapsAroundTheRingManyTimes() {
+    OutboundQueue queue = new OutboundQueue(3, OverflowPolicy.COALESCE);
+    for (int i = 0; i < 1000; i++) {
+      Data reading = reading(1, i % 5, i);
+      queue.offer(reading);
+      assertSame(reading, queue.poll());
+    }
+    assertEquals(0, queue.getDepth());
+    assertEquals(0, queue.getDroppedCount());
+    assertEquals(0, queue.getCoalescedCount());
+  }
+
+  @Test
+  public void wakesATakerAndEndsItOnClose() throws InterruptedException {
+    OutboundQueue queue = new OutboundQueue(4, OverflowPolicy.DROP_OLDEST);
+    Data[] taken = new Data[2];
+    Thread taker = new Thread(() -> {
+      try {
+        taken[0] = queue.take();
+        taken[1] = queue.take();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    taker.start();
+    Data command = command(1);
+    queue.offer(command);
+    while (queue.getDepth() > 0) {
+      Thread.sleep(1);
+    }
+    queue.close();
+    taker.join(5000);
+    assertFalse(taker.isAlive());
+    assertSame(command, taken[0]);
+    assertNull(taken[1]);
+    assertTrue(queue.isClosed());
+  }
+
+  @Test
+  public void ignoresMessagesAfterClose() {
+    OutboundQueue queue = new OutboundQueue(1, OverflowPolicy.DISCONNECT);
+    queue.offer(command(1));
+    queue.close();
+    assertTrue(queue.offer(reading(1, 1, 1)));
+    assertTrue(queue.offer(reading(1, 2, 1)));
+    assertNull(queue.poll());
+  }
+}
@@ -0,0 +1,145 @@
+package no.ntnu.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import no.ntnu.node.Actuator;
+import no.ntnu.node.Node;
+import no.ntnu.node.Sensor;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for {@link TopologyStore}, restoring the greenhouse from its write-ahead log.
+ */
+public class TopologyStoreTest {
+  private static final String LOG = "topology-0.wal";
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private Path directory;
+
+  @Before
+  public void setUp() throws IOException {
+    this.directory = this.folder.newFolder().toPath();
+  }
+
+  /**
+   * Save a node with a sensor and an actuator, then turn the actuator on and off, as four log
+   * records. The store is left open, as after a crash.
+   *
+   * @return The length of the log after each record.
+   */
+  private long[] recordChanges() throws IOException {
+    TopologyStore store = TopologyStore.open(this.directory);
+    assertTrue(store.restore().isEmpty());
+    Path log = this.directory.resolve(LOG);
+    long[] lengths = new long[4];
+    Node node = new Node(1000);
+    node.addSensor(new Sensor(2000, 1000, "temperature", 15, 30, 20, "°C"));
+    store.recordNode(node);
+    lengths[0] = Files.size(log);
+    store.recordActuator(1000, new Actuator(3000, "fan", 1000));
+    lengths[1] = Files.size(log);
+    store.recordActuatorState(1000, 3000, true);
+    lengths[2] = Files.size(log);
+    store.recordActuatorState(1000, 3000, false);
+    lengths[3] = Files.size(log);
+    return lengths;
+  }
+
+  private List<Node> restore() throws IOException {
+    return TopologyStore.open(this.directory).restore();
+  }
+
+  @Test
+  public void restoresEveryChangeFromTheLog() throws IOException {
+    recordChanges();
+    List<Node> nodes = restore();
+    assertEquals(1, nodes.size());
+    Node node = nodes.get(0);
+    assertEquals(1000, node.getId());
+    assertEquals(1, node.getSensors().size());
+    assertEquals(2000, node.getSensors().get(0).getSensorId());
+    assertFalse(node.getActuator(3000).isOn());
+  }
+
+  @Test
+  public void dropsATornRecordAtTheEnd() throws IOException {
+    long[] lengths = recordChanges();
+    Path log = this.directory.resolve(LOG);
+    try (FileChannel channel = FileChannel.open(log, StandardOpenOption.WRITE)) {
+      channel.truncate(lengths[3] - 3);
+    }
+    List<Node> nodes = restore();
+    assertTrue(nodes.get(0).getActuator(3000).isOn());
+    assertEquals(lengths[2], Files.size(log));
+  }
+
+  @Test
+  public void dropsATornHeaderAtTheEnd() throws IOException {
+    long[] lengths = recordChanges();
+    Path log = this.directory.resolve(LOG);
+    try (FileChannel channel = FileChannel.open(log, StandardOpenOption.WRITE)) {
+      channel.truncate(lengths[2] + 5);
+    }
+    List<Node> nodes = restore();
+    assertTrue(nodes.get(0).getActuator(3000).isOn());
+    assertEquals(lengths[2], Files.size(log));
+  }
+
+  @Test
+  public void dropsACorruptRecordAndEverythingAfterIt() throws IOException {
+    long[] lengths = recordChanges();
+    Path log = this.directory.resolve(LOG);
+    try (FileChannel channel = FileChannel.open(log, StandardOpenOption.READ,
+            StandardOpenOption.WRITE)) {
+      // Flip the last byte of the third record, the actuator turned on.
+      ByteBuffer last = ByteBuffer.allocate(1);
+      channel.read(last, lengths[2] - 1);
+      channel.write(ByteBuffer.wrap(new byte[] {(byte) (last.get(0) ^ 1)}), lengths[2] - 1);
+    }
+    List<Node> nodes = restore();
+    assertFalse(nodes.get(0).getActuator(3000).isOn());
+    assertEquals(lengths[1], Files.size(log));
+  }
+
+  @Test
+  public void dropsARecordWithAnImpossibleLength() throws IOException {
+    long[] lengths = recordChanges();
+    Path log = this.directory.resolve(LOG);
+    try (FileChannel channel = FileChannel.open(log, StandardOpenOption.WRITE,
+            StandardOpenOption.APPEND)) {
+      channel.write(ByteBuffer.allocate(12).putInt(-1).putInt(0).putInt(0).flip());
+    }
+    restore();
+    assertEquals(lengths[3], Files.size(log));
+  }
+
+  @Test
+  public void appendsAfterATruncatedRecord() throws IOException {
+    long[] lengths = recordChanges();
+    Path log = this.directory.resolve(LOG);
+    try (FileChannel channel = FileChannel.open(log, StandardOpenOption.WRITE)) {
+      channel.truncate(lengths[3] - 1);
+    }
+    TopologyStore store = TopologyStore.open(this.directory);
+    store.restore();
+    store.recordActuatorState(1000, 3000, false);
+
+    List<Node> nodes = restore();
+    assertFalse(nodes.get(0).getActuator(3000).isOn());
+    assertEquals(lengths[3], Files.size(log));
+  }
+}
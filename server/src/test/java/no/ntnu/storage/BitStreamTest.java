@@ -0,0 +1,88 @@
+package no.ntnu.storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * Tests for {@link BitOutput} and {@link BitInput}.
+ */
+public class BitStreamTest {
+
+  private static BitInput inputOf(BitOutput out) {
+    byte[] bytes = out.toByteArray();
+    return new BitInput(Arrays.copyOf(bytes, bytes.length + BitInput.PADDING), bytes.length);
+  }
+
+  @Test
+  public void readsBackValuesOfEveryWidth() {
+    Random random = new Random(42);
+    long[] values = new long[2000];
+    int[] widths = new int[values.length];
+    BitOutput out = new BitOutput();
+    for (int i = 0; i < values.length; i++) {
+      widths[i] = 1 + random.nextInt(64);
+      long value = random.nextLong();
+      values[i] = widths[i] == 64 ? value : value & ((1L << widths[i]) - 1);
+      out.writeBits(values[i], widths[i]);
+    }
+    BitInput in = inputOf(out);
+    for (int i = 0; i < values.length; i++) {
+      assertEquals("value " + i, values[i], in.readBits(widths[i]));
+    }
+  }
+
+  @Test
+  public void readsBackSingleBits() {
+    BitOutput out = new BitOutput();
+    out.writeBit(true);
+    out.writeBit(false);
+    out.writeBit(true);
+    BitInput in = inputOf(out);
+    assertTrue(in.readBit());
+    assertFalse(in.readBit());
+    assertTrue(in.readBit());
+  }
+
+  @Test
+  public void readsBackNegativeValuesAsSigned() {
+    BitOutput out = new BitOutput();
+    out.writeBits(-1, 7);
+    out.writeBits(-64, 7);
+    out.writeBits(63, 7);
+    out.writeBits(-32768, 16);
+    out.writeBits(Long.MIN_VALUE, 64);
+    BitInput in = inputOf(out);
+    assertEquals(-1, in.readSignedBits(7));
+    assertEquals(-64, in.readSignedBits(7));
+    assertEquals(63, in.readSignedBits(7));
+    assertEquals(-32768, in.readSignedBits(16));
+    assertEquals(Long.MIN_VALUE, in.readSignedBits(64));
+  }
+
+  @Test
+  public void padsToWholeBytes() {
+    BitOutput out = new BitOutput();
+    out.writeBits(0b101, 3);
+    assertEquals(1, out.toByteArray().length);
+    assertEquals((byte) 0b10100000, out.toByteArray()[0]);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void rejectsReadingPastTheEnd() {
+    BitOutput out = new BitOutput();
+    out.writeBits(0xff, 8);
+    BitInput in = inputOf(out);
+    in.readBits(8);
+    in.readBit();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void requiresPadding() {
+    new BitInput(new byte[4], 4);
+  }
+}
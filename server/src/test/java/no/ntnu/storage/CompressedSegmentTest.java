@@ -0,0 +1,168 @@
+package no.ntnu.storage;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for {@link CompressedSegment}, compressing raw segments and reading them back.
+ */
+public class CompressedSegmentTest {
+  private static final long START = 1_700_000_000_000L;
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private Path directory;
+
+  @Before
+  public void setUp() throws IOException {
+    this.directory = this.folder.newFolder().toPath();
+  }
+
+  private CompressedSegment compress(long[] timestamps, double[] values) throws IOException {
+    Segment segment = Segment.create(this.directory.resolve(timestamps[0] + ".seg"),
+            timestamps[0]);
+    for (int i = 0; i < timestamps.length; i++) {
+      segment.append(timestamps[i], values[i]);
+    }
+    segment.seal();
+    Path target = this.directory.resolve(timestamps[0] + CompressedSegment.SUFFIX);
+    CompressedSegment.write(target, segment);
+    return CompressedSegment.open(target, timestamps[0]);
+  }
+
+  private static void assertReadings(long[] timestamps, double[] values, TimeSeries actual) {
+    assertEquals(timestamps.length, actual.size());
+    for (int i = 0; i < timestamps.length; i++) {
+      assertEquals("timestamp " + i, timestamps[i], actual.getTimestamp(i));
+      assertEquals("value " + i, Double.doubleToRawLongBits(values[i]),
+              Double.doubleToRawLongBits(actual.getValue(i)));
+    }
+  }
+
+  private static TimeSeries readAll(SegmentFile segment) throws IOException {
+    TimeSeries result = new TimeSeries(0, 0);
+    segment.read(Long.MIN_VALUE, Long.MAX_VALUE, result);
+    return result;
+  }
+
+  @Test
+  public void roundTripsReadingsWithTwoDecimals() throws IOException {
+    int count = 3 * Segment.INDEX_INTERVAL + 17;
+    long[] timestamps = new long[count];
+    double[] values = new double[count];
+    for (int i = 0; i < count; i++) {
+      timestamps[i] = START + i * 1000L + (i % 7 == 0 ? 3 : 0);
+      values[i] = Math.round(2000 + 500 * Math.sin(i / 50.0)) / 100.0;
+    }
+    assertReadings(timestamps, values, readAll(compress(timestamps, values)));
+  }
+
+  @Test
+  public void roundTripsNegativeDeltasAndLargeSteps() throws IOException {
+    long[] timestamps = {START, START + 5000, START + 5001, START + 5001, START + 9000,
+        START + 9100, START + 100_000, START + 100_050};
+    double[] values = {25.0, -3.5, 1e12, -1e12, 0.01, -0.01, 0.0, 99.99};
+    assertReadings(timestamps, values, readAll(compress(timestamps, values)));
+  }
+
+  @Test
+  public void roundTripsTimestampGaps() throws IOException {
+    long day = Resolution.DAY.getDuration();
+    long[] timestamps = {START, START + 1000, START + 2000, START + 30 * day,
+        START + 30 * day + 1000, START + 30 * day + 1000 + 3000, START + 400 * day};
+    double[] values = {1, 2, 3, 4, 5, 6, 7};
+    CompressedSegment segment = compress(timestamps, values);
+    assertReadings(timestamps, values, readAll(segment));
+
+    TimeSeries range = new TimeSeries(0, 0);
+    segment.read(START + 1500, START + 30 * day + 1, range);
+    assertReadings(new long[] {START + 2000, START + 30 * day}, new double[] {3, 4}, range);
+  }
+
+  @Test
+  public void roundTripsValuesThatCannotBeScaled() throws IOException {
+    long[] timestamps = new long[12];
+    for (int i = 0; i < timestamps.length; i++) {
+      timestamps[i] = START + i * 1000L;
+    }
+    double[] values = {Double.NaN, 1.0 / 3, Double.POSITIVE_INFINITY, -0.0, 0.0,
+        Double.NEGATIVE_INFINITY, Double.MIN_VALUE, -Double.MAX_VALUE, Double.NaN,
+        Double.longBitsToDouble(0x7ff8000000000001L), 22.5, 22.5};
+    assertReadings(timestamps, values, readAll(compress(timestamps, values)));
+  }
+
+  @Test
+  public void readsARangeInTheMiddleOfManyBlocks() throws IOException {
+    int count = 2 * Segment.INDEX_INTERVAL + 100;
+    long[] timestamps = new long[count];
+    double[] values = new double[count];
+    for (int i = 0; i < count; i++) {
+      timestamps[i] = START + i * 10L;
+      values[i] = i;
+    }
+    TimeSeries range = new TimeSeries(0, 0);
+    compress(timestamps, values).read(START + 40_000, START + 41_000, range);
+    assertEquals(100, range.size());
+    assertEquals(START + 40_000, range.getTimestamp(0));
+    assertEquals(4000, range.getValue(0), 0.0);
+  }
+
+  @Test(expected = IOException.class)
+  public void rejectsATruncatedFile() throws IOException {
+    long[] timestamps = {START, START + 1000, START + 2000};
+    double[] values = {1.5, Double.NaN, 2.5};
+    CompressedSegment segment = compress(timestamps, values);
+    Path file = this.directory.resolve(START + CompressedSegment.SUFFIX);
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+      channel.truncate(channel.size() - 4);
+    }
+    readAll(segment);
+  }
+
+  @Test(expected = IOException.class)
+  public void rejectsATruncatedHeader() throws IOException {
+    compress(new long[] {START}, new double[] {1});
+    Path file = this.directory.resolve(START + CompressedSegment.SUFFIX);
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+      channel.truncate(10);
+    }
+    CompressedSegment.open(file, START);
+  }
+
+  @Test(expected = IOException.class)
+  public void rejectsAnotherKindOfFile() throws IOException {
+    compress(new long[] {START}, new double[] {1});
+    Path file = this.directory.resolve(START + CompressedSegment.SUFFIX);
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+      channel.write(ByteBuffer.allocate(4).putInt(0x12345678).flip(), 0);
+    }
+    CompressedSegment.open(file, START);
+  }
+
+  @Test(expected = IOException.class)
+  public void rejectsABlockShorterThanItsReadings() throws IOException {
+    long[] timestamps = new long[100];
+    double[] values = new double[100];
+    for (int i = 0; i < timestamps.length; i++) {
+      timestamps[i] = START + i * 1000L;
+      values[i] = i * 1.25;
+    }
+    compress(timestamps, values);
+    Path file = this.directory.resolve(START + CompressedSegment.SUFFIX);
+    // Shorten the length of the only block in the table, after the 24-byte header.
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+      channel.write(ByteBuffer.allocate(4).putInt(12).flip(), 24 + 12);
+    }
+    readAll(CompressedSegment.open(file, START));
+  }
+}
@@ -0,0 +1,144 @@
+package no.ntnu.storage;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for {@link RollupPipeline}, with the stored readings kept in memory.
+ */
+public class RollupPipelineTest {
+  private static final long MINUTE = Resolution.MINUTE.getDuration();
+  private static final long DAY_START = 1_700_000_000_000L / Resolution.DAY.getDuration()
+          * Resolution.DAY.getDuration();
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private Path root;
+  private TimeSeries stored;
+
+  @Before
+  public void setUp() throws IOException {
+    this.root = this.folder.newFolder().toPath();
+    this.stored = new TimeSeries(1, 2);
+  }
+
+  private RollupPipeline open() {
+    return new RollupPipeline(this.root, (nodeId, sensorId, from, to) -> {
+      TimeSeries result = new TimeSeries(nodeId, sensorId);
+      for (int i = 0; i < this.stored.size(); i++) {
+        long timestamp = this.stored.getTimestamp(i);
+        if (timestamp >= from && timestamp < to) {
+          result.add(timestamp, this.stored.getValue(i));
+        }
+      }
+      return result;
+    });
+  }
+
+  /**
+   * Store a reading the way the store does, at no earlier time than the last one.
+   */
+  private void write(RollupPipeline rollups, long timestamp, double value) throws IOException {
+    rollups.prepare(1, 2);
+    long storedTimestamp = timestamp;
+    if (this.stored.size() > 0) {
+      storedTimestamp = Math.max(timestamp,
+              this.stored.getTimestamp(this.stored.size() - 1));
+    }
+    this.stored.add(storedTimestamp, value);
+    rollups.add(1, 2, storedTimestamp, timestamp, value);
+  }
+
+  private AggregateSeries query(RollupPipeline rollups, Resolution resolution)
+          throws IOException {
+    return rollups.query(1, 2, resolution, DAY_START, DAY_START + Resolution.DAY.getDuration());
+  }
+
+  @Test
+  public void rollsReadingsUpIntoBuckets() throws IOException {
+    RollupPipeline rollups = open();
+    write(rollups, DAY_START + 1000, 1.0);
+    write(rollups, DAY_START + 2000, 3.0);
+    write(rollups, DAY_START + MINUTE, 5.0);
+
+    AggregateSeries minutes = query(rollups, Resolution.MINUTE);
+    assertEquals(2, minutes.size());
+    assertEquals(DAY_START, minutes.getStart(0));
+    assertEquals(1.0, minutes.getMinimum(0), 0.0);
+    assertEquals(3.0, minutes.getMaximum(0), 0.0);
+    assertEquals(2, minutes.getCount(0));
+    assertEquals(5.0, minutes.getSum(1), 0.0);
+
+    AggregateSeries days = query(rollups, Resolution.DAY);
+    assertEquals(1, days.size());
+    assertEquals(3, days.getCount(0));
+    assertEquals(9.0, days.getSum(0), 0.0);
+  }
+
+  @Test
+  public void keepsLateReadingsInTheirOwnBucket() throws IOException {
+    RollupPipeline rollups = open();
+    write(rollups, DAY_START, 1.0);
+    write(rollups, DAY_START + 2 * MINUTE, 2.0);
+    write(rollups, DAY_START + MINUTE, 4.0);
+
+    AggregateSeries minutes = query(rollups, Resolution.MINUTE);
+    assertEquals(3, minutes.size());
+    assertEquals(DAY_START + MINUTE, minutes.getStart(1));
+    assertEquals(4.0, minutes.getSum(1), 0.0);
+    assertEquals(1, minutes.getCount(1));
+    assertEquals(DAY_START + 2 * MINUTE, minutes.getStart(2));
+    assertEquals(2.0, minutes.getSum(2), 0.0);
+    assertEquals(1, minutes.getCount(2));
+  }
+
+  @Test
+  public void rebuildsOpenBucketsAfterAStopWithoutFlushing() throws IOException {
+    RollupPipeline rollups = open();
+    for (int i = 0; i < 5; i++) {
+      write(rollups, DAY_START + i * MINUTE / 2, i);
+    }
+
+    RollupPipeline reopened = open();
+    AggregateSeries days = query(reopened, Resolution.DAY);
+    assertEquals(1, days.size());
+    assertEquals(5, days.getCount(0));
+    assertEquals(10.0, days.getSum(0), 0.0);
+    AggregateSeries minutes = query(reopened, Resolution.MINUTE);
+    assertEquals(3, minutes.size());
+    assertEquals(1, minutes.getCount(2));
+  }
+
+  @Test
+  public void countsEveryReadingOnceAcrossRestarts() throws IOException {
+    RollupPipeline rollups = open();
+    write(rollups, DAY_START, 1.0);
+    write(rollups, DAY_START + MINUTE, 2.0);
+    write(rollups, DAY_START + MINUTE, 3.0);
+    rollups.flush();
+
+    rollups = open();
+    write(rollups, DAY_START + MINUTE, 4.0);
+    write(rollups, DAY_START + 2 * MINUTE, 5.0);
+
+    rollups = open();
+    write(rollups, DAY_START + 2 * MINUTE, 6.0);
+
+    AggregateSeries minutes = query(open(), Resolution.MINUTE);
+    assertEquals(3, minutes.size());
+    assertEquals(1, minutes.getCount(0));
+    assertEquals(3, minutes.getCount(1));
+    assertEquals(9.0, minutes.getSum(1), 0.0);
+    assertEquals(2, minutes.getCount(2));
+    AggregateSeries days = query(open(), Resolution.DAY);
+    assertEquals(6, days.getCount(0));
+    assertEquals(21.0, days.getSum(0), 0.0);
+  }
+}
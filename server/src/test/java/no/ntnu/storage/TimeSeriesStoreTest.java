@@ -0,0 +1,56 @@
+package no.ntnu.storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import no.ntnu.commands.SensorReadingMessage;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for {@link TimeSeriesStore}.
+ */
+public class TimeSeriesStoreTest {
+  private static final long START = 1_700_000_000_000L;
+  private static final int READINGS = 20_000;
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void closeWritesEveryQueuedReading() throws IOException {
+    Path root = this.folder.newFolder().toPath();
+    TimeSeriesStore store = TimeSeriesStore.open(root);
+    for (int i = 0; i < READINGS; i++) {
+      SensorReadingMessage reading =
+              new SensorReadingMessage("Reading", 1, 2, "temperature", i, "C");
+      assertTrue(store.record(reading, START + i));
+    }
+    store.close();
+    assertEquals(0, store.getQueuedCount());
+
+    TimeSeriesStore reopened = TimeSeriesStore.open(root);
+    TimeSeries readings = reopened.query(1, 2, START, START + READINGS);
+    assertEquals(READINGS, readings.size());
+    assertEquals(READINGS - 1, readings.getValue(READINGS - 1), 0.0);
+    AggregateSeries days = reopened.queryAggregated(1, 2, START, START + READINGS,
+            Resolution.DAY);
+    assertEquals(1, days.size());
+    assertEquals(READINGS, days.getCount(0));
+    reopened.close();
+  }
+
+  @Test
+  public void dropsReadingsRecordedAfterClose() throws IOException {
+    TimeSeriesStore store = TimeSeriesStore.open(this.folder.newFolder().toPath());
+    store.close();
+    SensorReadingMessage reading =
+            new SensorReadingMessage("Reading", 1, 2, "temperature", 1.0, "C");
+    assertFalse(store.record(reading, START));
+    assertEquals(1, store.getDroppedCount());
+  }
+}